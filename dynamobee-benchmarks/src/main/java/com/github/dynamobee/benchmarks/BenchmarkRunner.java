@@ -0,0 +1,31 @@
+package com.github.dynamobee.benchmarks;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+
+/**
+ * Runs the JMH benchmarks and keeps their results as JSON under {@code results/}, one file per run,
+ * so that runs can be compared over time. Arguments are passed to JMH; giving {@code -rff} overrides the result file.
+ */
+public class BenchmarkRunner {
+	private static final String RESULTS_DIRECTORY = "results";
+
+	public static void main(String[] args) throws Exception {
+		List<String> arguments = new ArrayList<>(Arrays.asList(args));
+		if (!arguments.contains("-rff")) {
+			File results = new File(RESULTS_DIRECTORY);
+			results.mkdirs();
+			String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+			arguments.addAll(Arrays.asList("-rf", "json", "-rff",
+					new File(results, "jmh-" + timestamp + ".json").getPath()));
+		}
+		Main.main(arguments.toArray(new String[0]));
+	}
+}
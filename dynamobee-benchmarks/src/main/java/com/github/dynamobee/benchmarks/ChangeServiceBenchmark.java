@@ -0,0 +1,66 @@
+package com.github.dynamobee.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.utils.ChangeService;
+
+
+/**
+ * Discovery of the changelogs and changesets, done at every boot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ChangeServiceBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	private int changeSetCount;
+
+	@Param({ "false", "true" })
+	private boolean indexed;
+
+	private ClassLoader classLoader;
+	private ChangeService service;
+	private List<Class<?>> changeLogs;
+
+	@Setup
+	public void setUp() throws Exception {
+		classLoader = SyntheticChangeLogs.compile(changeSetCount, indexed);
+		Thread.currentThread().setContextClassLoader(classLoader);
+		service = new ChangeService(SyntheticChangeLogs.PACKAGE);
+		changeLogs = service.fetchChangeLogs();
+	}
+
+	@Benchmark
+	public List<Class<?>> fetchChangeLogs() {
+		Thread.currentThread().setContextClassLoader(classLoader);
+		return service.fetchChangeLogs();
+	}
+
+	@Benchmark
+	public void fetchChangeSets(Blackhole blackhole) throws DynamobeeChangeSetException {
+		for (Class<?> changeLog : changeLogs) {
+			List<Method> changeSets = service.fetchChangeSets(changeLog);
+			blackhole.consume(changeSets);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.github.dynamobee.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.document.DynamoDB;
+import com.github.dynamobee.changeset.ChangeSetContext;
+import com.github.dynamobee.test.InMemoryAmazonDynamoDB;
+import com.github.dynamobee.utils.ChangeSetInvoker;
+import com.github.dynamobee.utils.ChangeSetInvokers;
+
+
+/**
+ * Dispatch of a changeset method call, as done by Dynamobee for every applied or runAlways changeset:
+ * the cached invoker against a reflective baseline resolving the parameters on every call
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ChangeSetDispatchBenchmark {
+
+	@Param({ "noParameters", "dynamoDB", "dynamoDBAndClient" })
+	private String changeSetMethod;
+
+	private final DispatchChangeLog changeLog = new DispatchChangeLog();
+	private AmazonDynamoDB amazonDynamoDB;
+	private DynamoDB dynamoDB;
+	private Method method;
+	private ChangeSetInvoker invoker;
+	private ChangeSetContext context;
+
+	@Setup
+	public void setUp() throws Exception {
+		amazonDynamoDB = new InMemoryAmazonDynamoDB();
+		dynamoDB = new DynamoDB(amazonDynamoDB);
+		for (Method candidate : DispatchChangeLog.class.getMethods()) {
+			if (candidate.getName().equals(changeSetMethod)) {
+				method = candidate;
+			}
+		}
+
+		ChangeSetInvokers invokers = new ChangeSetInvokers();
+		invokers.register(DynamoDB.class, c -> dynamoDB);
+		invokers.register(AmazonDynamoDB.class, c -> amazonDynamoDB);
+		invoker = invokers.get(method);
+		context = new ChangeSetContext(null, null, null, amazonDynamoDB);
+	}
+
+	@Benchmark
+	public Object invoker() throws Exception {
+		return invoker.invoke(changeLog, context);
+	}
+
+	@Benchmark
+	public Object reflection() throws Exception {
+		if (method.getParameterTypes().length == 1 && method.getParameterTypes()[0].equals(DynamoDB.class)) {
+			return method.invoke(changeLog, dynamoDB);
+		} else if (method.getParameterTypes().length == 2
+				&& method.getParameterTypes()[0].equals(DynamoDB.class)
+				&& method.getParameterTypes()[1].equals(AmazonDynamoDB.class)) {
+			return method.invoke(changeLog, dynamoDB, amazonDynamoDB);
+		} else {
+			return method.invoke(changeLog);
+		}
+	}
+
+	public static class DispatchChangeLog {
+		private int calls;
+
+		public int noParameters() {
+			return ++calls;
+		}
+
+		public int dynamoDB(DynamoDB db) {
+			return ++calls;
+		}
+
+		public int dynamoDBAndClient(DynamoDB db, AmazonDynamoDB client) {
+			return ++calls;
+		}
+	}
+}
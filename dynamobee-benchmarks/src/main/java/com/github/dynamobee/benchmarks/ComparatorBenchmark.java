@@ -0,0 +1,79 @@
+package com.github.dynamobee.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dynamobee.changeset.ChangeSet;
+import com.github.dynamobee.utils.ChangeLogComparator;
+import com.github.dynamobee.utils.ChangeSetComparator;
+
+
+/**
+ * Ordering of shuffled changelogs and changesets
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ComparatorBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	private int changeSetCount;
+
+	private List<Class<?>> changeLogs;
+	private List<Method> changeSets;
+
+	@Setup
+	public void setUp() throws Exception {
+		ClassLoader classLoader = SyntheticChangeLogs.compile(changeSetCount, true);
+		changeLogs = new ArrayList<>();
+		changeSets = new ArrayList<>();
+		int changeLogCount = (changeSetCount + SyntheticChangeLogs.CHANGESETS_PER_CHANGELOG - 1)
+				/ SyntheticChangeLogs.CHANGESETS_PER_CHANGELOG;
+		for (int i = 0; i < changeLogCount; i++) {
+			Class<?> changeLog = Class.forName(String.format("%s.ChangeLog%05d", SyntheticChangeLogs.PACKAGE, i), true,
+					classLoader);
+			changeLogs.add(changeLog);
+			for (Method method : changeLog.getDeclaredMethods()) {
+				if (method.isAnnotationPresent(ChangeSet.class)) {
+					changeSets.add(method);
+				}
+			}
+		}
+		Random random = new Random(42);
+		Collections.shuffle(changeLogs, random);
+		Collections.shuffle(changeSets, random);
+	}
+
+	@Benchmark
+	public List<Class<?>> sortChangeLogs() {
+		List<Class<?>> sorted = new ArrayList<>(changeLogs);
+		Collections.sort(sorted, new ChangeLogComparator());
+		return sorted;
+	}
+
+	@Benchmark
+	public List<Method> sortChangeSets() {
+		List<Method> sorted = new ArrayList<>(changeSets);
+		Collections.sort(sorted, new ChangeSetComparator());
+		return sorted;
+	}
+}
@@ -0,0 +1,61 @@
+package com.github.dynamobee.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dynamobee.Dynamobee;
+import com.github.dynamobee.MigrationReport;
+import com.github.dynamobee.test.InMemoryAmazonDynamoDB;
+
+
+/**
+ * Full boot of an application whose changesets are all applied already, against an in-memory DynamoDB
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class NoOpExecuteBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	private int changeSetCount;
+
+	@Param({ "false", "true" })
+	private boolean fastPathEnabled;
+
+	private ClassLoader classLoader;
+	private Dynamobee runner;
+
+	@Setup
+	public void setUp() throws Exception {
+		classLoader = SyntheticChangeLogs.compile(changeSetCount, true);
+		Thread.currentThread().setContextClassLoader(classLoader);
+
+		runner = new Dynamobee(new InMemoryAmazonDynamoDB())
+				.setChangeLogsScanPackage(SyntheticChangeLogs.PACKAGE)
+				.setFastPathEnabled(fastPathEnabled);
+		MigrationReport report = runner.executeWithReport();
+		if (report.getApplied().size() != changeSetCount) {
+			throw new IllegalStateException("Setup run applied " + report.getApplied().size() + " changesets");
+		}
+	}
+
+	@Benchmark
+	public MigrationReport execute() throws Exception {
+		Thread.currentThread().setContextClassLoader(classLoader);
+		return runner.executeWithReport();
+	}
+}
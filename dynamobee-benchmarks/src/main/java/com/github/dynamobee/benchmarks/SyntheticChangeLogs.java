@@ -0,0 +1,92 @@
+package com.github.dynamobee.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+
+/**
+ * Generates and compiles changelog classes holding a given number of no-op changesets
+ */
+final class SyntheticChangeLogs {
+	static final String PACKAGE = "com.github.dynamobee.benchmarks.synthetic";
+	static final int CHANGESETS_PER_CHANGELOG = 100;
+
+	private SyntheticChangeLogs() {
+	}
+
+	/**
+	 * @param changeSetCount number of changesets, spread over changelogs of {@value #CHANGESETS_PER_CHANGELOG}
+	 * @param indexed whether the changelog index is generated by the dynamobee annotation processor
+	 * @return class loader of the compiled changelogs
+	 * @throws IOException if the sources can not be written or compiled
+	 */
+	static ClassLoader compile(int changeSetCount, boolean indexed) throws IOException {
+		Path root = Files.createTempDirectory("dynamobee-benchmarks");
+		Path sources = Files.createDirectories(root.resolve("src").resolve(PACKAGE.replace('.', File.separatorChar)));
+		Path classes = Files.createDirectories(root.resolve("classes"));
+
+		List<File> files = new ArrayList<>();
+		int changeLogCount = (changeSetCount + CHANGESETS_PER_CHANGELOG - 1) / CHANGESETS_PER_CHANGELOG;
+		for (int changeLog = 0; changeLog < changeLogCount; changeLog++) {
+			int first = changeLog * CHANGESETS_PER_CHANGELOG;
+			int last = Math.min(changeSetCount, first + CHANGESETS_PER_CHANGELOG);
+			Path source = sources.resolve(className(changeLog) + ".java");
+			Files.write(source, generate(changeLog, first, last).getBytes(StandardCharsets.UTF_8));
+			files.add(source.toFile());
+		}
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IOException("Synthetic changelogs need a JDK to be compiled");
+		}
+		List<String> options = new ArrayList<>(Arrays.asList(
+				"-d", classes.toString(),
+				"-classpath", System.getProperty("java.class.path")));
+		if (!indexed) {
+			options.add("-proc:none");
+		}
+
+		StringWriter output = new StringWriter();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+			Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(files);
+			if (!compiler.getTask(output, fileManager, null, options, null, units).call()) {
+				throw new IOException("Synthetic changelogs did not compile: " + output);
+			}
+		}
+
+		return new URLClassLoader(new URL[] { classes.toUri().toURL() }, SyntheticChangeLogs.class.getClassLoader());
+	}
+
+	private static String className(int changeLog) {
+		return String.format("ChangeLog%05d", changeLog);
+	}
+
+	private static String generate(int changeLog, int first, int last) {
+		StringBuilder source = new StringBuilder()
+				.append("package ").append(PACKAGE).append(";\n\n")
+				.append("import com.github.dynamobee.changeset.ChangeLog;\n")
+				.append("import com.github.dynamobee.changeset.ChangeSet;\n\n")
+				.append(String.format("@ChangeLog(order = \"%05d\")%n", changeLog))
+				.append("public class ").append(className(changeLog)).append(" {\n");
+		for (int changeSet = first; changeSet < last; changeSet++) {
+			source.append(String.format("%n\t@ChangeSet(author = \"benchmark\", id = \"changeset-%d\", order = \"%05d\")%n",
+					changeSet, changeSet))
+					.append(String.format("\tpublic void changeSet%d() {%n\t}%n", changeSet));
+		}
+		return source.append("}\n").toString();
+	}
+}
@@ -0,0 +1,297 @@
+package com.github.dynamobee.test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+
+/**
+ * Type-aware comparison, copy and sizing of attribute values
+ */
+final class AttributeValues {
+	static final String S = "S";
+	static final String N = "N";
+	static final String B = "B";
+	static final String BOOL = "BOOL";
+	static final String NULL = "NULL";
+	static final String SS = "SS";
+	static final String NS = "NS";
+	static final String BS = "BS";
+	static final String L = "L";
+	static final String M = "M";
+
+	private AttributeValues() {
+	}
+
+	/**
+	 * @return DynamoDB type descriptor of the value, e.g. "S"
+	 */
+	static String type(AttributeValue value) {
+		if (value.getS() != null) {
+			return S;
+		} else if (value.getN() != null) {
+			return N;
+		} else if (value.getB() != null) {
+			return B;
+		} else if (value.getBOOL() != null) {
+			return BOOL;
+		} else if (value.getNULL() != null) {
+			return NULL;
+		} else if (value.getSS() != null) {
+			return SS;
+		} else if (value.getNS() != null) {
+			return NS;
+		} else if (value.getBS() != null) {
+			return BS;
+		} else if (value.getL() != null) {
+			return L;
+		} else if (value.getM() != null) {
+			return M;
+		}
+		throw InMemoryAmazonDynamoDB.validation("Supplied AttributeValue is empty, must contain exactly one of the supported datatypes");
+	}
+
+	static boolean isScalarKeyType(String type) {
+		return S.equals(type) || N.equals(type) || B.equals(type);
+	}
+
+	/**
+	 * Equality as DynamoDB sees it: numbers by value, sets regardless of order
+	 */
+	static boolean equal(AttributeValue a, AttributeValue b) {
+		String type = type(a);
+		if (!type.equals(type(b))) {
+			return false;
+		}
+		switch (type) {
+		case S:
+			return a.getS().equals(b.getS());
+		case N:
+			return number(a).compareTo(number(b)) == 0;
+		case B:
+			return a.getB().equals(b.getB());
+		case BOOL:
+			return a.getBOOL().equals(b.getBOOL());
+		case NULL:
+			return true;
+		case SS:
+			return new HashSet<>(a.getSS()).equals(new HashSet<>(b.getSS()));
+		case NS:
+			return numberSet(a.getNS()).equals(numberSet(b.getNS()));
+		case BS:
+			return new HashSet<>(a.getBS()).equals(new HashSet<>(b.getBS()));
+		case L:
+			if (a.getL().size() != b.getL().size()) {
+				return false;
+			}
+			for (int i = 0; i < a.getL().size(); i++) {
+				if (!equal(a.getL().get(i), b.getL().get(i))) {
+					return false;
+				}
+			}
+			return true;
+		default:
+			if (!a.getM().keySet().equals(b.getM().keySet())) {
+				return false;
+			}
+			for (Map.Entry<String, AttributeValue> entry : a.getM().entrySet()) {
+				if (!equal(entry.getValue(), b.getM().get(entry.getKey()))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Ordering of two scalar values of the same type
+	 *
+	 * @return comparison result, or null if the values can not be ordered
+	 */
+	static Integer compare(AttributeValue a, AttributeValue b) {
+		String type = type(a);
+		if (!type.equals(type(b))) {
+			return null;
+		}
+		switch (type) {
+		case S:
+			return a.getS().compareTo(b.getS());
+		case N:
+			return number(a).compareTo(number(b));
+		case B:
+			return compareBytes(a.getB(), b.getB());
+		default:
+			return null;
+		}
+	}
+
+	static int compareBytes(ByteBuffer a, ByteBuffer b) {
+		ByteBuffer x = a.duplicate();
+		ByteBuffer y = b.duplicate();
+		x.rewind();
+		y.rewind();
+		while (x.hasRemaining() && y.hasRemaining()) {
+			int diff = (x.get() & 0xff) - (y.get() & 0xff);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return x.remaining() - y.remaining();
+	}
+
+	static BigDecimal number(AttributeValue value) {
+		return new BigDecimal(value.getN());
+	}
+
+	private static Set<BigDecimal> numberSet(List<String> numbers) {
+		Set<BigDecimal> set = new HashSet<>();
+		for (String number : numbers) {
+			set.add(new BigDecimal(number).stripTrailingZeros());
+		}
+		return set;
+	}
+
+	/**
+	 * Value identity used to hash keys, consistent with {@link #equal(AttributeValue, AttributeValue)} for key types
+	 */
+	static String canonical(AttributeValue value) {
+		switch (type(value)) {
+		case S:
+			return "S:" + value.getS();
+		case N:
+			return "N:" + number(value).stripTrailingZeros().toPlainString();
+		case B:
+			ByteBuffer bytes = value.getB().duplicate();
+			bytes.rewind();
+			StringBuilder hex = new StringBuilder("B:");
+			while (bytes.hasRemaining()) {
+				hex.append(String.format("%02x", bytes.get()));
+			}
+			return hex.toString();
+		default:
+			return value.toString();
+		}
+	}
+
+	static AttributeValue copy(AttributeValue value) {
+		AttributeValue copy = new AttributeValue();
+		copy.setS(value.getS());
+		copy.setN(value.getN());
+		if (value.getB() != null) {
+			copy.setB(copyBytes(value.getB()));
+		}
+		copy.setBOOL(value.getBOOL());
+		copy.setNULL(value.getNULL());
+		if (value.getSS() != null) {
+			copy.setSS(new ArrayList<>(value.getSS()));
+		}
+		if (value.getNS() != null) {
+			copy.setNS(new ArrayList<>(value.getNS()));
+		}
+		if (value.getBS() != null) {
+			List<ByteBuffer> bs = new ArrayList<>();
+			for (ByteBuffer buffer : value.getBS()) {
+				bs.add(copyBytes(buffer));
+			}
+			copy.setBS(bs);
+		}
+		if (value.getL() != null) {
+			List<AttributeValue> list = new ArrayList<>();
+			for (AttributeValue element : value.getL()) {
+				list.add(copy(element));
+			}
+			copy.setL(list);
+		}
+		if (value.getM() != null) {
+			copy.setM(copy(value.getM()));
+		}
+		return copy;
+	}
+
+	static Map<String, AttributeValue> copy(Map<String, AttributeValue> item) {
+		if (item == null) {
+			return null;
+		}
+		Map<String, AttributeValue> copy = new LinkedHashMap<>();
+		for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+			copy.put(entry.getKey(), copy(entry.getValue()));
+		}
+		return copy;
+	}
+
+	private static ByteBuffer copyBytes(ByteBuffer buffer) {
+		ByteBuffer source = buffer.duplicate();
+		source.rewind();
+		ByteBuffer copy = ByteBuffer.allocate(source.remaining());
+		copy.put(source);
+		copy.flip();
+		return copy;
+	}
+
+	/**
+	 * Approximate stored size of an item, following the DynamoDB item size rules
+	 */
+	static long size(Map<String, AttributeValue> item) {
+		long size = 0;
+		for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+			size += utf8Length(entry.getKey()) + size(entry.getValue());
+		}
+		return size;
+	}
+
+	static long size(AttributeValue value) {
+		switch (type(value)) {
+		case S:
+			return utf8Length(value.getS());
+		case N:
+			return (value.getN().length() + 1) / 2 + 1;
+		case B:
+			return value.getB().remaining();
+		case BOOL:
+		case NULL:
+			return 1;
+		case SS:
+			long ss = 0;
+			for (String s : value.getSS()) {
+				ss += utf8Length(s);
+			}
+			return ss;
+		case NS:
+			long ns = 0;
+			for (String n : value.getNS()) {
+				ns += (n.length() + 1) / 2 + 1;
+			}
+			return ns;
+		case BS:
+			long bs = 0;
+			for (ByteBuffer b : value.getBS()) {
+				bs += b.remaining();
+			}
+			return bs;
+		case L:
+			long l = 3;
+			for (AttributeValue element : value.getL()) {
+				l += 1 + size(element);
+			}
+			return l;
+		default:
+			long m = 3;
+			for (Map.Entry<String, AttributeValue> entry : value.getM().entrySet()) {
+				m += 1 + utf8Length(entry.getKey()) + size(entry.getValue());
+			}
+			return m;
+		}
+	}
+
+	private static long utf8Length(String s) {
+		return s.getBytes(StandardCharsets.UTF_8).length;
+	}
+}
@@ -0,0 +1,799 @@
+package com.github.dynamobee.test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+
+
+/**
+ * Parser and evaluator of condition, key condition, filter, update and projection expressions
+ */
+final class Expressions {
+	private final List<String> tokens;
+	private final Map<String, String> names;
+	private final Map<String, AttributeValue> values;
+	private int position;
+
+	private Expressions(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+		this.tokens = tokenize(expression);
+		this.names = names != null ? names : Collections.<String, String>emptyMap();
+		this.values = values != null ? values : Collections.<String, AttributeValue>emptyMap();
+	}
+
+	/**
+	 * Boolean expression over an item
+	 */
+	interface Condition {
+		boolean evaluate(Map<String, AttributeValue> item);
+	}
+
+	/**
+	 * Value computed from an item; null when it refers to a missing attribute
+	 */
+	interface Operand {
+		AttributeValue resolve(Map<String, AttributeValue> item);
+	}
+
+	/**
+	 * Parsed update expression, applied to a copy of the item
+	 */
+	static final class Update {
+		private final List<Action> actions = new ArrayList<>();
+
+		/**
+		 * @return top-level attributes modified by the update
+		 */
+		Set<String> apply(Map<String, AttributeValue> item) {
+			Set<String> updated = new LinkedHashSet<>();
+			// operands are resolved against the item as it was before the update
+			Map<String, AttributeValue> original = AttributeValues.copy(item);
+			for (Action action : actions) {
+				action.apply(original, item);
+				updated.add(action.path.getAttributeName());
+			}
+			return updated;
+		}
+
+		Set<String> getAttributeNames() {
+			Set<String> attributes = new LinkedHashSet<>();
+			for (Action action : actions) {
+				attributes.add(action.path.getAttributeName());
+			}
+			return attributes;
+		}
+	}
+
+	private abstract static class Action {
+		final Path path;
+
+		Action(Path path) {
+			this.path = path;
+		}
+
+		abstract void apply(Map<String, AttributeValue> original, Map<String, AttributeValue> item);
+	}
+
+	static Condition parseCondition(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+		Expressions parser = new Expressions(expression, names, values);
+		Condition condition = parser.orCondition();
+		parser.expectEnd();
+		return condition;
+	}
+
+	static Update parseUpdate(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+		Expressions parser = new Expressions(expression, names, values);
+		Update update = parser.update();
+		parser.expectEnd();
+		return update;
+	}
+
+	static List<Path> parseProjection(String expression, Map<String, String> names) {
+		Expressions parser = new Expressions(expression, names, null);
+		List<Path> paths = new ArrayList<>();
+		paths.add(parser.path());
+		while (parser.accept(",")) {
+			paths.add(parser.path());
+		}
+		parser.expectEnd();
+		return paths;
+	}
+
+	/**
+	 * Condition of the legacy {@code KeyConditions}, {@code QueryFilter} and {@code ScanFilter} parameters
+	 */
+	static Condition fromLegacyConditions(Map<String, com.amazonaws.services.dynamodbv2.model.Condition> conditions,
+			String conditionalOperator) {
+		Map<String, ExpectedAttributeValue> expected = new LinkedHashMap<>();
+		for (Map.Entry<String, com.amazonaws.services.dynamodbv2.model.Condition> entry : conditions.entrySet()) {
+			expected.put(entry.getKey(), new ExpectedAttributeValue()
+					.withComparisonOperator(entry.getValue().getComparisonOperator())
+					.withAttributeValueList(entry.getValue().getAttributeValueList()));
+		}
+		return fromExpected(expected, conditionalOperator);
+	}
+
+	/**
+	 * Condition of the legacy {@code Expected} parameter, translated into an equivalent condition expression
+	 */
+	static Condition fromExpected(Map<String, ExpectedAttributeValue> expected, String conditionalOperator) {
+		Map<String, String> names = new LinkedHashMap<>();
+		Map<String, AttributeValue> values = new LinkedHashMap<>();
+		StringBuilder expression = new StringBuilder();
+		for (Map.Entry<String, ExpectedAttributeValue> entry : expected.entrySet()) {
+			if (expression.length() > 0) {
+				expression.append(ConditionalOperator.OR.toString().equals(conditionalOperator) ? " OR " : " AND ");
+			}
+			String name = "#a" + names.size();
+			names.put(name, entry.getKey());
+			ExpectedAttributeValue condition = entry.getValue();
+			List<String> operands = new ArrayList<>();
+			if (condition.getAttributeValueList() != null) {
+				for (AttributeValue value : condition.getAttributeValueList()) {
+					operands.add(value(values, value));
+				}
+			} else if (condition.getValue() != null) {
+				operands.add(value(values, condition.getValue()));
+			}
+			String operator = condition.getComparisonOperator();
+			if (operator == null) {
+				operator = Boolean.FALSE.equals(condition.getExists()) ? ComparisonOperator.NULL.toString()
+						: operands.isEmpty() ? ComparisonOperator.NOT_NULL.toString() : ComparisonOperator.EQ.toString();
+			}
+			expression.append(legacyCondition(name, ComparisonOperator.fromValue(operator), operands));
+		}
+		return parseCondition(expression.toString(), names, values);
+	}
+
+	private static String value(Map<String, AttributeValue> values, AttributeValue value) {
+		String placeholder = ":v" + values.size();
+		values.put(placeholder, value);
+		return placeholder;
+	}
+
+	private static String legacyCondition(String name, ComparisonOperator operator, List<String> operands) {
+		switch (operator) {
+		case EQ:
+			return name + " = " + operand(operands, 0);
+		case NE:
+			return name + " <> " + operand(operands, 0);
+		case LE:
+			return name + " <= " + operand(operands, 0);
+		case LT:
+			return name + " < " + operand(operands, 0);
+		case GE:
+			return name + " >= " + operand(operands, 0);
+		case GT:
+			return name + " > " + operand(operands, 0);
+		case NOT_NULL:
+			return "attribute_exists(" + name + ")";
+		case NULL:
+			return "attribute_not_exists(" + name + ")";
+		case CONTAINS:
+			return "contains(" + name + ", " + operand(operands, 0) + ")";
+		case NOT_CONTAINS:
+			return "NOT contains(" + name + ", " + operand(operands, 0) + ")";
+		case BEGINS_WITH:
+			return "begins_with(" + name + ", " + operand(operands, 0) + ")";
+		case BETWEEN:
+			return name + " BETWEEN " + operand(operands, 0) + " AND " + operand(operands, 1);
+		default:
+			if (operands.isEmpty()) {
+				throw InMemoryAmazonDynamoDB.validation("IN requires at least one value");
+			}
+			return name + " IN (" + String.join(", ", operands) + ")";
+		}
+	}
+
+	private static String operand(List<String> operands, int index) {
+		if (index >= operands.size()) {
+			throw InMemoryAmazonDynamoDB.validation("Invalid number of argument(s) for the comparison operator");
+		}
+		return operands.get(index);
+	}
+
+	// tokenizer
+
+	private static List<String> tokenize(String expression) {
+		List<String> tokens = new ArrayList<>();
+		int i = 0;
+		while (i < expression.length()) {
+			char c = expression.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (Character.isLetterOrDigit(c) || c == '_' || c == '#' || c == ':') {
+				int start = i++;
+				while (i < expression.length()
+						&& (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+					i++;
+				}
+				tokens.add(expression.substring(start, i));
+			} else if ((c == '<' || c == '>') && i + 1 < expression.length()
+					&& (expression.charAt(i + 1) == '=' || (c == '<' && expression.charAt(i + 1) == '>'))) {
+				tokens.add(expression.substring(i, i + 2));
+				i += 2;
+			} else if ("()[],.=<>+-".indexOf(c) >= 0) {
+				tokens.add(String.valueOf(c));
+				i++;
+			} else {
+				throw syntaxError(expression, "unexpected character '" + c + "'");
+			}
+		}
+		return tokens;
+	}
+
+	private static RuntimeException syntaxError(String expression, String detail) {
+		return InMemoryAmazonDynamoDB.validation("Invalid expression: " + detail + "; expression: " + expression);
+	}
+
+	private RuntimeException syntaxError(String detail) {
+		return InMemoryAmazonDynamoDB.validation("Invalid expression: " + detail + " at token "
+				+ (position < tokens.size() ? "\"" + tokens.get(position) + "\"" : "<end>"));
+	}
+
+	private String peek() {
+		return position < tokens.size() ? tokens.get(position) : null;
+	}
+
+	private String peek(int offset) {
+		return position + offset < tokens.size() ? tokens.get(position + offset) : null;
+	}
+
+	private String next() {
+		if (position >= tokens.size()) {
+			throw syntaxError("unexpected end of expression");
+		}
+		return tokens.get(position++);
+	}
+
+	private boolean accept(String token) {
+		if (token.equalsIgnoreCase(peek())) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(String token) {
+		if (!accept(token)) {
+			throw syntaxError("expected \"" + token + "\"");
+		}
+	}
+
+	private void expectEnd() {
+		if (position < tokens.size()) {
+			throw syntaxError("unexpected token");
+		}
+	}
+
+	// conditions
+
+	private Condition orCondition() {
+		Condition left = andCondition();
+		while (accept("OR")) {
+			final Condition l = left;
+			final Condition r = andCondition();
+			left = item -> l.evaluate(item) || r.evaluate(item);
+		}
+		return left;
+	}
+
+	private Condition andCondition() {
+		Condition left = notCondition();
+		while (accept("AND")) {
+			final Condition l = left;
+			final Condition r = notCondition();
+			left = item -> l.evaluate(item) && r.evaluate(item);
+		}
+		return left;
+	}
+
+	private Condition notCondition() {
+		if (accept("NOT")) {
+			final Condition negated = notCondition();
+			return item -> !negated.evaluate(item);
+		}
+		return primaryCondition();
+	}
+
+	private Condition primaryCondition() {
+		if (accept("(")) {
+			Condition condition = orCondition();
+			expect(")");
+			return condition;
+		}
+		String token = peek();
+		if (token != null && "(".equals(peek(1)) && isConditionFunction(token)) {
+			return conditionFunction(next().toLowerCase(Locale.ROOT));
+		}
+
+		final Operand left = operand();
+		if (accept("BETWEEN")) {
+			final Operand low = operand();
+			expect("AND");
+			final Operand high = operand();
+			return item -> {
+				AttributeValue value = left.resolve(item);
+				AttributeValue lowValue = low.resolve(item);
+				AttributeValue highValue = high.resolve(item);
+				if (value == null || lowValue == null || highValue == null) {
+					return false;
+				}
+				Integer lowComparison = AttributeValues.compare(value, lowValue);
+				Integer highComparison = AttributeValues.compare(value, highValue);
+				return lowComparison != null && highComparison != null && lowComparison >= 0 && highComparison <= 0;
+			};
+		}
+		if (accept("IN")) {
+			expect("(");
+			final List<Operand> candidates = new ArrayList<>();
+			candidates.add(operand());
+			while (accept(",")) {
+				candidates.add(operand());
+			}
+			expect(")");
+			return item -> {
+				AttributeValue value = left.resolve(item);
+				if (value == null) {
+					return false;
+				}
+				for (Operand candidate : candidates) {
+					AttributeValue candidateValue = candidate.resolve(item);
+					if (candidateValue != null && AttributeValues.equal(value, candidateValue)) {
+						return true;
+					}
+				}
+				return false;
+			};
+		}
+
+		final String comparator = next();
+		final Operand right = operand();
+		switch (comparator) {
+		case "=":
+			return item -> {
+				AttributeValue a = left.resolve(item);
+				AttributeValue b = right.resolve(item);
+				return a != null && b != null && AttributeValues.equal(a, b);
+			};
+		case "<>":
+			return item -> {
+				AttributeValue a = left.resolve(item);
+				AttributeValue b = right.resolve(item);
+				return a == null || b == null || !AttributeValues.equal(a, b);
+			};
+		case "<":
+		case "<=":
+		case ">":
+		case ">=":
+			return item -> {
+				AttributeValue a = left.resolve(item);
+				AttributeValue b = right.resolve(item);
+				Integer comparison = a != null && b != null ? AttributeValues.compare(a, b) : null;
+				if (comparison == null) {
+					return false;
+				}
+				switch (comparator) {
+				case "<":
+					return comparison < 0;
+				case "<=":
+					return comparison <= 0;
+				case ">":
+					return comparison > 0;
+				default:
+					return comparison >= 0;
+				}
+			};
+		default:
+			position--;
+			throw syntaxError("expected a comparator");
+		}
+	}
+
+	private static boolean isConditionFunction(String token) {
+		switch (token.toLowerCase(Locale.ROOT)) {
+		case "attribute_exists":
+		case "attribute_not_exists":
+		case "attribute_type":
+		case "begins_with":
+		case "contains":
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private Condition conditionFunction(String function) {
+		expect("(");
+		Condition condition;
+		switch (function) {
+		case "attribute_exists": {
+			final Path path = path();
+			condition = item -> path.get(item) != null;
+			break;
+		}
+		case "attribute_not_exists": {
+			final Path path = path();
+			condition = item -> path.get(item) == null;
+			break;
+		}
+		case "attribute_type": {
+			final Path path = path();
+			expect(",");
+			final Operand type = operand();
+			condition = item -> {
+				AttributeValue value = path.get(item);
+				AttributeValue typeValue = type.resolve(item);
+				return value != null && typeValue != null && AttributeValues.type(value).equals(typeValue.getS());
+			};
+			break;
+		}
+		case "begins_with": {
+			final Operand value = operand();
+			expect(",");
+			final Operand prefix = operand();
+			condition = item -> {
+				AttributeValue v = value.resolve(item);
+				AttributeValue p = prefix.resolve(item);
+				if (v == null || p == null) {
+					return false;
+				} else if (v.getS() != null && p.getS() != null) {
+					return v.getS().startsWith(p.getS());
+				} else if (v.getB() != null && p.getB() != null) {
+					ByteBuffer bytes = v.getB().duplicate();
+					ByteBuffer prefixBytes = p.getB().duplicate();
+					bytes.rewind();
+					prefixBytes.rewind();
+					if (bytes.remaining() < prefixBytes.remaining()) {
+						return false;
+					}
+					bytes.limit(prefixBytes.remaining());
+					return bytes.equals(prefixBytes);
+				}
+				return false;
+			};
+			break;
+		}
+		default: {
+			final Operand value = operand();
+			expect(",");
+			final Operand operand = operand();
+			condition = item -> contains(value.resolve(item), operand.resolve(item));
+			break;
+		}
+		}
+		expect(")");
+		return condition;
+	}
+
+	private static boolean contains(AttributeValue value, AttributeValue operand) {
+		if (value == null || operand == null) {
+			return false;
+		}
+		if (value.getS() != null) {
+			return operand.getS() != null && value.getS().contains(operand.getS());
+		} else if (value.getSS() != null) {
+			return operand.getS() != null && value.getSS().contains(operand.getS());
+		} else if (value.getNS() != null) {
+			if (operand.getN() == null) {
+				return false;
+			}
+			for (String number : value.getNS()) {
+				if (new BigDecimal(number).compareTo(AttributeValues.number(operand)) == 0) {
+					return true;
+				}
+			}
+			return false;
+		} else if (value.getBS() != null) {
+			return operand.getB() != null && value.getBS().contains(operand.getB());
+		} else if (value.getL() != null) {
+			for (AttributeValue element : value.getL()) {
+				if (AttributeValues.equal(element, operand)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// operands
+
+	private Operand operand() {
+		String token = peek();
+		if (token == null) {
+			throw syntaxError("expected an operand");
+		}
+		if (token.startsWith(":")) {
+			next();
+			final AttributeValue value = values.get(token);
+			if (value == null) {
+				throw InMemoryAmazonDynamoDB.validation(
+						"An expression attribute value used in expression is not defined; attribute value: " + token);
+			}
+			return item -> value;
+		}
+		if ("size".equalsIgnoreCase(token) && "(".equals(peek(1))) {
+			next();
+			expect("(");
+			final Path path = path();
+			expect(")");
+			return item -> {
+				AttributeValue value = path.get(item);
+				return value != null ? size(value) : null;
+			};
+		}
+		final Path path = path();
+		return path::get;
+	}
+
+	private static AttributeValue size(AttributeValue value) {
+		long size;
+		if (value.getS() != null) {
+			size = value.getS().length();
+		} else if (value.getB() != null) {
+			size = value.getB().remaining();
+		} else if (value.getSS() != null) {
+			size = value.getSS().size();
+		} else if (value.getNS() != null) {
+			size = value.getNS().size();
+		} else if (value.getBS() != null) {
+			size = value.getBS().size();
+		} else if (value.getL() != null) {
+			size = value.getL().size();
+		} else if (value.getM() != null) {
+			size = value.getM().size();
+		} else {
+			return null;
+		}
+		return new AttributeValue().withN(Long.toString(size));
+	}
+
+	private Path path() {
+		List<Object> elements = new ArrayList<>();
+		elements.add(name(next()));
+		while (true) {
+			if (accept(".")) {
+				elements.add(name(next()));
+			} else if ("[".equals(peek())) {
+				next();
+				String index = next();
+				try {
+					elements.add(Integer.valueOf(index));
+				} catch (NumberFormatException e) {
+					throw syntaxError("invalid list index " + index);
+				}
+				expect("]");
+			} else {
+				return new Path(elements);
+			}
+		}
+	}
+
+	private String name(String token) {
+		if (token.startsWith("#")) {
+			String name = names.get(token);
+			if (name == null) {
+				throw InMemoryAmazonDynamoDB.validation(
+						"An expression attribute name used in the document path is not defined; attribute name: " + token);
+			}
+			return name;
+		}
+		if (token.startsWith(":") || !Character.isLetter(token.charAt(0)) && token.charAt(0) != '_') {
+			throw syntaxError("expected an attribute name");
+		}
+		return token;
+	}
+
+	// updates
+
+	private Update update() {
+		Update update = new Update();
+		Set<String> clauses = new LinkedHashSet<>();
+		while (peek() != null) {
+			String clause = next().toUpperCase(Locale.ROOT);
+			if (!clauses.add(clause)) {
+				throw syntaxError("the " + clause + " section can only be used once");
+			}
+			switch (clause) {
+			case "SET":
+				do {
+					update.actions.add(setAction());
+				} while (accept(","));
+				break;
+			case "REMOVE":
+				do {
+					update.actions.add(new Action(path()) {
+						@Override
+						void apply(Map<String, AttributeValue> original, Map<String, AttributeValue> item) {
+							path.remove(item);
+						}
+					});
+				} while (accept(","));
+				break;
+			case "ADD":
+				do {
+					update.actions.add(addAction());
+				} while (accept(","));
+				break;
+			case "DELETE":
+				do {
+					update.actions.add(deleteAction());
+				} while (accept(","));
+				break;
+			default:
+				position--;
+				throw syntaxError("expected SET, REMOVE, ADD or DELETE");
+			}
+		}
+		if (update.actions.isEmpty()) {
+			throw syntaxError("empty update expression");
+		}
+		return update;
+	}
+
+	private Action setAction() {
+		Path path = path();
+		expect("=");
+		final Operand value = setValue();
+		return new Action(path) {
+			@Override
+			void apply(Map<String, AttributeValue> original, Map<String, AttributeValue> item) {
+				AttributeValue resolved = value.resolve(original);
+				if (resolved == null) {
+					throw InMemoryAmazonDynamoDB.validation(
+							"The provided expression refers to an attribute that does not exist in the item");
+				}
+				path.set(item, AttributeValues.copy(resolved));
+			}
+		};
+	}
+
+	private Operand setValue() {
+		final Operand left = setTerm();
+		if ("+".equals(peek()) || "-".equals(peek())) {
+			final boolean plus = "+".equals(next());
+			final Operand right = setTerm();
+			return item -> {
+				AttributeValue a = left.resolve(item);
+				AttributeValue b = right.resolve(item);
+				if (a == null || b == null) {
+					return null;
+				}
+				if (a.getN() == null || b.getN() == null) {
+					throw InMemoryAmazonDynamoDB.validation("An operand in the update expression has an incorrect data type");
+				}
+				BigDecimal result = plus ? AttributeValues.number(a).add(AttributeValues.number(b))
+						: AttributeValues.number(a).subtract(AttributeValues.number(b));
+				return new AttributeValue().withN(result.toPlainString());
+			};
+		}
+		return left;
+	}
+
+	private Operand setTerm() {
+		String token = peek();
+		if (token != null && "(".equals(peek(1))) {
+			String function = token.toLowerCase(Locale.ROOT);
+			if ("if_not_exists".equals(function)) {
+				next();
+				expect("(");
+				final Path path = path();
+				expect(",");
+				final Operand fallback = setValue();
+				expect(")");
+				return item -> {
+					AttributeValue value = path.get(item);
+					return value != null ? value : fallback.resolve(item);
+				};
+			} else if ("list_append".equals(function)) {
+				next();
+				expect("(");
+				final Operand first = setValue();
+				expect(",");
+				final Operand second = setValue();
+				expect(")");
+				return item -> {
+					AttributeValue a = first.resolve(item);
+					AttributeValue b = second.resolve(item);
+					if (a == null || b == null) {
+						return null;
+					}
+					if (a.getL() == null || b.getL() == null) {
+						throw InMemoryAmazonDynamoDB.validation("An operand in the update expression has an incorrect data type");
+					}
+					List<AttributeValue> list = new ArrayList<>(a.getL());
+					list.addAll(b.getL());
+					return new AttributeValue().withL(list);
+				};
+			}
+		}
+		return operand();
+	}
+
+	private Action addAction() {
+		Path path = path();
+		final Operand operand = operand();
+		return new Action(path) {
+			@Override
+			void apply(Map<String, AttributeValue> original, Map<String, AttributeValue> item) {
+				AttributeValue value = operand.resolve(original);
+				AttributeValue current = path.get(original);
+				if (value.getN() != null) {
+					BigDecimal base = current != null ? AttributeValues.number(current) : BigDecimal.ZERO;
+					path.set(item, new AttributeValue().withN(base.add(AttributeValues.number(value)).toPlainString()));
+				} else if (value.getSS() != null || value.getNS() != null || value.getBS() != null) {
+					path.set(item, setUnion(current, value));
+				} else {
+					throw InMemoryAmazonDynamoDB.validation("ADD action only supports numbers and sets");
+				}
+			}
+		};
+	}
+
+	private Action deleteAction() {
+		Path path = path();
+		final Operand operand = operand();
+		return new Action(path) {
+			@Override
+			void apply(Map<String, AttributeValue> original, Map<String, AttributeValue> item) {
+				AttributeValue value = operand.resolve(original);
+				AttributeValue current = path.get(original);
+				if (current == null) {
+					return;
+				}
+				AttributeValue remaining = setDifference(current, value);
+				if (remaining == null) {
+					path.remove(item);
+				} else {
+					path.set(item, remaining);
+				}
+			}
+		};
+	}
+
+	private static AttributeValue setUnion(AttributeValue current, AttributeValue value) {
+		if (value.getSS() != null) {
+			Set<String> union = new LinkedHashSet<>(current != null && current.getSS() != null ? current.getSS()
+					: Collections.<String>emptyList());
+			union.addAll(value.getSS());
+			return new AttributeValue().withSS(new ArrayList<>(union));
+		} else if (value.getNS() != null) {
+			Set<String> union = new LinkedHashSet<>(current != null && current.getNS() != null ? current.getNS()
+					: Collections.<String>emptyList());
+			union.addAll(value.getNS());
+			return new AttributeValue().withNS(new ArrayList<>(union));
+		}
+		Set<ByteBuffer> union = new LinkedHashSet<>(current != null && current.getBS() != null ? current.getBS()
+				: Collections.<ByteBuffer>emptyList());
+		union.addAll(value.getBS());
+		return new AttributeValue().withBS(new ArrayList<>(union));
+	}
+
+	private static AttributeValue setDifference(AttributeValue current, AttributeValue value) {
+		if (current.getSS() != null && value.getSS() != null) {
+			List<String> remaining = new ArrayList<>(current.getSS());
+			remaining.removeAll(value.getSS());
+			return remaining.isEmpty() ? null : new AttributeValue().withSS(remaining);
+		} else if (current.getNS() != null && value.getNS() != null) {
+			List<String> remaining = new ArrayList<>(current.getNS());
+			remaining.removeAll(value.getNS());
+			return remaining.isEmpty() ? null : new AttributeValue().withNS(remaining);
+		} else if (current.getBS() != null && value.getBS() != null) {
+			List<ByteBuffer> remaining = new ArrayList<>(current.getBS());
+			remaining.removeAll(value.getBS());
+			return remaining.isEmpty() ? null : new AttributeValue().withBS(remaining);
+		}
+		throw InMemoryAmazonDynamoDB.validation("DELETE action only supports sets of the same type");
+	}
+}
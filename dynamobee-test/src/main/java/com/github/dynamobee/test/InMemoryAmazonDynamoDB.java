@@ -0,0 +1,868 @@
+package com.github.dynamobee.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.Capacity;
+import com.amazonaws.services.dynamodbv2.model.ConditionCheck;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.CreateTableResult;
+import com.amazonaws.services.dynamodbv2.model.Delete;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteTableResult;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.DescribeTimeToLiveRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTimeToLiveResult;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.Get;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ItemResponse;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.ListTablesRequest;
+import com.amazonaws.services.dynamodbv2.model.ListTablesResult;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ResourceInUseException;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.Select;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveDescription;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveSpecification;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveStatus;
+import com.amazonaws.services.dynamodbv2.model.TransactGetItem;
+import com.amazonaws.services.dynamodbv2.model.TransactGetItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactGetItemsResult;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsResult;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+
+/**
+ * In-process {@link com.amazonaws.services.dynamodbv2.AmazonDynamoDB} keeping its tables in memory, to run
+ * changelogs in tests and on a developer machine without DynamoDB Local or an AWS account:
+ *
+ * <pre>
+ * AmazonDynamoDB client = new InMemoryAmazonDynamoDB();
+ * new Dynamobee(client).setChangeLogsScanPackage("com.example.changelogs").execute();
+ * </pre>
+ *
+ * Supports table management (including secondary indexes and time to live settings), single item operations with
+ * condition expressions, batch operations, transactional writes, and queries and parallel scans with filter and
+ * projection expressions. Operations are serialized: every request sees the effects of all the previous ones, as
+ * with strongly consistent reads. Items with an expired time to live are not removed.
+ */
+public class InMemoryAmazonDynamoDB extends AbstractAmazonDynamoDB {
+	private static final int MAX_BATCH_GET_KEYS = 100;
+	private static final int MAX_BATCH_WRITE_REQUESTS = 25;
+	private static final int MAX_TRANSACTION_ITEMS = 25;
+
+	private final NavigableMap<String, InMemoryTable> tables = new TreeMap<>();
+	private int indexBackfillDescribes = 0;
+
+	/**
+	 * Simulates the creation of the global secondary indexes added to existing tables: such an index is reported
+	 * as CREATING and backfilling, and can not be read, during the given number of describe calls of its table.
+	 * Default is 0: indexes are active as soon as they are created.
+	 *
+	 * @param describes describe calls before an added index becomes active
+	 * @return this client
+	 */
+	public synchronized InMemoryAmazonDynamoDB withIndexBackfillDescribes(int describes) {
+		this.indexBackfillDescribes = describes;
+		return this;
+	}
+
+	// errors
+
+	static AmazonDynamoDBException validation(String message) {
+		return clientError(new AmazonDynamoDBException(message), "ValidationException");
+	}
+
+	static ResourceNotFoundException resourceNotFound(String message) {
+		return clientError(new ResourceNotFoundException(message), "ResourceNotFoundException");
+	}
+
+	private static <T extends AmazonServiceException> T clientError(T exception, String errorCode) {
+		exception.setErrorCode(errorCode);
+		exception.setErrorType(ErrorType.Client);
+		exception.setStatusCode(400);
+		exception.setServiceName("AmazonDynamoDBv2");
+		return exception;
+	}
+
+	private static ConditionalCheckFailedException conditionalCheckFailed() {
+		return clientError(new ConditionalCheckFailedException("The conditional request failed"),
+				"ConditionalCheckFailedException");
+	}
+
+	private InMemoryTable table(String tableName) {
+		InMemoryTable table = tableName != null ? tables.get(tableName) : null;
+		if (table == null) {
+			throw resourceNotFound("Requested resource not found: Table: " + tableName + " not found");
+		}
+		return table;
+	}
+
+	// tables
+
+	@Override
+	public synchronized CreateTableResult createTable(CreateTableRequest request) {
+		if (tables.containsKey(request.getTableName())) {
+			throw clientError(new ResourceInUseException("Table already exists: " + request.getTableName()),
+					"ResourceInUseException");
+		}
+		InMemoryTable table = new InMemoryTable(request);
+		tables.put(request.getTableName(), table);
+		return new CreateTableResult().withTableDescription(table.describe());
+	}
+
+	@Override
+	public synchronized DescribeTableResult describeTable(DescribeTableRequest request) {
+		InMemoryTable table = table(request.getTableName());
+		table.advanceIndexCreation();
+		return new DescribeTableResult().withTable(table.describe());
+	}
+
+	@Override
+	public DescribeTableResult describeTable(String tableName) {
+		return describeTable(new DescribeTableRequest().withTableName(tableName));
+	}
+
+	@Override
+	public synchronized UpdateTableResult updateTable(UpdateTableRequest request) {
+		InMemoryTable table = table(request.getTableName());
+		table.update(request, indexBackfillDescribes);
+		return new UpdateTableResult().withTableDescription(table.describe());
+	}
+
+	@Override
+	public synchronized DeleteTableResult deleteTable(DeleteTableRequest request) {
+		TableDescription description = table(request.getTableName()).describe()
+				.withTableStatus(TableStatus.DELETING);
+		tables.remove(request.getTableName());
+		return new DeleteTableResult().withTableDescription(description);
+	}
+
+	@Override
+	public DeleteTableResult deleteTable(String tableName) {
+		return deleteTable(new DeleteTableRequest().withTableName(tableName));
+	}
+
+	@Override
+	public synchronized ListTablesResult listTables(ListTablesRequest request) {
+		int limit = request.getLimit() != null ? request.getLimit() : 100;
+		List<String> names = new ArrayList<>();
+		String start = request.getExclusiveStartTableName();
+		for (String name : start != null ? tables.tailMap(start, false).keySet()
+				: tables.keySet()) {
+			if (names.size() == limit) {
+				return new ListTablesResult().withTableNames(names).withLastEvaluatedTableName(names.get(limit - 1));
+			}
+			names.add(name);
+		}
+		return new ListTablesResult().withTableNames(names);
+	}
+
+	@Override
+	public ListTablesResult listTables() {
+		return listTables(new ListTablesRequest());
+	}
+
+	@Override
+	public synchronized DescribeTimeToLiveResult describeTimeToLive(DescribeTimeToLiveRequest request) {
+		return new DescribeTimeToLiveResult().withTimeToLiveDescription(
+				table(request.getTableName()).getTimeToLive().clone());
+	}
+
+	@Override
+	public synchronized UpdateTimeToLiveResult updateTimeToLive(UpdateTimeToLiveRequest request) {
+		InMemoryTable table = table(request.getTableName());
+		TimeToLiveSpecification specification = request.getTimeToLiveSpecification();
+		boolean enabled = TimeToLiveStatus.ENABLED.toString().equals(table.getTimeToLive().getTimeToLiveStatus());
+		if (Boolean.TRUE.equals(specification.getEnabled()) == enabled) {
+			throw validation("TimeToLive is already " + (enabled ? "enabled" : "disabled"));
+		}
+		table.setTimeToLive(new TimeToLiveDescription()
+				.withTimeToLiveStatus(enabled ? TimeToLiveStatus.DISABLED : TimeToLiveStatus.ENABLED)
+				.withAttributeName(enabled ? null : specification.getAttributeName()));
+		return new UpdateTimeToLiveResult().withTimeToLiveSpecification(specification);
+	}
+
+	// single items
+
+	@Override
+	public synchronized GetItemResult getItem(GetItemRequest request) {
+		InMemoryTable table = table(request.getTableName());
+		Map<String, AttributeValue> item = table.get(table.checkKey(request.getKey()));
+		boolean consistent = Boolean.TRUE.equals(request.getConsistentRead());
+		return new GetItemResult()
+				.withItem(item != null ? project(item, request.getProjectionExpression(),
+						request.getExpressionAttributeNames(), request.getAttributesToGet()) : null)
+				.withConsumedCapacity(readCapacity(table, item != null ? AttributeValues.size(item) : 0, consistent,
+						request.getReturnConsumedCapacity()));
+	}
+
+	@Override
+	public GetItemResult getItem(String tableName, Map<String, AttributeValue> key) {
+		return getItem(new GetItemRequest().withTableName(tableName).withKey(key));
+	}
+
+	@Override
+	public synchronized PutItemResult putItem(PutItemRequest request) {
+		InMemoryTable table = table(request.getTableName());
+		checkReturnValues(request.getReturnValues(), ReturnValue.NONE, ReturnValue.ALL_OLD);
+		if (request.getItem() == null) {
+			throw validation("An item is required");
+		}
+		Map<String, AttributeValue> item = AttributeValues.copy(request.getItem());
+		Map<String, AttributeValue> existing = table.get(table.key(item));
+		checkCondition(existing, request.getConditionExpression(), request.getExpressionAttributeNames(),
+				request.getExpressionAttributeValues(), request.getExpected(), request.getConditionalOperator());
+		table.put(item);
+		return new PutItemResult()
+				.withAttributes(returnValues(request.getReturnValues(), existing, item, null))
+				.withConsumedCapacity(writeCapacity(table, existing, item, request.getReturnConsumedCapacity()));
+	}
+
+	@Override
+	public PutItemResult putItem(String tableName, Map<String, AttributeValue> item) {
+		return putItem(new PutItemRequest().withTableName(tableName).withItem(item));
+	}
+
+	@Override
+	public synchronized UpdateItemResult updateItem(UpdateItemRequest request) {
+		InMemoryTable table = table(request.getTableName());
+		Map<String, AttributeValue> key = table.checkKey(request.getKey());
+		Map<String, AttributeValue> existing = table.get(key);
+		checkCondition(existing, request.getConditionExpression(), request.getExpressionAttributeNames(),
+				request.getExpressionAttributeValues(), request.getExpected(), request.getConditionalOperator());
+		Map<String, AttributeValue> updated = AttributeValues.copy(existing != null ? existing : key);
+		Set<String> updatedAttributes = update(table, key, updated, request.getUpdateExpression(),
+				request.getExpressionAttributeNames(), request.getExpressionAttributeValues(),
+				request.getAttributeUpdates());
+		table.put(updated);
+		return new UpdateItemResult()
+				.withAttributes(returnValues(request.getReturnValues(), existing, updated, updatedAttributes))
+				.withConsumedCapacity(writeCapacity(table, existing, updated, request.getReturnConsumedCapacity()));
+	}
+
+	@Override
+	public synchronized DeleteItemResult deleteItem(DeleteItemRequest request) {
+		InMemoryTable table = table(request.getTableName());
+		checkReturnValues(request.getReturnValues(), ReturnValue.NONE, ReturnValue.ALL_OLD);
+		Map<String, AttributeValue> key = table.checkKey(request.getKey());
+		Map<String, AttributeValue> existing = table.get(key);
+		checkCondition(existing, request.getConditionExpression(), request.getExpressionAttributeNames(),
+				request.getExpressionAttributeValues(), request.getExpected(), request.getConditionalOperator());
+		table.delete(key);
+		return new DeleteItemResult()
+				.withAttributes(returnValues(request.getReturnValues(), existing, null, null))
+				.withConsumedCapacity(writeCapacity(table, existing, null, request.getReturnConsumedCapacity()));
+	}
+
+	@Override
+	public DeleteItemResult deleteItem(String tableName, Map<String, AttributeValue> key) {
+		return deleteItem(new DeleteItemRequest().withTableName(tableName).withKey(key));
+	}
+
+	private static boolean conditionHolds(Map<String, AttributeValue> existing, String conditionExpression,
+			Map<String, String> names, Map<String, AttributeValue> values, Map<String, ExpectedAttributeValue> expected,
+			String conditionalOperator) {
+		Map<String, AttributeValue> item = existing != null ? existing : Collections.<String, AttributeValue>emptyMap();
+		if (conditionExpression != null) {
+			if (expected != null) {
+				throw validation("Can not use both expression and non-expression parameters in the same request");
+			}
+			return Expressions.parseCondition(conditionExpression, names, values).evaluate(item);
+		}
+		return expected == null || expected.isEmpty()
+				|| Expressions.fromExpected(expected, conditionalOperator).evaluate(item);
+	}
+
+	private static void checkCondition(Map<String, AttributeValue> existing, String conditionExpression,
+			Map<String, String> names, Map<String, AttributeValue> values, Map<String, ExpectedAttributeValue> expected,
+			String conditionalOperator) {
+		if (!conditionHolds(existing, conditionExpression, names, values, expected, conditionalOperator)) {
+			throw conditionalCheckFailed();
+		}
+	}
+
+	/**
+	 * Applies an update expression, or the legacy attribute updates, to a copy of the item
+	 *
+	 * @return names of the updated attributes
+	 */
+	private static Set<String> update(InMemoryTable table, Map<String, AttributeValue> key,
+			Map<String, AttributeValue> item, String updateExpression, Map<String, String> names,
+			Map<String, AttributeValue> values, Map<String, AttributeValueUpdate> attributeUpdates) {
+		Set<String> updated;
+		if (updateExpression != null) {
+			if (attributeUpdates != null) {
+				throw validation("Can not use both expression and non-expression parameters in the same request");
+			}
+			Expressions.Update update = Expressions.parseUpdate(updateExpression, names, values);
+			for (String attribute : update.getAttributeNames()) {
+				checkNotKey(key, attribute);
+			}
+			updated = update.apply(item);
+		} else {
+			updated = new HashSet<>();
+			if (attributeUpdates != null) {
+				for (Map.Entry<String, AttributeValueUpdate> entry : attributeUpdates.entrySet()) {
+					checkNotKey(key, entry.getKey());
+					applyAttributeUpdate(item, entry.getKey(), entry.getValue());
+					updated.add(entry.getKey());
+				}
+			}
+		}
+		// the update must keep a valid primary key
+		table.key(item);
+		return updated;
+	}
+
+	private static void checkNotKey(Map<String, AttributeValue> key, String attribute) {
+		if (key.containsKey(attribute)) {
+			throw validation("One or more parameter values were invalid: Cannot update attribute " + attribute
+					+ ". This attribute is part of the key");
+		}
+	}
+
+	private static void applyAttributeUpdate(Map<String, AttributeValue> item, String attribute,
+			AttributeValueUpdate update) {
+		String action = update.getAction() != null ? update.getAction() : AttributeAction.PUT.toString();
+		Map<String, String> names = Collections.singletonMap("#a", attribute);
+		Map<String, AttributeValue> values = update.getValue() != null
+				? Collections.singletonMap(":v", update.getValue())
+				: Collections.<String, AttributeValue>emptyMap();
+		String expression;
+		switch (AttributeAction.fromValue(action)) {
+		case PUT:
+			expression = "SET #a = :v";
+			break;
+		case ADD:
+			expression = "ADD #a :v";
+			break;
+		default:
+			expression = update.getValue() != null ? "DELETE #a :v" : "REMOVE #a";
+			break;
+		}
+		Expressions.parseUpdate(expression, names, values).apply(item);
+	}
+
+	private static void checkReturnValues(String returnValues, ReturnValue... supported) {
+		if (returnValues == null) {
+			return;
+		}
+		for (ReturnValue value : supported) {
+			if (value.toString().equals(returnValues)) {
+				return;
+			}
+		}
+		throw validation("Return values set to invalid value: " + returnValues);
+	}
+
+	private static Map<String, AttributeValue> returnValues(String returnValues, Map<String, AttributeValue> before,
+			Map<String, AttributeValue> after, Set<String> updatedAttributes) {
+		if (returnValues == null || ReturnValue.NONE.toString().equals(returnValues)) {
+			return null;
+		}
+		switch (ReturnValue.fromValue(returnValues)) {
+		case ALL_OLD:
+			return AttributeValues.copy(before);
+		case ALL_NEW:
+			return AttributeValues.copy(after);
+		case UPDATED_OLD:
+			return before != null ? attributes(before, updatedAttributes) : null;
+		default:
+			return attributes(after, updatedAttributes);
+		}
+	}
+
+	private static Map<String, AttributeValue> attributes(Map<String, AttributeValue> item, Set<String> names) {
+		Map<String, AttributeValue> attributes = new LinkedHashMap<>();
+		for (String name : names) {
+			if (item.containsKey(name)) {
+				attributes.put(name, AttributeValues.copy(item.get(name)));
+			}
+		}
+		return attributes.isEmpty() ? null : attributes;
+	}
+
+	private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, String projectionExpression,
+			Map<String, String> names, List<String> attributesToGet) {
+		List<Path> paths;
+		if (projectionExpression != null) {
+			paths = Expressions.parseProjection(projectionExpression, names);
+		} else if (attributesToGet != null && !attributesToGet.isEmpty()) {
+			paths = new ArrayList<>();
+			for (String attribute : attributesToGet) {
+				paths.add(Path.of(attribute));
+			}
+		} else {
+			return AttributeValues.copy(item);
+		}
+		Map<String, AttributeValue> projected = new LinkedHashMap<>();
+		for (Path path : paths) {
+			path.project(item, projected);
+		}
+		return projected;
+	}
+
+	// batches
+
+	@Override
+	public synchronized BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+		int keys = 0;
+		for (KeysAndAttributes keysAndAttributes : request.getRequestItems().values()) {
+			keys += keysAndAttributes.getKeys().size();
+		}
+		if (keys > MAX_BATCH_GET_KEYS) {
+			throw validation("Too many items requested for the BatchGetItem call");
+		}
+		Map<String, List<Map<String, AttributeValue>>> responses = new LinkedHashMap<>();
+		List<ConsumedCapacity> capacity = new ArrayList<>();
+		for (Map.Entry<String, KeysAndAttributes> entry : request.getRequestItems().entrySet()) {
+			InMemoryTable table = table(entry.getKey());
+			KeysAndAttributes keysAndAttributes = entry.getValue();
+			List<Map<String, AttributeValue>> items = new ArrayList<>();
+			long size = 0;
+			for (Map<String, AttributeValue> key : keysAndAttributes.getKeys()) {
+				Map<String, AttributeValue> item = table.get(table.checkKey(key));
+				if (item != null) {
+					size += AttributeValues.size(item);
+					items.add(project(item, keysAndAttributes.getProjectionExpression(),
+							keysAndAttributes.getExpressionAttributeNames(), keysAndAttributes.getAttributesToGet()));
+				}
+			}
+			responses.put(entry.getKey(), items);
+			addCapacity(capacity, readCapacity(table, size,
+					Boolean.TRUE.equals(keysAndAttributes.getConsistentRead()), request.getReturnConsumedCapacity()));
+		}
+		return new BatchGetItemResult()
+				.withResponses(responses)
+				.withUnprocessedKeys(new LinkedHashMap<String, KeysAndAttributes>())
+				.withConsumedCapacity(capacity.isEmpty() ? null : capacity);
+	}
+
+	@Override
+	public synchronized BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+		int requests = 0;
+		Set<String> keys = new HashSet<>();
+		for (Map.Entry<String, List<WriteRequest>> entry : request.getRequestItems().entrySet()) {
+			InMemoryTable table = table(entry.getKey());
+			for (WriteRequest write : entry.getValue()) {
+				requests++;
+				Map<String, AttributeValue> key = write.getPutRequest() != null
+						? table.key(write.getPutRequest().getItem())
+						: table.checkKey(write.getDeleteRequest().getKey());
+				if (!keys.add(itemIdentity(table, key))) {
+					throw validation("Provided list of item keys contains duplicates");
+				}
+			}
+		}
+		if (requests == 0 || requests > MAX_BATCH_WRITE_REQUESTS) {
+			throw validation("The batch must contain between 1 and " + MAX_BATCH_WRITE_REQUESTS + " write requests");
+		}
+
+		List<ConsumedCapacity> capacity = new ArrayList<>();
+		for (Map.Entry<String, List<WriteRequest>> entry : request.getRequestItems().entrySet()) {
+			InMemoryTable table = table(entry.getKey());
+			double units = 0;
+			for (WriteRequest write : entry.getValue()) {
+				if (write.getPutRequest() != null) {
+					Map<String, AttributeValue> item = AttributeValues.copy(write.getPutRequest().getItem());
+					units += writeUnits(table.put(item), item);
+				} else {
+					units += writeUnits(table.delete(table.checkKey(write.getDeleteRequest().getKey())), null);
+				}
+			}
+			addCapacity(capacity, capacity(table, units, request.getReturnConsumedCapacity()));
+		}
+		return new BatchWriteItemResult()
+				.withUnprocessedItems(new LinkedHashMap<String, List<WriteRequest>>())
+				.withConsumedCapacity(capacity.isEmpty() ? null : capacity);
+	}
+
+	private static String itemIdentity(InMemoryTable table, Map<String, AttributeValue> key) {
+		StringBuilder identity = new StringBuilder(table.getName());
+		for (AttributeValue value : key.values()) {
+			identity.append('\u0000').append(AttributeValues.canonical(value));
+		}
+		return identity.toString();
+	}
+
+	// transactions
+
+	@Override
+	public synchronized TransactWriteItemsResult transactWriteItems(TransactWriteItemsRequest request) {
+		List<TransactWriteItem> actions = request.getTransactItems();
+		if (actions == null || actions.isEmpty() || actions.size() > MAX_TRANSACTION_ITEMS) {
+			throw validation("A transaction must contain between 1 and " + MAX_TRANSACTION_ITEMS + " actions");
+		}
+
+		// all the conditions are checked before any write is applied
+		Set<String> keys = new HashSet<>();
+		List<CancellationReason> reasons = new ArrayList<>();
+		List<String> codes = new ArrayList<>();
+		boolean cancelled = false;
+		for (TransactWriteItem action : actions) {
+			InMemoryTable table = table(tableName(action));
+			Map<String, AttributeValue> key = transactionKey(table, action);
+			if (!keys.add(itemIdentity(table, key))) {
+				throw validation("Transaction request cannot include multiple operations on one item");
+			}
+			boolean holds = transactionConditionHolds(table.get(key), action);
+			reasons.add(holds ? new CancellationReason().withCode("None")
+					: new CancellationReason().withCode("ConditionalCheckFailed")
+							.withMessage("The conditional request failed"));
+			codes.add(holds ? "None" : "ConditionalCheckFailed");
+			cancelled |= !holds;
+		}
+		if (cancelled) {
+			TransactionCanceledException exception = new TransactionCanceledException(
+					"Transaction cancelled, please refer cancellation reasons for specific reasons " + codes);
+			exception.setCancellationReasons(reasons);
+			throw clientError(exception, "TransactionCanceledException");
+		}
+
+		Map<String, Double> units = new LinkedHashMap<>();
+		for (TransactWriteItem action : actions) {
+			InMemoryTable table = table(tableName(action));
+			Map<String, AttributeValue> key = transactionKey(table, action);
+			Map<String, AttributeValue> existing = table.get(key);
+			Map<String, AttributeValue> written = null;
+			if (action.getPut() != null) {
+				written = AttributeValues.copy(action.getPut().getItem());
+				table.put(written);
+			} else if (action.getDelete() != null) {
+				table.delete(key);
+			} else if (action.getUpdate() != null) {
+				Update update = action.getUpdate();
+				written = AttributeValues.copy(existing != null ? existing : key);
+				update(table, key, written, update.getUpdateExpression(), update.getExpressionAttributeNames(),
+						update.getExpressionAttributeValues(), null);
+				table.put(written);
+			}
+			// transactional writes consume twice the units of standard writes
+			double actionUnits = action.getConditionCheck() != null ? 2 : 2 * writeUnits(existing, written);
+			units.merge(table.getName(), actionUnits, Double::sum);
+		}
+
+		List<ConsumedCapacity> capacity = new ArrayList<>();
+		for (Map.Entry<String, Double> entry : units.entrySet()) {
+			addCapacity(capacity, capacity(table(entry.getKey()), entry.getValue(),
+					request.getReturnConsumedCapacity()));
+		}
+		return new TransactWriteItemsResult().withConsumedCapacity(capacity.isEmpty() ? null : capacity);
+	}
+
+	private static String tableName(TransactWriteItem action) {
+		if (action.getPut() != null) {
+			return action.getPut().getTableName();
+		} else if (action.getDelete() != null) {
+			return action.getDelete().getTableName();
+		} else if (action.getUpdate() != null) {
+			return action.getUpdate().getTableName();
+		} else if (action.getConditionCheck() != null) {
+			return action.getConditionCheck().getTableName();
+		}
+		throw validation("A transaction action must contain one of Put, Update, Delete or ConditionCheck");
+	}
+
+	private static Map<String, AttributeValue> transactionKey(InMemoryTable table, TransactWriteItem action) {
+		if (action.getPut() != null) {
+			return table.key(action.getPut().getItem());
+		} else if (action.getDelete() != null) {
+			return table.checkKey(action.getDelete().getKey());
+		} else if (action.getUpdate() != null) {
+			return table.checkKey(action.getUpdate().getKey());
+		}
+		return table.checkKey(action.getConditionCheck().getKey());
+	}
+
+	private static boolean transactionConditionHolds(Map<String, AttributeValue> existing, TransactWriteItem action) {
+		if (action.getPut() != null) {
+			Put put = action.getPut();
+			return conditionHolds(existing, put.getConditionExpression(), put.getExpressionAttributeNames(),
+					put.getExpressionAttributeValues(), null, null);
+		} else if (action.getDelete() != null) {
+			Delete delete = action.getDelete();
+			return conditionHolds(existing, delete.getConditionExpression(), delete.getExpressionAttributeNames(),
+					delete.getExpressionAttributeValues(), null, null);
+		} else if (action.getUpdate() != null) {
+			Update update = action.getUpdate();
+			return conditionHolds(existing, update.getConditionExpression(), update.getExpressionAttributeNames(),
+					update.getExpressionAttributeValues(), null, null);
+		}
+		ConditionCheck check = action.getConditionCheck();
+		if (check.getConditionExpression() == null) {
+			throw validation("A ConditionCheck requires a ConditionExpression");
+		}
+		return conditionHolds(existing, check.getConditionExpression(), check.getExpressionAttributeNames(),
+				check.getExpressionAttributeValues(), null, null);
+	}
+
+	@Override
+	public synchronized TransactGetItemsResult transactGetItems(TransactGetItemsRequest request) {
+		List<TransactGetItem> gets = request.getTransactItems();
+		if (gets == null || gets.isEmpty() || gets.size() > MAX_TRANSACTION_ITEMS) {
+			throw validation("A transaction must contain between 1 and " + MAX_TRANSACTION_ITEMS + " actions");
+		}
+		List<ItemResponse> responses = new ArrayList<>();
+		for (TransactGetItem get : gets) {
+			Get action = get.getGet();
+			InMemoryTable table = table(action.getTableName());
+			Map<String, AttributeValue> item = table.get(table.checkKey(action.getKey()));
+			responses.add(new ItemResponse().withItem(item != null ? project(item, action.getProjectionExpression(),
+					action.getExpressionAttributeNames(), null) : null));
+		}
+		return new TransactGetItemsResult().withResponses(responses);
+	}
+
+	// reads
+
+	@Override
+	public synchronized ScanResult scan(ScanRequest request) {
+		InMemoryTable table = table(request.getTableName());
+		InMemoryTable.Index index = request.getIndexName() != null ? table.getIndex(request.getIndexName()) : null;
+		Integer segment = request.getSegment();
+		Integer totalSegments = request.getTotalSegments();
+		if ((segment == null) != (totalSegments == null)) {
+			throw validation("The Segment parameter is required together with the TotalSegments parameter");
+		}
+		if (totalSegments != null && (totalSegments < 1 || totalSegments > 1000000 || segment < 0
+				|| segment >= totalSegments)) {
+			throw validation("Segment must be between 0 and TotalSegments - 1, TotalSegments between 1 and 1000000");
+		}
+
+		List<Map<String, AttributeValue>> candidates = new ArrayList<>();
+		for (Map<String, AttributeValue> item : table.items(index, true)) {
+			if (totalSegments == null || table.segment(item, index, totalSegments) == segment) {
+				candidates.add(item);
+			}
+		}
+		Page page = page(table, index, candidates, table.ordering(index), request.getExclusiveStartKey(),
+				request.getLimit());
+
+		Expressions.Condition filter = filter(request.getFilterExpression(), request.getExpressionAttributeNames(),
+				request.getExpressionAttributeValues(), request.getScanFilter(), request.getConditionalOperator());
+		List<Map<String, AttributeValue>> items = select(table, index, page.items, filter, request.getSelect(),
+				request.getProjectionExpression(), request.getExpressionAttributeNames(),
+				request.getAttributesToGet());
+		return new ScanResult()
+				.withItems(items)
+				.withCount(count(page.items, filter))
+				.withScannedCount(page.items.size())
+				.withLastEvaluatedKey(page.lastEvaluatedKey)
+				.withConsumedCapacity(readCapacity(table, page.size,
+						Boolean.TRUE.equals(request.getConsistentRead()), request.getReturnConsumedCapacity()));
+	}
+
+	@Override
+	public synchronized QueryResult query(QueryRequest request) {
+		InMemoryTable table = table(request.getTableName());
+		InMemoryTable.Index index = request.getIndexName() != null ? table.getIndex(request.getIndexName()) : null;
+		Expressions.Condition keyCondition;
+		if (request.getKeyConditionExpression() != null) {
+			keyCondition = Expressions.parseCondition(request.getKeyConditionExpression(),
+					request.getExpressionAttributeNames(), request.getExpressionAttributeValues());
+		} else if (request.getKeyConditions() != null && !request.getKeyConditions().isEmpty()) {
+			keyCondition = Expressions.fromLegacyConditions(request.getKeyConditions(), null);
+		} else {
+			throw validation("Either the KeyConditions or KeyConditionExpression parameter must be specified");
+		}
+
+		boolean forward = !Boolean.FALSE.equals(request.getScanIndexForward());
+		List<Map<String, AttributeValue>> candidates = new ArrayList<>();
+		for (Map<String, AttributeValue> item : table.items(index, forward)) {
+			if (keyCondition.evaluate(item)) {
+				candidates.add(item);
+			}
+		}
+		Comparator<Map<String, AttributeValue>> ordering = table.ordering(index);
+		Page page = page(table, index, candidates, forward ? ordering : ordering.reversed(),
+				request.getExclusiveStartKey(), request.getLimit());
+
+		Expressions.Condition filter = filter(request.getFilterExpression(), request.getExpressionAttributeNames(),
+				request.getExpressionAttributeValues(), request.getQueryFilter(), request.getConditionalOperator());
+		List<Map<String, AttributeValue>> items = select(table, index, page.items, filter, request.getSelect(),
+				request.getProjectionExpression(), request.getExpressionAttributeNames(),
+				request.getAttributesToGet());
+		return new QueryResult()
+				.withItems(items)
+				.withCount(count(page.items, filter))
+				.withScannedCount(page.items.size())
+				.withLastEvaluatedKey(page.lastEvaluatedKey)
+				.withConsumedCapacity(readCapacity(table, page.size,
+						Boolean.TRUE.equals(request.getConsistentRead()), request.getReturnConsumedCapacity()));
+	}
+
+	/**
+	 * Items evaluated by one page of a query or a scan, before the filter is applied
+	 */
+	private static final class Page {
+		private final List<Map<String, AttributeValue>> items = new ArrayList<>();
+		private Map<String, AttributeValue> lastEvaluatedKey;
+		private long size;
+	}
+
+	/**
+	 * Reads the items following the exclusive start key, up to the limit or to 1 MB of data
+	 *
+	 * @param ordering order of the candidates, used to find where the previous page stopped
+	 */
+	private static Page page(InMemoryTable table, InMemoryTable.Index index,
+			List<Map<String, AttributeValue>> candidates, Comparator<Map<String, AttributeValue>> ordering,
+			Map<String, AttributeValue> exclusiveStartKey, Integer limit) {
+		if (limit != null && limit < 1) {
+			throw validation("Limit must be greater than or equal to 1");
+		}
+		int start = 0;
+		if (exclusiveStartKey != null) {
+			while (start < candidates.size() && ordering.compare(candidates.get(start), exclusiveStartKey) <= 0) {
+				start++;
+			}
+		}
+		Page page = new Page();
+		int position = start;
+		while (position < candidates.size()
+				&& (limit == null || page.items.size() < limit) && page.size < InMemoryTable.MAX_PAGE_SIZE) {
+			Map<String, AttributeValue> item = candidates.get(position++);
+			page.items.add(item);
+			page.size += AttributeValues.size(item);
+		}
+		if (position < candidates.size()) {
+			page.lastEvaluatedKey = table.evaluatedKey(page.items.get(page.items.size() - 1), index);
+		}
+		return page;
+	}
+
+	private static Expressions.Condition filter(String filterExpression, Map<String, String> names,
+			Map<String, AttributeValue> values,
+			Map<String, com.amazonaws.services.dynamodbv2.model.Condition> legacyFilter, String conditionalOperator) {
+		if (filterExpression != null) {
+			return Expressions.parseCondition(filterExpression, names, values);
+		} else if (legacyFilter != null && !legacyFilter.isEmpty()) {
+			return Expressions.fromLegacyConditions(legacyFilter, conditionalOperator);
+		}
+		return null;
+	}
+
+	private static int count(List<Map<String, AttributeValue>> items, Expressions.Condition filter) {
+		if (filter == null) {
+			return items.size();
+		}
+		int count = 0;
+		for (Map<String, AttributeValue> item : items) {
+			if (filter.evaluate(item)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static List<Map<String, AttributeValue>> select(InMemoryTable table, InMemoryTable.Index index,
+			List<Map<String, AttributeValue>> evaluated, Expressions.Condition filter, String select,
+			String projectionExpression, Map<String, String> names, List<String> attributesToGet) {
+		if (Select.COUNT.toString().equals(select)) {
+			return null;
+		}
+		List<Map<String, AttributeValue>> items = new ArrayList<>();
+		for (Map<String, AttributeValue> item : evaluated) {
+			if (filter == null || filter.evaluate(item)) {
+				Map<String, AttributeValue> indexed = Select.ALL_PROJECTED_ATTRIBUTES.toString().equals(select)
+						? table.project(item, index)
+						: item;
+				items.add(project(indexed, projectionExpression, names, attributesToGet));
+			}
+		}
+		return items;
+	}
+
+	// capacity
+
+	private static ConsumedCapacity readCapacity(InMemoryTable table, long size, boolean consistent,
+			String returnConsumedCapacity) {
+		double units = Math.max(1, Math.ceil(size / 4096.0));
+		return capacity(table, consistent ? units : units / 2, returnConsumedCapacity);
+	}
+
+	private static ConsumedCapacity writeCapacity(InMemoryTable table, Map<String, AttributeValue> before,
+			Map<String, AttributeValue> after, String returnConsumedCapacity) {
+		return capacity(table, writeUnits(before, after), returnConsumedCapacity);
+	}
+
+	/**
+	 * Write units of an item change: the larger of the item sizes before and after the write, in 1 KB units
+	 */
+	private static double writeUnits(Map<String, AttributeValue> before, Map<String, AttributeValue> after) {
+		long size = Math.max(before != null ? AttributeValues.size(before) : 0,
+				after != null ? AttributeValues.size(after) : 0);
+		return Math.max(1, Math.ceil(size / 1024.0));
+	}
+
+	private static ConsumedCapacity capacity(InMemoryTable table, double units, String returnConsumedCapacity) {
+		if (returnConsumedCapacity == null || ReturnConsumedCapacity.NONE.toString().equals(returnConsumedCapacity)) {
+			return null;
+		}
+		ConsumedCapacity capacity = new ConsumedCapacity().withTableName(table.getName()).withCapacityUnits(units);
+		if (ReturnConsumedCapacity.INDEXES.toString().equals(returnConsumedCapacity)) {
+			capacity.setTable(new Capacity().withCapacityUnits(units));
+		}
+		return capacity;
+	}
+
+	private static void addCapacity(List<ConsumedCapacity> capacities, ConsumedCapacity capacity) {
+		if (capacity != null) {
+			capacities.add(capacity);
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		// nothing to release
+	}
+}
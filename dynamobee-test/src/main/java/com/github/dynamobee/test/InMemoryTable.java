@@ -0,0 +1,544 @@
+package com.github.dynamobee.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.BillingModeSummary;
+import com.amazonaws.services.dynamodbv2.model.CreateGlobalSecondaryIndexAction;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexUpdate;
+import com.amazonaws.services.dynamodbv2.model.IndexStatus;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveDescription;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveStatus;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+
+
+/**
+ * Items and metadata of one table. Items are kept in hash key order, then in range key order within a partition;
+ * secondary indexes are evaluated when they are read.
+ */
+final class InMemoryTable {
+	static final long MAX_ITEM_SIZE = 400 * 1024;
+	static final long MAX_PAGE_SIZE = 1024 * 1024;
+
+	private static final AttributeValue NO_RANGE_KEY = new AttributeValue().withNULL(true);
+
+	private final String name;
+	private final String hashKey;
+	private final String rangeKey;
+	private final Map<String, String> attributeTypes = new LinkedHashMap<>();
+	private final Map<String, Index> indexes = new LinkedHashMap<>();
+	// describe calls left before a global secondary index created on the existing table becomes active
+	private final Map<String, Integer> backfills = new LinkedHashMap<>();
+	private final NavigableMap<String, NavigableMap<AttributeValue, Map<String, AttributeValue>>> partitions =
+			new TreeMap<>();
+	private final TableDescription description;
+	private TimeToLiveDescription timeToLive = new TimeToLiveDescription()
+			.withTimeToLiveStatus(TimeToLiveStatus.DISABLED);
+
+	/**
+	 * Key schema and projection of a secondary index
+	 */
+	static final class Index {
+		final String name;
+		final String hashKey;
+		final String rangeKey;
+		final Projection projection;
+		final boolean global;
+
+		Index(String name, List<KeySchemaElement> keySchema, Projection projection, boolean global) {
+			this.name = name;
+			this.hashKey = keyAttribute(keySchema, KeyType.HASH);
+			this.rangeKey = keyAttribute(keySchema, KeyType.RANGE);
+			this.projection = projection;
+			this.global = global;
+		}
+	}
+
+	InMemoryTable(CreateTableRequest request) {
+		this.name = request.getTableName();
+		if (request.getAttributeDefinitions() != null) {
+			for (AttributeDefinition definition : request.getAttributeDefinitions()) {
+				defineAttribute(definition);
+			}
+		}
+		this.hashKey = keyAttribute(request.getKeySchema(), KeyType.HASH);
+		this.rangeKey = keyAttribute(request.getKeySchema(), KeyType.RANGE);
+		if (hashKey == null) {
+			throw InMemoryAmazonDynamoDB.validation("The key schema of table " + name + " has no HASH key");
+		}
+		checkKeyAttributes(hashKey, rangeKey);
+
+		this.description = new TableDescription()
+				.withTableName(name)
+				.withTableArn("arn:aws:dynamodb:local:000000000000:table/" + name)
+				.withTableStatus(TableStatus.ACTIVE)
+				.withCreationDateTime(new Date())
+				.withKeySchema(request.getKeySchema())
+				.withAttributeDefinitions(request.getAttributeDefinitions())
+				.withStreamSpecification(request.getStreamSpecification());
+		setBillingMode(request.getBillingMode(), request.getProvisionedThroughput());
+
+		if (request.getLocalSecondaryIndexes() != null) {
+			List<LocalSecondaryIndexDescription> descriptions = new ArrayList<>();
+			for (LocalSecondaryIndex lsi : request.getLocalSecondaryIndexes()) {
+				Index index = addIndex(new Index(lsi.getIndexName(), lsi.getKeySchema(), lsi.getProjection(), false));
+				if (!hashKey.equals(index.hashKey) || index.rangeKey == null) {
+					throw InMemoryAmazonDynamoDB.validation("Local secondary index " + lsi.getIndexName()
+							+ " must have the same HASH key as the table and a RANGE key");
+				}
+				descriptions.add(new LocalSecondaryIndexDescription()
+						.withIndexName(lsi.getIndexName())
+						.withIndexArn(description.getTableArn() + "/index/" + lsi.getIndexName())
+						.withKeySchema(lsi.getKeySchema())
+						.withProjection(lsi.getProjection()));
+			}
+			description.setLocalSecondaryIndexes(descriptions);
+		}
+		if (request.getGlobalSecondaryIndexes() != null) {
+			for (GlobalSecondaryIndex gsi : request.getGlobalSecondaryIndexes()) {
+				createGlobalSecondaryIndex(gsi.getIndexName(), gsi.getKeySchema(), gsi.getProjection(),
+						gsi.getProvisionedThroughput());
+			}
+		}
+	}
+
+	private static String keyAttribute(List<KeySchemaElement> keySchema, KeyType keyType) {
+		if (keySchema == null) {
+			return null;
+		}
+		for (KeySchemaElement element : keySchema) {
+			if (keyType.toString().equals(element.getKeyType())) {
+				return element.getAttributeName();
+			}
+		}
+		return null;
+	}
+
+	private void defineAttribute(AttributeDefinition definition) {
+		if (!AttributeValues.isScalarKeyType(definition.getAttributeType())) {
+			throw InMemoryAmazonDynamoDB.validation("Invalid attribute type " + definition.getAttributeType()
+					+ " of key attribute " + definition.getAttributeName());
+		}
+		attributeTypes.put(definition.getAttributeName(), definition.getAttributeType());
+	}
+
+	private void checkKeyAttributes(String... attributes) {
+		for (String attribute : attributes) {
+			if (attribute != null && !attributeTypes.containsKey(attribute)) {
+				throw InMemoryAmazonDynamoDB.validation("Key attribute " + attribute + " of table " + name
+						+ " is not defined in the attribute definitions");
+			}
+		}
+	}
+
+	private Index addIndex(Index index) {
+		if (indexes.containsKey(index.name)) {
+			throw InMemoryAmazonDynamoDB.validation("Duplicate index name " + index.name);
+		}
+		if (index.hashKey == null) {
+			throw InMemoryAmazonDynamoDB.validation("The key schema of index " + index.name + " has no HASH key");
+		}
+		checkKeyAttributes(index.hashKey, index.rangeKey);
+		indexes.put(index.name, index);
+		return index;
+	}
+
+	private void createGlobalSecondaryIndex(String indexName, List<KeySchemaElement> keySchema,
+			Projection projection, ProvisionedThroughput throughput) {
+		addIndex(new Index(indexName, keySchema, projection, true));
+		GlobalSecondaryIndexDescription gsi = new GlobalSecondaryIndexDescription()
+				.withIndexName(indexName)
+				.withIndexArn(description.getTableArn() + "/index/" + indexName)
+				.withKeySchema(keySchema)
+				.withProjection(projection)
+				.withIndexStatus(IndexStatus.ACTIVE)
+				.withBackfilling(false)
+				.withProvisionedThroughput(throughputDescription(throughput));
+		List<GlobalSecondaryIndexDescription> descriptions = description.getGlobalSecondaryIndexes() != null
+				? new ArrayList<>(description.getGlobalSecondaryIndexes())
+				: new ArrayList<GlobalSecondaryIndexDescription>();
+		descriptions.add(gsi);
+		description.setGlobalSecondaryIndexes(descriptions);
+	}
+
+	private void setBillingMode(String billingMode, ProvisionedThroughput throughput) {
+		if (billingMode == null) {
+			billingMode = description.getBillingModeSummary() != null
+					? description.getBillingModeSummary().getBillingMode()
+					: BillingMode.PROVISIONED.toString();
+		}
+		if (BillingMode.PROVISIONED.toString().equals(billingMode) && throughput == null
+				&& description.getProvisionedThroughput() == null) {
+			throw InMemoryAmazonDynamoDB.validation(
+					"No provisioned throughput specified for the table " + name + " in PROVISIONED billing mode");
+		}
+		description.setBillingModeSummary(new BillingModeSummary().withBillingMode(billingMode)
+				.withLastUpdateToPayPerRequestDateTime(
+						BillingMode.PAY_PER_REQUEST.toString().equals(billingMode) ? new Date() : null));
+		if (BillingMode.PAY_PER_REQUEST.toString().equals(billingMode)) {
+			description.setProvisionedThroughput(throughputDescription(null));
+		} else if (throughput != null) {
+			description.setProvisionedThroughput(throughputDescription(throughput));
+		}
+	}
+
+	private static ProvisionedThroughputDescription throughputDescription(ProvisionedThroughput throughput) {
+		return new ProvisionedThroughputDescription()
+				.withReadCapacityUnits(throughput != null ? throughput.getReadCapacityUnits() : 0L)
+				.withWriteCapacityUnits(throughput != null ? throughput.getWriteCapacityUnits() : 0L)
+				.withNumberOfDecreasesToday(0L);
+	}
+
+	String getName() {
+		return name;
+	}
+
+	Index getIndex(String indexName) {
+		Index index = indexes.get(indexName);
+		if (index == null) {
+			throw InMemoryAmazonDynamoDB.validation("The table " + name + " does not have the specified index: "
+					+ indexName);
+		}
+		if (backfills.containsKey(indexName)) {
+			throw InMemoryAmazonDynamoDB.validation("Cannot read from backfilling global secondary index: "
+					+ indexName);
+		}
+		return index;
+	}
+
+	/**
+	 * Moves the creation of the backfilling indexes forward by one describe call of the table
+	 */
+	void advanceIndexCreation() {
+		for (Iterator<Map.Entry<String, Integer>> it = backfills.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, Integer> backfill = it.next();
+			if (backfill.getValue() == 0) {
+				setIndexStatus(backfill.getKey(), IndexStatus.ACTIVE);
+				it.remove();
+			} else {
+				backfill.setValue(backfill.getValue() - 1);
+			}
+		}
+	}
+
+	TableDescription describe() {
+		long itemCount = 0;
+		long size = 0;
+		for (NavigableMap<AttributeValue, Map<String, AttributeValue>> partition : partitions.values()) {
+			for (Map<String, AttributeValue> item : partition.values()) {
+				itemCount++;
+				size += AttributeValues.size(item);
+			}
+		}
+		return description.clone().withItemCount(itemCount).withTableSizeBytes(size);
+	}
+
+	/**
+	 * @param backfillDescribes describe calls during which a global secondary index created by the request
+	 * is reported as creating and backfilling
+	 */
+	void update(UpdateTableRequest request, int backfillDescribes) {
+		if (request.getAttributeDefinitions() != null) {
+			for (AttributeDefinition definition : request.getAttributeDefinitions()) {
+				defineAttribute(definition);
+			}
+			List<AttributeDefinition> definitions = new ArrayList<>();
+			for (Map.Entry<String, String> entry : attributeTypes.entrySet()) {
+				definitions.add(new AttributeDefinition(entry.getKey(), entry.getValue()));
+			}
+			description.setAttributeDefinitions(definitions);
+		}
+		if (request.getBillingMode() != null || request.getProvisionedThroughput() != null) {
+			setBillingMode(request.getBillingMode(), request.getProvisionedThroughput());
+		}
+		if (request.getStreamSpecification() != null) {
+			description.setStreamSpecification(request.getStreamSpecification());
+		}
+		if (request.getGlobalSecondaryIndexUpdates() != null) {
+			for (GlobalSecondaryIndexUpdate update : request.getGlobalSecondaryIndexUpdates()) {
+				if (update.getCreate() != null) {
+					CreateGlobalSecondaryIndexAction create = update.getCreate();
+					createGlobalSecondaryIndex(create.getIndexName(), create.getKeySchema(), create.getProjection(),
+							create.getProvisionedThroughput());
+					if (backfillDescribes > 0) {
+						setIndexStatus(create.getIndexName(), IndexStatus.CREATING);
+						backfills.put(create.getIndexName(), backfillDescribes);
+					}
+				} else if (update.getDelete() != null) {
+					deleteGlobalSecondaryIndex(update.getDelete().getIndexName());
+				} else if (update.getUpdate() != null) {
+					globalSecondaryIndex(update.getUpdate().getIndexName()).setProvisionedThroughput(
+							throughputDescription(update.getUpdate().getProvisionedThroughput()));
+				}
+			}
+		}
+	}
+
+	private GlobalSecondaryIndexDescription globalSecondaryIndex(String indexName) {
+		if (description.getGlobalSecondaryIndexes() != null) {
+			for (GlobalSecondaryIndexDescription gsi : description.getGlobalSecondaryIndexes()) {
+				if (gsi.getIndexName().equals(indexName)) {
+					return gsi;
+				}
+			}
+		}
+		throw InMemoryAmazonDynamoDB.resourceNotFound("Global secondary index " + indexName + " of table " + name
+				+ " not found");
+	}
+
+	/**
+	 * Replaces the description of the index, descriptions already returned by {@link #describe()} share it
+	 */
+	private void setIndexStatus(String indexName, IndexStatus status) {
+		GlobalSecondaryIndexDescription gsi = globalSecondaryIndex(indexName);
+		List<GlobalSecondaryIndexDescription> descriptions = new ArrayList<>(description.getGlobalSecondaryIndexes());
+		descriptions.set(descriptions.indexOf(gsi), gsi.clone()
+				.withIndexStatus(status)
+				.withBackfilling(status == IndexStatus.CREATING));
+		description.setGlobalSecondaryIndexes(descriptions);
+	}
+
+	private void deleteGlobalSecondaryIndex(String indexName) {
+		GlobalSecondaryIndexDescription gsi = globalSecondaryIndex(indexName);
+		List<GlobalSecondaryIndexDescription> descriptions = new ArrayList<>(description.getGlobalSecondaryIndexes());
+		descriptions.remove(gsi);
+		description.setGlobalSecondaryIndexes(descriptions.isEmpty() ? null : descriptions);
+		indexes.remove(indexName);
+		backfills.remove(indexName);
+	}
+
+	TimeToLiveDescription getTimeToLive() {
+		return timeToLive;
+	}
+
+	void setTimeToLive(TimeToLiveDescription timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	// items
+
+	/**
+	 * @return the primary key attributes of the item, after checking their presence and types
+	 */
+	Map<String, AttributeValue> key(Map<String, AttributeValue> item) {
+		Map<String, AttributeValue> key = new LinkedHashMap<>();
+		key.put(hashKey, keyValue(item, hashKey));
+		if (rangeKey != null) {
+			key.put(rangeKey, keyValue(item, rangeKey));
+		}
+		return key;
+	}
+
+	/**
+	 * Checks that a key of a request contains exactly the primary key attributes
+	 */
+	Map<String, AttributeValue> checkKey(Map<String, AttributeValue> key) {
+		if (key == null || key.size() != (rangeKey != null ? 2 : 1)) {
+			throw InMemoryAmazonDynamoDB.validation("The provided key element does not match the schema");
+		}
+		return key(key);
+	}
+
+	private AttributeValue keyValue(Map<String, AttributeValue> item, String attribute) {
+		AttributeValue value = item != null ? item.get(attribute) : null;
+		if (value == null) {
+			throw InMemoryAmazonDynamoDB.validation("One or more parameter values were invalid: Missing the key "
+					+ attribute + " in the item");
+		}
+		checkType(attribute, value);
+		return value;
+	}
+
+	private void checkType(String attribute, AttributeValue value) {
+		String type = AttributeValues.type(value);
+		if (!type.equals(attributeTypes.get(attribute))) {
+			throw InMemoryAmazonDynamoDB.validation("One or more parameter values were invalid: Type mismatch for key "
+					+ attribute + " expected: " + attributeTypes.get(attribute) + " actual: " + type);
+		}
+		if (AttributeValues.S.equals(type) && value.getS().isEmpty()
+				|| AttributeValues.B.equals(type) && !value.getB().hasRemaining()) {
+			throw InMemoryAmazonDynamoDB.validation("One or more parameter values were invalid: "
+					+ "An AttributeValue may not contain an empty string or binary for key " + attribute);
+		}
+	}
+
+	/**
+	 * @return the stored item, or null; callers copy it before handing it out
+	 */
+	Map<String, AttributeValue> get(Map<String, AttributeValue> key) {
+		NavigableMap<AttributeValue, Map<String, AttributeValue>> partition =
+				partitions.get(AttributeValues.canonical(key.get(hashKey)));
+		return partition != null ? partition.get(rangeValue(key)) : null;
+	}
+
+	/**
+	 * Stores the item, which the caller must not modify afterwards
+	 *
+	 * @return the replaced item, or null
+	 */
+	Map<String, AttributeValue> put(Map<String, AttributeValue> item) {
+		Map<String, AttributeValue> key = key(item);
+		for (Index index : indexes.values()) {
+			// index key attributes are optional, but must have the declared type when present
+			for (String attribute : new String[] { index.hashKey, index.rangeKey }) {
+				if (attribute != null && item.get(attribute) != null) {
+					checkType(attribute, item.get(attribute));
+				}
+			}
+		}
+		if (AttributeValues.size(item) > MAX_ITEM_SIZE) {
+			throw InMemoryAmazonDynamoDB.validation("Item size has exceeded the maximum allowed size");
+		}
+		NavigableMap<AttributeValue, Map<String, AttributeValue>> partition = partitions.get(
+				AttributeValues.canonical(key.get(hashKey)));
+		if (partition == null) {
+			partition = new TreeMap<>(InMemoryTable::compareKeyValues);
+			partitions.put(AttributeValues.canonical(key.get(hashKey)), partition);
+		}
+		return partition.put(rangeValue(key), item);
+	}
+
+	/**
+	 * @return the removed item, or null
+	 */
+	Map<String, AttributeValue> delete(Map<String, AttributeValue> key) {
+		String hash = AttributeValues.canonical(key.get(hashKey));
+		NavigableMap<AttributeValue, Map<String, AttributeValue>> partition = partitions.get(hash);
+		if (partition == null) {
+			return null;
+		}
+		Map<String, AttributeValue> removed = partition.remove(rangeValue(key));
+		if (partition.isEmpty()) {
+			partitions.remove(hash);
+		}
+		return removed;
+	}
+
+	private AttributeValue rangeValue(Map<String, AttributeValue> key) {
+		return rangeKey != null ? key.get(rangeKey) : NO_RANGE_KEY;
+	}
+
+	private static int compareKeyValues(AttributeValue a, AttributeValue b) {
+		Integer comparison = AttributeValues.compare(a, b);
+		return comparison != null ? comparison : 0;
+	}
+
+	// reads
+
+	/**
+	 * Items of the table or of one of its indexes, in the order they are read
+	 *
+	 * @param index index to read, or null to read the table
+	 */
+	List<Map<String, AttributeValue>> items(Index index, boolean forward) {
+		List<Map<String, AttributeValue>> items = new ArrayList<>();
+		for (NavigableMap<AttributeValue, Map<String, AttributeValue>> partition : partitions.values()) {
+			for (Map<String, AttributeValue> item : partition.values()) {
+				if (index == null || item.containsKey(index.hashKey)
+						&& (index.rangeKey == null || item.containsKey(index.rangeKey))) {
+					items.add(item);
+				}
+			}
+		}
+		if (index != null) {
+			Collections.sort(items, ordering(index));
+		}
+		if (!forward) {
+			Collections.reverse(items);
+		}
+		return items;
+	}
+
+	/**
+	 * Ordering of the items read from the table or from one of its indexes
+	 */
+	Comparator<Map<String, AttributeValue>> ordering(Index index) {
+		Comparator<Map<String, AttributeValue>> tableOrder = (a, b) -> {
+			int comparison = AttributeValues.canonical(a.get(hashKey)).compareTo(
+					AttributeValues.canonical(b.get(hashKey)));
+			return comparison != 0 || rangeKey == null ? comparison
+					: compareKeyValues(a.get(rangeKey), b.get(rangeKey));
+		};
+		if (index == null) {
+			return tableOrder;
+		}
+		return (a, b) -> {
+			int comparison = AttributeValues.canonical(a.get(index.hashKey)).compareTo(
+					AttributeValues.canonical(b.get(index.hashKey)));
+			if (comparison == 0 && index.rangeKey != null) {
+				comparison = compareKeyValues(a.get(index.rangeKey), b.get(index.rangeKey));
+			}
+			return comparison != 0 ? comparison : tableOrder.compare(a, b);
+		};
+	}
+
+	/**
+	 * Scan segment of an item: items of the same partition always belong to the same segment
+	 */
+	int segment(Map<String, AttributeValue> item, Index index, int totalSegments) {
+		AttributeValue hash = item.get(index != null ? index.hashKey : hashKey);
+		return Math.floorMod(AttributeValues.canonical(hash).hashCode(), totalSegments);
+	}
+
+	/**
+	 * Key returned as LastEvaluatedKey: the primary key, plus the index key when reading an index
+	 */
+	Map<String, AttributeValue> evaluatedKey(Map<String, AttributeValue> item, Index index) {
+		Map<String, AttributeValue> key = new LinkedHashMap<>();
+		key.put(hashKey, AttributeValues.copy(item.get(hashKey)));
+		if (rangeKey != null) {
+			key.put(rangeKey, AttributeValues.copy(item.get(rangeKey)));
+		}
+		if (index != null) {
+			key.put(index.hashKey, AttributeValues.copy(item.get(index.hashKey)));
+			if (index.rangeKey != null) {
+				key.put(index.rangeKey, AttributeValues.copy(item.get(index.rangeKey)));
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Copy of the item restricted to the attributes projected into the index
+	 */
+	Map<String, AttributeValue> project(Map<String, AttributeValue> item, Index index) {
+		if (index == null || index.projection == null
+				|| ProjectionType.ALL.toString().equals(index.projection.getProjectionType())) {
+			return AttributeValues.copy(item);
+		}
+		Map<String, AttributeValue> projected = evaluatedKey(item, index);
+		if (ProjectionType.INCLUDE.toString().equals(index.projection.getProjectionType())
+				&& index.projection.getNonKeyAttributes() != null) {
+			for (String attribute : index.projection.getNonKeyAttributes()) {
+				if (item.containsKey(attribute)) {
+					projected.put(attribute, AttributeValues.copy(item.get(attribute)));
+				}
+			}
+		}
+		return projected;
+	}
+}
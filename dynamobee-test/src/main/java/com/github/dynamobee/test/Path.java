@@ -0,0 +1,165 @@
+package com.github.dynamobee.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+
+/**
+ * Document path of an expression, e.g. {@code a.b[2].c}: attribute names and list indexes
+ */
+final class Path {
+	private final List<Object> elements;
+
+	Path(List<Object> elements) {
+		this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+	}
+
+	static Path of(String attributeName) {
+		return new Path(Collections.<Object>singletonList(attributeName));
+	}
+
+	String getAttributeName() {
+		return (String) elements.get(0);
+	}
+
+	boolean isTopLevel() {
+		return elements.size() == 1;
+	}
+
+	/**
+	 * @return the value at the path, or null if any element of the path is missing
+	 */
+	AttributeValue get(Map<String, AttributeValue> item) {
+		AttributeValue current = item.get(getAttributeName());
+		for (int i = 1; i < elements.size() && current != null; i++) {
+			current = child(current, elements.get(i));
+		}
+		return current;
+	}
+
+	private static AttributeValue child(AttributeValue parent, Object element) {
+		if (element instanceof String) {
+			return parent.getM() != null ? parent.getM().get(element) : null;
+		}
+		int index = (Integer) element;
+		return parent.getL() != null && index < parent.getL().size() ? parent.getL().get(index) : null;
+	}
+
+	/**
+	 * Sets the value at the path; the parent of the last element must exist. Setting a list index past
+	 * the end of the list appends the value.
+	 */
+	void set(Map<String, AttributeValue> item, AttributeValue value) {
+		if (isTopLevel()) {
+			item.put(getAttributeName(), value);
+			return;
+		}
+		AttributeValue parent = parent(item);
+		Object last = elements.get(elements.size() - 1);
+		if (last instanceof String) {
+			if (parent.getM() == null) {
+				throw invalidPath();
+			}
+			Map<String, AttributeValue> map = new LinkedHashMap<>(parent.getM());
+			map.put((String) last, value);
+			parent.setM(map);
+		} else {
+			if (parent.getL() == null) {
+				throw invalidPath();
+			}
+			List<AttributeValue> list = new ArrayList<>(parent.getL());
+			int index = (Integer) last;
+			if (index < list.size()) {
+				list.set(index, value);
+			} else {
+				list.add(value);
+			}
+			parent.setL(list);
+		}
+	}
+
+	/**
+	 * Removes the value at the path, if present
+	 */
+	void remove(Map<String, AttributeValue> item) {
+		if (isTopLevel()) {
+			item.remove(getAttributeName());
+			return;
+		}
+		AttributeValue parent = new Path(elements.subList(0, elements.size() - 1)).get(item);
+		if (parent == null) {
+			return;
+		}
+		Object last = elements.get(elements.size() - 1);
+		if (last instanceof String && parent.getM() != null) {
+			Map<String, AttributeValue> map = new LinkedHashMap<>(parent.getM());
+			map.remove(last);
+			parent.setM(map);
+		} else if (last instanceof Integer && parent.getL() != null && (Integer) last < parent.getL().size()) {
+			List<AttributeValue> list = new ArrayList<>(parent.getL());
+			list.remove(((Integer) last).intValue());
+			parent.setL(list);
+		}
+	}
+
+	private AttributeValue parent(Map<String, AttributeValue> item) {
+		AttributeValue parent = new Path(elements.subList(0, elements.size() - 1)).get(item);
+		if (parent == null) {
+			throw invalidPath();
+		}
+		return parent;
+	}
+
+	private RuntimeException invalidPath() {
+		return InMemoryAmazonDynamoDB.validation(
+				"The document path provided in the update expression is invalid for update: " + this);
+	}
+
+	/**
+	 * Copies the value at the path of the source into the target item, creating the intermediate maps and lists
+	 */
+	void project(Map<String, AttributeValue> source, Map<String, AttributeValue> target) {
+		AttributeValue value = get(source);
+		if (value == null) {
+			return;
+		}
+		if (isTopLevel()) {
+			target.put(getAttributeName(), AttributeValues.copy(value));
+			return;
+		}
+		// nested projections keep the whole top-level attribute, which is enough for the tests of changelogs
+		AttributeValue topLevel = source.get(getAttributeName());
+		target.put(getAttributeName(), AttributeValues.copy(topLevel));
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Path && elements.equals(((Path) other).elements);
+	}
+
+	@Override
+	public int hashCode() {
+		return elements.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder path = new StringBuilder();
+		for (Object element : elements) {
+			if (element instanceof Integer) {
+				path.append('[').append(element).append(']');
+			} else {
+				if (path.length() > 0) {
+					path.append('.');
+				}
+				path.append(element);
+			}
+		}
+		return path.toString();
+	}
+}
@@ -0,0 +1,158 @@
+package com.github.dynamobee.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.document.DynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.github.dynamobee.Dynamobee;
+import com.github.dynamobee.MigrationReport;
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.dao.DynamobeeDao;
+import com.github.dynamobee.exception.DynamobeeLockException;
+import com.github.dynamobee.test.changelogs.OrdersChangeLog;
+
+
+/**
+ * Lock, lease and changelog flow of Dynamobee run against the in-memory client
+ */
+public class DynamobeeOnInMemoryTest {
+	private static final String CHANGELOG_TABLE = "dynamobee";
+
+	private InMemoryAmazonDynamoDB client;
+	private DynamobeeDao dao;
+	private DynamobeeDao otherDao;
+
+	@Before
+	public void setUp() throws Exception {
+		client = new InMemoryAmazonDynamoDB();
+		dao = connectedDao();
+		otherDao = connectedDao();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		// stops the lease heartbeats
+		dao.releaseProcessLock();
+		otherDao.releaseProcessLock();
+	}
+
+	private DynamobeeDao connectedDao() throws Exception {
+		DynamobeeDao connected = new DynamobeeDao(CHANGELOG_TABLE, false, 1L, 1L, false);
+		connected.connectDynamoDB(client, new DynamoDB(client));
+		return connected;
+	}
+
+	private static Map<String, AttributeValue> key(String changeId) {
+		return Collections.singletonMap(ChangeEntry.KEY_CHANGEID, new AttributeValue(changeId));
+	}
+
+	private void putLock(String leaseToken, long leaseExpiry) {
+		Map<String, AttributeValue> lock = new HashMap<>(key("LOCK"));
+		lock.put("leaseToken", new AttributeValue(leaseToken));
+		lock.put("leaseExpiry", new AttributeValue().withN(Long.toString(leaseExpiry)));
+		client.putItem(CHANGELOG_TABLE, lock);
+	}
+
+	private static ChangeEntry changeEntry(String changeId) {
+		return new ChangeEntry(changeId, "test", new Date(), DynamobeeOnInMemoryTest.class.getName(), "changeSet");
+	}
+
+	@Test
+	public void shouldHoldTheLockUntilReleased() throws Exception {
+		assertTrue(dao.acquireProcessLock());
+		assertTrue(otherDao.isProccessLockHeld());
+		assertFalse(otherDao.acquireProcessLock());
+
+		dao.releaseProcessLock();
+		assertFalse(otherDao.isProccessLockHeld());
+		assertTrue(otherDao.acquireProcessLock());
+	}
+
+	@Test
+	public void shouldTakeOverAnExpiredLease() throws Exception {
+		putLock("dead-process", System.currentTimeMillis() - 1000);
+		assertFalse(dao.isProccessLockHeld());
+		assertTrue(dao.acquireProcessLock());
+	}
+
+	@Test
+	public void shouldFenceWritesWithTheLease() throws Exception {
+		assertTrue(dao.acquireProcessLock());
+		dao.save(changeEntry("applied"));
+		assertNotNull(client.getItem(CHANGELOG_TABLE, key("applied")).getItem());
+
+		// another process has taken the lease over
+		putLock("other-process", System.currentTimeMillis() + 60000);
+		try {
+			dao.save(changeEntry("late"));
+			fail("A write without the lease must be rejected");
+		} catch (DynamobeeLockException e) {
+			assertNull(client.getItem(CHANGELOG_TABLE, key("late")).getItem());
+		}
+	}
+
+	@Test
+	public void shouldReportAFailedConditionOfATransactionalChangeSet() throws Exception {
+		client.putItem(CHANGELOG_TABLE, key("existing"));
+		assertTrue(dao.acquireProcessLock());
+
+		TransactWriteItem write = new TransactWriteItem().withPut(new Put()
+				.withTableName(CHANGELOG_TABLE)
+				.withItem(key("existing"))
+				.withConditionExpression("attribute_not_exists(#changeId)")
+				.withExpressionAttributeNames(Collections.singletonMap("#changeId", ChangeEntry.KEY_CHANGEID)));
+		assertFalse(dao.saveTransactional(changeEntry("transactional"), Collections.singletonList(write)));
+		assertNull(client.getItem(CHANGELOG_TABLE, key("transactional")).getItem());
+	}
+
+	@Test
+	public void shouldFenceTransactionalChangeSetsWithTheLease() throws Exception {
+		assertTrue(dao.acquireProcessLock());
+		putLock("other-process", System.currentTimeMillis() + 60000);
+
+		TransactWriteItem write = new TransactWriteItem().withPut(new Put()
+				.withTableName(CHANGELOG_TABLE)
+				.withItem(key("written")));
+		try {
+			dao.saveTransactional(changeEntry("transactional"), Collections.singletonList(write));
+			fail("A transaction without the lease must be rejected");
+		} catch (DynamobeeLockException e) {
+			assertNull(client.getItem(CHANGELOG_TABLE, key("written")).getItem());
+		}
+	}
+
+	@Test
+	public void shouldApplyChangeSetsOnce() throws Exception {
+		Dynamobee runner = new Dynamobee(client)
+				.setChangeLogsScanPackage(OrdersChangeLog.class.getPackage().getName());
+
+		MigrationReport first = runner.executeWithReport();
+		assertEquals(MigrationReport.Status.COMPLETED, first.getStatus());
+		assertEquals(2, first.getApplied().size());
+		assertTrue(first.getFailed().isEmpty());
+		assertEquals("OPEN", client.getItem(OrdersChangeLog.TABLE,
+				Collections.singletonMap("id", new AttributeValue("order-1"))).getItem().get("status").getS());
+		assertNotNull(client.getItem(CHANGELOG_TABLE, key("createOrders")).getItem());
+		assertFalse("the lock is released", runner.isExecutionInProgress());
+
+		MigrationReport second = runner.executeWithReport();
+		assertTrue(second.getApplied().isEmpty());
+		assertTrue(second.getFailed().isEmpty());
+	}
+}
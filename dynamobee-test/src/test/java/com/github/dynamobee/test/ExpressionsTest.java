@@ -0,0 +1,195 @@
+package com.github.dynamobee.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+
+public class ExpressionsTest {
+
+	private static Map<String, AttributeValue> item() {
+		Map<String, AttributeValue> address = new LinkedHashMap<>();
+		address.put("city", new AttributeValue("Lyon"));
+		address.put("zip", new AttributeValue().withN("69001"));
+
+		Map<String, AttributeValue> item = new LinkedHashMap<>();
+		item.put("id", new AttributeValue("user#1"));
+		item.put("age", new AttributeValue().withN("42"));
+		item.put("name", new AttributeValue("Ada"));
+		item.put("tags", new AttributeValue().withSS("admin", "dev"));
+		item.put("roles", new AttributeValue().withSS("reader", "writer"));
+		item.put("scores", new AttributeValue().withL(new AttributeValue().withN("1"), new AttributeValue().withN("2")));
+		item.put("address", new AttributeValue().withM(address));
+		return item;
+	}
+
+	private static Map<String, AttributeValue> values(Object... namesAndValues) {
+		Map<String, AttributeValue> values = new HashMap<>();
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			values.put((String) namesAndValues[i], (AttributeValue) namesAndValues[i + 1]);
+		}
+		return values;
+	}
+
+	private static boolean evaluate(String expression, Map<String, AttributeValue> values) {
+		Map<String, String> names = new HashMap<>();
+		names.put("#name", "name");
+		return Expressions.parseCondition(expression, names, values).evaluate(item());
+	}
+
+	private static AttributeValue n(String number) {
+		return new AttributeValue().withN(number);
+	}
+
+	@Test
+	public void shouldCompareNumbersAndStrings() {
+		assertTrue(evaluate("age = :v", values(":v", n("42"))));
+		assertTrue(evaluate("age = :v", values(":v", n("42.0"))));
+		assertTrue(evaluate("age < :v", values(":v", n("100"))));
+		assertTrue(evaluate("age >= :v", values(":v", n("42"))));
+		assertFalse(evaluate("age > :v", values(":v", n("42"))));
+		assertTrue(evaluate("#name <> :v", values(":v", new AttributeValue("Bob"))));
+		// values of different types are never equal, nor ordered
+		assertFalse(evaluate("age = :v", values(":v", new AttributeValue("42"))));
+		assertFalse(evaluate("age < :v", values(":v", new AttributeValue("42"))));
+	}
+
+	@Test
+	public void shouldTreatMissingAttributesAsUnknown() {
+		assertFalse(evaluate("missing = :v", values(":v", n("1"))));
+		assertFalse(evaluate("missing < :v", values(":v", n("1"))));
+		assertTrue(evaluate("missing <> :v", values(":v", n("1"))));
+	}
+
+	@Test
+	public void shouldCombineConditionsWithPrecedence() {
+		Map<String, AttributeValue> values = values(":a", n("42"), ":b", new AttributeValue("Bob"));
+		assertTrue(evaluate("age = :a OR #name = :b AND age <> :a", values));
+		assertFalse(evaluate("(age = :a OR #name = :b) AND age <> :a", values));
+		assertTrue(evaluate("NOT #name = :b", values));
+		assertTrue(evaluate("not (#name = :b) and age = :a", values));
+	}
+
+	@Test
+	public void shouldEvaluateBetweenAndIn() {
+		assertTrue(evaluate("age BETWEEN :low AND :high", values(":low", n("40"), ":high", n("42"))));
+		assertFalse(evaluate("age BETWEEN :low AND :high", values(":low", n("43"), ":high", n("50"))));
+		assertTrue(evaluate("#name IN (:a, :b)", values(":a", new AttributeValue("Bob"), ":b", new AttributeValue("Ada"))));
+		assertFalse(evaluate("#name IN (:a)", values(":a", new AttributeValue("Bob"))));
+	}
+
+	@Test
+	public void shouldEvaluateFunctions() {
+		Map<String, AttributeValue> none = values();
+		assertTrue(evaluate("attribute_exists(id) AND attribute_not_exists(missing)", none));
+		assertTrue(evaluate("begins_with(id, :p)", values(":p", new AttributeValue("user#"))));
+		assertFalse(evaluate("begins_with(id, :p)", values(":p", new AttributeValue("order#"))));
+		assertTrue(evaluate("contains(tags, :t)", values(":t", new AttributeValue("dev"))));
+		assertTrue(evaluate("contains(#name, :t)", values(":t", new AttributeValue("d"))));
+		assertFalse(evaluate("contains(tags, :t)", values(":t", new AttributeValue("ops"))));
+		assertTrue(evaluate("attribute_type(age, :t)", values(":t", new AttributeValue("N"))));
+		assertTrue(evaluate("size(tags) = :s", values(":s", n("2"))));
+		assertTrue(evaluate("size(#name) < :s", values(":s", n("4"))));
+	}
+
+	@Test
+	public void shouldResolveDocumentPaths() {
+		assertTrue(evaluate("address.city = :c", values(":c", new AttributeValue("Lyon"))));
+		assertTrue(evaluate("scores[1] = :s", values(":s", n("2"))));
+		assertFalse(evaluate("attribute_exists(scores[2])", values()));
+		assertFalse(evaluate("attribute_exists(address.street)", values()));
+	}
+
+	@Test
+	public void shouldApplyUpdateActions() {
+		Map<String, String> names = new HashMap<>();
+		names.put("#count", "count");
+		names.put("#name", "name");
+		Map<String, AttributeValue> values = values(
+				":one", n("1"),
+				":zero", n("0"),
+				":more", new AttributeValue().withL(new AttributeValue().withN("3")),
+				":ops", new AttributeValue().withSS("ops"),
+				":writer", new AttributeValue().withSS("writer"),
+				":paris", new AttributeValue("Paris"));
+		Map<String, AttributeValue> item = item();
+
+		Set<String> updated = Expressions.parseUpdate(
+				"SET #count = if_not_exists(#count, :zero) + :one, age = age - :one, scores = list_append(scores, :more),"
+						+ " address.city = :paris"
+						+ " REMOVE #name ADD tags :ops DELETE roles :writer", names, values).apply(item);
+
+		assertEquals(new HashSet<>(Arrays.asList("count", "age", "scores", "address", "name", "tags", "roles")),
+				updated);
+		assertEquals("1", item.get("count").getN());
+		assertEquals("41", item.get("age").getN());
+		assertEquals(3, item.get("scores").getL().size());
+		assertEquals("Paris", item.get("address").getM().get("city").getS());
+		assertNull(item.get("name"));
+		assertEquals(new HashSet<>(Arrays.asList("admin", "dev", "ops")), new HashSet<>(item.get("tags").getSS()));
+		assertEquals(Arrays.asList("reader"), item.get("roles").getSS());
+	}
+
+	@Test
+	public void shouldResolveUpdateOperandsAgainstTheOriginalItem() {
+		Map<String, AttributeValue> item = item();
+		Expressions.parseUpdate("SET age = :v, #n = age", singletonName("#n", "previousAge"),
+				values(":v", n("1"))).apply(item);
+		assertEquals("1", item.get("age").getN());
+		assertEquals("42", item.get("previousAge").getN());
+	}
+
+	@Test
+	public void shouldParseProjections() {
+		List<Path> paths = Expressions.parseProjection("id, address.city, scores[0], #n", singletonName("#n", "name"));
+		assertEquals(4, paths.size());
+		assertEquals("address.city", paths.get(1).toString());
+		assertEquals("scores[0]", paths.get(2).toString());
+		assertEquals("name", paths.get(3).toString());
+	}
+
+	@Test
+	public void shouldRejectInvalidExpressions() {
+		assertValidationError("age = ", values());
+		assertValidationError("age = :undefined", values());
+		assertValidationError("#undefined = :v", values(":v", n("1")));
+		assertValidationError("age = :v :v", values(":v", n("1")));
+		assertValidationError("age ! :v", values(":v", n("1")));
+		try {
+			Expressions.parseUpdate("SET age = :v SET age = :v", null, values(":v", n("1")));
+			fail("A clause used twice must be rejected");
+		} catch (AmazonDynamoDBException e) {
+			assertEquals("ValidationException", e.getErrorCode());
+		}
+	}
+
+	private static void assertValidationError(String expression, Map<String, AttributeValue> values) {
+		try {
+			Expressions.parseCondition(expression, null, values);
+			fail("Expression should have been rejected: " + expression);
+		} catch (AmazonDynamoDBException e) {
+			assertEquals("ValidationException", e.getErrorCode());
+		}
+	}
+
+	private static Map<String, String> singletonName(String placeholder, String name) {
+		Map<String, String> names = new HashMap<>();
+		names.put(placeholder, name);
+		return names;
+	}
+}
@@ -0,0 +1,273 @@
+package com.github.dynamobee.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.ConditionCheck;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.CreateGlobalSecondaryIndexAction;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexUpdate;
+import com.amazonaws.services.dynamodbv2.model.IndexStatus;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+
+
+public class InMemoryAmazonDynamoDBTest {
+	private static final String TABLE = "orders";
+
+	private InMemoryAmazonDynamoDB client;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryAmazonDynamoDB();
+		client.createTable(new CreateTableRequest()
+				.withTableName(TABLE)
+				.withKeySchema(new KeySchemaElement("customer", KeyType.HASH),
+						new KeySchemaElement("order", KeyType.RANGE))
+				.withAttributeDefinitions(new AttributeDefinition("customer", ScalarAttributeType.S),
+						new AttributeDefinition("order", ScalarAttributeType.N))
+				.withBillingMode(BillingMode.PAY_PER_REQUEST));
+		for (int customer = 0; customer < 5; customer++) {
+			for (int order = 0; order < 10; order++) {
+				client.putItem(TABLE, item("c" + customer, order));
+			}
+		}
+	}
+
+	private static Map<String, AttributeValue> item(String customer, int order) {
+		Map<String, AttributeValue> item = key(customer, order);
+		item.put("status", new AttributeValue(order % 2 == 0 ? "OPEN" : "CLOSED"));
+		return item;
+	}
+
+	private static Map<String, AttributeValue> key(String customer, int order) {
+		Map<String, AttributeValue> key = new HashMap<>();
+		key.put("customer", new AttributeValue(customer));
+		key.put("order", new AttributeValue().withN(Integer.toString(order)));
+		return key;
+	}
+
+	private static Map<String, AttributeValue> values(String name, AttributeValue value) {
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(name, value);
+		return values;
+	}
+
+	@Test
+	public void shouldPageQueriesInRangeKeyOrder() {
+		List<String> orders = new ArrayList<>();
+		Map<String, AttributeValue> startKey = null;
+		int pages = 0;
+		do {
+			QueryResult result = client.query(new QueryRequest()
+					.withTableName(TABLE)
+					.withKeyConditionExpression("customer = :c")
+					.withExpressionAttributeValues(values(":c", new AttributeValue("c1")))
+					.withScanIndexForward(false)
+					.withLimit(3)
+					.withExclusiveStartKey(startKey));
+			for (Map<String, AttributeValue> item : result.getItems()) {
+				orders.add(item.get("order").getN());
+			}
+			startKey = result.getLastEvaluatedKey();
+			pages++;
+		} while (startKey != null);
+
+		assertEquals(4, pages);
+		List<String> expected = new ArrayList<>();
+		for (int order = 9; order >= 0; order--) {
+			expected.add(Integer.toString(order));
+		}
+		assertEquals(expected, orders);
+	}
+
+	@Test
+	public void shouldCountScannedItemsBeforeTheFilter() {
+		QueryResult result = client.query(new QueryRequest()
+				.withTableName(TABLE)
+				.withKeyConditionExpression("customer = :c AND #order BETWEEN :low AND :high")
+				.withFilterExpression("#status = :open")
+				.withExpressionAttributeNames(names("#order", "order", "#status", "status"))
+				.withExpressionAttributeValues(values(":c", new AttributeValue("c2"),
+						":low", new AttributeValue().withN("2"), ":high", new AttributeValue().withN("5"),
+						":open", new AttributeValue("OPEN"))));
+		assertEquals(Integer.valueOf(4), result.getScannedCount());
+		assertEquals(Integer.valueOf(2), result.getCount());
+		assertEquals(2, result.getItems().size());
+	}
+
+	@Test
+	public void shouldSplitParallelScansIntoDisjointSegments() {
+		Set<String> seen = new HashSet<>();
+		int scanned = 0;
+		for (int segment = 0; segment < 4; segment++) {
+			Map<String, AttributeValue> startKey = null;
+			do {
+				ScanResult result = client.scan(new ScanRequest()
+						.withTableName(TABLE)
+						.withSegment(segment)
+						.withTotalSegments(4)
+						.withLimit(7)
+						.withExclusiveStartKey(startKey));
+				for (Map<String, AttributeValue> item : result.getItems()) {
+					String id = item.get("customer").getS() + "/" + item.get("order").getN();
+					assertTrue("item scanned twice: " + id, seen.add(id));
+					scanned++;
+				}
+				startKey = result.getLastEvaluatedKey();
+			} while (startKey != null);
+		}
+		assertEquals(50, scanned);
+	}
+
+	@Test
+	public void shouldRejectAFailedConditionalPut() {
+		try {
+			client.putItem(new PutItemRequest()
+					.withTableName(TABLE)
+					.withItem(item("c0", 0))
+					.withConditionExpression("attribute_not_exists(customer)"));
+			fail("The item exists");
+		} catch (ConditionalCheckFailedException e) {
+			assertEquals("ConditionalCheckFailedException", e.getErrorCode());
+		}
+	}
+
+	@Test
+	public void shouldCommitTransactionsAtomically() {
+		client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(
+				new TransactWriteItem().withPut(new Put().withTableName(TABLE).withItem(item("c9", 1))),
+				new TransactWriteItem().withUpdate(new Update()
+						.withTableName(TABLE)
+						.withKey(key("c0", 0))
+						.withUpdateExpression("SET #status = :closed")
+						.withExpressionAttributeNames(names("#status", "status"))
+						.withExpressionAttributeValues(values(":closed", new AttributeValue("CLOSED"))))));
+
+		assertNotNull(client.getItem(TABLE, key("c9", 1)).getItem());
+		assertEquals("CLOSED", client.getItem(TABLE, key("c0", 0)).getItem().get("status").getS());
+	}
+
+	@Test
+	public void shouldReportCancellationReasonsOfACancelledTransaction() {
+		try {
+			client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(
+					new TransactWriteItem().withPut(new Put().withTableName(TABLE).withItem(item("c9", 1))),
+					new TransactWriteItem().withConditionCheck(new ConditionCheck()
+							.withTableName(TABLE)
+							.withKey(key("c0", 0))
+							.withConditionExpression("#status = :closed")
+							.withExpressionAttributeNames(names("#status", "status"))
+							.withExpressionAttributeValues(values(":closed", new AttributeValue("CLOSED"))))));
+			fail("The condition check does not hold");
+		} catch (TransactionCanceledException e) {
+			assertEquals("TransactionCanceledException", e.getErrorCode());
+			assertEquals(2, e.getCancellationReasons().size());
+			assertEquals("None", e.getCancellationReasons().get(0).getCode());
+			assertEquals("ConditionalCheckFailed", e.getCancellationReasons().get(1).getCode());
+		}
+		assertNull("nothing is written", client.getItem(TABLE, key("c9", 1)).getItem());
+	}
+
+	@Test
+	public void shouldRejectTransactionsWritingAnItemTwice() {
+		try {
+			client.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(
+					new TransactWriteItem().withPut(new Put().withTableName(TABLE).withItem(item("c9", 1))),
+					new TransactWriteItem().withPut(new Put().withTableName(TABLE).withItem(item("c9", 1)))));
+			fail("Two operations on one item");
+		} catch (AmazonDynamoDBException e) {
+			assertEquals("ValidationException", e.getErrorCode());
+		}
+	}
+
+	@Test
+	public void shouldBackfillAddedIndexesWhenSimulated() {
+		client.withIndexBackfillDescribes(2);
+		client.updateTable(new UpdateTableRequest()
+				.withTableName(TABLE)
+				.withAttributeDefinitions(new AttributeDefinition("status", ScalarAttributeType.S))
+				.withGlobalSecondaryIndexUpdates(new GlobalSecondaryIndexUpdate().withCreate(
+						new CreateGlobalSecondaryIndexAction()
+								.withIndexName("byStatus")
+								.withKeySchema(new KeySchemaElement("status", KeyType.HASH))
+								.withProjection(new Projection().withProjectionType(ProjectionType.KEYS_ONLY)))));
+
+		QueryRequest byStatus = new QueryRequest()
+				.withTableName(TABLE)
+				.withIndexName("byStatus")
+				.withKeyConditionExpression("#status = :open")
+				.withExpressionAttributeNames(names("#status", "status"))
+				.withExpressionAttributeValues(values(":open", new AttributeValue("OPEN")));
+		for (int describe = 0; describe < 2; describe++) {
+			GlobalSecondaryIndexDescription index = describeIndex();
+			assertEquals(IndexStatus.CREATING.toString(), index.getIndexStatus());
+			assertEquals(Boolean.TRUE, index.getBackfilling());
+			try {
+				client.query(byStatus);
+				fail("A backfilling index can not be read");
+			} catch (AmazonDynamoDBException e) {
+				assertEquals("ValidationException", e.getErrorCode());
+			}
+		}
+
+		GlobalSecondaryIndexDescription index = describeIndex();
+		assertEquals(IndexStatus.ACTIVE.toString(), index.getIndexStatus());
+		assertEquals(Boolean.FALSE, index.getBackfilling());
+		assertEquals(Integer.valueOf(25), client.query(byStatus).getCount());
+	}
+
+	private GlobalSecondaryIndexDescription describeIndex() {
+		return client.describeTable(TABLE).getTable().getGlobalSecondaryIndexes().get(0);
+	}
+
+	private static Map<String, String> names(String... placeholdersAndNames) {
+		Map<String, String> names = new HashMap<>();
+		for (int i = 0; i < placeholdersAndNames.length; i += 2) {
+			names.put(placeholdersAndNames[i], placeholdersAndNames[i + 1]);
+		}
+		return names;
+	}
+
+	private static Map<String, AttributeValue> values(String name1, AttributeValue value1, String name2,
+			AttributeValue value2, String name3, AttributeValue value3, String name4, AttributeValue value4) {
+		Map<String, AttributeValue> values = values(name1, value1);
+		values.put(name2, value2);
+		values.put(name3, value3);
+		values.put(name4, value4);
+		return values;
+	}
+}
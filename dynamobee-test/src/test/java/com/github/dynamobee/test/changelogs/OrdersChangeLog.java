@@ -0,0 +1,33 @@
+package com.github.dynamobee.test.changelogs;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.document.DynamoDB;
+import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.changeset.ChangeSet;
+
+
+@ChangeLog(order = "001")
+public class OrdersChangeLog {
+	public static final String TABLE = "orders";
+
+	@ChangeSet(order = "001", id = "createOrders", author = "test")
+	public void createOrders(AmazonDynamoDB client) {
+		client.createTable(new CreateTableRequest()
+				.withTableName(TABLE)
+				.withKeySchema(new KeySchemaElement("id", KeyType.HASH))
+				.withAttributeDefinitions(new AttributeDefinition("id", ScalarAttributeType.S))
+				.withBillingMode(BillingMode.PAY_PER_REQUEST));
+	}
+
+	@ChangeSet(order = "002", id = "seedOrders", author = "test")
+	public void seedOrders(DynamoDB db) {
+		db.getTable(TABLE).putItem(new Item().withPrimaryKey("id", "order-1").withString("status", "OPEN"));
+	}
+}
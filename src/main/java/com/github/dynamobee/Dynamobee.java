@@ -1,8 +1,22 @@
 package com.github.dynamobee;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,13 +28,36 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.document.DynamoDB;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
 import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.changeset.ChangeSet;
+import com.github.dynamobee.changeset.ChangeSetCheckpoint;
+import com.github.dynamobee.changeset.ChangeSetContext;
+import com.github.dynamobee.changeset.ChangeSetParameterResolver;
+import com.github.dynamobee.changeset.ChangeSetTransaction;
 import com.github.dynamobee.dao.DynamobeeDao;
+import com.github.dynamobee.dao.LockRetryStrategy;
+import com.github.dynamobee.dao.WorkJob;
 import com.github.dynamobee.exception.DynamobeeChangeSetException;
 import com.github.dynamobee.exception.DynamobeeConfigurationException;
 import com.github.dynamobee.exception.DynamobeeConnectionException;
 import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.metrics.ChangeSetStats;
+import com.github.dynamobee.metrics.CompositeMigrationMetrics;
+import com.github.dynamobee.metrics.MeteredAmazonDynamoDB;
+import com.github.dynamobee.metrics.MigrationMetrics;
+import com.github.dynamobee.migration.DistributedWork;
+import com.github.dynamobee.migration.DynamoDbJsonLines;
+import com.github.dynamobee.migration.IndexManager;
+import com.github.dynamobee.migration.TableExporter;
+import com.github.dynamobee.migration.TableImporter;
+import com.github.dynamobee.migration.TableMigrator;
+import com.github.dynamobee.utils.ChangeLogCache;
+import com.github.dynamobee.utils.ChangeLogGraph;
 import com.github.dynamobee.utils.ChangeService;
+import com.github.dynamobee.utils.ChangeSetInvokers;
+import com.github.dynamobee.utils.ClassUtils;
+import com.github.dynamobee.utils.ResolvedChangeLogs;
 
 
 /**
@@ -34,10 +71,31 @@ public class Dynamobee implements InitializingBean {
 	private static final long DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME = 5L;
 	private static final long DEFAULT_CHANGE_LOG_LOCK_POLL_RATE = 10L;
 	private static final boolean DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK = false;
+	private static final boolean DEFAULT_BATCH_LOAD_APPLIED_CHANGES = true;
+	private static final boolean DEFAULT_FAST_PATH_ENABLED = true;
+	private static final boolean DEFAULT_CHANGE_LOG_CACHE_ENABLED = true;
+	private static final int DEFAULT_CHANGE_LOG_PARALLELISM = 1;
+	private static final String JFR_EVENT_CLASS = "jdk.jfr.Event";
+	private static final String JFR_MIGRATION_METRICS_CLASS = "com.github.dynamobee.metrics.JfrMigrationMetrics";
 
 	private DynamobeeDao dao;
+	private final ChangeSetInvokers changeSetInvokers = new ChangeSetInvokers();
+	private final CompositeMigrationMetrics metrics = new CompositeMigrationMetrics();
+	private boolean jfrEventsEnabled = true;
+	private boolean changeSetStatsEnabled = false;
+	private boolean jfrMetricsRegistered = false;
 
 	private boolean enabled = true;
+	private boolean async = false;
+	private Executor executor;
+	private volatile CompletableFuture<MigrationReport> migration;
+	private final AtomicBoolean running = new AtomicBoolean();
+	private boolean batchLoadAppliedChanges = DEFAULT_BATCH_LOAD_APPLIED_CHANGES;
+	private boolean fastPathEnabled = DEFAULT_FAST_PATH_ENABLED;
+	private boolean changeLogCacheEnabled = DEFAULT_CHANGE_LOG_CACHE_ENABLED;
+	private int changeLogParallelism = DEFAULT_CHANGE_LOG_PARALLELISM;
+	private double migrationReadCapacityShare = 0;
+	private double migrationWriteCapacityShare = 0;
 	private String changeLogsScanPackage;
 	private AmazonDynamoDB amazonDynamoDB;
 	private DynamoDB dynamoDB;
@@ -72,6 +130,7 @@ public class Dynamobee implements InitializingBean {
 				DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
 
 		this.setChangelogTableName(DEFAULT_CHANGELOG_TABLE_NAME);
+		registerDefaultParameterResolvers();
 	}
 
 	/**
@@ -96,7 +155,59 @@ public class Dynamobee implements InitializingBean {
 	 */
 	@Override
 	public void afterPropertiesSet() throws Exception {
-		execute();
+		if (async) {
+			executeAsync();
+		} else {
+			execute();
+		}
+	}
+
+	/**
+	 * Executing migration in the background, on the executor set with {@link #setExecutor(Executor)}
+	 * or on a new dedicated thread
+	 *
+	 * @return future completed with the report once the migration has finished
+	 */
+	public CompletableFuture<MigrationReport> executeAsync() {
+		if (!running.compareAndSet(false, true)) {
+			// keeps the future of the running migration
+			CompletableFuture<MigrationReport> rejected = new CompletableFuture<>();
+			rejected.completeExceptionally(
+					new DynamobeeException("A migration is already running on this Dynamobee instance"));
+			return rejected;
+		}
+
+		Executor migrationExecutor = executor != null ? executor : runnable -> {
+			Thread thread = new Thread(runnable, "dynamobee-migration");
+			thread.start();
+		};
+
+		// published before the run starts, so it cannot overwrite the future of a later run
+		CompletableFuture<MigrationReport> previous = this.migration;
+		CompletableFuture<MigrationReport> future = new CompletableFuture<>();
+		this.migration = future;
+		try {
+			migrationExecutor.execute(() -> {
+				try {
+					future.complete(runClaimedMigration());
+				} catch (DynamobeeException | RuntimeException | Error e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RuntimeException e) {
+			// e.g. the executor rejected the task: no migration has run, nobody may be waiting on the future
+			this.migration = previous;
+			running.set(false);
+			logger.error("Dynamobee could not start the migration", e);
+			future.completeExceptionally(e);
+			return future;
+		}
+		future.whenComplete((report, e) -> {
+			if (e != null) {
+				logger.error("Dynamobee migration failed", e);
+			}
+		});
+		return future;
 	}
 
 	/**
@@ -105,24 +216,139 @@ public class Dynamobee implements InitializingBean {
 	 * @throws DynamobeeException exception
 	 */
 	public void execute() throws DynamobeeException {
+		executeWithReport();
+	}
+
+	/**
+	 * Executing migration
+	 *
+	 * @return report of the execution
+	 * @throws DynamobeeException exception
+	 */
+	public MigrationReport executeWithReport() throws DynamobeeException {
+		MigrationReport report = runMeasuredMigration();
+		this.migration = CompletableFuture.completedFuture(report);
+		return report;
+	}
+
+	/**
+	 * Computes which changesets the next execution would run, without running them: the changelogs are resolved
+	 * and the applied changesets are read with batched reads, but the process lock is not acquired, nothing is
+	 * written and the changelog table is not created when it does not exist.
+	 *
+	 * @return planned changesets in execution order, with the duration of their last execution when recorded
+	 * @throws DynamobeeException exception
+	 */
+	public MigrationPlan plan() throws DynamobeeException {
+		MigrationPlan plan = new MigrationPlan();
 		if (!isEnabled()) {
-			logger.info("Dynamobee is disabled. Exiting.");
+			logger.info("Dynamobee is disabled, no changeset would run.");
+			return plan;
+		}
+
+		validateConfig();
+
+		ChangeService service = createChangeService();
+		ResolvedChangeLogs resolved = service.resolve();
+		Map<String, ChangeEntry> appliedEntries = dao.findChangeEntries(this.dynamoDB, resolved.getChangeIds());
+
+		for (Class<?> changelogClass : resolved.getGraph().getChangeLogsInExecutionOrder()) {
+			for (Method changesetMethod : service.fetchChangeSets(changelogClass)) {
+				ChangeEntry changeEntry = service.createChangeEntry(changesetMethod);
+				ChangeEntry appliedEntry = appliedEntries.get(changeEntry.getChangeId());
+				if (appliedEntry == null) {
+					plan.addChangeSet(new PlannedChangeSet(changeEntry, PlannedChangeSet.Reason.PENDING, null));
+				} else if (service.isRunAlwaysChangeSet(changesetMethod)) {
+					plan.addChangeSet(new PlannedChangeSet(changeEntry, PlannedChangeSet.Reason.RUN_ALWAYS,
+							appliedEntry.getOutcome() != null ? appliedEntry : null));
+				} else {
+					plan.addApplied();
+				}
+			}
+		}
+
+		logger.info("Dynamobee planned " + plan);
+		return plan;
+	}
+
+	private MigrationReport runMeasuredMigration() throws DynamobeeException {
+		// runs of one instance share the lease token and heartbeat of its dao
+		if (!running.compareAndSet(false, true)) {
+			throw new DynamobeeException("A migration is already running on this Dynamobee instance");
+		}
+		return runClaimedMigration();
+	}
+
+	/**
+	 * Runs the migration once the caller has set {@link #running}, and clears it when done
+	 */
+	private MigrationReport runClaimedMigration() throws DynamobeeException {
+		try {
+			registerJfrMetrics();
+			metrics.migrationStarted();
+			long start = System.nanoTime();
+			try {
+				MigrationReport report = runMigration();
+				metrics.migrationFinished(report.getStatus(), System.nanoTime() - start);
+				return report;
+			} catch (DynamobeeException | RuntimeException e) {
+				metrics.migrationFailed(e, System.nanoTime() - start);
+				throw e;
+			}
+		} finally {
+			running.set(false);
+		}
+	}
+
+	private synchronized void registerJfrMetrics() {
+		if (!jfrEventsEnabled || jfrMetricsRegistered || !ClassUtils.isPresent(JFR_EVENT_CLASS, null)) {
 			return;
 		}
+		try {
+			// loaded by name, JfrMigrationMetrics can not be linked on JVMs without Flight Recorder
+			metrics.add((MigrationMetrics) Class.forName(JFR_MIGRATION_METRICS_CLASS).getConstructor().newInstance());
+		} catch (ReflectiveOperationException | LinkageError e) {
+			logger.debug("Flight Recorder events are not available: " + e.getMessage());
+		}
+		jfrMetricsRegistered = true;
+	}
+
+	private MigrationReport runMigration() throws DynamobeeException {
+		MigrationReport report = new MigrationReport();
+		if (!isEnabled()) {
+			logger.info("Dynamobee is disabled. Exiting.");
+			return report.finish(MigrationReport.Status.DISABLED);
+		}
 
 		validateConfig();
 
-		dao.connectDynamoDB(this.dynamoDB);
+		ChangeService service = createChangeService();
+		ResolvedChangeLogs resolved = service.resolve();
+		List<Class<?>> changeLogs = resolved.getChangeLogs();
+		List<String> changeIds = resolved.getChangeIds();
+		String fingerprint = resolved.getFingerprint();
+
+		if (fastPathEnabled && !resolved.hasRunAlwaysChangeSets()
+				&& dao.isFingerprintUpToDate(this.dynamoDB, service.getActiveProfiles(), fingerprint)) {
+			logger.info("Dynamobee found all changesets already applied. Exiting.");
+			return report.finish(MigrationReport.Status.UP_TO_DATE);
+		}
+
+		dao.connectDynamoDB(this.amazonDynamoDB, this.dynamoDB);
 
-		if (!dao.acquireProcessLock()) {
+		if (resolved.hasDistributedChangeSets()) {
+			dao.setLockWaitListener(attempt -> helpLockHolder(service, changeLogs));
+		}
+
+		if (!acquireProcessLock()) {
 			logger.info("Dynamobee did not acquire process lock. Exiting.");
-			return;
+			return report.finish(MigrationReport.Status.LOCK_NOT_ACQUIRED);
 		}
 
 		logger.info("Dynamobee acquired process lock, starting the data migration sequence..");
 
 		try {
-			executeMigration();
+			executeMigration(service, resolved.getGraph(), changeIds, fingerprint, report);
 		} catch (Exception e) {
 			logger.error("Dynamobee migration failed", e);
 			throw e;
@@ -132,13 +358,98 @@ public class Dynamobee implements InitializingBean {
 		}
 
 		logger.info("Dynamobee has finished his job.");
+		return report.finish(MigrationReport.Status.COMPLETED);
+	}
+
+	private boolean acquireProcessLock() throws DynamobeeException {
+		metrics.lockAcquisitionStarted();
+		long start = System.nanoTime();
+		boolean acquired = false;
+		try {
+			acquired = dao.acquireProcessLock();
+			return acquired;
+		} finally {
+			metrics.lockAcquisitionFinished(acquired, dao.getLastLockAcquireAttempts(), System.nanoTime() - start);
+		}
+	}
+
+	private void executeMigration(ChangeService service, ChangeLogGraph graph, List<String> changeIds,
+			String fingerprint, MigrationReport report) throws DynamobeeConnectionException, DynamobeeException {
+
+		Set<String> appliedChangeIds = null;
+		if (batchLoadAppliedChanges) {
+			appliedChangeIds = dao.findAppliedChangeIds(changeIds);
+		}
+
+		boolean allChangeSetsApplied;
+		if (changeLogParallelism > 1 && graph.getGroupsInExecutionOrder().size() > 1) {
+			allChangeSetsApplied = executeGroupsConcurrently(service, graph, appliedChangeIds, report);
+		} else {
+			allChangeSetsApplied = executeGroup(service, graph.getChangeLogsInExecutionOrder(), appliedChangeIds, report);
+		}
+
+		if (allChangeSetsApplied) {
+			dao.saveFingerprint(service.getActiveProfiles(), fingerprint);
+		}
 	}
 
-	private void executeMigration() throws DynamobeeConnectionException, DynamobeeException {
+	/**
+	 * Runs every group on a bounded pool as soon as the groups it depends on have completed
+	 */
+	private boolean executeGroupsConcurrently(final ChangeService service, final ChangeLogGraph graph,
+			final Set<String> appliedChangeIds, final MigrationReport report) throws DynamobeeException {
+		int poolSize = Math.min(changeLogParallelism, graph.getGroupsInExecutionOrder().size());
+		ExecutorService pool = Executors.newFixedThreadPool(poolSize, runnable -> {
+			Thread thread = new Thread(runnable, "dynamobee-changelog-group");
+			thread.setDaemon(true);
+			return thread;
+		});
 
-		ChangeService service = new ChangeService(changeLogsScanPackage, springEnvironment);
+		try {
+			Map<String, CompletableFuture<Boolean>> futures = new LinkedHashMap<>();
+			for (final String group : graph.getGroupsInExecutionOrder()) {
+				List<CompletableFuture<Boolean>> dependencies = new ArrayList<>();
+				for (String dependency : graph.getDependencies(group)) {
+					dependencies.add(futures.get(dependency));
+				}
+				CompletableFuture<Boolean> future = CompletableFuture
+						.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+						.thenApplyAsync(ignored -> {
+							try {
+								return executeGroup(service, graph.getChangeLogs(group), appliedChangeIds, report);
+							} catch (DynamobeeException e) {
+								throw new CompletionException(e);
+							}
+						}, pool);
+				futures.put(group, future);
+			}
 
-		for (Class<?> changelogClass : service.fetchChangeLogs()) {
+			boolean allChangeSetsApplied = true;
+			DynamobeeException failure = null;
+			for (CompletableFuture<Boolean> future : futures.values()) {
+				try {
+					allChangeSetsApplied &= future.join();
+				} catch (CompletionException e) {
+					if (failure == null) {
+						Throwable cause = e.getCause();
+						failure = cause instanceof DynamobeeException ? (DynamobeeException) cause
+								: new DynamobeeException(cause.getMessage(), cause);
+					}
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return allChangeSetsApplied;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private boolean executeGroup(ChangeService service, List<Class<?>> changeLogs, Set<String> appliedChangeIds,
+			MigrationReport report) throws DynamobeeException {
+		boolean allChangeSetsApplied = true;
+		for (Class<?> changelogClass : changeLogs) {
 
 			Object changelogInstance = null;
 			try {
@@ -149,17 +460,49 @@ public class Dynamobee implements InitializingBean {
 					ChangeEntry changeEntry = service.createChangeEntry(changesetMethod);
 
 					try {
-						if (dao.isNewChange(changeEntry)) {
-							executeChangeSetMethod(changesetMethod, changelogInstance, this.dynamoDB);
-							dao.save(changeEntry);
+						if (isNewChange(changeEntry, appliedChangeIds)) {
+							ChangeSetCheckpoint checkpoint = new ChangeSetCheckpoint(dao, changeEntry.getChangeId());
+							DistributedWork distributedWork = createDistributedWork(service, changesetMethod, changeEntry);
+							ChangeSetTransaction transaction = createTransaction(service, changesetMethod, changeEntry);
+							executeChangeSet(changesetMethod, changelogInstance, changeEntry, checkpoint, distributedWork,
+									transaction, MigrationMetrics.Outcome.APPLIED);
+							// recorded before the checkpoint is dropped: a crash in between leaves a stale checkpoint,
+							// never a changeset which would restart from scratch
+							if (transaction == null) {
+								dao.save(changeEntry);
+							}
+							if (checkpoint.isUsed()) {
+								dao.deleteCheckpoint(changeEntry.getChangeId());
+							}
+							if (distributedWork != null) {
+								distributedWork.finish();
+							}
+							report.addApplied(changeEntry);
 							logger.info(changeEntry + " applied");
 						} else if (service.isRunAlwaysChangeSet(changesetMethod)) {
-							executeChangeSetMethod(changesetMethod, changelogInstance, this.dynamoDB);
+							ChangeSetCheckpoint checkpoint = new ChangeSetCheckpoint(dao, changeEntry.getChangeId());
+							DistributedWork distributedWork = createDistributedWork(service, changesetMethod, changeEntry);
+							ChangeSetTransaction transaction = createTransaction(service, changesetMethod, changeEntry);
+							executeChangeSet(changesetMethod, changelogInstance, changeEntry, checkpoint, distributedWork,
+									transaction, MigrationMetrics.Outcome.REAPPLIED);
+							if (transaction == null) {
+								dao.save(changeEntry);
+							}
+							if (checkpoint.isUsed()) {
+								dao.deleteCheckpoint(changeEntry.getChangeId());
+							}
+							if (distributedWork != null) {
+								distributedWork.finish();
+							}
+							report.addReapplied(changeEntry);
 							logger.info(changeEntry + " reapplied");
 						} else {
+							report.addPassedOver(changeEntry);
 							logger.info(changeEntry + " passed over");
 						}
 					} catch (DynamobeeChangeSetException e) {
+						allChangeSetsApplied = false;
+						report.addFailed(changeEntry);
 						logger.error(e.getMessage());
 					}
 				}
@@ -175,83 +518,211 @@ public class Dynamobee implements InitializingBean {
 			}
 
 		}
+		return allChangeSetsApplied;
 	}
 
-	private Object executeChangeSetMethod(Method changeSetMethod, Object changeLogInstance, DynamoDB db)
-			throws IllegalAccessException, InvocationTargetException, DynamobeeChangeSetException {
-		if (changeSetMethod.getParameterTypes().length == 1
-				&& changeSetMethod.getParameterTypes()[0].equals(DynamoDB.class)) {
-			logger.debug("method with DynamoDB argument");
-
-			return changeSetMethod.invoke(changeLogInstance, db);
-
-		} else if (changeSetMethod.getParameterTypes().length == 1
-				&& changeSetMethod.getParameterTypes()[0].equals(AmazonDynamoDB.class)) {
-			logger.debug("method with AmazonDynamoDB argument");
-
-			return changeSetMethod.invoke(changeLogInstance, amazonDynamoDB);
-
-		} else if (changeSetMethod.getParameterTypes().length == 1
-				&& changeSetMethod.getParameterTypes()[0].equals(DynamoDBTemplate.class)) {
-			logger.debug("method with DynamoDBTemplate argument");
+	private ChangeService createChangeService() {
+		return new ChangeService(changeLogsScanPackage, springEnvironment,
+				changeLogCacheEnabled ? ChangeLogCache.shared() : null);
+	}
 
-			return changeSetMethod.invoke(changeLogInstance,
-					dynamoDBTemplate != null ? dynamoDBTemplate : new DynamoDBTemplate(amazonDynamoDB,
-              dynamoDBMapper, dynamoDBMapperConfig));
-		} else if (changeSetMethod.getParameterTypes().length == 2
-				&& changeSetMethod.getParameterTypes()[0].equals(DynamoDBTemplate.class)
-				&& changeSetMethod.getParameterTypes()[1].equals(Environment.class)) {
-			logger.debug("method with DynamoDBTemplate and Environment arguments");
+	private DistributedWork createDistributedWork(ChangeService service, Method changesetMethod,
+			ChangeEntry changeEntry) {
+		if (!service.isDistributedChangeSet(changesetMethod)) {
+			return null;
+		}
+		return DistributedWork.coordinator(dao, changeEntry.getChangeId(), changeEntry.getChangeLogClass(),
+				changeEntry.getChangeSetMethodName());
+	}
 
-			return changeSetMethod.invoke(changeLogInstance,
-					dynamoDBTemplate != null ? dynamoDBTemplate : new DynamoDBTemplate(amazonDynamoDB,
-              dynamoDBMapper, dynamoDBMapperConfig),
-					springEnvironment);
+	private ChangeSetTransaction createTransaction(ChangeService service, Method changesetMethod,
+			ChangeEntry changeEntry) throws DynamobeeChangeSetException {
+		if (!service.isTransactionalChangeSet(changesetMethod)) {
+			return null;
+		}
+		if (service.isDistributedChangeSet(changesetMethod)) {
+			throw new DynamobeeChangeSetException(changeEntry + " can not be both transactional and distributed");
+		}
+		return new ChangeSetTransaction();
+	}
 
-		} else if (changeSetMethod.getParameterTypes().length == 2
-				&& changeSetMethod.getParameterTypes()[0].equals(DynamoDBMapper.class)
-				&& changeSetMethod.getParameterTypes()[1].equals(AmazonDynamoDB.class)) {
-			logger.debug("method with DynamoDBMapper and AmazonDynamoDB arguments");
+	/**
+	 * Called while waiting for the lock: runs the distributed changeset published by the lock holder, if any,
+	 * as a worker processing the segments it can claim
+	 */
+	private void helpLockHolder(ChangeService service, List<Class<?>> changeLogs) {
+		try {
+			WorkJob job = dao.findWorkJob();
+			if (job == null) {
+				return;
+			}
+			for (Class<?> changelogClass : changeLogs) {
+				if (!changelogClass.getName().equals(job.getChangeLogClass())) {
+					continue;
+				}
+				for (Method changesetMethod : service.fetchChangeSets(changelogClass)) {
+					if (changesetMethod.getName().equals(job.getChangeSetMethodName())
+							&& service.isDistributedChangeSet(changesetMethod)) {
+						logger.info("Dynamobee is helping the lock holder with " + job);
+						Object changelogInstance = changelogClass.getConstructor().newInstance();
+						executeChangeSetMethod(changesetMethod, changelogInstance, new ChangeSetContext(
+								service.createChangeEntry(changesetMethod), null, DistributedWork.worker(dao, job),
+								amazonDynamoDB));
+						return;
+					}
+				}
+			}
+		} catch (InvocationTargetException e) {
+			logger.warn("Dynamobee could not help the lock holder: " + e.getTargetException().getMessage(), e);
+		} catch (Exception e) {
+			logger.warn("Dynamobee could not help the lock holder: " + e.getMessage(), e);
+		}
+	}
 
-			return changeSetMethod.invoke(changeLogInstance, dynamoDBMapper != null ? dynamoDBMapper : new DynamoDBMapper(amazonDynamoDB),
-					amazonDynamoDB);
+	private boolean isNewChange(ChangeEntry changeEntry, Set<String> appliedChangeIds)
+			throws DynamobeeConnectionException {
+		if (appliedChangeIds != null) {
+			return !appliedChangeIds.contains(changeEntry.getChangeId());
+		}
+		return dao.isNewChange(changeEntry);
+	}
 
-		} else if (changeSetMethod.getParameterTypes().length == 2
-				&& changeSetMethod.getParameterTypes()[0].equals(AmazonDynamoDB.class)
-				&& changeSetMethod.getParameterTypes()[1].equals(DynamoDBMapper.class)) {
+	/**
+	 * Executes the changeset with its DynamoDB calls recorded, reports it to the migration metrics and records
+	 * its execution details in the entry. A failed execution is saved right away. The writes of a transactional
+	 * changeset are committed with its entry, as part of the execution.
+	 */
+	private void executeChangeSet(Method changeSetMethod, Object changeLogInstance, ChangeEntry changeEntry,
+			ChangeSetCheckpoint checkpoint, DistributedWork distributedWork, ChangeSetTransaction transaction,
+			MigrationMetrics.Outcome outcome) throws IllegalAccessException, InvocationTargetException, DynamobeeException {
+		ChangeSetStats stats = new ChangeSetStats();
+		AmazonDynamoDB client = metrics.isEmpty() && !changeSetStatsEnabled ? amazonDynamoDB
+				: MeteredAmazonDynamoDB.wrap(amazonDynamoDB, stats);
 
-			logger.debug("method with AmazonDynamoDB and DynamoDBMapper arguments");
+		metrics.changeSetStarted(changeEntry);
+		Date startTime = new Date();
+		long start = System.nanoTime();
+		String failure = null;
+		try {
+			loadSeedResource(changeSetMethod, client);
+			executeChangeSetMethod(changeSetMethod, changeLogInstance,
+					new ChangeSetContext(changeEntry, checkpoint, distributedWork, client, transaction));
+			if (transaction != null) {
+				changeEntry.recordExecution(ChangeEntry.Outcome.SUCCESS, startTime, new Date(), dao.getHostName(), stats,
+						null);
+				if (!dao.saveTransactional(changeEntry, transaction.getWrites())) {
+					throw new DynamobeeChangeSetException("A condition of the transaction of " + changeEntry
+							+ " was not met, nothing has been written");
+				}
+			}
+		} catch (InvocationTargetException e) {
+			failure = String.valueOf(e.getTargetException());
+			throw e;
+		} catch (IllegalAccessException | DynamobeeException | RuntimeException e) {
+			failure = String.valueOf(e);
+			throw e;
+		} finally {
+			long duration = System.nanoTime() - start;
+			changeEntry.recordExecution(failure == null ? ChangeEntry.Outcome.SUCCESS : ChangeEntry.Outcome.FAILED,
+					startTime, new Date(startTime.getTime() + TimeUnit.NANOSECONDS.toMillis(duration)),
+					dao.getHostName(), stats, failure);
+			metrics.changeSetFinished(changeEntry, failure == null ? outcome : MigrationMetrics.Outcome.FAILED,
+					duration, stats);
+			if (failure != null) {
+				saveFailure(changeEntry);
+			}
+		}
+	}
 
-			return changeSetMethod.invoke(changeLogInstance, amazonDynamoDB,
-					dynamoDBMapper != null ? dynamoDBMapper : new DynamoDBMapper(amazonDynamoDB));
+	/**
+	 * Streams the seed resource of a changeset, if any, into its table
+	 */
+	private void loadSeedResource(Method changeSetMethod, AmazonDynamoDB client) throws DynamobeeException {
+		ChangeSet annotation = changeSetMethod.getAnnotation(ChangeSet.class);
+		if (annotation == null || annotation.resource().isEmpty()) {
+			return;
+		}
+		String resource = annotation.resource().startsWith("/") ? annotation.resource().substring(1)
+				: annotation.resource();
+		ClassLoader classLoader = changeSetMethod.getDeclaringClass().getClassLoader();
+		InputStream in = classLoader != null ? classLoader.getResourceAsStream(resource)
+				: ClassLoader.getSystemResourceAsStream(resource);
+		if (in == null) {
+			throw new DynamobeeChangeSetException("Seed resource '" + resource + "' not found on the classpath");
+		}
 
-		} else if (changeSetMethod.getParameterTypes().length == 2
-				&& changeSetMethod.getParameterTypes()[0].equals(DynamoDBTemplate.class)
-				&& changeSetMethod.getParameterTypes()[1].equals(AmazonDynamoDB.class)) {
-			logger.debug("method with DynamoDBTemplate and AmazonDynamoDB arguments");
+		String tableName = prefixTableName(annotation.table());
+		try (DynamoDbJsonLines.Reader reader = DynamoDbJsonLines.newReader(in, DynamoDbJsonLines.isGzipped(resource))) {
+			new TableImporter(client)
+					.withWriteCapacityShare(migrationWriteCapacityShare)
+					.importItems(tableName, reader);
+		} catch (IOException e) {
+			throw new DynamobeeChangeSetException("Seed resource '" + resource + "' can not be read: " + e.getMessage());
+		}
+	}
 
-			return changeSetMethod.invoke(changeLogInstance, dynamoDBTemplate != null ? dynamoDBTemplate :
-              new DynamoDBTemplate(amazonDynamoDB, dynamoDBMapper, dynamoDBMapperConfig),
-					amazonDynamoDB);
+	private String prefixTableName(String tableName) {
+		if (dynamoDBMapperConfig != null && dynamoDBMapperConfig.getTableNameOverride() != null
+				&& dynamoDBMapperConfig.getTableNameOverride().getTableNamePrefix() != null) {
+			return dynamoDBMapperConfig.getTableNameOverride().getTableNamePrefix() + tableName;
+		}
+		return tableName;
+	}
 
-		} else if (changeSetMethod.getParameterTypes().length == 2
-				&& changeSetMethod.getParameterTypes()[0].equals(AmazonDynamoDB.class)
-				&& changeSetMethod.getParameterTypes()[1].equals(DynamoDBTemplate.class)) {
-			logger.debug("method with AmazonDynamoDB and DynamoDBTemplate arguments");
+	private void saveFailure(ChangeEntry changeEntry) {
+		try {
+			dao.saveFailure(changeEntry);
+		} catch (DynamobeeException e) {
+			logger.warn("Failure of " + changeEntry + " could not be recorded: " + e.getMessage());
+		}
+	}
 
-			return changeSetMethod.invoke(changeLogInstance, amazonDynamoDB,
-					dynamoDBTemplate != null ? dynamoDBTemplate : new DynamoDBTemplate(amazonDynamoDB,
-              dynamoDBMapper, dynamoDBMapperConfig));
+	private Object executeChangeSetMethod(Method changeSetMethod, Object changeLogInstance, ChangeSetContext context)
+			throws IllegalAccessException, InvocationTargetException, DynamobeeException {
+		return changeSetInvokers.get(changeSetMethod).invoke(changeLogInstance, context);
+	}
 
-		} else if (changeSetMethod.getParameterTypes().length == 0) {
-			logger.debug("method with no params");
+	private void registerDefaultParameterResolvers() {
+		changeSetInvokers.register(DynamoDB.class, context -> context.getAmazonDynamoDB() == amazonDynamoDB
+				? dynamoDB : new DynamoDB(context.getAmazonDynamoDB()));
+		changeSetInvokers.register(AmazonDynamoDB.class, ChangeSetContext::getAmazonDynamoDB);
+		changeSetInvokers.register(DynamoDBTemplate.class, context -> getOrCreateDynamoDBTemplate());
+		changeSetInvokers.register(DynamoDBMapper.class, context -> getOrCreateDynamoDBMapper());
+		changeSetInvokers.register(DynamoDBMapperConfig.class, context -> dynamoDBMapperConfig);
+		changeSetInvokers.register(Environment.class, context -> springEnvironment);
+		changeSetInvokers.register(TableMigrator.class,
+				context -> createTableMigrator(context.getAmazonDynamoDB(), context.getCheckpoint(),
+						context.getDistributedWork()));
+		changeSetInvokers.register(IndexManager.class, context -> new IndexManager(context.getAmazonDynamoDB()));
+		changeSetInvokers.register(TableExporter.class, context -> new TableExporter(context.getAmazonDynamoDB())
+				.withReadCapacityShare(migrationReadCapacityShare));
+		changeSetInvokers.register(TableImporter.class, context -> new TableImporter(context.getAmazonDynamoDB())
+				.withWriteCapacityShare(migrationWriteCapacityShare));
+		changeSetInvokers.register(ChangeSetCheckpoint.class, ChangeSetContext::getCheckpoint);
+		changeSetInvokers.register(ChangeSetTransaction.class, ChangeSetContext::getTransaction);
+	}
 
-			return changeSetMethod.invoke(changeLogInstance);
+	private synchronized DynamoDBMapper getOrCreateDynamoDBMapper() {
+		if (dynamoDBMapper == null) {
+			dynamoDBMapper = new DynamoDBMapper(amazonDynamoDB);
+		}
+		return dynamoDBMapper;
+	}
 
-		} else {
-			throw new DynamobeeChangeSetException("ChangeSet method " + changeSetMethod.getName() +
-					" has wrong arguments list. Please see docs for more info!");
+	private synchronized DynamoDBTemplate getOrCreateDynamoDBTemplate() {
+		if (dynamoDBTemplate == null) {
+			dynamoDBTemplate = new DynamoDBTemplate(amazonDynamoDB, dynamoDBMapper, dynamoDBMapperConfig);
 		}
+		return dynamoDBTemplate;
+	}
+
+	private TableMigrator createTableMigrator(AmazonDynamoDB client, ChangeSetCheckpoint checkpoint,
+			DistributedWork distributedWork) {
+		return new TableMigrator(client)
+				.withReadCapacityShare(migrationReadCapacityShare)
+				.withWriteCapacityShare(migrationWriteCapacityShare)
+				.withCheckpoint(checkpoint)
+				.withDistributedWork(distributedWork);
 	}
 
 	private void validateConfig() throws DynamobeeConfigurationException {
@@ -268,6 +739,59 @@ public class Dynamobee implements InitializingBean {
 		return dao.isProccessLockHeld();
 	}
 
+	/**
+	 * Reports the lock wait, the changesets and the whole run to the given metrics,
+	 * e.g. a {@link com.github.dynamobee.metrics.MicrometerMigrationMetrics}
+	 *
+	 * @param migrationMetrics receiver of the measurements
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee addMigrationMetrics(MigrationMetrics migrationMetrics) {
+		this.metrics.add(migrationMetrics);
+		return this;
+	}
+
+	/**
+	 * Feature which enables/disables the Flight Recorder events of the migration, emitted when the JVM supports them.
+	 * Default is true.
+	 *
+	 * @param jfrEventsEnabled Flight Recorder events enabled
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setJfrEventsEnabled(boolean jfrEventsEnabled) {
+		this.jfrEventsEnabled = jfrEventsEnabled;
+		return this;
+	}
+
+	/**
+	 * Feature which enables/disables the recording of the items read and written and of the consumed capacity
+	 * of every changeset into its changelog entry, even when no migration metrics are registered.
+	 * The changesets then get a client which asks for the consumed capacity of their requests.
+	 * Default is false: the statistics are only recorded when migration metrics are registered.
+	 *
+	 * @param changeSetStatsEnabled statistics of the changesets recorded
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setChangeSetStatsEnabled(boolean changeSetStatsEnabled) {
+		this.changeSetStatsEnabled = changeSetStatsEnabled;
+		return this;
+	}
+
+	/**
+	 * Makes a type injectable into changeset methods, or overrides how a built-in type is provided.
+	 * Built-in types are DynamoDB, AmazonDynamoDB, DynamoDBTemplate, DynamoDBMapper, DynamoDBMapperConfig,
+	 * Environment, TableMigrator, TableExporter, TableImporter, IndexManager, ChangeSetCheckpoint and
+	 * ChangeSetTransaction.
+	 *
+	 * @param type parameter type, matched exactly
+	 * @param resolver provider of the parameter value
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee registerParameterResolver(Class<?> type, ChangeSetParameterResolver resolver) {
+		this.changeSetInvokers.register(type, resolver);
+		return this;
+	}
+
 	/**
 	 * Package name where @ChangeLog-annotated classes are kept.
 	 *
@@ -297,6 +821,188 @@ public class Dynamobee implements InitializingBean {
 		return this;
 	}
 
+	/**
+	 * Feature which makes the Spring integration run the migration in the background, so that the context
+	 * refresh is not blocked. Beans depending on migrated data can wait for {@link #getMigration()}.
+	 *
+	 * @param async Dynamobee will run asynchronously from afterPropertiesSet if this option is set to true
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setAsync(boolean async) {
+		this.async = async;
+		return this;
+	}
+
+	/**
+	 * Executor running asynchronous migrations, e.g. a virtual thread executor on JDK 21.
+	 * If not set, every asynchronous migration runs on a new thread.
+	 *
+	 * @param executor executor of asynchronous migrations
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setExecutor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * @return future of the last started migration, or null if no migration has been started
+	 */
+	public CompletableFuture<MigrationReport> getMigration() {
+		return migration;
+	}
+
+	/**
+	 * Readiness state of the data: can back a readiness health check while the migration runs in the background.
+	 *
+	 * @return true if the last started migration has finished successfully
+	 */
+	public boolean isMigrationCompleted() {
+		CompletableFuture<MigrationReport> current = this.migration;
+		return current != null && current.isDone() && !current.isCompletedExceptionally();
+	}
+
+	/**
+	 * Maximum number of changelog groups (see {@link com.github.dynamobee.changeset.ChangeLog#group()})
+	 * running at the same time. Groups start as soon as the groups they depend on have completed.
+	 * With the default of 1, changelogs run one after another.
+	 *
+	 * @param changeLogParallelism number of changelog groups which may run concurrently
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setChangeLogParallelism(int changeLogParallelism) {
+		this.changeLogParallelism = changeLogParallelism;
+		return this;
+	}
+
+	/**
+	 * Share of the provisioned capacity of migrated tables that the migration helpers injected into changesets
+	 * (e.g. {@link TableMigrator}) may consume. Their rate backs off when DynamoDB throttles,
+	 * so that backfills can run next to live traffic.
+	 *
+	 * @param readCapacityShare share of the RCU, e.g. 0.3 for 30%; 0 disables read throttling
+	 * @param writeCapacityShare share of the WCU, e.g. 0.3 for 30%; 0 disables write throttling
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setMigrationCapacityShare(double readCapacityShare, double writeCapacityShare) {
+		this.migrationReadCapacityShare = readCapacityShare;
+		this.migrationWriteCapacityShare = writeCapacityShare;
+		return this;
+	}
+
+	/**
+	 * Share of the changelog table's provisioned WCU the changelog writes may consume. The WCU are read from
+	 * the table when the changelog table check is enabled, and taken from
+	 * {@link #setChangelogTableThroughput(long, long)} and {@link #setChangelogTableBillingMode(BillingMode)}
+	 * otherwise.
+	 *
+	 * @param writeCapacityShare share of the WCU, e.g. 0.3 for 30%; 0 disables throttling
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setChangelogWriteCapacityShare(double writeCapacityShare) {
+		this.dao.setWriteCapacityShare(writeCapacityShare);
+		return this;
+	}
+
+	/**
+	 * Feature which enables/disables reading all applied changesets up front in batches,
+	 * instead of issuing one GetItem per changeset
+	 *
+	 * @param batchLoadAppliedChanges Dynamobee will batch-load applied changesets if this option is set to true
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setBatchLoadAppliedChanges(boolean batchLoadAppliedChanges) {
+		this.batchLoadAppliedChanges = batchLoadAppliedChanges;
+		return this;
+	}
+
+	/**
+	 * Feature which enables/disables the fast path: when the changelog table holds the fingerprint of the
+	 * current changesets and none of them is runAlways, Dynamobee exits after a single read, without
+	 * taking the process lock. A fingerprint is stored per set of active profiles, so processes running with
+	 * different profiles keep their own fast path.
+	 *
+	 * CAUTION! Disable it when changeset entries are removed from the changelog table by hand
+	 * in order to run them again
+	 *
+	 * @param fastPathEnabled Dynamobee will use the fast path if this option is set to true
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setFastPathEnabled(boolean fastPathEnabled) {
+		this.fastPathEnabled = fastPathEnabled;
+		return this;
+	}
+
+	/**
+	 * Feature which enables/disables the changelog cache: changelogs and changesets are scanned, filtered by
+	 * profile and sorted once per scan package, class loader and active profiles, then shared by the
+	 * executions of all Dynamobee instances in the JVM.
+	 *
+	 * Disable it when changelog classes are generated or redefined at runtime in the same class loader
+	 *
+	 * @param changeLogCacheEnabled Dynamobee will reuse previously resolved changelogs if this option is set to true
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setChangeLogCacheEnabled(boolean changeLogCacheEnabled) {
+		this.changeLogCacheEnabled = changeLogCacheEnabled;
+		return this;
+	}
+
+	/**
+	 * Billing mode of the changelog table when Dynamobee creates it. Default is PROVISIONED, with the throughput
+	 * of {@link #setChangelogTableThroughput(long, long)}; PAY_PER_REQUEST keeps many processes booting at once
+	 * from being throttled on the lock and changelog reads.
+	 *
+	 * @param billingMode billing mode of a new changelog table
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setChangelogTableBillingMode(BillingMode billingMode) {
+		this.dao.setChangelogTableBillingMode(billingMode);
+		return this;
+	}
+
+	/**
+	 * Provisioned throughput of the changelog table when Dynamobee creates it with PROVISIONED billing.
+	 * Default is 1 RCU and 1 WCU. Entries, checkpoints and shared work units written while holding the lock are
+	 * fenced by its lease in a transaction, which costs four write units per small item instead of one.
+	 *
+	 * @param readCapacityUnits read capacity units of a new changelog table
+	 * @param writeCapacityUnits write capacity units of a new changelog table
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setChangelogTableThroughput(long readCapacityUnits, long writeCapacityUnits) {
+		this.dao.setChangelogTableThroughput(readCapacityUnits, writeCapacityUnits);
+		return this;
+	}
+
+	/**
+	 * Attribute in which the lock and checkpoint items get their expiry, in epoch seconds, so that DynamoDB deletes
+	 * the items left over by dead processes: the lock once its lease has expired, checkpoints 30 days after their
+	 * last save. Enabled as time to live of the changelog table when Dynamobee creates it; on an existing table,
+	 * enable it by hand on the same attribute.
+	 *
+	 * @param attributeName time to live attribute, null for none (the default)
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setChangelogTableTimeToLiveAttribute(String attributeName) {
+		this.dao.setTimeToLiveAttributeName(attributeName);
+		return this;
+	}
+
+	/**
+	 * Feature which enables/disables looking up the changelog table on every execution, and creating it when
+	 * missing. Disable it when the table is provisioned beforehand, to save one DescribeTable call per boot.
+	 * Default is true.
+	 *
+	 * @param changelogTableCheckEnabled Dynamobee will describe, and create if needed, the changelog table if this
+	 * option is set to true
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setChangelogTableCheckEnabled(boolean changelogTableCheckEnabled) {
+		this.dao.setChangelogTableCheckEnabled(changelogTableCheckEnabled);
+		return this;
+	}
+
 	/**
 	 * Feature which enables/disables waiting for lock if it's already obtained
 	 *
@@ -330,6 +1036,45 @@ public class Dynamobee implements InitializingBean {
 		return this;
 	}
 
+	/**
+	 * Strategy deciding how long to wait between attempts to acquire the lock if waitForLock is true,
+	 * e.g. {@link com.github.dynamobee.dao.DecorrelatedJitterLockRetryStrategy}.
+	 * If not set, the lock is polled at the fixed changeLogLockPollRate.
+	 *
+	 * @param lockRetryStrategy strategy computing the delays between lock attempts
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setLockRetryStrategy(LockRetryStrategy lockRetryStrategy) {
+		this.dao.setLockRetryStrategy(lockRetryStrategy);
+		return this;
+	}
+
+	/**
+	 * Feature which enables/disables the lock wait queue: processes waiting for the lock take a ticket in the
+	 * changelog table and only the first one in line tries to take the lock, so waiters are served in order.
+	 * A ticket expires one lease time after its waiter last renewed it, so the ticket of a waiter which is gone
+	 * is skipped; waiters only write to the queue to take, renew or give back their ticket.
+	 *
+	 * @param lockWaitQueueEnabled Dynamobee will queue for the lock if this option is set to true
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setLockWaitQueueEnabled(boolean lockWaitQueueEnabled) {
+		this.dao.setLockWaitQueueEnabled(lockWaitQueueEnabled);
+		return this;
+	}
+
+	/**
+	 * Lease time of the process lock. The lease is renewed in the background while the migration runs;
+	 * a lock left by a crashed process is taken over once its lease has expired.
+	 *
+	 * @param changeLogLockLeaseTime Lease time in seconds of the process lock
+	 * @return Dynamobee object for fluent interface
+	 */
+	public Dynamobee setChangeLogLockLeaseTime(long changeLogLockLeaseTime) {
+		this.dao.setChangeLogLockLeaseTime(changeLogLockLeaseTime);
+		return this;
+	}
+
 	/**
 	 * Feature which enables/disables throwing DynamobeeLockException if Dynamobee can not obtain lock
 	 *
@@ -373,13 +1118,7 @@ public class Dynamobee implements InitializingBean {
 	 * @return Dynamobee object for fluent interface
 	 */
 	public Dynamobee setChangelogTableName(String changelogTableName) {
-
-		if (dynamoDBMapperConfig != null && dynamoDBMapperConfig.getTableNameOverride() != null
-				&& dynamoDBMapperConfig.getTableNameOverride().getTableNamePrefix() != null) {
-			changelogTableName = dynamoDBMapperConfig.getTableNameOverride().getTableNamePrefix() + changelogTableName;
-		}
-
-		this.dao.setChangelogTableName(changelogTableName);
+		this.dao.setChangelogTableName(prefixTableName(changelogTableName));
 
 		return this;
 	}
@@ -0,0 +1,110 @@
+package com.github.dynamobee;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Changesets which the next execution would run, in execution order, computed by {@link Dynamobee#plan()}
+ */
+public class MigrationPlan {
+	private final List<PlannedChangeSet> changeSets = new ArrayList<>();
+	private int appliedCount;
+
+	void addChangeSet(PlannedChangeSet changeSet) {
+		changeSets.add(changeSet);
+	}
+
+	void addApplied() {
+		appliedCount++;
+	}
+
+	/**
+	 * @return every changeset the execution would run, in execution order
+	 */
+	public List<PlannedChangeSet> getChangeSets() {
+		return Collections.unmodifiableList(changeSets);
+	}
+
+	/**
+	 * @return the changesets never applied, in execution order
+	 */
+	public List<PlannedChangeSet> getPending() {
+		return filter(PlannedChangeSet.Reason.PENDING);
+	}
+
+	/**
+	 * @return the runAlways changesets already applied, in execution order
+	 */
+	public List<PlannedChangeSet> getRunAlways() {
+		return filter(PlannedChangeSet.Reason.RUN_ALWAYS);
+	}
+
+	private List<PlannedChangeSet> filter(PlannedChangeSet.Reason reason) {
+		List<PlannedChangeSet> filtered = new ArrayList<>();
+		for (PlannedChangeSet changeSet : changeSets) {
+			if (changeSet.getReason() == reason) {
+				filtered.add(changeSet);
+			}
+		}
+		return Collections.unmodifiableList(filtered);
+	}
+
+	/**
+	 * @return number of changesets already applied which would be passed over
+	 */
+	public int getAppliedCount() {
+		return appliedCount;
+	}
+
+	/**
+	 * @return true if the execution would run no changeset at all, so the migration can be skipped
+	 */
+	public boolean isEmpty() {
+		return changeSets.isEmpty();
+	}
+
+	/**
+	 * @return true if some changeset has never been applied
+	 */
+	public boolean hasPendingChangeSets() {
+		return !getPending().isEmpty();
+	}
+
+	/**
+	 * @return sum of the durations of the last executions of the planned changesets, in milliseconds;
+	 *         changesets whose duration is unknown are not counted, see {@link #getUnestimatedCount()}
+	 */
+	public long getEstimatedDuration() {
+		long duration = 0;
+		for (PlannedChangeSet changeSet : changeSets) {
+			if (changeSet.getEstimatedDuration() != null) {
+				duration += changeSet.getEstimatedDuration();
+			}
+		}
+		return duration;
+	}
+
+	/**
+	 * @return number of planned changesets without a recorded duration
+	 */
+	public int getUnestimatedCount() {
+		int count = 0;
+		for (PlannedChangeSet changeSet : changeSets) {
+			if (changeSet.getEstimatedDuration() == null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return "[MigrationPlan: pending=" + getPending().size() +
+				", runAlways=" + getRunAlways().size() +
+				", applied=" + appliedCount +
+				", estimatedDuration=" + getEstimatedDuration() + "ms" +
+				", unestimated=" + getUnestimatedCount() + "]";
+	}
+}
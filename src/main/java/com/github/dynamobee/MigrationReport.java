@@ -0,0 +1,101 @@
+package com.github.dynamobee;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.dynamobee.changeset.ChangeEntry;
+
+
+/**
+ * Outcome of one Dynamobee execution
+ */
+public class MigrationReport {
+
+	/**
+	 * How the execution ended
+	 */
+	public enum Status {
+		/** Dynamobee is disabled */
+		DISABLED,
+		/** The fast path found every changeset already applied */
+		UP_TO_DATE,
+		/** The process lock could not be acquired, nothing was run */
+		LOCK_NOT_ACQUIRED,
+		/** The migration sequence has run */
+		COMPLETED
+	}
+
+	private final long startTime = System.currentTimeMillis();
+	private volatile long endTime;
+	private volatile Status status;
+	private final List<ChangeEntry> applied = Collections.synchronizedList(new ArrayList<ChangeEntry>());
+	private final List<ChangeEntry> reapplied = Collections.synchronizedList(new ArrayList<ChangeEntry>());
+	private final List<ChangeEntry> passedOver = Collections.synchronizedList(new ArrayList<ChangeEntry>());
+	private final List<ChangeEntry> failed = Collections.synchronizedList(new ArrayList<ChangeEntry>());
+
+	void addApplied(ChangeEntry changeEntry) {
+		applied.add(changeEntry);
+	}
+
+	void addReapplied(ChangeEntry changeEntry) {
+		reapplied.add(changeEntry);
+	}
+
+	void addPassedOver(ChangeEntry changeEntry) {
+		passedOver.add(changeEntry);
+	}
+
+	void addFailed(ChangeEntry changeEntry) {
+		failed.add(changeEntry);
+	}
+
+	MigrationReport finish(Status status) {
+		this.status = status;
+		this.endTime = System.currentTimeMillis();
+		return this;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return time spent by the execution, in milliseconds
+	 */
+	public long getDuration() {
+		return endTime - startTime;
+	}
+
+	public List<ChangeEntry> getApplied() {
+		return copy(applied);
+	}
+
+	public List<ChangeEntry> getReapplied() {
+		return copy(reapplied);
+	}
+
+	public List<ChangeEntry> getPassedOver() {
+		return copy(passedOver);
+	}
+
+	public List<ChangeEntry> getFailed() {
+		return copy(failed);
+	}
+
+	private static List<ChangeEntry> copy(List<ChangeEntry> entries) {
+		synchronized (entries) {
+			return Collections.unmodifiableList(new ArrayList<>(entries));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "[MigrationReport: status=" + status +
+				", applied=" + applied.size() +
+				", reapplied=" + reapplied.size() +
+				", passedOver=" + passedOver.size() +
+				", failed=" + failed.size() +
+				", duration=" + getDuration() + "ms]";
+	}
+}
@@ -0,0 +1,216 @@
+package com.github.dynamobee;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.env.Environment;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.github.dynamobee.exception.DynamobeeConfigurationException;
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.utils.ChangeLogCache;
+import com.github.dynamobee.utils.ChangeService;
+
+
+/**
+ * Runs the same changelogs for many tenants, each one owning the tables named with its own prefix.
+ * <p>
+ * Every tenant gets a {@link Dynamobee} configured with its prefix as table name override, so it has its own
+ * changelog table and process lock and its changesets see the tenant tables through the DynamoDBMapper,
+ * the DynamoDBTemplate and the injected DynamoDBMapperConfig. The tenants share the client and the changelogs,
+ * resolved once through the {@link ChangeLogCache}, and run concurrently up to the tenant parallelism.
+ */
+public class MultiTenantDynamobee implements InitializingBean {
+	private static final Logger logger = LoggerFactory.getLogger(MultiTenantDynamobee.class);
+
+	private static final int DEFAULT_TENANT_PARALLELISM = 4;
+
+	private final AmazonDynamoDB amazonDynamoDB;
+	private final DynamoDBMapperConfig dynamoDBMapperConfig;
+	private final List<String> tablePrefixes;
+	private int tenantParallelism = DEFAULT_TENANT_PARALLELISM;
+	private String changeLogsScanPackage;
+	private String changelogTableName;
+	private Environment springEnvironment;
+	private Consumer<Dynamobee> tenantConfigurer;
+
+	/**
+	 * @param amazonDynamoDB database connection client, shared by all tenants
+	 * @param tablePrefixes table name prefix of every tenant
+	 */
+	public MultiTenantDynamobee(AmazonDynamoDB amazonDynamoDB, Collection<String> tablePrefixes) {
+		this(amazonDynamoDB, null, tablePrefixes);
+	}
+
+	/**
+	 * @param amazonDynamoDB database connection client, shared by all tenants
+	 * @param dynamoDBMapperConfig dynamodb config of all tenants, its table name override is replaced by the
+	 * tenant prefix
+	 * @param tablePrefixes table name prefix of every tenant
+	 */
+	public MultiTenantDynamobee(AmazonDynamoDB amazonDynamoDB, DynamoDBMapperConfig dynamoDBMapperConfig,
+			Collection<String> tablePrefixes) {
+		this.amazonDynamoDB = amazonDynamoDB;
+		this.dynamoDBMapperConfig = dynamoDBMapperConfig != null ? dynamoDBMapperConfig : DynamoDBMapperConfig.DEFAULT;
+		this.tablePrefixes = new ArrayList<>(tablePrefixes);
+	}
+
+	/**
+	 * For Spring users: executing the migration of all tenants after bean is created in the Spring context
+	 *
+	 * @throws Exception the failure of the first failed tenant
+	 */
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		MultiTenantMigrationReport report = execute();
+		if (!report.isSuccessful()) {
+			String tablePrefix = report.getFailures().keySet().iterator().next();
+			throw new DynamobeeException(report.getFailures().size() + " tenant migrations failed, first is '"
+					+ tablePrefix + "'", report.getFailures().get(tablePrefix));
+		}
+	}
+
+	/**
+	 * Executing migration of all tenants. A failed tenant does not stop the others, its failure is reported.
+	 *
+	 * @return report of every tenant
+	 * @throws DynamobeeException if the configuration or the changesets are invalid, before any tenant has run
+	 */
+	public MultiTenantMigrationReport execute() throws DynamobeeException {
+		validateConfig();
+
+		// resolved once here, and served from the cache to every tenant
+		new ChangeService(changeLogsScanPackage, springEnvironment, ChangeLogCache.shared()).resolve();
+
+		MultiTenantMigrationReport report = new MultiTenantMigrationReport();
+		if (tablePrefixes.isEmpty()) {
+			return report.finish();
+		}
+
+		logger.info("Dynamobee is migrating " + tablePrefixes.size() + " tenants, " + tenantParallelism
+				+ " at a time");
+		int poolSize = Math.min(tenantParallelism, tablePrefixes.size());
+		ExecutorService pool = Executors.newFixedThreadPool(poolSize, runnable -> {
+			Thread thread = new Thread(runnable, "dynamobee-tenant");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<>();
+			for (final String tablePrefix : tablePrefixes) {
+				futures.add(CompletableFuture.runAsync(() -> executeTenant(tablePrefix, report), pool));
+			}
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+		} finally {
+			pool.shutdown();
+		}
+
+		report.finish();
+		logger.info("Dynamobee has migrated the tenants " + report);
+		return report;
+	}
+
+	private void executeTenant(String tablePrefix, MultiTenantMigrationReport report) {
+		try {
+			report.addReport(tablePrefix, createDynamobee(tablePrefix).executeWithReport());
+		} catch (DynamobeeException | RuntimeException e) {
+			logger.error("Dynamobee migration of tenant '" + tablePrefix + "' failed", e);
+			report.addFailure(tablePrefix, e);
+		}
+	}
+
+	private Dynamobee createDynamobee(String tablePrefix) {
+		DynamoDBMapperConfig tenantConfig = dynamoDBMapperConfig.merge(DynamoDBMapperConfig.builder()
+				.withTableNameOverride(DynamoDBMapperConfig.TableNameOverride.withTableNamePrefix(tablePrefix))
+				.build());
+
+		Dynamobee dynamobee = new Dynamobee(amazonDynamoDB, tenantConfig)
+				.setChangeLogsScanPackage(changeLogsScanPackage)
+				.setSpringEnvironment(springEnvironment);
+		if (changelogTableName != null) {
+			dynamobee.setChangelogTableName(changelogTableName);
+		}
+		if (tenantConfigurer != null) {
+			tenantConfigurer.accept(dynamobee);
+		}
+		return dynamobee;
+	}
+
+	private void validateConfig() throws DynamobeeConfigurationException {
+		if (changeLogsScanPackage == null || changeLogsScanPackage.trim().length() == 0) {
+			throw new DynamobeeConfigurationException("Scan package for changelogs is not set: use appropriate setter");
+		}
+	}
+
+	public List<String> getTablePrefixes() {
+		return new ArrayList<>(tablePrefixes);
+	}
+
+	/**
+	 * Package name where @ChangeLog-annotated classes are kept.
+	 *
+	 * @param changeLogsScanPackage package where your changelogs are
+	 * @return MultiTenantDynamobee object for fluent interface
+	 */
+	public MultiTenantDynamobee setChangeLogsScanPackage(String changeLogsScanPackage) {
+		this.changeLogsScanPackage = changeLogsScanPackage;
+		return this;
+	}
+
+	/**
+	 * Overwrites a default changelog table name, each tenant prefixing it with its own prefix
+	 *
+	 * @param changelogTableName a new changelog table name
+	 * @return MultiTenantDynamobee object for fluent interface
+	 */
+	public MultiTenantDynamobee setChangelogTableName(String changelogTableName) {
+		this.changelogTableName = changelogTableName;
+		return this;
+	}
+
+	/**
+	 * Set Environment object for Spring Profiles (@Profile) integration
+	 *
+	 * @param environment org.springframework.core.env.Environment object to inject
+	 * @return MultiTenantDynamobee object for fluent interface
+	 */
+	public MultiTenantDynamobee setSpringEnvironment(Environment environment) {
+		this.springEnvironment = environment;
+		return this;
+	}
+
+	/**
+	 * Number of tenants migrated at the same time. Default is 4.
+	 *
+	 * @param tenantParallelism maximum number of concurrent tenant executions
+	 * @return MultiTenantDynamobee object for fluent interface
+	 */
+	public MultiTenantDynamobee setTenantParallelism(int tenantParallelism) {
+		if (tenantParallelism < 1) {
+			throw new IllegalArgumentException("Tenant parallelism must be at least 1: " + tenantParallelism);
+		}
+		this.tenantParallelism = tenantParallelism;
+		return this;
+	}
+
+	/**
+	 * Applies further settings to the Dynamobee of every tenant, e.g. lock options, metrics or parameter
+	 * resolvers. Called before each tenant executes, on the tenant thread.
+	 *
+	 * @param tenantConfigurer configurer of a tenant Dynamobee
+	 * @return MultiTenantDynamobee object for fluent interface
+	 */
+	public MultiTenantDynamobee setTenantConfigurer(Consumer<Dynamobee> tenantConfigurer) {
+		this.tenantConfigurer = tenantConfigurer;
+		return this;
+	}
+}
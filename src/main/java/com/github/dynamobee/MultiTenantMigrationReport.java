@@ -0,0 +1,91 @@
+package com.github.dynamobee;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Outcome of one {@link MultiTenantDynamobee} execution: the report of every tenant that ran, and the
+ * failure of every tenant that did not complete
+ */
+public class MultiTenantMigrationReport {
+	private final long startTime = System.currentTimeMillis();
+	private long endTime;
+	private final Map<String, MigrationReport> reports = new LinkedHashMap<>();
+	private final Map<String, Throwable> failures = new LinkedHashMap<>();
+
+	synchronized void addReport(String tablePrefix, MigrationReport report) {
+		reports.put(tablePrefix, report);
+	}
+
+	synchronized void addFailure(String tablePrefix, Throwable failure) {
+		failures.put(tablePrefix, failure);
+	}
+
+	synchronized MultiTenantMigrationReport finish() {
+		this.endTime = System.currentTimeMillis();
+		return this;
+	}
+
+	/**
+	 * @return report of every tenant whose execution returned, by table prefix
+	 */
+	public synchronized Map<String, MigrationReport> getReports() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(reports));
+	}
+
+	/**
+	 * @return exception thrown by the execution of every failed tenant, by table prefix
+	 */
+	public synchronized Map<String, Throwable> getFailures() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+	}
+
+	/**
+	 * @return true if no tenant execution has thrown
+	 */
+	public synchronized boolean isSuccessful() {
+		return failures.isEmpty();
+	}
+
+	/**
+	 * @return number of tenants by status of their execution, failed tenants excluded
+	 */
+	public synchronized Map<MigrationReport.Status, Integer> getStatusCounts() {
+		Map<MigrationReport.Status, Integer> counts = new EnumMap<>(MigrationReport.Status.class);
+		for (MigrationReport report : reports.values()) {
+			Integer count = counts.get(report.getStatus());
+			counts.put(report.getStatus(), count == null ? 1 : count + 1);
+		}
+		return counts;
+	}
+
+	/**
+	 * @return number of changesets applied or reapplied, all tenants together
+	 */
+	public synchronized int getAppliedCount() {
+		int applied = 0;
+		for (MigrationReport report : reports.values()) {
+			applied += report.getApplied().size() + report.getReapplied().size();
+		}
+		return applied;
+	}
+
+	/**
+	 * @return time spent by the whole execution, in milliseconds
+	 */
+	public synchronized long getDuration() {
+		return endTime - startTime;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "[MultiTenantMigrationReport: tenants=" + (reports.size() + failures.size()) +
+				", statuses=" + getStatusCounts() +
+				", applied=" + getAppliedCount() +
+				", failed=" + failures.size() +
+				", duration=" + getDuration() + "ms]";
+	}
+}
@@ -0,0 +1,59 @@
+package com.github.dynamobee;
+
+import com.github.dynamobee.changeset.ChangeEntry;
+
+
+/**
+ * Changeset which the next execution would run
+ */
+public class PlannedChangeSet {
+
+	/**
+	 * Why the changeset would run
+	 */
+	public enum Reason {
+		/** The changeset has never been applied */
+		PENDING,
+		/** The changeset is applied already but runs at every execution */
+		RUN_ALWAYS
+	}
+
+	private final ChangeEntry changeEntry;
+	private final Reason reason;
+	private final ChangeEntry lastExecution;
+
+	PlannedChangeSet(ChangeEntry changeEntry, Reason reason, ChangeEntry lastExecution) {
+		this.changeEntry = changeEntry;
+		this.reason = reason;
+		this.lastExecution = lastExecution;
+	}
+
+	public ChangeEntry getChangeEntry() {
+		return changeEntry;
+	}
+
+	public Reason getReason() {
+		return reason;
+	}
+
+	/**
+	 * @return recorded details of the last execution, or null if the changeset has never run
+	 *         or has run before execution details were recorded
+	 */
+	public ChangeEntry getLastExecution() {
+		return lastExecution;
+	}
+
+	/**
+	 * @return duration of the last execution in milliseconds, or null if it is unknown
+	 */
+	public Long getEstimatedDuration() {
+		return lastExecution != null ? lastExecution.getDuration() : null;
+	}
+
+	@Override
+	public String toString() {
+		return "[PlannedChangeSet: " + changeEntry + ", reason=" + reason +
+				", estimatedDuration=" + (lastExecution != null ? lastExecution.getDuration() + "ms" : "unknown") + "]";
+	}
+}
@@ -0,0 +1,62 @@
+package com.github.dynamobee.async;
+
+import com.github.dynamobee.Dynamobee;
+
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+
+/**
+ * Lets changesets take the SDK v2 {@link DynamoDbAsyncClient} and an {@link AsyncTableMigrator} as parameters,
+ * next to the SDK v1 ones which keep working unchanged:
+ *
+ * <pre>
+ * Dynamobee runner = new Dynamobee(amazonDynamoDB);
+ * AsyncClientSupport.register(runner, AsyncClientSupport.createClient(256));
+ *
+ * &#64;ChangeSet(order = "001", id = "backfill", author = "dev")
+ * public void backfill(AsyncTableMigrator migrator) { ... }
+ * </pre>
+ *
+ * The SDK v2 is an optional dependency of Dynamobee: add software.amazon.awssdk:dynamodb and
+ * software.amazon.awssdk:netty-nio-client to use this class. The changelog table itself is still accessed
+ * with the SDK v1 client given to {@link Dynamobee}: the run only makes a few requests to it, while a
+ * migration helper makes one per page or batch of items.
+ */
+public final class AsyncClientSupport {
+	private static final int DEFAULT_MAX_CONCURRENCY = 128;
+
+	private AsyncClientSupport() {
+	}
+
+	/**
+	 * Registers the parameter resolvers of {@link DynamoDbAsyncClient} and {@link AsyncTableMigrator}
+	 *
+	 * @param dynamobee runner to extend
+	 * @param client async client given to the changesets
+	 * @return the runner, for fluent interface
+	 */
+	public static Dynamobee register(Dynamobee dynamobee, final DynamoDbAsyncClient client) {
+		return dynamobee
+				.registerParameterResolver(DynamoDbAsyncClient.class, context -> client)
+				.registerParameterResolver(AsyncTableMigrator.class,
+						context -> new AsyncTableMigrator(client).withCheckpoint(context.getCheckpoint()));
+	}
+
+	/**
+	 * @return async client on the Netty NIO HTTP client, with the default region and credentials providers
+	 */
+	public static DynamoDbAsyncClient createClient() {
+		return createClient(DEFAULT_MAX_CONCURRENCY);
+	}
+
+	/**
+	 * @param maxConcurrency maximum number of requests in flight, i.e. of open connections
+	 * @return async client on the Netty NIO HTTP client, with the default region and credentials providers
+	 */
+	public static DynamoDbAsyncClient createClient(int maxConcurrency) {
+		return DynamoDbAsyncClient.builder()
+				.httpClient(NettyNioAsyncHttpClient.builder().maxConcurrency(maxConcurrency).build())
+				.build();
+	}
+}
@@ -0,0 +1,354 @@
+package com.github.dynamobee.async;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
+import com.github.dynamobee.changeset.ChangeSetCheckpoint;
+import com.github.dynamobee.exception.DynamobeeException;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+
+/**
+ * Non-blocking counterpart of {@link com.github.dynamobee.migration.TableMigrator} on the SDK v2
+ * {@link DynamoDbAsyncClient}. Can be injected as a @{@link com.github.dynamobee.changeset.ChangeSet} method
+ * parameter once registered with {@link AsyncClientSupport}.
+ * <p>
+ * Every segment of the parallel scan reads its pages one after the other, and the BatchWriteItem requests of a
+ * page are all sent at once: up to {@link #withMaxInFlightRequests(int)} requests are in flight, without a thread
+ * waiting for each of them. Unprocessed items are retried with exponential backoff.
+ * <p>
+ * Given a {@link ChangeSetCheckpoint}, the LastEvaluatedKey of every segment is saved once its page is written,
+ * and a restarted run resumes every segment from there.
+ */
+public class AsyncTableMigrator {
+	private static final int DEFAULT_TOTAL_SEGMENTS = 4;
+	private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 64;
+	private static final int MAX_BATCH_SIZE = 25;
+	private static final int MAX_RETRIES = 10;
+	private static final long BASE_BACKOFF_MILLIS = 50L;
+	private static final long MAX_BACKOFF_MILLIS = 5000L;
+	private static final String SEGMENT_DONE = "DONE";
+
+	private final DynamoDbAsyncClient client;
+	private int totalSegments = DEFAULT_TOTAL_SEGMENTS;
+	private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+	private ChangeSetCheckpoint checkpoint;
+
+	public AsyncTableMigrator(DynamoDbAsyncClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * @param totalSegments number of segments of the parallel scan, scanned concurrently
+	 * @return AsyncTableMigrator object for fluent interface
+	 */
+	public AsyncTableMigrator withTotalSegments(int totalSegments) {
+		if (totalSegments < 1) {
+			throw new IllegalArgumentException("totalSegments must be at least 1");
+		}
+		this.totalSegments = totalSegments;
+		return this;
+	}
+
+	/**
+	 * @param maxInFlightRequests maximum number of BatchWriteItem requests sent and not answered yet,
+	 * which should not exceed the max concurrency of the client's HTTP client
+	 * @return AsyncTableMigrator object for fluent interface
+	 */
+	public AsyncTableMigrator withMaxInFlightRequests(int maxInFlightRequests) {
+		if (maxInFlightRequests < 1) {
+			throw new IllegalArgumentException("maxInFlightRequests must be at least 1");
+		}
+		this.maxInFlightRequests = maxInFlightRequests;
+		return this;
+	}
+
+	/**
+	 * @param checkpoint checkpoint of the running changeset, used to resume an interrupted migration
+	 * @return AsyncTableMigrator object for fluent interface
+	 */
+	public AsyncTableMigrator withCheckpoint(ChangeSetCheckpoint checkpoint) {
+		this.checkpoint = checkpoint;
+		return this;
+	}
+
+	/**
+	 * Transforms every item of a table in place
+	 *
+	 * @param tableName table to migrate
+	 * @param transform function returning the item to write, or null to leave the item unchanged
+	 * @return number of items written
+	 * @throws DynamobeeException if the migration of a segment failed
+	 */
+	public long migrate(String tableName, Function<Map<String, AttributeValue>, Map<String, AttributeValue>> transform)
+			throws DynamobeeException {
+		return migrate(tableName, tableName, transform);
+	}
+
+	/**
+	 * Writes the transformation of every item of a table into another table
+	 *
+	 * @param sourceTableName table to scan
+	 * @param targetTableName table to write to
+	 * @param transform function returning the item to write, or null to skip the item
+	 * @return number of items written
+	 * @throws DynamobeeException if the migration of a segment failed
+	 */
+	public long migrate(String sourceTableName, String targetTableName,
+			Function<Map<String, AttributeValue>, Map<String, AttributeValue>> transform) throws DynamobeeException {
+		String checkpointPrefix = "migrate:" + sourceTableName + "->" + targetTableName + ":";
+		int segmentCount = resolveTotalSegments(checkpointPrefix);
+
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "dynamobee-async-table-migrator");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// checkpoints are written through the blocking DAO: they must not hold up the timers of the backoffs
+		ExecutorService checkpointWriter = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "dynamobee-async-table-migrator-checkpoint");
+			thread.setDaemon(true);
+			return thread;
+		});
+		Migration migration = new Migration(sourceTableName, targetTableName, transform, segmentCount, scheduler,
+				checkpointWriter);
+		try {
+			List<CompletableFuture<Void>> segments = new ArrayList<>();
+			for (int segment = 0; segment < segmentCount; segment++) {
+				String key = checkpointPrefix + "segment-" + segment;
+				Object stored = checkpoint != null ? checkpoint.get(key) : null;
+				if (!SEGMENT_DONE.equals(stored)) {
+					segments.add(migration.migrateSegment(segment, checkpoint != null ? key : null, startKey(stored)));
+				}
+			}
+			CompletableFuture.allOf(segments.toArray(new CompletableFuture<?>[0])).join();
+			return migration.written.get();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof DynamobeeException ? (DynamobeeException) cause
+					: new DynamobeeException("Migration of " + sourceTableName + " failed: " + cause.getMessage(), cause);
+		} finally {
+			scheduler.shutdownNow();
+			checkpointWriter.shutdownNow();
+		}
+	}
+
+	/**
+	 * A resumed migration keeps the segment count of the run which stored the checkpoint
+	 */
+	private int resolveTotalSegments(String checkpointPrefix) throws DynamobeeException {
+		if (checkpoint == null) {
+			return totalSegments;
+		}
+		Object stored = checkpoint.get(checkpointPrefix + "totalSegments");
+		if (stored instanceof Number) {
+			return ((Number) stored).intValue();
+		}
+		checkpoint.put(checkpointPrefix + "totalSegments", totalSegments);
+		return totalSegments;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, AttributeValue> startKey(Object stored) {
+		return stored instanceof Map
+				? AttributeValueConversion.toV2(ItemUtils.fromSimpleMap((Map<String, Object>) stored)) : null;
+	}
+
+	/**
+	 * State of one {@link #migrate(String, String, Function)} call
+	 */
+	private class Migration {
+		private final String sourceTableName;
+		private final String targetTableName;
+		private final Function<Map<String, AttributeValue>, Map<String, AttributeValue>> transform;
+		private final int segmentCount;
+		private final ScheduledExecutorService scheduler;
+		private final ExecutorService checkpointWriter;
+		private final AsyncPermits permits = new AsyncPermits(maxInFlightRequests);
+		private final AtomicLong written = new AtomicLong();
+
+		Migration(String sourceTableName, String targetTableName,
+				Function<Map<String, AttributeValue>, Map<String, AttributeValue>> transform, int segmentCount,
+				ScheduledExecutorService scheduler, ExecutorService checkpointWriter) {
+			this.sourceTableName = sourceTableName;
+			this.targetTableName = targetTableName;
+			this.transform = transform;
+			this.segmentCount = segmentCount;
+			this.scheduler = scheduler;
+			this.checkpointWriter = checkpointWriter;
+		}
+
+		CompletableFuture<Void> migrateSegment(int segment, String checkpointKey,
+				Map<String, AttributeValue> exclusiveStartKey) {
+			ScanRequest request = ScanRequest.builder()
+					.tableName(sourceTableName)
+					.segment(segment)
+					.totalSegments(segmentCount)
+					.exclusiveStartKey(exclusiveStartKey)
+					.build();
+			return retrying(() -> client.scan(request), 0, BASE_BACKOFF_MILLIS)
+					.thenCompose(page -> writePage(page)
+							.thenCompose(ignored -> {
+								Map<String, AttributeValue> lastEvaluatedKey = page.lastEvaluatedKey();
+								boolean done = lastEvaluatedKey == null || lastEvaluatedKey.isEmpty();
+								CompletableFuture<Void> saved = checkpointKey != null
+										? saveCheckpoint(checkpointKey, done ? null : lastEvaluatedKey)
+										: CompletableFuture.completedFuture(null);
+								return done ? saved : saved.thenCompose(
+										nothing -> migrateSegment(segment, checkpointKey, lastEvaluatedKey));
+							}));
+		}
+
+		private CompletableFuture<Void> writePage(ScanResponse page) {
+			List<WriteRequest> batch = new ArrayList<>(MAX_BATCH_SIZE);
+			List<CompletableFuture<Void>> batches = new ArrayList<>();
+			for (Map<String, AttributeValue> item : page.items()) {
+				Map<String, AttributeValue> transformed = transform.apply(item);
+				if (transformed != null) {
+					batch.add(WriteRequest.builder().putRequest(PutRequest.builder().item(transformed).build()).build());
+					if (batch.size() == MAX_BATCH_SIZE) {
+						batches.add(writeBatch(batch, 0, BASE_BACKOFF_MILLIS));
+						batch = new ArrayList<>(MAX_BATCH_SIZE);
+					}
+				}
+			}
+			if (!batch.isEmpty()) {
+				batches.add(writeBatch(batch, 0, BASE_BACKOFF_MILLIS));
+			}
+			return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0]));
+		}
+
+		private CompletableFuture<Void> writeBatch(List<WriteRequest> pending, int attempt, long backoff) {
+			if (attempt > MAX_RETRIES) {
+				CompletableFuture<Void> failed = new CompletableFuture<>();
+				failed.completeExceptionally(new DynamobeeException(pending.size() + " writes to " + targetTableName
+						+ " are still unprocessed after " + MAX_RETRIES + " retries"));
+				return failed;
+			}
+			BatchWriteItemRequest request = BatchWriteItemRequest.builder()
+					.requestItems(Collections.singletonMap(targetTableName, pending))
+					.build();
+			return retrying(() -> client.batchWriteItem(request), 0, BASE_BACKOFF_MILLIS)
+					.thenCompose(response -> {
+						List<WriteRequest> unprocessed = response.unprocessedItems().get(targetTableName);
+						int unprocessedCount = unprocessed != null ? unprocessed.size() : 0;
+						written.addAndGet(pending.size() - unprocessedCount);
+						if (unprocessedCount == 0) {
+							return CompletableFuture.completedFuture(null);
+						}
+						return delay(backoff).thenCompose(ignored -> writeBatch(new ArrayList<>(unprocessed),
+								attempt + 1, Math.min(MAX_BACKOFF_MILLIS, backoff * 2)));
+					});
+		}
+
+		/**
+		 * Sends the request once a permit is available, and again after a backoff when it is throttled
+		 */
+		private <T> CompletableFuture<T> retrying(RequestSender<T> sender, int attempt, long backoff) {
+			return permits.acquire()
+					.thenCompose(ignored -> sender.send())
+					.handle((response, error) -> {
+						permits.release();
+						Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+						if (cause == null) {
+							return CompletableFuture.completedFuture(response);
+						} else if (cause instanceof ProvisionedThroughputExceededException && attempt < MAX_RETRIES) {
+							return delay(backoff).thenCompose(nothing -> retrying(sender, attempt + 1,
+									Math.min(MAX_BACKOFF_MILLIS, backoff * 2)));
+						}
+						CompletableFuture<T> failed = new CompletableFuture<>();
+						failed.completeExceptionally(cause);
+						return failed;
+					})
+					.thenCompose(Function.identity());
+		}
+
+		private CompletableFuture<Void> delay(long millis) {
+			CompletableFuture<Void> delayed = new CompletableFuture<>();
+			scheduler.schedule(() -> delayed.complete(null), millis, TimeUnit.MILLISECONDS);
+			return delayed;
+		}
+
+		/**
+		 * The checkpoint is written through the blocking DAO, off the threads completing the client's futures
+		 * and off the scheduler. One writer thread keeps the checkpoints of a segment in order.
+		 */
+		private CompletableFuture<Void> saveCheckpoint(String key, Map<String, AttributeValue> lastEvaluatedKey) {
+			return CompletableFuture.runAsync(() -> {
+				try {
+					checkpoint.put(key, lastEvaluatedKey == null ? SEGMENT_DONE
+							: ItemUtils.toSimpleMapValue(AttributeValueConversion.toV1(lastEvaluatedKey)));
+				} catch (DynamobeeException e) {
+					throw new CompletionException(e);
+				}
+			}, checkpointWriter);
+		}
+	}
+
+	private interface RequestSender<T> {
+		CompletableFuture<T> send();
+	}
+
+	/**
+	 * Semaphore whose waiters are futures instead of blocked threads
+	 */
+	private static class AsyncPermits {
+		private final AtomicInteger available;
+		private final Queue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+
+		AsyncPermits(int permits) {
+			this.available = new AtomicInteger(permits);
+		}
+
+		CompletableFuture<Void> acquire() {
+			CompletableFuture<Void> permit = new CompletableFuture<>();
+			waiters.add(permit);
+			dispatch();
+			return permit;
+		}
+
+		void release() {
+			available.incrementAndGet();
+			dispatch();
+		}
+
+		private void dispatch() {
+			while (!waiters.isEmpty()) {
+				int current = available.get();
+				if (current == 0) {
+					return;
+				}
+				if (available.compareAndSet(current, current - 1)) {
+					CompletableFuture<Void> waiter = waiters.poll();
+					if (waiter == null) {
+						available.incrementAndGet();
+						continue;
+					}
+					waiter.complete(null);
+				}
+			}
+		}
+	}
+}
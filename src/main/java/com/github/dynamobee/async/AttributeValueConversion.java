@@ -0,0 +1,117 @@
+package com.github.dynamobee.async;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.util.SdkAutoConstructList;
+import software.amazon.awssdk.core.util.SdkAutoConstructMap;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Conversion of items between the SDK v1 model, used by the v1-parameter changesets, the DAO and the
+ * {@link com.github.dynamobee.migration.TableMigrator}, and the SDK v2 model used by the async client
+ */
+public final class AttributeValueConversion {
+
+	private AttributeValueConversion() {
+	}
+
+	public static Map<String, AttributeValue> toV2(
+			Map<String, com.amazonaws.services.dynamodbv2.model.AttributeValue> item) {
+		if (item == null) {
+			return null;
+		}
+		Map<String, AttributeValue> converted = new LinkedHashMap<>();
+		for (Map.Entry<String, com.amazonaws.services.dynamodbv2.model.AttributeValue> entry : item.entrySet()) {
+			converted.put(entry.getKey(), toV2(entry.getValue()));
+		}
+		return converted;
+	}
+
+	public static Map<String, com.amazonaws.services.dynamodbv2.model.AttributeValue> toV1(
+			Map<String, AttributeValue> item) {
+		if (item == null) {
+			return null;
+		}
+		Map<String, com.amazonaws.services.dynamodbv2.model.AttributeValue> converted = new LinkedHashMap<>();
+		for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+			converted.put(entry.getKey(), toV1(entry.getValue()));
+		}
+		return converted;
+	}
+
+	public static AttributeValue toV2(com.amazonaws.services.dynamodbv2.model.AttributeValue value) {
+		AttributeValue.Builder builder = AttributeValue.builder();
+		if (value.getS() != null) {
+			builder.s(value.getS());
+		} else if (value.getN() != null) {
+			builder.n(value.getN());
+		} else if (value.getB() != null) {
+			builder.b(SdkBytes.fromByteBuffer(value.getB()));
+		} else if (value.getBOOL() != null) {
+			builder.bool(value.getBOOL());
+		} else if (value.getNULL() != null) {
+			builder.nul(value.getNULL());
+		} else if (value.getSS() != null) {
+			builder.ss(value.getSS());
+		} else if (value.getNS() != null) {
+			builder.ns(value.getNS());
+		} else if (value.getBS() != null) {
+			List<SdkBytes> bs = new ArrayList<>();
+			for (ByteBuffer bytes : value.getBS()) {
+				bs.add(SdkBytes.fromByteBuffer(bytes));
+			}
+			builder.bs(bs);
+		} else if (value.getL() != null) {
+			List<AttributeValue> l = new ArrayList<>();
+			for (com.amazonaws.services.dynamodbv2.model.AttributeValue element : value.getL()) {
+				l.add(toV2(element));
+			}
+			builder.l(l);
+		} else if (value.getM() != null) {
+			builder.m(toV2(value.getM()));
+		}
+		return builder.build();
+	}
+
+	public static com.amazonaws.services.dynamodbv2.model.AttributeValue toV1(AttributeValue value) {
+		com.amazonaws.services.dynamodbv2.model.AttributeValue converted =
+				new com.amazonaws.services.dynamodbv2.model.AttributeValue();
+		// absent collections of the v2 model are auto-constructed empty collections, not null
+		if (value.s() != null) {
+			converted.setS(value.s());
+		} else if (value.n() != null) {
+			converted.setN(value.n());
+		} else if (value.b() != null) {
+			converted.setB(value.b().asByteBuffer());
+		} else if (value.bool() != null) {
+			converted.setBOOL(value.bool());
+		} else if (value.nul() != null) {
+			converted.setNULL(value.nul());
+		} else if (!(value.ss() instanceof SdkAutoConstructList)) {
+			converted.setSS(value.ss());
+		} else if (!(value.ns() instanceof SdkAutoConstructList)) {
+			converted.setNS(value.ns());
+		} else if (!(value.bs() instanceof SdkAutoConstructList)) {
+			List<ByteBuffer> bs = new ArrayList<>();
+			for (SdkBytes bytes : value.bs()) {
+				bs.add(bytes.asByteBuffer());
+			}
+			converted.setBS(bs);
+		} else if (!(value.l() instanceof SdkAutoConstructList)) {
+			List<com.amazonaws.services.dynamodbv2.model.AttributeValue> l = new ArrayList<>();
+			for (AttributeValue element : value.l()) {
+				l.add(toV1(element));
+			}
+			converted.setL(l);
+		} else if (!(value.m() instanceof SdkAutoConstructMap)) {
+			converted.setM(toV1(value.m()));
+		}
+		return converted;
+	}
+}
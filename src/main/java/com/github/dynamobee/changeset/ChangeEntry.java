@@ -4,6 +4,7 @@ import java.util.Date;
 
 import com.amazonaws.services.dynamodbv2.document.Item;
 import com.amazonaws.services.dynamodbv2.document.spec.QuerySpec;
+import com.github.dynamobee.metrics.ChangeSetStats;
 
 
 /**
@@ -16,12 +17,38 @@ public class ChangeEntry {
 	public static final String KEY_TIMESTAMP = "timestamp";
 	public static final String KEY_CHANGELOGCLASS = "changeLogClass";
 	public static final String KEY_CHANGESETMETHOD = "changeSetMethod";
+	public static final String KEY_OUTCOME = "outcome";
+	public static final String KEY_START_TIME = "startTime";
+	public static final String KEY_END_TIME = "endTime";
+	public static final String KEY_DURATION = "duration";
+	public static final String KEY_HOSTNAME = "hostname";
+	public static final String KEY_ITEMS_READ = "itemsRead";
+	public static final String KEY_ITEMS_WRITTEN = "itemsWritten";
+	public static final String KEY_CONSUMED_READ_CAPACITY = "consumedReadCapacityUnits";
+	public static final String KEY_CONSUMED_WRITE_CAPACITY = "consumedWriteCapacityUnits";
+	public static final String KEY_FAILURE = "failure";
+
+	/**
+	 * Outcome of the execution of a changeset
+	 */
+	public enum Outcome {
+		SUCCESS, FAILED
+	}
 
 	private String changeId;
 	private String author;
 	private Date timestamp;
 	private String changeLogClass;
 	private String changeSetMethodName;
+	private Outcome outcome;
+	private Date startTime;
+	private Date endTime;
+	private String hostname;
+	private long itemsRead;
+	private long itemsWritten;
+	private double consumedReadCapacityUnits;
+	private double consumedWriteCapacityUnits;
+	private String failure;
 
 	public ChangeEntry(String changeId, String author, Date timestamp, String changeLogClass, String changeSetMethodName) {
 		this.changeId = changeId;
@@ -31,13 +58,75 @@ public class ChangeEntry {
 		this.changeSetMethodName = changeSetMethodName;
 	}
 
+	/**
+	 * Reads an entry written by {@link #buildFullDBObject()}
+	 *
+	 * @param item changelog table item
+	 * @return the entry, with its execution details when they were recorded
+	 */
+	public static ChangeEntry fromDBObject(Item item) {
+		ChangeEntry entry = new ChangeEntry(item.getString(KEY_CHANGEID), item.getString(KEY_AUTHOR),
+				new Date(item.getLong(KEY_TIMESTAMP)), item.getString(KEY_CHANGELOGCLASS),
+				item.getString(KEY_CHANGESETMETHOD));
+		if (item.isPresent(KEY_OUTCOME)) {
+			entry.outcome = Outcome.valueOf(item.getString(KEY_OUTCOME));
+			entry.startTime = new Date(item.getLong(KEY_START_TIME));
+			entry.endTime = new Date(item.getLong(KEY_END_TIME));
+			entry.hostname = item.getString(KEY_HOSTNAME);
+			entry.itemsRead = item.getLong(KEY_ITEMS_READ);
+			entry.itemsWritten = item.getLong(KEY_ITEMS_WRITTEN);
+			entry.consumedReadCapacityUnits = item.getDouble(KEY_CONSUMED_READ_CAPACITY);
+			entry.consumedWriteCapacityUnits = item.getDouble(KEY_CONSUMED_WRITE_CAPACITY);
+			entry.failure = item.getString(KEY_FAILURE);
+		}
+		return entry;
+	}
+
 	public Item buildFullDBObject() {
-		return new Item()
+		Item item = new Item()
 				.withPrimaryKey(KEY_CHANGEID, this.changeId)
 				.with(KEY_AUTHOR, this.author)
 				.with(KEY_TIMESTAMP, this.timestamp.getTime())
 				.with(KEY_CHANGELOGCLASS, this.changeLogClass)
 				.with(KEY_CHANGESETMETHOD, this.changeSetMethodName);
+		if (this.outcome != null) {
+			item.with(KEY_OUTCOME, this.outcome.name())
+					.with(KEY_START_TIME, this.startTime.getTime())
+					.with(KEY_END_TIME, this.endTime.getTime())
+					.with(KEY_DURATION, getDuration())
+					.with(KEY_HOSTNAME, this.hostname)
+					.with(KEY_ITEMS_READ, this.itemsRead)
+					.with(KEY_ITEMS_WRITTEN, this.itemsWritten)
+					.with(KEY_CONSUMED_READ_CAPACITY, this.consumedReadCapacityUnits)
+					.with(KEY_CONSUMED_WRITE_CAPACITY, this.consumedWriteCapacityUnits);
+			if (this.failure != null) {
+				item.with(KEY_FAILURE, this.failure);
+			}
+		}
+		return item;
+	}
+
+	/**
+	 * Records how the execution of the changeset went, persisted with the entry
+	 *
+	 * @param outcome outcome of the execution
+	 * @param startTime start of the changeset method
+	 * @param endTime end of the changeset method
+	 * @param hostname host which ran the changeset
+	 * @param stats DynamoDB calls made by the changeset
+	 * @param failure message of the failure, or null
+	 */
+	public void recordExecution(Outcome outcome, Date startTime, Date endTime, String hostname, ChangeSetStats stats,
+			String failure) {
+		this.outcome = outcome;
+		this.startTime = new Date(startTime.getTime());
+		this.endTime = new Date(endTime.getTime());
+		this.hostname = hostname;
+		this.itemsRead = stats.getItemsRead();
+		this.itemsWritten = stats.getItemsWritten();
+		this.consumedReadCapacityUnits = stats.getConsumedReadCapacityUnits();
+		this.consumedWriteCapacityUnits = stats.getConsumedWriteCapacityUnits();
+		this.failure = failure;
 	}
 
 	public QuerySpec buildSearchQuerySpec() {
@@ -75,4 +164,50 @@ public class ChangeEntry {
 		return this.changeSetMethodName;
 	}
 
+	/**
+	 * @return outcome of the recorded execution, or null for an entry written without execution details
+	 */
+	public Outcome getOutcome() {
+		return this.outcome;
+	}
+
+	public Date getStartTime() {
+		return this.startTime;
+	}
+
+	public Date getEndTime() {
+		return this.endTime;
+	}
+
+	/**
+	 * @return duration of the execution in milliseconds, 0 without execution details
+	 */
+	public long getDuration() {
+		return this.outcome != null ? this.endTime.getTime() - this.startTime.getTime() : 0;
+	}
+
+	public String getHostname() {
+		return this.hostname;
+	}
+
+	public long getItemsRead() {
+		return this.itemsRead;
+	}
+
+	public long getItemsWritten() {
+		return this.itemsWritten;
+	}
+
+	public double getConsumedReadCapacityUnits() {
+		return this.consumedReadCapacityUnits;
+	}
+
+	public double getConsumedWriteCapacityUnits() {
+		return this.consumedWriteCapacityUnits;
+	}
+
+	public String getFailure() {
+		return this.failure;
+	}
+
 }
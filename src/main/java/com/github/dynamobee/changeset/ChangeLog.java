@@ -19,4 +19,21 @@ public @interface ChangeLog {
 	 * @return order
 	 */
 	String order() default "";
+
+	/**
+	 * Group of the changelog. Changelogs of one group always run one after another, in 'order';
+	 * different groups may run concurrently when Dynamobee is given a changelog parallelism above 1.
+	 * If not set, the changelog belongs to the default group, so changelogs without groups keep running in sequence.
+	 *
+	 * @return group name
+	 */
+	String group() default "";
+
+	/**
+	 * Groups which must have completed before this changelog's group starts.
+	 * The dependencies of all the changelogs of a group are merged.
+	 *
+	 * @return names of the groups this changelog depends on
+	 */
+	String[] dependsOn() default {};
 }
@@ -44,6 +44,47 @@ public @interface ChangeSet {
 	 * @return should run always?
 	 */
 	public boolean runAlways() default false;
+
+	/**
+	 * Shares the work of the change set's {@link com.github.dynamobee.migration.TableMigrator} with the processes
+	 * waiting for the changelog lock: they run the change set method too, and their migrator processes the scan
+	 * segments they claim. The method must therefore do nothing else than one migration with its TableMigrator.
+	 * Optional (default is false)
+	 *
+	 * @return should the work be shared?
+	 */
+	public boolean distributed() default false;
+
+	/**
+	 * Commits the writes collected by the change set's {@link ChangeSetTransaction} parameter and the change set's
+	 * entry in the changelog table in one transaction, so the change set is applied exactly once even if the
+	 * process stops right after running it. Can not be combined with distributed.
+	 * Optional (default is false)
+	 *
+	 * @return should the writes be committed with the change set's entry?
+	 */
+	public boolean transactional() default false;
+
+	/**
+	 * Classpath resource of seed data, loaded into {@link #table()} before the change set method runs, which may
+	 * then be empty. The resource holds one item per line in DynamoDB JSON, as read by
+	 * {@link com.github.dynamobee.migration.DynamoDbJsonLines}, and is gzipped if its name ends with ".gz".
+	 * Items are written in parallel batches, throttled like the other migration helpers.
+	 * Can not be combined with distributed or transactional.
+	 * Optional (default is no resource)
+	 *
+	 * @return path of the resource, e.g. "seed/countries.json"
+	 */
+	public String resource() default "";
+
+	/**
+	 * Table receiving the items of {@link #resource()}, prefixed like the changelog table by the table name prefix
+	 * of the DynamoDBMapperConfig.
+	 * Obligatory with resource.
+	 *
+	 * @return table name
+	 */
+	public String table() default "";
 //
 //  /**
 //   * Executes the change the first time it is seen and each time the change set has been changed. <br/>
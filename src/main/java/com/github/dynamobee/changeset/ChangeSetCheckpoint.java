@@ -0,0 +1,100 @@
+package com.github.dynamobee.changeset;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.dynamobee.dao.DynamobeeDao;
+import com.github.dynamobee.exception.DynamobeeConnectionException;
+import com.github.dynamobee.exception.DynamobeeLockException;
+
+
+/**
+ * Progress of a running changeset, persisted in the changelog table so that a restarted run can resume
+ * where the previous one stopped. Can be injected as a @{@link ChangeSet} method parameter;
+ * the checkpoint is removed once the changeset has been recorded as applied.
+ * <p>
+ * Values must be types supported by the DynamoDB Document API {@code Item}: strings, numbers, booleans,
+ * and lists or maps of those. Each value is persisted in its own item, so storing one value does not rewrite
+ * the others.
+ */
+public class ChangeSetCheckpoint {
+	private final DynamobeeDao dao;
+	private final String changeId;
+	private Map<String, Object> state;
+	// keys listed in the checkpoint item by this run
+	private final Set<String> listedKeys = new HashSet<>();
+	private boolean used = false;
+
+	public ChangeSetCheckpoint(DynamobeeDao dao, String changeId) {
+		this.dao = dao;
+		this.changeId = changeId;
+	}
+
+	public String getChangeId() {
+		return changeId;
+	}
+
+	/**
+	 * @param key progress key
+	 * @return value stored by a previous or the current run, or null
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public synchronized Object get(String key) throws DynamobeeConnectionException {
+		return load().get(key);
+	}
+
+	/**
+	 * @return all the values stored by a previous or the current run
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public synchronized Map<String, Object> getAll() throws DynamobeeConnectionException {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(load()));
+	}
+
+	/**
+	 * Stores a value and persists the checkpoint immediately
+	 *
+	 * @param key progress key
+	 * @param value progress value
+	 * @throws DynamobeeConnectionException exception
+	 * @throws DynamobeeLockException if the lock lease has been lost
+	 */
+	public synchronized void put(String key, Object value) throws DynamobeeConnectionException, DynamobeeLockException {
+		load().put(key, value);
+		if (listedKeys.add(key)) {
+			dao.addCheckpointKey(changeId, key);
+		}
+		dao.saveCheckpointValue(changeId, key, value);
+	}
+
+	/**
+	 * Removes a value and persists the checkpoint immediately
+	 *
+	 * @param key progress key
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public synchronized void remove(String key) throws DynamobeeConnectionException {
+		if (load().remove(key) != null) {
+			listedKeys.remove(key);
+			dao.removeCheckpointValue(changeId, key);
+		}
+	}
+
+	/**
+	 * @return true if the checkpoint has been read or written during this run
+	 */
+	public synchronized boolean isUsed() {
+		return used;
+	}
+
+	private Map<String, Object> load() throws DynamobeeConnectionException {
+		if (state == null) {
+			state = new LinkedHashMap<>(dao.loadCheckpoint(changeId));
+			used = true;
+		}
+		return state;
+	}
+}
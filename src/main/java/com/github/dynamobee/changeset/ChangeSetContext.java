@@ -0,0 +1,62 @@
+package com.github.dynamobee.changeset;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.github.dynamobee.migration.DistributedWork;
+
+
+/**
+ * Changeset being executed, given to the {@link ChangeSetParameterResolver}s
+ */
+public class ChangeSetContext {
+	private final ChangeEntry changeEntry;
+	private final ChangeSetCheckpoint checkpoint;
+	private final DistributedWork distributedWork;
+	private final AmazonDynamoDB amazonDynamoDB;
+	private final ChangeSetTransaction transaction;
+
+	public ChangeSetContext(ChangeEntry changeEntry, ChangeSetCheckpoint checkpoint, DistributedWork distributedWork,
+			AmazonDynamoDB amazonDynamoDB) {
+		this(changeEntry, checkpoint, distributedWork, amazonDynamoDB, null);
+	}
+
+	public ChangeSetContext(ChangeEntry changeEntry, ChangeSetCheckpoint checkpoint, DistributedWork distributedWork,
+			AmazonDynamoDB amazonDynamoDB, ChangeSetTransaction transaction) {
+		this.changeEntry = changeEntry;
+		this.checkpoint = checkpoint;
+		this.distributedWork = distributedWork;
+		this.amazonDynamoDB = amazonDynamoDB;
+		this.transaction = transaction;
+	}
+
+	public ChangeEntry getChangeEntry() {
+		return changeEntry;
+	}
+
+	/**
+	 * @return checkpoint of the changeset, or null when the changeset is run by a process helping the lock holder
+	 */
+	public ChangeSetCheckpoint getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * @return shared work of a distributed changeset, or null
+	 */
+	public DistributedWork getDistributedWork() {
+		return distributedWork;
+	}
+
+	/**
+	 * @return client the changeset should use, recording its calls when migration metrics are enabled
+	 */
+	public AmazonDynamoDB getAmazonDynamoDB() {
+		return amazonDynamoDB;
+	}
+
+	/**
+	 * @return writes collector of a transactional changeset, or null
+	 */
+	public ChangeSetTransaction getTransaction() {
+		return transaction;
+	}
+}
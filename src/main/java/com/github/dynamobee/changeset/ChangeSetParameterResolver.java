@@ -0,0 +1,18 @@
+package com.github.dynamobee.changeset;
+
+import com.github.dynamobee.exception.DynamobeeException;
+
+
+/**
+ * Provides the value of a @{@link ChangeSet} method parameter, registered for the parameter's type
+ * with {@link com.github.dynamobee.Dynamobee#registerParameterResolver(Class, ChangeSetParameterResolver)}
+ */
+public interface ChangeSetParameterResolver {
+
+	/**
+	 * @param context changeset being executed
+	 * @return value to pass to the changeset method
+	 * @throws DynamobeeException if the value can not be provided
+	 */
+	Object resolve(ChangeSetContext context) throws DynamobeeException;
+}
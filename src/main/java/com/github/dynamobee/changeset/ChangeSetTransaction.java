@@ -0,0 +1,84 @@
+package com.github.dynamobee.changeset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionCheck;
+import com.amazonaws.services.dynamodbv2.model.Delete;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.Update;
+
+
+/**
+ * Writes of a @{@link ChangeSet}(transactional = true) method. Can be injected as a changeset method parameter.
+ * <p>
+ * The method only collects its writes: once it returns, they are committed in one TransactWriteItems request
+ * together with the changeset's entry in the changelog table and a check that this process still holds the
+ * changelog lock. Either everything is written and the changeset is recorded as applied, or nothing is, and the
+ * next run executes the changeset again. A transaction holds at most {@value #MAX_WRITES} writes, the changelog
+ * entry and the lock check taking the remaining places.
+ */
+public class ChangeSetTransaction {
+	public static final int MAX_WRITES = 23;
+
+	private final List<TransactWriteItem> writes = new ArrayList<>();
+
+	public ChangeSetTransaction put(String tableName, Map<String, AttributeValue> item) {
+		return put(new Put().withTableName(tableName).withItem(item));
+	}
+
+	/**
+	 * @param put put with an optional condition expression; the transaction fails if the condition is not met
+	 * @return ChangeSetTransaction object for fluent interface
+	 */
+	public ChangeSetTransaction put(Put put) {
+		return add(new TransactWriteItem().withPut(put));
+	}
+
+	/**
+	 * @param update update with an optional condition expression; the transaction fails if the condition is not met
+	 * @return ChangeSetTransaction object for fluent interface
+	 */
+	public ChangeSetTransaction update(Update update) {
+		return add(new TransactWriteItem().withUpdate(update));
+	}
+
+	public ChangeSetTransaction delete(String tableName, Map<String, AttributeValue> key) {
+		return delete(new Delete().withTableName(tableName).withKey(key));
+	}
+
+	/**
+	 * @param delete delete with an optional condition expression; the transaction fails if the condition is not met
+	 * @return ChangeSetTransaction object for fluent interface
+	 */
+	public ChangeSetTransaction delete(Delete delete) {
+		return add(new TransactWriteItem().withDelete(delete));
+	}
+
+	/**
+	 * @param conditionCheck condition on an item which is not written; the transaction fails if it is not met
+	 * @return ChangeSetTransaction object for fluent interface
+	 */
+	public ChangeSetTransaction conditionCheck(ConditionCheck conditionCheck) {
+		return add(new TransactWriteItem().withConditionCheck(conditionCheck));
+	}
+
+	private ChangeSetTransaction add(TransactWriteItem write) {
+		if (writes.size() >= MAX_WRITES) {
+			throw new IllegalStateException("A transactional changeset can not write more than " + MAX_WRITES + " items");
+		}
+		writes.add(write);
+		return this;
+	}
+
+	/**
+	 * @return writes collected so far
+	 */
+	public List<TransactWriteItem> getWrites() {
+		return Collections.unmodifiableList(writes);
+	}
+}
@@ -0,0 +1,32 @@
+package com.github.dynamobee.dao;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries acquiring the changelog lock with exponential backoff and decorrelated jitter:
+ * every delay is picked at random between the base delay and three times the previous delay, up to a cap.
+ * Waiting processes thus spread their attempts instead of retrying in lockstep.
+ */
+public class DecorrelatedJitterLockRetryStrategy implements LockRetryStrategy {
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+
+	/**
+	 * @param baseDelayMillis smallest delay in milliseconds
+	 * @param maxDelayMillis largest delay in milliseconds
+	 */
+	public DecorrelatedJitterLockRetryStrategy(long baseDelayMillis, long maxDelayMillis) {
+		if (baseDelayMillis <= 0 || maxDelayMillis < baseDelayMillis) {
+			throw new IllegalArgumentException("Expected 0 < baseDelayMillis <= maxDelayMillis");
+		}
+		this.baseDelayMillis = baseDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+	}
+
+	@Override
+	public long nextDelayMillis(int attempt, long previousDelayMillis) {
+		long upper = Math.max(baseDelayMillis, previousDelayMillis) * 3;
+		long delay = ThreadLocalRandom.current().nextLong(baseDelayMillis, upper + 1);
+		return Math.min(maxDelayMillis, delay);
+	}
+}
@@ -2,34 +2,124 @@ package com.github.dynamobee.dao;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.document.BatchGetItemOutcome;
 import com.amazonaws.services.dynamodbv2.document.DynamoDB;
-import com.amazonaws.services.dynamodbv2.document.Expected;
 import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
+import com.amazonaws.services.dynamodbv2.document.PutItemOutcome;
 import com.amazonaws.services.dynamodbv2.document.Table;
+import com.amazonaws.services.dynamodbv2.document.TableKeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.document.spec.DeleteItemSpec;
+import com.amazonaws.services.dynamodbv2.document.spec.GetItemSpec;
+import com.amazonaws.services.dynamodbv2.document.spec.PutItemSpec;
+import com.amazonaws.services.dynamodbv2.document.spec.ScanSpec;
+import com.amazonaws.services.dynamodbv2.document.spec.UpdateItemSpec;
+import com.amazonaws.services.dynamodbv2.document.utils.NameMap;
+import com.amazonaws.services.dynamodbv2.document.utils.ValueMap;
 import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.ConditionCheck;
 import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
 import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
 import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
 import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.ResourceInUseException;
 import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
 import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveSpecification;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsResult;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest;
 import com.github.dynamobee.changeset.ChangeEntry;
 import com.github.dynamobee.exception.DynamobeeConfigurationException;
 import com.github.dynamobee.exception.DynamobeeConnectionException;
 import com.github.dynamobee.exception.DynamobeeLockException;
+import com.github.dynamobee.migration.CapacityThrottle;
 
 
 public class DynamobeeDao {
 	private static final Logger logger = LoggerFactory.getLogger("Dynamobee dao");
 
 	private static final String VALUE_LOCK = "LOCK";
+	private static final String PREFIX_FINGERPRINT = "FINGERPRINT#";
+	private static final String VALUE_LOCK_QUEUE = "LOCK_QUEUE";
+	private static final String PREFIX_CHECKPOINT = "CHECKPOINT#";
+	private static final String KEY_CHECKPOINT = "checkpoint";
+	private static final String KEY_CHECKPOINT_KEYS = "checkpointKeys";
+	private static final String KEY_CHECKPOINT_VALUE = "value";
+	private static final String PREFIX_FAILURE = "FAILED#";
+	private static final String KEY_FAILED_CHANGEID = "failedChangeId";
+	private static final String VALUE_WORK_JOB = "WORK_JOB";
+	private static final String PREFIX_WORK_UNIT = "WORK#";
+	private static final String KEY_JOB_CHANGEID = "jobChangeId";
+	private static final String KEY_TOTAL_UNITS = "totalUnits";
+	private static final String KEY_STATUS = "status";
+	private static final String KEY_OWNER = "owner";
+	private static final String KEY_CLAIM_EXPIRY = "claimExpiry";
+	private static final String KEY_PROGRESS = "progress";
+	private static final String STATUS_PENDING = "PENDING";
+	private static final String STATUS_CLAIMED = "CLAIMED";
+	private static final String STATUS_DONE = "DONE";
+	private static final String KEY_FINGERPRINT = "fingerprint";
+	private static final String KEY_LEASE_TOKEN = "leaseToken";
+	private static final String KEY_LEASE_EXPIRY = "leaseExpiry";
+	private static final String KEY_NEXT_TICKET = "nextTicket";
+	private static final String KEY_SERVING_TICKET = "servingTicket";
+	private static final String KEY_WAITERS = "waiters";
+	private static final int LOCK_QUEUE_TICKET_RENEW_POLLS = 2;
+	private static final String[] RESERVED_IDS = { VALUE_LOCK, VALUE_LOCK_QUEUE, VALUE_WORK_JOB, "FINGERPRINT" };
+	private static final String[] RESERVED_PREFIXES = { PREFIX_FINGERPRINT, PREFIX_CHECKPOINT, PREFIX_FAILURE,
+			PREFIX_WORK_UNIT };
+	private static final int BATCH_GET_MAX_KEYS = 100;
+	private static final int TRANSACTION_MAX_RETRIES = 5;
+	private static final long TRANSACTION_BASE_BACKOFF_MILLIS = 20L;
+	private static final long TRANSACTION_MAX_BACKOFF_MILLIS = 1000L;
+	private static final String CANCELLATION_CONDITION_FAILED = "ConditionalCheckFailed";
+	private static final String CANCELLATION_CONFLICT = "TransactionConflict";
+	private static final String CANCELLATION_THROTTLING = "ThrottlingError";
+	private static final String CANCELLATION_THROUGHPUT_EXCEEDED = "ProvisionedThroughputExceeded";
+	private static final int BATCH_GET_MAX_RETRIES = 10;
+	private static final long BATCH_GET_BASE_BACKOFF_MILLIS = 50L;
+	private static final long BATCH_GET_MAX_BACKOFF_MILLIS = 5000L;
+	private static final long DEFAULT_CHANGE_LOG_LOCK_LEASE_TIME = 60L;
+	private static final long DEFAULT_CHANGELOG_TABLE_CAPACITY_UNITS = 1L;
+	private static final long CHECKPOINT_TIME_TO_LIVE_DAYS = 30L;
 
+	private AmazonDynamoDB amazonDynamoDB;
 	private DynamoDB dynamoDB;
 	private String dynamobeeTableName;
 	private Table dynamobeeTable;
@@ -37,6 +127,20 @@ public class DynamobeeDao {
 	private long changeLogLockWaitTime;
 	private long changeLogLockPollRate;
 	private boolean throwExceptionIfCannotObtainLock;
+	private long changeLogLockLeaseTime = DEFAULT_CHANGE_LOG_LOCK_LEASE_TIME;
+	private LockRetryStrategy lockRetryStrategy;
+	private double writeCapacityShare = 0;
+	private CapacityThrottle writeThrottle;
+	private boolean lockWaitQueueEnabled = false;
+	private BillingMode changelogTableBillingMode = BillingMode.PROVISIONED;
+	private long changelogTableReadCapacityUnits = DEFAULT_CHANGELOG_TABLE_CAPACITY_UNITS;
+	private long changelogTableWriteCapacityUnits = DEFAULT_CHANGELOG_TABLE_CAPACITY_UNITS;
+	private String timeToLiveAttributeName;
+	private boolean changelogTableCheckEnabled = true;
+	private LockWaitListener lockWaitListener;
+	private volatile int lastLockAcquireAttempts;
+	private volatile String leaseToken;
+	private volatile ScheduledExecutorService leaseHeartbeat;
 
 	public DynamobeeDao(String dynamobeeTableName, boolean waitForLock, long changeLogLockWaitTime,
 			long changeLogLockPollRate, boolean throwExceptionIfCannotObtainLock) {
@@ -47,12 +151,56 @@ public class DynamobeeDao {
 		this.throwExceptionIfCannotObtainLock = throwExceptionIfCannotObtainLock;
 	}
 
+	/**
+	 * Connects with the document API only, as before the lock lease. Without the low level client, changes are
+	 * recorded with plain puts instead of being fenced by the lease, the time to live of a new changelog table is
+	 * not enabled and transactional changesets can not run: use {@link #connectDynamoDB(AmazonDynamoDB, DynamoDB)}.
+	 *
+	 * @param dynamoDB DynamoDB connection
+	 * @throws DynamobeeConfigurationException exception
+	 */
 	public void connectDynamoDB(DynamoDB dynamoDB) throws DynamobeeConfigurationException {
+		connectDynamoDB(null, dynamoDB);
+	}
+
+	/**
+	 * @param amazonDynamoDB low level client, which sends the transactions fencing changes with the lock lease
+	 * @param dynamoDB DynamoDB connection
+	 * @throws DynamobeeConfigurationException exception
+	 */
+	public void connectDynamoDB(AmazonDynamoDB amazonDynamoDB, DynamoDB dynamoDB)
+			throws DynamobeeConfigurationException {
+		this.amazonDynamoDB = amazonDynamoDB;
 		this.dynamoDB = dynamoDB;
 		this.dynamobeeTable = findOrCreateDynamoBeeTable();
+		if (writeCapacityShare > 0) {
+			this.writeThrottle = createWriteThrottle();
+		}
+	}
+
+	/**
+	 * Targets the provisioned WCU of the description read by the table check, or of the configuration when the
+	 * table is not described
+	 */
+	private CapacityThrottle createWriteThrottle() {
+		if (!changelogTableCheckEnabled) {
+			return changelogTableBillingMode == BillingMode.PROVISIONED
+					? CapacityThrottle.forCapacity(changelogTableWriteCapacityUnits, writeCapacityShare) : null;
+		}
+		TableDescription description = dynamobeeTable.getDescription();
+		if (description == null) {
+			return amazonDynamoDB != null
+					? CapacityThrottle.forTableWrites(amazonDynamoDB, dynamobeeTableName, writeCapacityShare) : null;
+		}
+		return CapacityThrottle.forCapacity(description.getProvisionedThroughput() != null
+				? description.getProvisionedThroughput().getWriteCapacityUnits() : null, writeCapacityShare);
 	}
 
 	private Table findOrCreateDynamoBeeTable() {
+		if (!changelogTableCheckEnabled) {
+			return dynamoDB.getTable(dynamobeeTableName);
+		}
+
 		logger.info("Searching for an existing DynamoBee table; please wait...");
 		try {
 			Table table = dynamoDB.getTable(dynamobeeTableName);
@@ -62,20 +210,55 @@ public class DynamobeeDao {
 
 		} catch (ResourceNotFoundException e) {
 			logger.info("Attempting to create DynamoBee table; please wait...");
-			Table table = dynamoDB.createTable(dynamobeeTableName,
-					Arrays.asList(new KeySchemaElement(ChangeEntry.KEY_CHANGEID, KeyType.HASH)),
-					Arrays.asList(new AttributeDefinition(ChangeEntry.KEY_CHANGEID, ScalarAttributeType.S)),
-					new ProvisionedThroughput(1L, 1L));
+			CreateTableRequest request = new CreateTableRequest()
+					.withTableName(dynamobeeTableName)
+					.withKeySchema(new KeySchemaElement(ChangeEntry.KEY_CHANGEID, KeyType.HASH))
+					.withAttributeDefinitions(new AttributeDefinition(ChangeEntry.KEY_CHANGEID, ScalarAttributeType.S))
+					.withBillingMode(changelogTableBillingMode);
+			if (changelogTableBillingMode == BillingMode.PROVISIONED) {
+				request.setProvisionedThroughput(
+						new ProvisionedThroughput(changelogTableReadCapacityUnits, changelogTableWriteCapacityUnits));
+			}
+
+			Table table;
+			boolean created = true;
+			try {
+				table = dynamoDB.createTable(request);
+			} catch (ResourceInUseException ex) {
+				// created at the same time by another process
+				table = dynamoDB.getTable(dynamobeeTableName);
+				created = false;
+			}
 			try {
 				table.waitForActive();
 			} catch (InterruptedException ex) {
 				//ok
 			}
-			System.out.println("Success. DynamoBee Table status: " + table.getDescription().getTableStatus());
+			if (created && timeToLiveAttributeName != null && amazonDynamoDB == null) {
+				logger.warn("Time to live not enabled on " + dynamobeeTableName + ", no low level client has been given.");
+			} else if (created && timeToLiveAttributeName != null) {
+				amazonDynamoDB.updateTimeToLive(new UpdateTimeToLiveRequest()
+						.withTableName(dynamobeeTableName)
+						.withTimeToLiveSpecification(new TimeToLiveSpecification()
+								.withAttributeName(timeToLiveAttributeName)
+								.withEnabled(true)));
+			}
+			logger.info("Success. DynamoBee Table status: " + table.getDescription().getTableStatus());
 			return table;
 		}
 	}
 
+	/**
+	 * Sets the time to live attribute of an item, if the changelog table has one
+	 *
+	 * @param item item to expire
+	 * @param expiry time after which DynamoDB may delete the item, in milliseconds
+	 * @return the item
+	 */
+	private Item withTimeToLive(Item item, long expiry) {
+		return timeToLiveAttributeName != null ? item.withLong(timeToLiveAttributeName, expiry / 1000) : item;
+	}
+
 	/**
 	 * Try to acquire process lock
 	 *
@@ -85,22 +268,54 @@ public class DynamobeeDao {
 	 */
 	public boolean acquireProcessLock() throws DynamobeeConnectionException, DynamobeeLockException {
 		boolean acquired = this.acquireLock();
+		int attempts = 1;
 
 		if (!acquired && waitForLock) {
 			long timeToGiveUp = new Date().getTime() + (changeLogLockWaitTime * 1000 * 60);
+			LockRetryStrategy retryStrategy = resolveLockRetryStrategy();
+			Long ticket = lockWaitQueueEnabled ? takeLockQueueTicket() : null;
+			int attempt = 0;
+			long delay = 0;
+
 			while (!acquired && new Date().getTime() < timeToGiveUp) {
-				acquired = this.acquireLock();
-				if (!acquired) {
-					logger.info("Waiting for changelog lock....");
-					try {
-						Thread.sleep(changeLogLockPollRate * 1000);
-					} catch (InterruptedException e) {
-						// nothing
+				attempt++;
+				if (lockWaitListener != null) {
+					lockWaitListener.waitingForLock(attempt);
+				}
+				delay = retryStrategy.nextDelayMillis(attempt, delay);
+				logger.info("Waiting for changelog lock....");
+				// queued waiters come back at least once per poll rate to renew their ticket before it expires
+				long sleep = ticket != null ? Math.min(delay, getChangeLogLockPollRateMillis()) : delay;
+				try {
+					Thread.sleep(Math.max(0L, Math.min(sleep, timeToGiveUp - new Date().getTime())));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+
+				if (ticket == null) {
+					attempts++;
+					acquired = this.acquireLock();
+				} else if (isLockQueueTurn(ticket)) {
+					attempts++;
+					acquired = this.acquireLock();
+					if (!acquired && attempt > 1) {
+						// first in line: poll at the base rate to take the lock as soon as it is released
+						attempt = 0;
+						delay = 0;
 					}
 				}
 			}
+
+			if (acquired && ticket != null) {
+				advanceLockQueue(ticket);
+			} else if (ticket != null) {
+				leaveLockQueue(ticket);
+			}
 		}
 
+		this.lastLockAcquireAttempts = attempts;
+
 		if (!acquired && throwExceptionIfCannotObtainLock) {
 			logger.info("Dynamobee did not acquire process lock. Throwing exception.");
 			throw new DynamobeeLockException("Could not acquire process lock");
@@ -109,25 +324,243 @@ public class DynamobeeDao {
 		return acquired;
 	}
 
+	private LockRetryStrategy resolveLockRetryStrategy() {
+		if (lockRetryStrategy != null) {
+			return lockRetryStrategy;
+		}
+		return new FixedIntervalLockRetryStrategy(changeLogLockPollRate * 1000);
+	}
+
+	/**
+	 * Takes the next ticket of the lock wait queue. Each ticket carries its own expiry, one lease time ahead, so the
+	 * ticket of a waiter which is gone is skipped without a queue-wide clock.
+	 */
+	private long takeLockQueueTicket() {
+		long ticket = this.dynamobeeTable.updateItem(new UpdateItemSpec()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_LOCK_QUEUE)
+				.withUpdateExpression("SET #nextTicket = if_not_exists(#nextTicket, :zero) + :one, "
+						+ "#waiters = if_not_exists(#waiters, :empty)")
+				.withNameMap(new NameMap()
+						.with("#nextTicket", KEY_NEXT_TICKET)
+						.with("#waiters", KEY_WAITERS))
+				.withValueMap(new ValueMap()
+						.withLong(":zero", 0L)
+						.withLong(":one", 1L)
+						.withMap(":empty", Collections.<String, Object>emptyMap()))
+				.withReturnValues(ReturnValue.UPDATED_NEW))
+				.getItem().getLong(KEY_NEXT_TICKET);
+		renewLockQueueTicket(ticket);
+		return ticket;
+	}
+
+	/**
+	 * Pushes the expiry of a ticket one lease time ahead, to record that its waiter is still there
+	 */
+	private void renewLockQueueTicket(long ticket) {
+		this.dynamobeeTable.updateItem(new UpdateItemSpec()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_LOCK_QUEUE)
+				.withUpdateExpression("SET #waiters.#ticket = :expiry")
+				.withNameMap(new NameMap()
+						.with("#waiters", KEY_WAITERS)
+						.with("#ticket", String.valueOf(ticket)))
+				.withValueMap(new ValueMap()
+						.withLong(":expiry", new Date().getTime() + getChangeLogLockLeaseTimeMillis())));
+	}
+
+	/**
+	 * A waiter may try to take the lock when every ticket before its own has been served, has left the queue,
+	 * or has expired, i.e. its waiter is gone. The queue is only read here: the waiter renews its own ticket
+	 * when it would expire within {@value #LOCK_QUEUE_TICKET_RENEW_POLLS} poll rates, and expired tickets are
+	 * removed once by whoever sees them first.
+	 */
+	private boolean isLockQueueTurn(long ticket) {
+		Item queue = this.dynamobeeTable.getItem(new GetItemSpec()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_LOCK_QUEUE)
+				.withConsistentRead(true));
+		long now = new Date().getTime();
+		Map<String, Object> waiters = queue != null && queue.isPresent(KEY_WAITERS)
+				? queue.getRawMap(KEY_WAITERS) : Collections.<String, Object>emptyMap();
+		Object ownExpiry = waiters.get(String.valueOf(ticket));
+		if (ownExpiry == null
+				|| ((Number) ownExpiry).longValue() - now <= LOCK_QUEUE_TICKET_RENEW_POLLS * getChangeLogLockPollRateMillis()) {
+			renewLockQueueTicket(ticket);
+		}
+
+		long servingTicket = queue != null && queue.isPresent(KEY_SERVING_TICKET) ? queue.getLong(KEY_SERVING_TICKET) : 0L;
+		boolean turn = true;
+		for (Map.Entry<String, Object> waiter : waiters.entrySet()) {
+			long waiterTicket = Long.parseLong(waiter.getKey());
+			if (waiterTicket <= servingTicket || waiterTicket >= ticket) {
+				continue;
+			}
+			long expiry = ((Number) waiter.getValue()).longValue();
+			if (expiry < now) {
+				removeStaleLockQueueTicket(waiterTicket, expiry);
+			} else {
+				turn = false;
+			}
+		}
+		return turn;
+	}
+
+	private void removeStaleLockQueueTicket(long ticket, long expiry) {
+		try {
+			this.dynamobeeTable.updateItem(new UpdateItemSpec()
+					.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_LOCK_QUEUE)
+					.withUpdateExpression("REMOVE #waiters.#ticket")
+					.withConditionExpression("#waiters.#ticket = :expiry")
+					.withNameMap(new NameMap()
+							.with("#waiters", KEY_WAITERS)
+							.with("#ticket", String.valueOf(ticket)))
+					.withValueMap(new ValueMap().withLong(":expiry", expiry)));
+			logger.info("Skipped lock queue ticket " + ticket + ", its waiter is gone.");
+		} catch (ConditionalCheckFailedException e) {
+			// the waiter came back, or another waiter removed the ticket first
+		}
+	}
+
+	private void advanceLockQueue(long ticket) {
+		try {
+			this.dynamobeeTable.updateItem(new UpdateItemSpec()
+					.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_LOCK_QUEUE)
+					.withUpdateExpression("SET #servingTicket = :ticket REMOVE #waiters.#ticket")
+					.withConditionExpression("attribute_not_exists(#servingTicket) OR #servingTicket < :ticket")
+					.withNameMap(new NameMap()
+							.with("#servingTicket", KEY_SERVING_TICKET)
+							.with("#waiters", KEY_WAITERS)
+							.with("#ticket", String.valueOf(ticket)))
+					.withValueMap(new ValueMap().withLong(":ticket", ticket)));
+		} catch (ConditionalCheckFailedException e) {
+			// a later ticket has already been served
+			leaveLockQueue(ticket);
+		}
+	}
+
+	/**
+	 * Removes the ticket of a waiter which stops waiting, so the waiters behind it do not wait for it
+	 */
+	private void leaveLockQueue(long ticket) {
+		try {
+			this.dynamobeeTable.updateItem(new UpdateItemSpec()
+					.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_LOCK_QUEUE)
+					.withUpdateExpression("REMOVE #waiters.#ticket")
+					.withNameMap(new NameMap()
+							.with("#waiters", KEY_WAITERS)
+							.with("#ticket", String.valueOf(ticket))));
+		} catch (RuntimeException e) {
+			logger.warn("Could not leave the lock queue, ticket " + ticket + " will time out.", e);
+		}
+	}
+
+	private long getChangeLogLockPollRateMillis() {
+		return Math.max(1L, changeLogLockPollRate) * 1000;
+	}
+
+	/**
+	 * Try to acquire the lock lease once. The lease is kept alive by a background heartbeat
+	 * until {@link #releaseProcessLock()} is called.
+	 *
+	 * @return true if successfully acquired, false otherwise
+	 */
 	public boolean acquireLock() {
 
 		// acquire lock by attempting to insert the same value in the collection - if it already exists (i.e. lock held)
-		// there will be an exception
+		// and its lease has not expired yet there will be an exception. Lock items written without a lease never expire.
+		long now = new Date().getTime();
+		String token = UUID.randomUUID().toString();
 		try {
-			Item item = new Item()
+			Item item = withTimeToLive(new Item()
 					.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_LOCK)
-					.withLong(ChangeEntry.KEY_TIMESTAMP, new Date().getTime())
-					.withString(ChangeEntry.KEY_AUTHOR, getHostName());
+					.withLong(ChangeEntry.KEY_TIMESTAMP, now)
+					.withString(ChangeEntry.KEY_AUTHOR, getHostName())
+					.withString(KEY_LEASE_TOKEN, token)
+					.withLong(KEY_LEASE_EXPIRY, now + getChangeLogLockLeaseTimeMillis()),
+					now + getChangeLogLockLeaseTimeMillis());
+
+			PutItemOutcome outcome = this.dynamobeeTable.putItem(new PutItemSpec()
+					.withItem(item)
+					.withConditionExpression("attribute_not_exists(#changeId) OR #leaseExpiry < :now")
+					.withNameMap(new NameMap()
+							.with("#changeId", ChangeEntry.KEY_CHANGEID)
+							.with("#leaseExpiry", KEY_LEASE_EXPIRY))
+					.withValueMap(new ValueMap().withLong(":now", now))
+					.withReturnValues(ReturnValue.ALL_OLD));
 
-			this.dynamobeeTable.putItem(item, new Expected(ChangeEntry.KEY_CHANGEID).notExist());
+			Item expired = outcome.getItem();
+			if (expired != null) {
+				logger.warn("Took over the lock lease of " + expired.getString(ChangeEntry.KEY_AUTHOR) + " which has expired.");
+			}
 		} catch (ConditionalCheckFailedException ex) {
 			logger.warn("The lock has been already acquired.");
 			return false;
 		}
+
+		this.leaseToken = token;
+		startLeaseHeartbeat();
 		return true;
 	}
 
-	private String getHostName() {
+	private synchronized void startLeaseHeartbeat() {
+		// a lease taken over again replaces the heartbeat of the previous one
+		stopLeaseHeartbeat();
+		long period = Math.max(1L, getChangeLogLockLeaseTimeMillis() / 3);
+		leaseHeartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "dynamobee-lock-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		leaseHeartbeat.scheduleAtFixedRate(this::renewLease, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized void stopLeaseHeartbeat() {
+		ScheduledExecutorService heartbeat = this.leaseHeartbeat;
+		if (heartbeat != null) {
+			heartbeat.shutdownNow();
+			this.leaseHeartbeat = null;
+		}
+	}
+
+	private void renewLease() {
+		String token = this.leaseToken;
+		if (token == null) {
+			return;
+		}
+		try {
+			long expiry = new Date().getTime() + getChangeLogLockLeaseTimeMillis();
+			NameMap names = new NameMap()
+					.with("#leaseExpiry", KEY_LEASE_EXPIRY)
+					.with("#leaseToken", KEY_LEASE_TOKEN);
+			ValueMap values = new ValueMap()
+					.withLong(":expiry", expiry)
+					.withString(":token", token);
+			String update = "SET #leaseExpiry = :expiry";
+			if (timeToLiveAttributeName != null) {
+				update += ", #ttl = :ttl";
+				names.with("#ttl", timeToLiveAttributeName);
+				values.withLong(":ttl", expiry / 1000);
+			}
+			this.dynamobeeTable.updateItem(new UpdateItemSpec()
+					.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_LOCK)
+					.withUpdateExpression(update)
+					.withConditionExpression("#leaseToken = :token")
+					.withNameMap(names)
+					.withValueMap(values));
+		} catch (ConditionalCheckFailedException e) {
+			logger.error("The lock lease has been lost, changes can not be recorded anymore.");
+			ScheduledExecutorService heartbeat = this.leaseHeartbeat;
+			if (heartbeat != null) {
+				heartbeat.shutdown();
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Could not renew the lock lease, retrying on next heartbeat.", e);
+		}
+	}
+
+	private long getChangeLogLockLeaseTimeMillis() {
+		return changeLogLockLeaseTime * 1000;
+	}
+
+	public String getHostName() {
 		try {
 			return InetAddress.getLocalHost().getHostName();
 		} catch (UnknownHostException e) {
@@ -135,20 +568,863 @@ public class DynamobeeDao {
 		}
 	}
 
+	/**
+	 * Releases the lock lease held by this process. When no lease is held, the lock item is removed
+	 * unconditionally, which allows to clear a lock left over by a previous version.
+	 *
+	 * @throws DynamobeeConnectionException exception
+	 */
 	public void releaseProcessLock() throws DynamobeeConnectionException {
-		this.dynamobeeTable.deleteItem(ChangeEntry.KEY_CHANGEID, VALUE_LOCK);
+		stopLeaseHeartbeat();
+		String token = this.leaseToken;
+		this.leaseToken = null;
+
+		if (token == null) {
+			this.dynamobeeTable.deleteItem(ChangeEntry.KEY_CHANGEID, VALUE_LOCK);
+			return;
+		}
+		try {
+			this.dynamobeeTable.deleteItem(new DeleteItemSpec()
+					.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_LOCK)
+					.withConditionExpression("#leaseToken = :token")
+					.withNameMap(new NameMap().with("#leaseToken", KEY_LEASE_TOKEN))
+					.withValueMap(new ValueMap().withString(":token", token)));
+		} catch (ConditionalCheckFailedException e) {
+			logger.warn("The lock lease had already been taken over by another process.");
+		}
 	}
 
 	public boolean isProccessLockHeld() throws DynamobeeConnectionException {
-		return this.dynamobeeTable.getItem(ChangeEntry.KEY_CHANGEID, VALUE_LOCK) != null;
+		Item lock = this.dynamobeeTable.getItem(ChangeEntry.KEY_CHANGEID, VALUE_LOCK);
+		return lock != null && (!lock.isPresent(KEY_LEASE_EXPIRY) || lock.getLong(KEY_LEASE_EXPIRY) > new Date().getTime());
 	}
 
 	public boolean isNewChange(ChangeEntry changeEntry) throws DynamobeeConnectionException {
 		return this.dynamobeeTable.getItem(ChangeEntry.KEY_CHANGEID, changeEntry.getChangeId()) == null;
 	}
 
-	public void save(ChangeEntry changeEntry) throws DynamobeeConnectionException {
-		this.dynamobeeTable.putItem(changeEntry.buildFullDBObject());
+	/**
+	 * Reads which of the given changesets have already been applied, using BatchGetItem requests of up to
+	 * {@value #BATCH_GET_MAX_KEYS} keys instead of one GetItem per changeset.
+	 *
+	 * @param changeIds ids of the changesets to look up
+	 * @return ids of the changesets which are already recorded in the changelog table
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public Set<String> findAppliedChangeIds(Collection<String> changeIds) throws DynamobeeConnectionException {
+		return new HashSet<>(batchGetItems(this.dynamoDB, changeIds, ChangeEntry.KEY_CHANGEID).keySet());
+	}
+
+	/**
+	 * Reads the entries of the given changesets with the same batched reads as {@link #findAppliedChangeIds(Collection)}.
+	 * Does not require {@link #connectDynamoDB(AmazonDynamoDB, DynamoDB)}, so the table is not described nor created.
+	 *
+	 * @param dynamoDB DynamoDB connection
+	 * @param changeIds ids of the changesets to look up
+	 * @return entries of the changesets already applied, by change id; empty if the table does not exist yet
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public Map<String, ChangeEntry> findChangeEntries(DynamoDB dynamoDB, Collection<String> changeIds)
+			throws DynamobeeConnectionException {
+		Map<String, ChangeEntry> entries = new HashMap<>();
+		try {
+			for (Map.Entry<String, Item> item : batchGetItems(dynamoDB, changeIds, null).entrySet()) {
+				entries.put(item.getKey(), ChangeEntry.fromDBObject(item.getValue()));
+			}
+		} catch (ResourceNotFoundException e) {
+			return Collections.emptyMap();
+		}
+		return entries;
+	}
+
+	/**
+	 * Strongly consistent BatchGetItem of the changelog table items with the given ids,
+	 * retrying unprocessed keys with exponential backoff
+	 *
+	 * @param dynamoDB DynamoDB connection
+	 * @param ids ids of the items to read
+	 * @param projectionExpression attributes to read, or null for all of them
+	 * @return items found, by id
+	 */
+	private Map<String, Item> batchGetItems(DynamoDB dynamoDB, Collection<String> ids, String projectionExpression)
+			throws DynamobeeConnectionException {
+		Map<String, Item> items = new HashMap<>();
+		List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+
+		for (int from = 0; from < uniqueIds.size(); from += BATCH_GET_MAX_KEYS) {
+			List<String> chunk = uniqueIds.subList(from, Math.min(from + BATCH_GET_MAX_KEYS, uniqueIds.size()));
+			TableKeysAndAttributes keys = new TableKeysAndAttributes(dynamobeeTableName)
+					.withHashOnlyKeys(ChangeEntry.KEY_CHANGEID, chunk.toArray())
+					.withConsistentRead(true);
+			if (projectionExpression != null) {
+				keys.withProjectionExpression(projectionExpression);
+			}
+
+			BatchGetItemOutcome outcome = dynamoDB.batchGetItem(keys);
+			collectItems(outcome, items);
+
+			Map<String, KeysAndAttributes> unprocessedKeys = outcome.getUnprocessedKeys();
+			long backoff = BATCH_GET_BASE_BACKOFF_MILLIS;
+			for (int retry = 1; unprocessedKeys != null && !unprocessedKeys.isEmpty(); retry++) {
+				if (retry > BATCH_GET_MAX_RETRIES) {
+					throw new DynamobeeConnectionException("Keys of " + dynamobeeTableName + " are still unprocessed after "
+							+ BATCH_GET_MAX_RETRIES + " retries", null);
+				}
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new DynamobeeConnectionException("Interrupted while reading " + dynamobeeTableName, e);
+				}
+				backoff = Math.min(BATCH_GET_MAX_BACKOFF_MILLIS, backoff * 2);
+				outcome = dynamoDB.batchGetItemUnprocessed(unprocessedKeys);
+				collectItems(outcome, items);
+				unprocessedKeys = outcome.getUnprocessedKeys();
+			}
+		}
+
+		return items;
+	}
+
+	private void collectItems(BatchGetItemOutcome outcome, Map<String, Item> items) {
+		List<Item> tableItems = outcome.getTableItems().get(dynamobeeTableName);
+		if (tableItems != null) {
+			for (Item item : tableItems) {
+				items.put(item.getString(ChangeEntry.KEY_CHANGEID), item);
+			}
+		}
+	}
+
+	public void save(ChangeEntry changeEntry) throws DynamobeeConnectionException, DynamobeeLockException {
+		putFenced(changeEntry.buildFullDBObject());
+	}
+
+	/**
+	 * Records a changeset together with the writes it has collected, in one TransactWriteItems request
+	 * fenced by the lock lease like {@link #save(ChangeEntry)}
+	 *
+	 * @param changeEntry changeset to record
+	 * @param writes writes of the changeset, at most 23
+	 * @return true if committed, false if a condition of the writes was not met and nothing has been written
+	 * @throws DynamobeeConnectionException if the transaction was cancelled for another reason, e.g. it still
+	 * conflicted with other requests after all retries
+	 * @throws DynamobeeLockException if the lock lease has been lost
+	 */
+	public boolean saveTransactional(ChangeEntry changeEntry, List<TransactWriteItem> writes)
+			throws DynamobeeConnectionException, DynamobeeLockException {
+		CapacityThrottle throttle = this.writeThrottle;
+		if (throttle != null) {
+			try {
+				throttle.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DynamobeeLockException("Interrupted while waiting for write capacity");
+			}
+		}
+
+		final String token = this.leaseToken;
+		try {
+			TransactWriteItemsResult result = transactWrite(() -> {
+				List<TransactWriteItem> items = new ArrayList<>();
+				if (token != null) {
+					items.add(buildLeaseConditionCheck(token));
+				}
+				items.addAll(writes);
+				items.add(new TransactWriteItem().withPut(new Put()
+						.withTableName(dynamobeeTableName)
+						.withItem(ItemUtils.toAttributeValues(changeEntry.buildFullDBObject()))));
+				return items;
+			});
+			if (throttle != null) {
+				throttle.consumed(result.getConsumedCapacity());
+			}
+			return true;
+		} catch (TransactionCanceledException e) {
+			// the lease check comes first, then the writes of the changeset, then its entry
+			int firstWrite = token != null ? 1 : 0;
+			if (token != null && CANCELLATION_CONDITION_FAILED.equals(cancellationCode(e, 0))) {
+				throw new DynamobeeLockException("The lock lease has been lost, "
+						+ changeEntry.getChangeId() + " can not be recorded");
+			}
+			for (int i = firstWrite; i < firstWrite + writes.size(); i++) {
+				if (CANCELLATION_CONDITION_FAILED.equals(cancellationCode(e, i))) {
+					logger.warn("Transaction of " + changeEntry.getChangeId() + " cancelled: " + e.getErrorMessage());
+					return false;
+				}
+			}
+			throw new DynamobeeConnectionException("Transaction of " + changeEntry.getChangeId()
+					+ " has been cancelled: " + e.getErrorMessage(), e);
+		} catch (ProvisionedThroughputExceededException e) {
+			if (throttle != null) {
+				throttle.throttled();
+			}
+			throw e;
+		}
+	}
+
+	private boolean holdsLease(String token) {
+		Item lock = this.dynamobeeTable.getItem(new GetItemSpec()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_LOCK)
+				.withConsistentRead(true));
+		return lock != null && token.equals(lock.getString(KEY_LEASE_TOKEN))
+				&& lock.getLong(KEY_LEASE_EXPIRY) > new Date().getTime();
+	}
+
+	/**
+	 * Records a failed execution of a changeset. The record is kept apart from the changeset's own entry,
+	 * so the changeset is still considered new by the next run.
+	 *
+	 * @param changeEntry changeset whose execution details have been recorded
+	 * @throws DynamobeeConnectionException exception
+	 * @throws DynamobeeLockException if the lock lease has been lost
+	 */
+	public void saveFailure(ChangeEntry changeEntry) throws DynamobeeConnectionException, DynamobeeLockException {
+		putFenced(changeEntry.buildFullDBObject()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID,
+						PREFIX_FAILURE + changeEntry.getChangeId() + "#" + changeEntry.getStartTime().getTime())
+				.withString(KEY_FAILED_CHANGEID, changeEntry.getChangeId()));
+	}
+
+	/**
+	 * Reads every recorded execution, successful or failed, from the changelog table.
+	 * Entries written before execution details were recorded are left out.
+	 *
+	 * @return recorded executions
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public List<ChangeEntry> findExecutionHistory() throws DynamobeeConnectionException {
+		List<ChangeEntry> history = new ArrayList<>();
+		for (Item item : this.dynamobeeTable.scan(new ScanSpec()
+				.withFilterExpression("attribute_exists(#outcome)")
+				.withNameMap(new NameMap().with("#outcome", ChangeEntry.KEY_OUTCOME)))) {
+			if (item.isPresent(KEY_FAILED_CHANGEID)) {
+				item.withString(ChangeEntry.KEY_CHANGEID, item.getString(KEY_FAILED_CHANGEID));
+			}
+			history.add(ChangeEntry.fromDBObject(item));
+		}
+		return history;
+	}
+
+	/**
+	 * @param limit maximum number of entries
+	 * @return the longest recorded executions, longest first
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public List<ChangeEntry> findSlowestChangeEntries(int limit) throws DynamobeeConnectionException {
+		return top(findExecutionHistory(), Comparator.comparingLong(ChangeEntry::getDuration), limit);
+	}
+
+	/**
+	 * @param limit maximum number of entries
+	 * @return the recorded executions which consumed the most read and write capacity, most expensive first
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public List<ChangeEntry> findMostExpensiveChangeEntries(int limit) throws DynamobeeConnectionException {
+		return top(findExecutionHistory(), Comparator.comparingDouble(
+				entry -> entry.getConsumedReadCapacityUnits() + entry.getConsumedWriteCapacityUnits()), limit);
+	}
+
+	private List<ChangeEntry> top(List<ChangeEntry> entries, Comparator<ChangeEntry> comparator, int limit) {
+		entries.sort(comparator.reversed());
+		return new ArrayList<>(entries.subList(0, Math.min(limit, entries.size())));
+	}
+
+	/**
+	 * Writes the item together with a check of the lock lease, so a process which has lost its lease
+	 * can not record anything anymore. The check and the put are sent as one TransactWriteItems request, in which
+	 * each costs two write units per KB: a fenced write of a small item consumes four write units instead of the
+	 * one of a plain put, which the provisioned write capacity of the changelog table has to account for.
+	 */
+	private void putFenced(final Item item) throws DynamobeeConnectionException, DynamobeeLockException {
+		CapacityThrottle throttle = this.writeThrottle;
+		if (throttle != null) {
+			try {
+				throttle.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DynamobeeLockException("Interrupted while waiting for write capacity");
+			}
+		}
+
+		final String token = this.leaseToken;
+		try {
+			if (token == null || amazonDynamoDB == null) {
+				PutItemOutcome outcome = this.dynamobeeTable.putItem(new PutItemSpec()
+						.withItem(item)
+						.withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+				if (throttle != null) {
+					throttle.consumed(outcome.getPutItemResult().getConsumedCapacity());
+				}
+				return;
+			}
+
+			TransactWriteItemsResult result = transactWrite(() -> Arrays.asList(
+					buildLeaseConditionCheck(token),
+					new TransactWriteItem().withPut(new Put()
+							.withTableName(dynamobeeTableName)
+							.withItem(ItemUtils.toAttributeValues(item)))));
+			if (throttle != null) {
+				throttle.consumed(result.getConsumedCapacity());
+			}
+		} catch (TransactionCanceledException e) {
+			String itemId = item.getString(ChangeEntry.KEY_CHANGEID);
+			if (CANCELLATION_CONDITION_FAILED.equals(cancellationCode(e, 0))) {
+				throw new DynamobeeLockException("The lock lease has been lost, " + itemId + " can not be recorded");
+			}
+			throw new DynamobeeConnectionException("Recording " + itemId + " has been cancelled: "
+					+ e.getErrorMessage(), e);
+		} catch (ProvisionedThroughputExceededException e) {
+			if (throttle != null) {
+				throttle.throttled();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Sends a TransactWriteItems request, sending it again while it is cancelled by conflicts with other requests
+	 * on the same items, e.g. the heartbeat renewing the lease read by the lease check, or by throttling
+	 *
+	 * @param items builds the items of the transaction, for every attempt
+	 * @return result of the committed transaction
+	 * @throws TransactionCanceledException if the transaction was cancelled for another reason, e.g. a failed
+	 * condition, or still conflicts after all retries
+	 * @throws DynamobeeConnectionException if interrupted while waiting to retry
+	 */
+	private TransactWriteItemsResult transactWrite(Supplier<List<TransactWriteItem>> items)
+			throws DynamobeeConnectionException {
+		if (amazonDynamoDB == null) {
+			throw new IllegalStateException("Transactions require a low level client, "
+					+ "connect with connectDynamoDB(AmazonDynamoDB, DynamoDB)");
+		}
+		long backoff = TRANSACTION_BASE_BACKOFF_MILLIS;
+		for (int retry = 0; ; retry++) {
+			try {
+				return this.amazonDynamoDB.transactWriteItems(new TransactWriteItemsRequest()
+						.withTransactItems(items.get())
+						.withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+			} catch (TransactionCanceledException e) {
+				if (retry >= TRANSACTION_MAX_RETRIES || !isRetryable(e)) {
+					throw e;
+				}
+				logger.debug("Transaction cancelled by a conflict, retrying: " + e.getErrorMessage());
+			}
+			try {
+				Thread.sleep(backoff);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DynamobeeConnectionException("Interrupted while retrying a transaction", e);
+			}
+			backoff = Math.min(TRANSACTION_MAX_BACKOFF_MILLIS, backoff * 2);
+		}
+	}
+
+	/**
+	 * @return true if no item failed its condition and at least one conflicted or was throttled
+	 */
+	private static boolean isRetryable(TransactionCanceledException e) {
+		if (e.getCancellationReasons() == null) {
+			return false;
+		}
+		boolean retryable = false;
+		for (CancellationReason reason : e.getCancellationReasons()) {
+			String code = reason.getCode();
+			if (CANCELLATION_CONDITION_FAILED.equals(code)) {
+				return false;
+			}
+			retryable |= CANCELLATION_CONFLICT.equals(code) || CANCELLATION_THROTTLING.equals(code)
+					|| CANCELLATION_THROUGHPUT_EXCEEDED.equals(code);
+		}
+		return retryable;
+	}
+
+	/**
+	 * @param e cancellation of a transaction
+	 * @param index index of an item of the transaction
+	 * @return why the item cancelled the transaction, "None" if it did not, null if DynamoDB did not tell
+	 */
+	private static String cancellationCode(TransactionCanceledException e, int index) {
+		List<CancellationReason> reasons = e.getCancellationReasons();
+		return reasons != null && index < reasons.size() ? reasons.get(index).getCode() : null;
+	}
+
+	private TransactWriteItem buildLeaseConditionCheck(String token) {
+		Map<String, String> names = new HashMap<>();
+		names.put("#leaseToken", KEY_LEASE_TOKEN);
+		names.put("#leaseExpiry", KEY_LEASE_EXPIRY);
+
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":token", new AttributeValue(token));
+		values.put(":now", new AttributeValue().withN(String.valueOf(new Date().getTime())));
+
+		return new TransactWriteItem().withConditionCheck(new ConditionCheck()
+				.withTableName(dynamobeeTableName)
+				.withKey(Collections.singletonMap(ChangeEntry.KEY_CHANGEID, new AttributeValue(VALUE_LOCK)))
+				.withConditionExpression("#leaseToken = :token AND #leaseExpiry > :now")
+				.withExpressionAttributeNames(names)
+				.withExpressionAttributeValues(values));
+	}
+
+	/**
+	 * Reads the values listed by the checkpoint item of the changeset, with batched reads of their own items.
+	 * A checkpoint written by an earlier version as a single map is read as well, below the values of their own.
+	 *
+	 * @param changeId id of the changeset
+	 * @return progress stored by a previous run of the changeset, empty if none
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public Map<String, Object> loadCheckpoint(String changeId) throws DynamobeeConnectionException {
+		Item item = this.dynamobeeTable.getItem(new GetItemSpec()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, PREFIX_CHECKPOINT + changeId)
+				.withConsistentRead(true));
+		if (item == null) {
+			return Collections.emptyMap();
+		}
+
+		Map<String, Object> state = new LinkedHashMap<>();
+		if (item.isPresent(KEY_CHECKPOINT)) {
+			state.putAll(item.getMap(KEY_CHECKPOINT));
+		}
+		if (item.isPresent(KEY_CHECKPOINT_KEYS)) {
+			Set<String> keys = item.getStringSet(KEY_CHECKPOINT_KEYS);
+			List<String> ids = new ArrayList<>();
+			for (String key : keys) {
+				ids.add(checkpointValueId(changeId, key));
+			}
+			Map<String, Item> values = batchGetItems(this.dynamoDB, ids, null);
+			for (String key : keys) {
+				Item value = values.get(checkpointValueId(changeId, key));
+				if (value != null && value.isPresent(KEY_CHECKPOINT_VALUE)) {
+					state.put(key, value.get(KEY_CHECKPOINT_VALUE));
+				}
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Lists a key in the checkpoint item of the changeset, before its value is first saved
+	 *
+	 * @param changeId id of the changeset
+	 * @param key progress key
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public void addCheckpointKey(String changeId, String key) throws DynamobeeConnectionException {
+		updateCheckpointKeys(changeId, "ADD", key);
+	}
+
+	/**
+	 * Stores one value of the progress of a changeset in its own item, fenced by the lock lease like
+	 * {@link #save(ChangeEntry)}. A write only costs the size of that value, however many values the checkpoint
+	 * holds, e.g. one per segment of a long migration.
+	 *
+	 * @param changeId id of the changeset
+	 * @param key progress key, listed with {@link #addCheckpointKey(String, String)}
+	 * @param value progress value, replacing the previous one
+	 * @throws DynamobeeConnectionException exception
+	 * @throws DynamobeeLockException if the lock lease has been lost
+	 */
+	public void saveCheckpointValue(String changeId, String key, Object value)
+			throws DynamobeeConnectionException, DynamobeeLockException {
+		long now = new Date().getTime();
+		putFenced(withTimeToLive(new Item()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, checkpointValueId(changeId, key))
+				.with(KEY_CHECKPOINT_VALUE, value)
+				.withLong(ChangeEntry.KEY_TIMESTAMP, now),
+				now + TimeUnit.DAYS.toMillis(CHECKPOINT_TIME_TO_LIVE_DAYS)));
+	}
+
+	/**
+	 * @param changeId id of the changeset
+	 * @param key progress key to remove
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public void removeCheckpointValue(String changeId, String key) throws DynamobeeConnectionException {
+		this.dynamobeeTable.deleteItem(ChangeEntry.KEY_CHANGEID, checkpointValueId(changeId, key));
+		updateCheckpointKeys(changeId, "DELETE", key);
+	}
+
+	private void updateCheckpointKeys(String changeId, String action, String key) {
+		long now = new Date().getTime();
+		NameMap names = new NameMap()
+				.with("#keys", KEY_CHECKPOINT_KEYS)
+				.with("#timestamp", ChangeEntry.KEY_TIMESTAMP);
+		ValueMap values = new ValueMap()
+				.withStringSet(":key", key)
+				.withLong(":now", now);
+		String update = action + " #keys :key SET #timestamp = :now";
+		if (timeToLiveAttributeName != null) {
+			update += ", #ttl = :ttl";
+			names.with("#ttl", timeToLiveAttributeName);
+			values.withLong(":ttl", (now + TimeUnit.DAYS.toMillis(CHECKPOINT_TIME_TO_LIVE_DAYS)) / 1000);
+		}
+		this.dynamobeeTable.updateItem(new UpdateItemSpec()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, PREFIX_CHECKPOINT + changeId)
+				.withUpdateExpression(update)
+				.withNameMap(names)
+				.withValueMap(values));
+	}
+
+	/**
+	 * Removes the checkpoint item of the changeset and the items of its values
+	 *
+	 * @param changeId id of the changeset
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public void deleteCheckpoint(String changeId) throws DynamobeeConnectionException {
+		Item item = this.dynamobeeTable.getItem(new GetItemSpec()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, PREFIX_CHECKPOINT + changeId)
+				.withConsistentRead(true));
+		if (item != null && item.isPresent(KEY_CHECKPOINT_KEYS)) {
+			for (String key : item.getStringSet(KEY_CHECKPOINT_KEYS)) {
+				this.dynamobeeTable.deleteItem(ChangeEntry.KEY_CHANGEID, checkpointValueId(changeId, key));
+			}
+		}
+		this.dynamobeeTable.deleteItem(ChangeEntry.KEY_CHANGEID, PREFIX_CHECKPOINT + changeId);
+	}
+
+	private String checkpointValueId(String changeId, String key) {
+		return PREFIX_CHECKPOINT + changeId + "#" + key;
+	}
+
+	/**
+	 * Publishes a changeset whose work is shared with the processes waiting for the lock. Units left over by
+	 * a previous, interrupted publication of the same changeset are kept with their progress, and so is their
+	 * number: the units are only resumed consistently if the work is split the same way.
+	 *
+	 * @param job changeset and number of units to publish
+	 * @return the published job, with the number of units of the previous publication if any
+	 * @throws DynamobeeConnectionException exception
+	 * @throws DynamobeeLockException if the lock lease has been lost
+	 */
+	public WorkJob publishWorkJob(WorkJob job) throws DynamobeeConnectionException, DynamobeeLockException {
+		int totalUnits = resolveTotalUnits(job);
+		WorkJob published = new WorkJob(job.getChangeId(), job.getChangeLogClass(), job.getChangeSetMethodName(),
+				totalUnits, this.leaseToken);
+
+		for (int index = 0; index < totalUnits; index++) {
+			try {
+				this.dynamobeeTable.putItem(new PutItemSpec()
+						.withItem(new Item()
+								.withPrimaryKey(ChangeEntry.KEY_CHANGEID, workUnitId(job.getChangeId(), index))
+								.withString(KEY_STATUS, STATUS_PENDING)
+								.withInt(KEY_TOTAL_UNITS, totalUnits)
+								.withLong(ChangeEntry.KEY_TIMESTAMP, new Date().getTime()))
+						.withConditionExpression("attribute_not_exists(#changeId)")
+						.withNameMap(new NameMap().with("#changeId", ChangeEntry.KEY_CHANGEID)));
+			} catch (ConditionalCheckFailedException e) {
+				// unit published by a previous run
+			}
+		}
+
+		Item item = new Item()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_WORK_JOB)
+				.withString(KEY_JOB_CHANGEID, job.getChangeId())
+				.withString(ChangeEntry.KEY_CHANGELOGCLASS, job.getChangeLogClass())
+				.withString(ChangeEntry.KEY_CHANGESETMETHOD, job.getChangeSetMethodName())
+				.withInt(KEY_TOTAL_UNITS, totalUnits)
+				.withLong(ChangeEntry.KEY_TIMESTAMP, new Date().getTime());
+		if (published.getLeaseToken() != null) {
+			item.withString(KEY_LEASE_TOKEN, published.getLeaseToken());
+		}
+		putFenced(item);
+		return published;
+	}
+
+	private int resolveTotalUnits(WorkJob job) {
+		Item first = this.dynamobeeTable.getItem(new GetItemSpec()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, workUnitId(job.getChangeId(), 0))
+				.withConsistentRead(true));
+		if (first == null || !first.isPresent(KEY_TOTAL_UNITS)) {
+			return job.getTotalUnits();
+		}
+		int previous = first.getInt(KEY_TOTAL_UNITS);
+		if (previous != job.getTotalUnits()) {
+			logger.info("Resuming " + job.getChangeId() + " with the " + previous + " units of its previous run instead of "
+					+ job.getTotalUnits());
+		}
+		return previous;
+	}
+
+	/**
+	 * @return the changeset currently shared by the lock holder, or null if there is none or if the job has been
+	 * left over by a lock holder which no longer holds the lease, e.g. after its changeset failed
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public WorkJob findWorkJob() throws DynamobeeConnectionException {
+		Item item = this.dynamobeeTable.getItem(new GetItemSpec()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, VALUE_WORK_JOB)
+				.withConsistentRead(true));
+		if (item == null || !item.isPresent(KEY_LEASE_TOKEN)) {
+			return null;
+		}
+		String token = item.getString(KEY_LEASE_TOKEN);
+		if (!holdsLease(token)) {
+			return null;
+		}
+		return new WorkJob(item.getString(KEY_JOB_CHANGEID), item.getString(ChangeEntry.KEY_CHANGELOGCLASS),
+				item.getString(ChangeEntry.KEY_CHANGESETMETHOD), item.getInt(KEY_TOTAL_UNITS), token);
+	}
+
+	/**
+	 * Claims a unit which is pending, or whose previous owner has let its claim expire. Like every write to the
+	 * units, the claim is fenced by the lease of the lock holder which published the job.
+	 *
+	 * @param job shared changeset
+	 * @param owner id of the claiming process
+	 * @return the claimed unit, or null if no unit can be claimed right now
+	 * @throws DynamobeeConnectionException exception
+	 */
+	@SuppressWarnings("unchecked")
+	public WorkUnit claimWorkUnit(WorkJob job, String owner) throws DynamobeeConnectionException {
+		long now = new Date().getTime();
+		List<Integer> candidates = findClaimableWorkUnits(job, now);
+		// processes start from different units to avoid claiming the same ones
+		Collections.shuffle(candidates);
+
+		for (Integer index : candidates) {
+			String unitId = workUnitId(job.getChangeId(), index);
+			boolean claimed = updateFenced(job.getLeaseToken(), unitId,
+					"SET #status = :claimed, #owner = :owner, #claimExpiry = :expiry",
+					"#status = :pending OR (#status = :claimed AND #claimExpiry < :now)",
+					new NameMap()
+							.with("#status", KEY_STATUS)
+							.with("#owner", KEY_OWNER)
+							.with("#claimExpiry", KEY_CLAIM_EXPIRY),
+					new ValueMap()
+							.withString(":claimed", STATUS_CLAIMED)
+							.withString(":pending", STATUS_PENDING)
+							.withString(":owner", owner)
+							.withLong(":expiry", now + getChangeLogLockLeaseTimeMillis())
+							.withLong(":now", now));
+			if (claimed) {
+				// a transaction does not return the item: the progress is read once the claim is ours
+				Item unit = this.dynamobeeTable.getItem(new GetItemSpec()
+						.withPrimaryKey(ChangeEntry.KEY_CHANGEID, unitId)
+						.withConsistentRead(true));
+				Map<String, Object> progress = unit != null && unit.isPresent(KEY_PROGRESS)
+						? (Map<String, Object>) unit.getMap(KEY_PROGRESS) : null;
+				return new WorkUnit(index, progress);
+			}
+			// claimed by another process in the meantime
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if a unit is pending or has an expired claim
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public boolean hasClaimableWorkUnit(WorkJob job) throws DynamobeeConnectionException {
+		return !findClaimableWorkUnits(job, new Date().getTime()).isEmpty();
+	}
+
+	private List<Integer> findClaimableWorkUnits(WorkJob job, long now) throws DynamobeeConnectionException {
+		List<Integer> claimable = new ArrayList<>();
+		Map<String, Item> units = loadWorkUnits(job);
+		for (int index = 0; index < job.getTotalUnits(); index++) {
+			Item unit = units.get(workUnitId(job.getChangeId(), index));
+			if (unit != null && isClaimable(unit, now)) {
+				claimable.add(index);
+			}
+		}
+		return claimable;
+	}
+
+	private boolean isClaimable(Item unit, long now) {
+		String status = unit.getString(KEY_STATUS);
+		return STATUS_PENDING.equals(status)
+				|| (STATUS_CLAIMED.equals(status) && unit.getLong(KEY_CLAIM_EXPIRY) < now);
+	}
+
+	/**
+	 * Saves the progress of a claimed unit and extends the claim
+	 *
+	 * @return false if the claim has been lost to another process, or the job to a lock holder which lost its lease
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public boolean saveWorkUnitProgress(WorkJob job, int index, String owner, Map<String, Object> progress)
+			throws DynamobeeConnectionException {
+		return updateFenced(job.getLeaseToken(), workUnitId(job.getChangeId(), index),
+				"SET #progress = :progress, #claimExpiry = :expiry",
+				"#owner = :owner AND #status = :claimed",
+				new NameMap()
+						.with("#progress", KEY_PROGRESS)
+						.with("#claimExpiry", KEY_CLAIM_EXPIRY)
+						.with("#owner", KEY_OWNER)
+						.with("#status", KEY_STATUS),
+				new ValueMap()
+						.withMap(":progress", progress)
+						.withLong(":expiry", new Date().getTime() + getChangeLogLockLeaseTimeMillis())
+						.withString(":owner", owner)
+						.withString(":claimed", STATUS_CLAIMED));
+	}
+
+	/**
+	 * Marks a claimed unit as done
+	 *
+	 * @return false if the claim had been lost to another process, or the job to a lock holder which lost its lease
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public boolean completeWorkUnit(WorkJob job, int index, String owner) throws DynamobeeConnectionException {
+		return updateFenced(job.getLeaseToken(), workUnitId(job.getChangeId(), index),
+				"SET #status = :done REMOVE #claimExpiry",
+				"#owner = :owner AND #status = :claimed",
+				new NameMap()
+						.with("#status", KEY_STATUS)
+						.with("#claimExpiry", KEY_CLAIM_EXPIRY)
+						.with("#owner", KEY_OWNER),
+				new ValueMap()
+						.withString(":done", STATUS_DONE)
+						.withString(":owner", owner)
+						.withString(":claimed", STATUS_CLAIMED));
+	}
+
+	/**
+	 * Applies a conditional update together with a check that the given lease is still held, like
+	 * {@link #putFenced(Item)}; a plain conditional update without a lease or a low level client
+	 *
+	 * @return false if the condition of the update failed or the lease has been lost
+	 * @throws DynamobeeConnectionException if the transaction was cancelled for another reason
+	 */
+	private boolean updateFenced(final String token, final String id, final String update, final String condition,
+			final NameMap names, final ValueMap values) throws DynamobeeConnectionException {
+		if (token == null || amazonDynamoDB == null) {
+			try {
+				this.dynamobeeTable.updateItem(new UpdateItemSpec()
+						.withPrimaryKey(ChangeEntry.KEY_CHANGEID, id)
+						.withUpdateExpression(update)
+						.withConditionExpression(condition)
+						.withNameMap(names)
+						.withValueMap(values));
+				return true;
+			} catch (ConditionalCheckFailedException e) {
+				return false;
+			}
+		}
+
+		try {
+			transactWrite(() -> Arrays.asList(
+					buildLeaseConditionCheck(token),
+					new TransactWriteItem().withUpdate(new Update()
+							.withTableName(dynamobeeTableName)
+							.withKey(Collections.singletonMap(ChangeEntry.KEY_CHANGEID, new AttributeValue(id)))
+							.withUpdateExpression(update)
+							.withConditionExpression(condition)
+							.withExpressionAttributeNames(names)
+							.withExpressionAttributeValues(ItemUtils.fromSimpleMap(values)))));
+			return true;
+		} catch (TransactionCanceledException e) {
+			if (CANCELLATION_CONDITION_FAILED.equals(cancellationCode(e, 0))) {
+				logger.warn("The lock lease of the job has been lost, " + id + " is not written.");
+				return false;
+			}
+			if (CANCELLATION_CONDITION_FAILED.equals(cancellationCode(e, 1))) {
+				return false;
+			}
+			throw new DynamobeeConnectionException("Writing " + id + " has been cancelled: " + e.getErrorMessage(), e);
+		}
+	}
+
+	/**
+	 * @return true if every unit of the job is done
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public boolean isWorkJobDone(WorkJob job) throws DynamobeeConnectionException {
+		Map<String, Item> units = loadWorkUnits(job);
+		for (int index = 0; index < job.getTotalUnits(); index++) {
+			Item unit = units.get(workUnitId(job.getChangeId(), index));
+			if (unit == null || !STATUS_DONE.equals(unit.getString(KEY_STATUS))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the job and its units once the changeset has completed
+	 *
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public void deleteWorkJob(WorkJob job) throws DynamobeeConnectionException {
+		this.dynamobeeTable.deleteItem(ChangeEntry.KEY_CHANGEID, VALUE_WORK_JOB);
+		for (int index = 0; index < job.getTotalUnits(); index++) {
+			this.dynamobeeTable.deleteItem(ChangeEntry.KEY_CHANGEID, workUnitId(job.getChangeId(), index));
+		}
+	}
+
+	private Map<String, Item> loadWorkUnits(WorkJob job) throws DynamobeeConnectionException {
+		List<String> ids = new ArrayList<>();
+		for (int index = 0; index < job.getTotalUnits(); index++) {
+			ids.add(workUnitId(job.getChangeId(), index));
+		}
+		return batchGetItems(this.dynamoDB, ids, null);
+	}
+
+	private String workUnitId(String changeId, int index) {
+		return PREFIX_WORK_UNIT + changeId + "#" + index;
+	}
+
+	/**
+	 * @param dynamoDB DynamoDB connection
+	 * @param activeProfiles profiles the changesets were filtered with, each set having its own fingerprint
+	 * @param fingerprint fingerprint of the changesets of these profiles
+	 * @return true if a complete run with the same profiles has stored the same fingerprint
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public boolean isFingerprintUpToDate(DynamoDB dynamoDB, Collection<String> activeProfiles, String fingerprint)
+			throws DynamobeeConnectionException {
+		try {
+			Item item = dynamoDB.getTable(dynamobeeTableName).getItem(new GetItemSpec()
+					.withPrimaryKey(ChangeEntry.KEY_CHANGEID, fingerprintId(activeProfiles))
+					.withConsistentRead(true));
+			return item != null && fingerprint.equals(item.getString(KEY_FINGERPRINT));
+		} catch (ResourceNotFoundException e) {
+			return false;
+		}
+	}
+
+	public void saveFingerprint(Collection<String> activeProfiles, String fingerprint)
+			throws DynamobeeConnectionException, DynamobeeLockException {
+		Item item = new Item()
+				.withPrimaryKey(ChangeEntry.KEY_CHANGEID, fingerprintId(activeProfiles))
+				.withString(KEY_FINGERPRINT, fingerprint)
+				.withLong(ChangeEntry.KEY_TIMESTAMP, new Date().getTime());
+		putFenced(item);
+	}
+
+	/**
+	 * Processes running with different profiles run different changesets, so each profile set has its own
+	 * fingerprint item and they do not invalidate each other's fast path
+	 */
+	private String fingerprintId(Collection<String> activeProfiles) {
+		List<String> profiles = new ArrayList<>(activeProfiles);
+		Collections.sort(profiles);
+		StringBuilder id = new StringBuilder(PREFIX_FINGERPRINT);
+		for (int i = 0; i < profiles.size(); i++) {
+			id.append(i > 0 ? "," : "").append(profiles.get(i));
+		}
+		return id.toString();
+	}
+
+	/**
+	 * Ids of the lock, queue, fingerprint, checkpoint, failure and work items share the key space of the changesets
+	 *
+	 * @param changeId id of a changeset
+	 * @return true if the id is the one of a Dynamobee item, or starts like one
+	 */
+	public static boolean isReservedChangeId(String changeId) {
+		for (String reserved : RESERVED_IDS) {
+			if (changeId.equals(reserved)) {
+				return true;
+			}
+		}
+		for (String prefix : RESERVED_PREFIXES) {
+			if (changeId.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	public void setChangelogTableName(String changelogCollectionName) {
@@ -179,6 +1455,102 @@ public class DynamobeeDao {
 		this.changeLogLockPollRate = changeLogLockPollRate;
 	}
 
+	public long getChangeLogLockLeaseTime() {
+		return changeLogLockLeaseTime;
+	}
+
+	public void setChangeLogLockLeaseTime(long changeLogLockLeaseTime) {
+		this.changeLogLockLeaseTime = changeLogLockLeaseTime;
+	}
+
+	public LockRetryStrategy getLockRetryStrategy() {
+		return lockRetryStrategy;
+	}
+
+	public void setLockRetryStrategy(LockRetryStrategy lockRetryStrategy) {
+		this.lockRetryStrategy = lockRetryStrategy;
+	}
+
+	public boolean isLockWaitQueueEnabled() {
+		return lockWaitQueueEnabled;
+	}
+
+	public void setLockWaitQueueEnabled(boolean lockWaitQueueEnabled) {
+		this.lockWaitQueueEnabled = lockWaitQueueEnabled;
+	}
+
+	/**
+	 * @return number of times the last {@link #acquireProcessLock()} tried to take the lock
+	 */
+	public int getLastLockAcquireAttempts() {
+		return lastLockAcquireAttempts;
+	}
+
+	public LockWaitListener getLockWaitListener() {
+		return lockWaitListener;
+	}
+
+	public void setLockWaitListener(LockWaitListener lockWaitListener) {
+		this.lockWaitListener = lockWaitListener;
+	}
+
+	public double getWriteCapacityShare() {
+		return writeCapacityShare;
+	}
+
+	/**
+	 * @param writeCapacityShare share of the changelog table's provisioned WCU the changelog writes may consume,
+	 * 0 disables throttling
+	 */
+	public void setWriteCapacityShare(double writeCapacityShare) {
+		this.writeCapacityShare = writeCapacityShare;
+	}
+
+	public BillingMode getChangelogTableBillingMode() {
+		return changelogTableBillingMode;
+	}
+
+	public void setChangelogTableBillingMode(BillingMode changelogTableBillingMode) {
+		this.changelogTableBillingMode = changelogTableBillingMode;
+	}
+
+	public long getChangelogTableReadCapacityUnits() {
+		return changelogTableReadCapacityUnits;
+	}
+
+	public long getChangelogTableWriteCapacityUnits() {
+		return changelogTableWriteCapacityUnits;
+	}
+
+	/**
+	 * @param readCapacityUnits RCU of the changelog table, when created with provisioned billing
+	 * @param writeCapacityUnits WCU of the changelog table, when created with provisioned billing
+	 */
+	public void setChangelogTableThroughput(long readCapacityUnits, long writeCapacityUnits) {
+		this.changelogTableReadCapacityUnits = readCapacityUnits;
+		this.changelogTableWriteCapacityUnits = writeCapacityUnits;
+	}
+
+	public String getTimeToLiveAttributeName() {
+		return timeToLiveAttributeName;
+	}
+
+	/**
+	 * @param timeToLiveAttributeName attribute holding the expiry, in epoch seconds, of the lock and checkpoint
+	 * items; enabled as time to live of the changelog table when the table is created; null for none
+	 */
+	public void setTimeToLiveAttributeName(String timeToLiveAttributeName) {
+		this.timeToLiveAttributeName = timeToLiveAttributeName;
+	}
+
+	public boolean isChangelogTableCheckEnabled() {
+		return changelogTableCheckEnabled;
+	}
+
+	public void setChangelogTableCheckEnabled(boolean changelogTableCheckEnabled) {
+		this.changelogTableCheckEnabled = changelogTableCheckEnabled;
+	}
+
 	public boolean isThrowExceptionIfCannotObtainLock() {
 		return throwExceptionIfCannotObtainLock;
 	}
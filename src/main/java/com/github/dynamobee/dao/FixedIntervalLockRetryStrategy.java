@@ -0,0 +1,17 @@
+package com.github.dynamobee.dao;
+
+/**
+ * Retries acquiring the changelog lock at a fixed interval.
+ */
+public class FixedIntervalLockRetryStrategy implements LockRetryStrategy {
+	private final long intervalMillis;
+
+	public FixedIntervalLockRetryStrategy(long intervalMillis) {
+		this.intervalMillis = intervalMillis;
+	}
+
+	@Override
+	public long nextDelayMillis(int attempt, long previousDelayMillis) {
+		return intervalMillis;
+	}
+}
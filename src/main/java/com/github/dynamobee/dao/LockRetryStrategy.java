@@ -0,0 +1,14 @@
+package com.github.dynamobee.dao;
+
+/**
+ * Decides how long a process waits before trying again to acquire the changelog lock.
+ */
+public interface LockRetryStrategy {
+
+	/**
+	 * @param attempt number of failed attempts so far, starting at 1
+	 * @param previousDelayMillis delay returned for the previous attempt, 0 for the first one
+	 * @return delay in milliseconds before the next attempt
+	 */
+	long nextDelayMillis(int attempt, long previousDelayMillis);
+}
@@ -0,0 +1,13 @@
+package com.github.dynamobee.dao;
+
+/**
+ * Called by {@link DynamobeeDao#acquireProcessLock()} between two attempts to take the lock, so a
+ * waiting process can help with the work of the lock holder
+ */
+public interface LockWaitListener {
+
+	/**
+	 * @param attempt number of the failed attempt, starting at 1
+	 */
+	void waitingForLock(int attempt);
+}
@@ -0,0 +1,53 @@
+package com.github.dynamobee.dao;
+
+/**
+ * Changeset whose work is shared between processes, published in the changelog table by the lock holder
+ */
+public class WorkJob {
+	private final String changeId;
+	private final String changeLogClass;
+	private final String changeSetMethodName;
+	private final int totalUnits;
+	private final String leaseToken;
+
+	public WorkJob(String changeId, String changeLogClass, String changeSetMethodName, int totalUnits) {
+		this(changeId, changeLogClass, changeSetMethodName, totalUnits, null);
+	}
+
+	public WorkJob(String changeId, String changeLogClass, String changeSetMethodName, int totalUnits,
+			String leaseToken) {
+		this.changeId = changeId;
+		this.changeLogClass = changeLogClass;
+		this.changeSetMethodName = changeSetMethodName;
+		this.totalUnits = totalUnits;
+		this.leaseToken = leaseToken;
+	}
+
+	public String getChangeId() {
+		return changeId;
+	}
+
+	public String getChangeLogClass() {
+		return changeLogClass;
+	}
+
+	public String getChangeSetMethodName() {
+		return changeSetMethodName;
+	}
+
+	public int getTotalUnits() {
+		return totalUnits;
+	}
+
+	/**
+	 * @return lease of the lock holder which published the job
+	 */
+	public String getLeaseToken() {
+		return leaseToken;
+	}
+
+	@Override
+	public String toString() {
+		return "[WorkJob: changeId=" + changeId + ", totalUnits=" + totalUnits + "]";
+	}
+}
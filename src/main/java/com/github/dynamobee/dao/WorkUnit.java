@@ -0,0 +1,27 @@
+package com.github.dynamobee.dao;
+
+import java.util.Map;
+
+/**
+ * Unit of a {@link WorkJob} claimed by a process, e.g. one segment of a parallel scan
+ */
+public class WorkUnit {
+	private final int index;
+	private final Map<String, Object> progress;
+
+	public WorkUnit(int index, Map<String, Object> progress) {
+		this.index = index;
+		this.progress = progress;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return progress saved by a previous owner of the unit, or null
+	 */
+	public Map<String, Object> getProgress() {
+		return progress;
+	}
+}
@@ -0,0 +1,105 @@
+package com.github.dynamobee.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+
+/**
+ * DynamoDB calls made by a changeset through its injected client, the items they read and wrote,
+ * and the capacity they consumed
+ */
+public class ChangeSetStats {
+	private final Map<String, AtomicLong> callCounts = new ConcurrentHashMap<>();
+	private final AtomicLong itemsRead = new AtomicLong();
+	private final AtomicLong itemsWritten = new AtomicLong();
+	private final DoubleAdder consumedReadCapacityUnits = new DoubleAdder();
+	private final DoubleAdder consumedWriteCapacityUnits = new DoubleAdder();
+	private final DoubleAdder consumedCapacityUnits = new DoubleAdder();
+
+	void recordCall(String operation) {
+		callCounts.computeIfAbsent(operation, key -> new AtomicLong()).incrementAndGet();
+	}
+
+	void recordRead(long items, double capacityUnits) {
+		itemsRead.addAndGet(items);
+		consumedReadCapacityUnits.add(capacityUnits);
+		consumedCapacityUnits.add(capacityUnits);
+	}
+
+	void recordWrite(long items, double capacityUnits) {
+		itemsWritten.addAndGet(items);
+		consumedWriteCapacityUnits.add(capacityUnits);
+		consumedCapacityUnits.add(capacityUnits);
+	}
+
+	void recordOther(double capacityUnits) {
+		consumedCapacityUnits.add(capacityUnits);
+	}
+
+	/**
+	 * @return total number of calls
+	 */
+	public long getCallCount() {
+		long count = 0;
+		for (AtomicLong operationCount : callCounts.values()) {
+			count += operationCount.get();
+		}
+		return count;
+	}
+
+	/**
+	 * @return number of calls per operation name, e.g. "putItem"
+	 */
+	public Map<String, Long> getCallCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		for (Map.Entry<String, AtomicLong> entry : callCounts.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return Collections.unmodifiableMap(counts);
+	}
+
+	/**
+	 * @return items returned by gets, and items scanned by queries and scans
+	 */
+	public long getItemsRead() {
+		return itemsRead.get();
+	}
+
+	/**
+	 * @return items put, updated or deleted
+	 */
+	public long getItemsWritten() {
+		return itemsWritten.get();
+	}
+
+	/**
+	 * @return capacity units consumed by the read operations
+	 */
+	public double getConsumedReadCapacityUnits() {
+		return consumedReadCapacityUnits.sum();
+	}
+
+	/**
+	 * @return capacity units consumed by the write operations
+	 */
+	public double getConsumedWriteCapacityUnits() {
+		return consumedWriteCapacityUnits.sum();
+	}
+
+	/**
+	 * @return capacity units consumed by the calls, all tables and indexes included
+	 */
+	public double getConsumedCapacityUnits() {
+		return consumedCapacityUnits.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "[ChangeSetStats: calls=" + getCallCounts() + ", itemsRead=" + getItemsRead()
+				+ ", itemsWritten=" + getItemsWritten() + ", consumedCapacityUnits=" + getConsumedCapacityUnits() + "]";
+	}
+}
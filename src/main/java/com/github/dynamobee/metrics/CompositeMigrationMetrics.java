@@ -0,0 +1,74 @@
+package com.github.dynamobee.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dynamobee.MigrationReport;
+import com.github.dynamobee.changeset.ChangeEntry;
+
+
+/**
+ * Forwards the measurements to several {@link MigrationMetrics}; a failing one does not affect the migration
+ */
+public class CompositeMigrationMetrics implements MigrationMetrics {
+	private static final Logger logger = LoggerFactory.getLogger(CompositeMigrationMetrics.class);
+
+	private final List<MigrationMetrics> delegates = new CopyOnWriteArrayList<>();
+
+	public void add(MigrationMetrics metrics) {
+		delegates.add(metrics);
+	}
+
+	public boolean isEmpty() {
+		return delegates.isEmpty();
+	}
+
+	@Override
+	public void migrationStarted() {
+		forEach(metrics -> metrics.migrationStarted());
+	}
+
+	@Override
+	public void migrationFinished(MigrationReport.Status status, long durationNanos) {
+		forEach(metrics -> metrics.migrationFinished(status, durationNanos));
+	}
+
+	@Override
+	public void migrationFailed(Throwable failure, long durationNanos) {
+		forEach(metrics -> metrics.migrationFailed(failure, durationNanos));
+	}
+
+	@Override
+	public void lockAcquisitionStarted() {
+		forEach(metrics -> metrics.lockAcquisitionStarted());
+	}
+
+	@Override
+	public void lockAcquisitionFinished(boolean acquired, int attempts, long waitNanos) {
+		forEach(metrics -> metrics.lockAcquisitionFinished(acquired, attempts, waitNanos));
+	}
+
+	@Override
+	public void changeSetStarted(ChangeEntry changeEntry) {
+		forEach(metrics -> metrics.changeSetStarted(changeEntry));
+	}
+
+	@Override
+	public void changeSetFinished(ChangeEntry changeEntry, Outcome outcome, long durationNanos, ChangeSetStats stats) {
+		forEach(metrics -> metrics.changeSetFinished(changeEntry, outcome, durationNanos, stats));
+	}
+
+	private void forEach(Consumer<MigrationMetrics> call) {
+		for (MigrationMetrics metrics : delegates) {
+			try {
+				call.accept(metrics);
+			} catch (RuntimeException e) {
+				logger.warn("Migration metrics " + metrics.getClass().getName() + " failed: " + e.getMessage(), e);
+			}
+		}
+	}
+}
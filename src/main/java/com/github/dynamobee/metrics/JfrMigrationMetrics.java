@@ -0,0 +1,141 @@
+package com.github.dynamobee.metrics;
+
+import com.github.dynamobee.MigrationReport;
+import com.github.dynamobee.changeset.ChangeEntry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * Emits a Flight Recorder event for the migration, the lock acquisition and every changeset.
+ * Events are only recorded while a recording with them enabled is running, e.g.
+ * {@code jcmd <pid> JFR.start}; otherwise they cost next to nothing.
+ * <p>
+ * Registered by Dynamobee when the running JVM has Flight Recorder, see
+ * {@link com.github.dynamobee.Dynamobee#setJfrEventsEnabled(boolean)}.
+ */
+public class JfrMigrationMetrics implements MigrationMetrics {
+	private final ThreadLocal<MigrationEvent> migration = new ThreadLocal<>();
+	private final ThreadLocal<LockWaitEvent> lockWait = new ThreadLocal<>();
+	private final ThreadLocal<ChangeSetEvent> changeSet = new ThreadLocal<>();
+
+	@Override
+	public void migrationStarted() {
+		MigrationEvent event = new MigrationEvent();
+		event.begin();
+		migration.set(event);
+	}
+
+	@Override
+	public void migrationFinished(MigrationReport.Status status, long durationNanos) {
+		MigrationEvent event = migration.get();
+		migration.remove();
+		if (event != null) {
+			event.status = status.name();
+			event.commit();
+		}
+	}
+
+	@Override
+	public void migrationFailed(Throwable failure, long durationNanos) {
+		MigrationEvent event = migration.get();
+		migration.remove();
+		if (event != null) {
+			event.status = "FAILED";
+			event.failure = failure.getMessage();
+			event.commit();
+		}
+	}
+
+	@Override
+	public void lockAcquisitionStarted() {
+		LockWaitEvent event = new LockWaitEvent();
+		event.begin();
+		lockWait.set(event);
+	}
+
+	@Override
+	public void lockAcquisitionFinished(boolean acquired, int attempts, long waitNanos) {
+		LockWaitEvent event = lockWait.get();
+		lockWait.remove();
+		if (event != null) {
+			event.acquired = acquired;
+			event.attempts = attempts;
+			event.commit();
+		}
+	}
+
+	@Override
+	public void changeSetStarted(ChangeEntry changeEntry) {
+		ChangeSetEvent event = new ChangeSetEvent();
+		event.begin();
+		changeSet.set(event);
+	}
+
+	@Override
+	public void changeSetFinished(ChangeEntry changeEntry, Outcome outcome, long durationNanos, ChangeSetStats stats) {
+		ChangeSetEvent event = changeSet.get();
+		changeSet.remove();
+		if (event != null) {
+			event.changeId = changeEntry.getChangeId();
+			event.author = changeEntry.getAuthor();
+			event.changeLogClass = changeEntry.getChangeLogClass();
+			event.outcome = outcome.name();
+			event.dynamoDBCalls = stats.getCallCount();
+			event.consumedCapacityUnits = stats.getConsumedCapacityUnits();
+			event.commit();
+		}
+	}
+
+	@Name("com.github.dynamobee.Migration")
+	@Label("Dynamobee Migration")
+	@Category("Dynamobee")
+	@StackTrace(false)
+	static class MigrationEvent extends Event {
+		@Label("Status")
+		String status;
+
+		@Label("Failure")
+		String failure;
+	}
+
+	@Name("com.github.dynamobee.LockWait")
+	@Label("Dynamobee Lock Wait")
+	@Category("Dynamobee")
+	@StackTrace(false)
+	static class LockWaitEvent extends Event {
+		@Label("Acquired")
+		boolean acquired;
+
+		@Label("Attempts")
+		int attempts;
+	}
+
+	@Name("com.github.dynamobee.ChangeSet")
+	@Label("Dynamobee ChangeSet")
+	@Category("Dynamobee")
+	@StackTrace(false)
+	static class ChangeSetEvent extends Event {
+		@Label("Change Id")
+		String changeId;
+
+		@Label("Author")
+		String author;
+
+		@Label("ChangeLog Class")
+		String changeLogClass;
+
+		@Label("Outcome")
+		String outcome;
+
+		@Label("DynamoDB Calls")
+		long dynamoDBCalls;
+
+		@Label("Consumed Capacity Units")
+		double consumedCapacityUnits;
+	}
+}
@@ -0,0 +1,189 @@
+package com.github.dynamobee.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TransactGetItemsResult;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+
+/**
+ * AmazonDynamoDB client recording the calls of a changeset, and the items they read and wrote,
+ * into its {@link ChangeSetStats}.
+ * Requests which support it and do not ask for it already are sent as copies asking for their consumed capacity,
+ * the requests of the changeset are left untouched.
+ */
+public class MeteredAmazonDynamoDB implements InvocationHandler {
+	private static final Map<Class<?>, Accessors> ACCESSORS = new ConcurrentHashMap<>();
+
+	private final AmazonDynamoDB client;
+	private final ChangeSetStats stats;
+
+	private MeteredAmazonDynamoDB(AmazonDynamoDB client, ChangeSetStats stats) {
+		this.client = client;
+		this.stats = stats;
+	}
+
+	/**
+	 * @param client client to delegate to
+	 * @param stats stats of the running changeset
+	 * @return client recording into the stats
+	 */
+	public static AmazonDynamoDB wrap(AmazonDynamoDB client, ChangeSetStats stats) {
+		return (AmazonDynamoDB) Proxy.newProxyInstance(AmazonDynamoDB.class.getClassLoader(),
+				new Class<?>[] { AmazonDynamoDB.class }, new MeteredAmazonDynamoDB(client, stats));
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Object.class) {
+			return method.invoke(client, args);
+		}
+
+		Object request = args != null && args.length == 1 ? args[0] : null;
+		Object[] sentArgs = args;
+		if (request instanceof AmazonWebServiceRequest) {
+			AmazonWebServiceRequest sent = accessors(request.getClass())
+					.requestConsumedCapacity((AmazonWebServiceRequest) request);
+			if (sent != request) {
+				sentArgs = new Object[] { sent };
+			}
+		}
+
+		Object result;
+		try {
+			result = method.invoke(client, sentArgs);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		} finally {
+			stats.recordCall(method.getName());
+		}
+		if (result != null) {
+			record(request, result, accessors(result.getClass()).consumedCapacity(result));
+		}
+		return result;
+	}
+
+	private void record(Object request, Object result, double capacityUnits) {
+		if (result instanceof GetItemResult) {
+			stats.recordRead(((GetItemResult) result).getItem() != null ? 1 : 0, capacityUnits);
+		} else if (result instanceof BatchGetItemResult) {
+			long items = 0;
+			for (List<?> tableItems : ((BatchGetItemResult) result).getResponses().values()) {
+				items += tableItems.size();
+			}
+			stats.recordRead(items, capacityUnits);
+		} else if (result instanceof QueryResult) {
+			stats.recordRead(count(((QueryResult) result).getScannedCount()), capacityUnits);
+		} else if (result instanceof ScanResult) {
+			stats.recordRead(count(((ScanResult) result).getScannedCount()), capacityUnits);
+		} else if (result instanceof TransactGetItemsResult) {
+			stats.recordRead(((TransactGetItemsResult) result).getResponses().size(), capacityUnits);
+		} else if (result instanceof PutItemResult || result instanceof UpdateItemResult
+				|| result instanceof DeleteItemResult) {
+			stats.recordWrite(1, capacityUnits);
+		} else if (result instanceof BatchWriteItemResult && request instanceof BatchWriteItemRequest) {
+			stats.recordWrite(writeRequestCount(((BatchWriteItemRequest) request).getRequestItems())
+					- writeRequestCount(((BatchWriteItemResult) result).getUnprocessedItems()), capacityUnits);
+		} else if (result instanceof TransactWriteItemsResult && request instanceof TransactWriteItemsRequest) {
+			stats.recordWrite(((TransactWriteItemsRequest) request).getTransactItems().size(), capacityUnits);
+		} else {
+			stats.recordOther(capacityUnits);
+		}
+	}
+
+	private static long count(Integer count) {
+		return count != null ? count : 0;
+	}
+
+	private static long writeRequestCount(Map<String, List<WriteRequest>> requestItems) {
+		long count = 0;
+		if (requestItems != null) {
+			for (List<WriteRequest> requests : requestItems.values()) {
+				count += requests.size();
+			}
+		}
+		return count;
+	}
+
+	private static Accessors accessors(Class<?> type) {
+		return ACCESSORS.computeIfAbsent(type, Accessors::new);
+	}
+
+	/**
+	 * ReturnConsumedCapacity setter of a request type, or ConsumedCapacity getter of a result type
+	 */
+	private static class Accessors {
+		private final Method getReturnConsumedCapacity;
+		private final Method setReturnConsumedCapacity;
+		private final Method getConsumedCapacity;
+
+		Accessors(Class<?> type) {
+			this.getReturnConsumedCapacity = find(type, "getReturnConsumedCapacity");
+			this.setReturnConsumedCapacity = find(type, "setReturnConsumedCapacity", String.class);
+			this.getConsumedCapacity = find(type, "getConsumedCapacity");
+		}
+
+		private static Method find(Class<?> type, String name, Class<?>... parameterTypes) {
+			try {
+				return type.getMethod(name, parameterTypes);
+			} catch (NoSuchMethodException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * @return a copy of the request asking for its consumed capacity, or the request itself
+		 */
+		AmazonWebServiceRequest requestConsumedCapacity(AmazonWebServiceRequest request)
+				throws ReflectiveOperationException {
+			if (getReturnConsumedCapacity == null || setReturnConsumedCapacity == null
+					|| getReturnConsumedCapacity.invoke(request) != null) {
+				return request;
+			}
+			AmazonWebServiceRequest copy = request.clone();
+			setReturnConsumedCapacity.invoke(copy, ReturnConsumedCapacity.TOTAL.toString());
+			return copy;
+		}
+
+		double consumedCapacity(Object result) throws ReflectiveOperationException {
+			if (getConsumedCapacity == null) {
+				return 0;
+			}
+			Object consumed = getConsumedCapacity.invoke(result);
+			double units = 0;
+			if (consumed instanceof ConsumedCapacity) {
+				units += capacityUnits((ConsumedCapacity) consumed);
+			} else if (consumed instanceof List) {
+				for (Object element : (List<?>) consumed) {
+					units += capacityUnits((ConsumedCapacity) element);
+				}
+			}
+			return units;
+		}
+
+		private static double capacityUnits(ConsumedCapacity consumed) {
+			return consumed.getCapacityUnits() != null ? consumed.getCapacityUnits() : 0;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.github.dynamobee.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.github.dynamobee.MigrationReport;
+import com.github.dynamobee.changeset.ChangeEntry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+
+/**
+ * Micrometer binding of {@link MigrationMetrics}; needs {@code io.micrometer:micrometer-core} on the classpath.
+ * <ul>
+ * <li>{@code dynamobee.migration}: timer of the whole run, tagged with its status</li>
+ * <li>{@code dynamobee.lock.wait}: timer of the lock acquisition, tagged with whether the lock was acquired</li>
+ * <li>{@code dynamobee.lock.attempts}: distribution of the attempts to take the lock</li>
+ * <li>{@code dynamobee.changeset}: timer of the changesets, tagged with their outcome</li>
+ * <li>{@code dynamobee.changeset.calls}: DynamoDB calls of the changesets, tagged with the operation</li>
+ * <li>{@code dynamobee.changeset.consumed.capacity}: capacity units consumed by the changesets</li>
+ * </ul>
+ * Changesets are not tagged with their id, which would create new meters for every changeset ever run;
+ * the figures of each changeset are recorded in its changelog entry and in the Flight Recorder events.
+ */
+public class MicrometerMigrationMetrics implements MigrationMetrics {
+	private static final String STATUS_FAILED = "FAILED";
+
+	private final MeterRegistry registry;
+
+	public MicrometerMigrationMetrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public void migrationFinished(MigrationReport.Status status, long durationNanos) {
+		Timer.builder("dynamobee.migration")
+				.description("Time spent by Dynamobee at startup")
+				.tag("status", status.name())
+				.register(registry)
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void migrationFailed(Throwable failure, long durationNanos) {
+		Timer.builder("dynamobee.migration")
+				.description("Time spent by Dynamobee at startup")
+				.tag("status", STATUS_FAILED)
+				.register(registry)
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void lockAcquisitionFinished(boolean acquired, int attempts, long waitNanos) {
+		Timer.builder("dynamobee.lock.wait")
+				.description("Time spent acquiring the changelog lock")
+				.tag("acquired", Boolean.toString(acquired))
+				.register(registry)
+				.record(waitNanos, TimeUnit.NANOSECONDS);
+		DistributionSummary.builder("dynamobee.lock.attempts")
+				.description("Attempts to take the changelog lock")
+				.register(registry)
+				.record(attempts);
+	}
+
+	@Override
+	public void changeSetFinished(ChangeEntry changeEntry, Outcome outcome, long durationNanos, ChangeSetStats stats) {
+		Timer.builder("dynamobee.changeset")
+				.description("Execution time of a changeset")
+				.tag("outcome", outcome.name())
+				.register(registry)
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+
+		for (Map.Entry<String, Long> calls : stats.getCallCounts().entrySet()) {
+			Counter.builder("dynamobee.changeset.calls")
+					.description("DynamoDB calls made by a changeset")
+						.tag("operation", calls.getKey())
+					.register(registry)
+					.increment(calls.getValue());
+		}
+		Counter.builder("dynamobee.changeset.consumed.capacity")
+				.description("Capacity units consumed by a changeset")
+				.baseUnit("capacityUnits")
+				.register(registry)
+				.increment(stats.getConsumedCapacityUnits());
+	}
+}
@@ -0,0 +1,62 @@
+package com.github.dynamobee.metrics;
+
+import com.github.dynamobee.MigrationReport;
+import com.github.dynamobee.changeset.ChangeEntry;
+
+
+/**
+ * Receives the measurements of a migration run, registered with
+ * {@link com.github.dynamobee.Dynamobee#addMigrationMetrics(MigrationMetrics)}.
+ * <p>
+ * Every span is reported on the thread which ran it: a {@code ...Started} call is followed, on the same thread,
+ * by the matching end call. Implementations must be thread-safe, as changelog groups can run concurrently.
+ */
+public interface MigrationMetrics {
+
+	/**
+	 * Outcome of a changeset execution
+	 */
+	enum Outcome {
+		APPLIED, REAPPLIED, FAILED
+	}
+
+	default void migrationStarted() {
+	}
+
+	/**
+	 * @param status status of the finished migration
+	 * @param durationNanos total time spent by Dynamobee, from start to finish
+	 */
+	default void migrationFinished(MigrationReport.Status status, long durationNanos) {
+	}
+
+	/**
+	 * @param failure exception which stopped the migration
+	 * @param durationNanos time spent by Dynamobee until the failure
+	 */
+	default void migrationFailed(Throwable failure, long durationNanos) {
+	}
+
+	default void lockAcquisitionStarted() {
+	}
+
+	/**
+	 * @param acquired whether the changelog lock was acquired
+	 * @param attempts number of attempts to take the lock
+	 * @param waitNanos time spent acquiring or waiting for the lock
+	 */
+	default void lockAcquisitionFinished(boolean acquired, int attempts, long waitNanos) {
+	}
+
+	default void changeSetStarted(ChangeEntry changeEntry) {
+	}
+
+	/**
+	 * @param changeEntry executed changeset
+	 * @param outcome outcome of the execution
+	 * @param durationNanos duration of the changeset method
+	 * @param stats DynamoDB calls made by the changeset
+	 */
+	default void changeSetFinished(ChangeEntry changeEntry, Outcome outcome, long durationNanos, ChangeSetStats stats) {
+	}
+}
@@ -0,0 +1,146 @@
+package com.github.dynamobee.migration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.github.dynamobee.exception.DynamobeeException;
+
+
+/**
+ * Buffers writes to one table and sends them through BatchWriteItem, {@value #MAX_BATCH_SIZE} at a time,
+ * retrying UnprocessedItems with exponential backoff. An optional {@link CapacityThrottle} paces the batches
+ * and is told about throttling.
+ * Not thread-safe: use one writer per thread.
+ */
+public class BatchWriter {
+	public static final int MAX_BATCH_SIZE = 25;
+
+	private static final int MAX_RETRIES = 10;
+	private static final long BASE_BACKOFF_MILLIS = 50L;
+	private static final long MAX_BACKOFF_MILLIS = 5000L;
+
+	private final AmazonDynamoDB client;
+	private final String tableName;
+	private final CapacityThrottle throttle;
+	private final List<WriteRequest> buffer = new ArrayList<>(MAX_BATCH_SIZE);
+	private long writtenCount = 0;
+
+	public BatchWriter(AmazonDynamoDB client, String tableName) {
+		this(client, tableName, null);
+	}
+
+	/**
+	 * @param client DynamoDB client
+	 * @param tableName table to write to
+	 * @param throttle throttle of the table's write capacity, may be null
+	 */
+	public BatchWriter(AmazonDynamoDB client, String tableName, CapacityThrottle throttle) {
+		this.client = client;
+		this.tableName = tableName;
+		this.throttle = throttle;
+	}
+
+	public void put(Map<String, AttributeValue> item) throws DynamobeeException {
+		add(new WriteRequest().withPutRequest(new PutRequest().withItem(item)));
+	}
+
+	public void delete(Map<String, AttributeValue> key) throws DynamobeeException {
+		add(new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key)));
+	}
+
+	private void add(WriteRequest request) throws DynamobeeException {
+		buffer.add(request);
+		if (buffer.size() >= MAX_BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Sends the buffered writes
+	 *
+	 * @throws DynamobeeException if some writes are still unprocessed after all retries
+	 */
+	public void flush() throws DynamobeeException {
+		if (buffer.isEmpty()) {
+			return;
+		}
+		List<WriteRequest> pending = new ArrayList<>(buffer);
+		buffer.clear();
+
+		long backoff = BASE_BACKOFF_MILLIS;
+		for (int attempt = 0; !pending.isEmpty(); attempt++) {
+			if (attempt > MAX_RETRIES) {
+				throw new DynamobeeException(pending.size() + " writes to " + tableName
+						+ " are still unprocessed after " + MAX_RETRIES + " retries");
+			}
+			if (attempt > 0) {
+				sleep(backoff);
+				backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+			}
+
+			BatchWriteItemResult result;
+			try {
+				acquireCapacity();
+				result = client.batchWriteItem(new BatchWriteItemRequest()
+						.withRequestItems(Collections.singletonMap(tableName, pending))
+						.withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+			} catch (ProvisionedThroughputExceededException e) {
+				if (throttle != null) {
+					throttle.throttled();
+				}
+				continue;
+			}
+			if (throttle != null) {
+				throttle.consumed(result.getConsumedCapacity());
+			}
+
+			List<WriteRequest> unprocessed = result.getUnprocessedItems() != null
+					? result.getUnprocessedItems().get(tableName) : null;
+			int unprocessedCount = unprocessed != null ? unprocessed.size() : 0;
+			if (unprocessedCount > 0 && throttle != null) {
+				throttle.throttled();
+			}
+			writtenCount += pending.size() - unprocessedCount;
+			pending = unprocessedCount > 0 ? new ArrayList<>(unprocessed) : Collections.<WriteRequest>emptyList();
+		}
+	}
+
+	private void acquireCapacity() throws DynamobeeException {
+		if (throttle == null) {
+			return;
+		}
+		try {
+			throttle.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DynamobeeException("Interrupted while writing to " + tableName, e);
+		}
+	}
+
+	private void sleep(long millis) throws DynamobeeException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DynamobeeException("Interrupted while writing to " + tableName, e);
+		}
+	}
+
+	/**
+	 * @return number of writes acknowledged by DynamoDB so far
+	 */
+	public long getWrittenCount() {
+		return writtenCount;
+	}
+}
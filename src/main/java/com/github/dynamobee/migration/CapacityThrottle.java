@@ -0,0 +1,182 @@
+package com.github.dynamobee.migration;
+
+import java.util.List;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+
+
+/**
+ * Adaptive rate limiter of consumed capacity units, shared by the threads writing to (or reading from) one table.
+ * <p>
+ * Capacity is granted as a token bucket refilled at the current rate. Callers report the capacity
+ * DynamoDB actually consumed, taken from the ConsumedCapacity of the responses. The rate follows AIMD:
+ * it is halved on every throttling signal, down to a floor, and grows back linearly towards the target while no
+ * throttling happens. The floor defaults to a tenth of the target, so a burst of throttling does not leave a large
+ * migration crawling back from a single unit per second.
+ */
+public class CapacityThrottle {
+	private static final double DECREASE_FACTOR = 0.5;
+	private static final double INCREASE_PER_SECOND = 0.05;
+	private static final double MIN_UNITS_PER_SECOND = 1.0;
+	private static final double DEFAULT_MIN_SHARE_OF_TARGET = 0.1;
+	private static final long THROTTLE_QUIET_PERIOD_MILLIS = 1000L;
+
+	private final double targetUnitsPerSecond;
+	private final double minUnitsPerSecond;
+	private double currentUnitsPerSecond;
+	private double available;
+	private long lastRefill = System.currentTimeMillis();
+	private long lastThrottle = 0L;
+
+	/**
+	 * @param targetUnitsPerSecond capacity units per second the throttle must not exceed
+	 */
+	public CapacityThrottle(double targetUnitsPerSecond) {
+		this(targetUnitsPerSecond, Math.max(MIN_UNITS_PER_SECOND, targetUnitsPerSecond * DEFAULT_MIN_SHARE_OF_TARGET));
+	}
+
+	/**
+	 * @param targetUnitsPerSecond capacity units per second the throttle must not exceed
+	 * @param minUnitsPerSecond capacity units per second throttling signals never bring the rate below,
+	 * at most the target
+	 */
+	public CapacityThrottle(double targetUnitsPerSecond, double minUnitsPerSecond) {
+		if (targetUnitsPerSecond <= 0) {
+			throw new IllegalArgumentException("targetUnitsPerSecond must be positive");
+		}
+		if (minUnitsPerSecond <= 0) {
+			throw new IllegalArgumentException("minUnitsPerSecond must be positive");
+		}
+		this.targetUnitsPerSecond = targetUnitsPerSecond;
+		this.minUnitsPerSecond = Math.min(minUnitsPerSecond, targetUnitsPerSecond);
+		this.currentUnitsPerSecond = targetUnitsPerSecond;
+		this.available = targetUnitsPerSecond;
+	}
+
+	/**
+	 * Throttle targeting a share of the provisioned write capacity of a table
+	 *
+	 * @param client DynamoDB client
+	 * @param tableName table to describe
+	 * @param share share of the provisioned WCU, e.g. 0.3 for 30%
+	 * @return the throttle, or null if the table has no provisioned capacity (on-demand billing)
+	 */
+	public static CapacityThrottle forTableWrites(AmazonDynamoDB client, String tableName, double share) {
+		ProvisionedThroughputDescription throughput = describeThroughput(client, tableName);
+		return forCapacity(throughput.getWriteCapacityUnits(), share);
+	}
+
+	/**
+	 * Throttle targeting a share of the provisioned read capacity of a table
+	 *
+	 * @param client DynamoDB client
+	 * @param tableName table to describe
+	 * @param share share of the provisioned RCU, e.g. 0.3 for 30%
+	 * @return the throttle, or null if the table has no provisioned capacity (on-demand billing)
+	 */
+	public static CapacityThrottle forTableReads(AmazonDynamoDB client, String tableName, double share) {
+		ProvisionedThroughputDescription throughput = describeThroughput(client, tableName);
+		return forCapacity(throughput.getReadCapacityUnits(), share);
+	}
+
+	private static ProvisionedThroughputDescription describeThroughput(AmazonDynamoDB client, String tableName) {
+		return client.describeTable(new DescribeTableRequest().withTableName(tableName))
+				.getTable().getProvisionedThroughput();
+	}
+
+	/**
+	 * Throttle targeting a share of a known provisioned capacity, e.g. the configured one of a table which
+	 * is not described
+	 *
+	 * @param provisionedUnits provisioned capacity units, null or 0 for on-demand billing
+	 * @param share share of the capacity units, e.g. 0.3 for 30%
+	 * @return the throttle, or null if there is no provisioned capacity
+	 */
+	public static CapacityThrottle forCapacity(Long provisionedUnits, double share) {
+		if (provisionedUnits == null || provisionedUnits == 0L) {
+			return null;
+		}
+		return new CapacityThrottle(Math.max(MIN_UNITS_PER_SECOND, provisionedUnits * share));
+	}
+
+	/**
+	 * Blocks until capacity is available for the next request
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void acquire() throws InterruptedException {
+		while (true) {
+			long waitMillis;
+			synchronized (this) {
+				refill();
+				if (available > 0) {
+					return;
+				}
+				waitMillis = (long) Math.ceil(-available / currentUnitsPerSecond * 1000) + 1;
+			}
+			Thread.sleep(waitMillis);
+		}
+	}
+
+	/**
+	 * @param units capacity units consumed by a request
+	 */
+	public synchronized void consumed(double units) {
+		refill();
+		available -= units;
+	}
+
+	public synchronized void consumed(ConsumedCapacity consumedCapacity) {
+		if (consumedCapacity != null && consumedCapacity.getCapacityUnits() != null) {
+			consumed(consumedCapacity.getCapacityUnits());
+		}
+	}
+
+	public synchronized void consumed(List<ConsumedCapacity> consumedCapacities) {
+		if (consumedCapacities != null) {
+			for (ConsumedCapacity consumedCapacity : consumedCapacities) {
+				consumed(consumedCapacity);
+			}
+		}
+	}
+
+	/**
+	 * Reports a throttling signal: a ProvisionedThroughputExceededException or unprocessed items
+	 */
+	public synchronized void throttled() {
+		refill();
+		currentUnitsPerSecond = Math.max(minUnitsPerSecond, currentUnitsPerSecond * DECREASE_FACTOR);
+		available = Math.min(available, currentUnitsPerSecond);
+		lastThrottle = System.currentTimeMillis();
+	}
+
+	private void refill() {
+		long now = System.currentTimeMillis();
+		double elapsedSeconds = (now - lastRefill) / 1000.0;
+		lastRefill = now;
+
+		if (now - lastThrottle > THROTTLE_QUIET_PERIOD_MILLIS) {
+			currentUnitsPerSecond = Math.min(targetUnitsPerSecond,
+					currentUnitsPerSecond + targetUnitsPerSecond * INCREASE_PER_SECOND * elapsedSeconds);
+		}
+		available = Math.min(currentUnitsPerSecond, available + currentUnitsPerSecond * elapsedSeconds);
+	}
+
+	/**
+	 * @return capacity units per second currently allowed
+	 */
+	public synchronized double getCurrentUnitsPerSecond() {
+		return currentUnitsPerSecond;
+	}
+
+	public double getTargetUnitsPerSecond() {
+		return targetUnitsPerSecond;
+	}
+
+	public double getMinUnitsPerSecond() {
+		return minUnitsPerSecond;
+	}
+}
@@ -0,0 +1,73 @@
+package com.github.dynamobee.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.dynamobee.exception.DynamobeeException;
+
+
+/**
+ * Runs the tasks of a migration helper on a dedicated pool of daemon threads and sums their counts
+ */
+final class ConcurrentTasks {
+
+	private ConcurrentTasks() {
+	}
+
+	/**
+	 * @param threadName name of the pool threads
+	 * @param poolSize maximum number of tasks running at the same time
+	 * @param tasks tasks returning the number of items they processed
+	 * @param action what the tasks do, e.g. "migrating users", for error messages
+	 * @return total of the tasks counts
+	 * @throws DynamobeeException the failure of the first failed task; the other tasks are interrupted
+	 */
+	static long run(String threadName, int poolSize, List<? extends Callable<Long>> tasks, String action)
+			throws DynamobeeException {
+		ExecutorService pool = newPool(threadName, Math.max(1, Math.min(poolSize, tasks.size())));
+
+		try {
+			List<Future<Long>> futures = new ArrayList<>();
+			for (Callable<Long> task : tasks) {
+				futures.add(pool.submit(task));
+			}
+
+			long count = 0;
+			for (Future<Long> future : futures) {
+				count += future.get();
+			}
+			return count;
+		} catch (ExecutionException e) {
+			throw failure(e, action);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DynamobeeException("Interrupted while " + action, e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * @param threadName name of the pool threads
+	 * @param poolSize number of threads
+	 * @return pool of daemon threads, to be shut down
+	 */
+	static ExecutorService newPool(String threadName, int poolSize) {
+		return Executors.newFixedThreadPool(poolSize, runnable -> {
+			Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	static DynamobeeException failure(ExecutionException e, String action) {
+		Throwable cause = e.getCause();
+		return cause instanceof DynamobeeException ? (DynamobeeException) cause
+				: new DynamobeeException("Failed " + action + ": " + cause.getMessage(), cause);
+	}
+}
@@ -0,0 +1,155 @@
+package com.github.dynamobee.migration;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dynamobee.dao.DynamobeeDao;
+import com.github.dynamobee.dao.WorkJob;
+import com.github.dynamobee.dao.WorkUnit;
+import com.github.dynamobee.exception.DynamobeeConnectionException;
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.exception.DynamobeeLockException;
+
+
+/**
+ * Work of a distributed changeset, shared through the changelog table between the lock holder
+ * (the coordinator) and the processes waiting for the lock (the workers).
+ * <p>
+ * The coordinator publishes the units, works on them like any worker, and then waits until every unit is
+ * done, taking over the units whose claim has expired. A unit is claimed with a conditional write and its
+ * claim is extended every time its progress is saved, so a unit whose owner has died is resumed by
+ * another process from the last saved progress.
+ */
+public class DistributedWork {
+	private static final Logger logger = LoggerFactory.getLogger(DistributedWork.class);
+	private static final long DEFAULT_COMPLETION_POLL_RATE = 2000L;
+
+	private final DynamobeeDao dao;
+	private final boolean coordinator;
+	private final String owner;
+	private final String changeId;
+	private final String changeLogClass;
+	private final String changeSetMethodName;
+	private volatile WorkJob job;
+
+	private DistributedWork(DynamobeeDao dao, boolean coordinator, String changeId, String changeLogClass,
+			String changeSetMethodName, WorkJob job) {
+		this.dao = dao;
+		this.coordinator = coordinator;
+		this.owner = createOwnerId();
+		this.changeId = changeId;
+		this.changeLogClass = changeLogClass;
+		this.changeSetMethodName = changeSetMethodName;
+		this.job = job;
+	}
+
+	/**
+	 * @return work of a changeset run by the lock holder
+	 */
+	public static DistributedWork coordinator(DynamobeeDao dao, String changeId, String changeLogClass,
+			String changeSetMethodName) {
+		return new DistributedWork(dao, true, changeId, changeLogClass, changeSetMethodName, null);
+	}
+
+	/**
+	 * @return work of a changeset published by the lock holder, run by a process waiting for the lock
+	 */
+	public static DistributedWork worker(DynamobeeDao dao, WorkJob job) {
+		return new DistributedWork(dao, false, job.getChangeId(), job.getChangeLogClass(),
+				job.getChangeSetMethodName(), job);
+	}
+
+	private static String createOwnerId() {
+		String host;
+		try {
+			host = InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			host = "unknown";
+		}
+		return host + ":" + UUID.randomUUID();
+	}
+
+	public boolean isCoordinator() {
+		return coordinator;
+	}
+
+	/**
+	 * The coordinator publishes the given number of units, or resumes the units of its previous, interrupted run
+	 * with their number; a worker keeps the number published by the coordinator.
+	 *
+	 * @param totalUnits number of units the work is split into
+	 * @return number of units of the work, which the caller must split its work into
+	 * @throws DynamobeeConnectionException exception
+	 * @throws DynamobeeLockException if the lock lease has been lost
+	 */
+	public int prepare(int totalUnits) throws DynamobeeConnectionException, DynamobeeLockException {
+		if (coordinator) {
+			WorkJob published = dao.publishWorkJob(
+					new WorkJob(changeId, changeLogClass, changeSetMethodName, totalUnits));
+			this.job = published;
+			logger.info("Published " + published);
+		}
+		return job.getTotalUnits();
+	}
+
+	/**
+	 * @return a unit claimed by this process, or null if no unit can be claimed right now
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public WorkUnit claim() throws DynamobeeConnectionException {
+		return dao.claimWorkUnit(job, owner);
+	}
+
+	/**
+	 * @return false if the claim has been lost and the unit must be abandoned
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public boolean saveProgress(int index, Map<String, Object> progress) throws DynamobeeConnectionException {
+		return dao.saveWorkUnitProgress(job, index, owner, progress);
+	}
+
+	/**
+	 * @return false if the claim had been lost before the unit was done
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public boolean complete(int index) throws DynamobeeConnectionException {
+		return dao.completeWorkUnit(job, index, owner);
+	}
+
+	/**
+	 * Waits until every unit is done, or until a unit can be claimed again because its owner let its claim expire
+	 *
+	 * @return true if every unit is done, false if units are claimable again
+	 * @throws DynamobeeException if interrupted
+	 */
+	public boolean awaitCompletion() throws DynamobeeException {
+		while (!dao.isWorkJobDone(job)) {
+			try {
+				Thread.sleep(DEFAULT_COMPLETION_POLL_RATE);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DynamobeeException("Interrupted while waiting for " + job, e);
+			}
+			if (dao.hasClaimableWorkUnit(job)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the published work once the changeset has been recorded as applied
+	 *
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public void finish() throws DynamobeeConnectionException {
+		if (coordinator && job != null) {
+			dao.deleteWorkJob(job);
+		}
+	}
+}
@@ -0,0 +1,310 @@
+package com.github.dynamobee.migration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+
+/**
+ * Files of items in DynamoDB JSON, one <code>{"Item":{"id":{"S":"1"}}}</code> object per line as in the DynamoDB
+ * exports to S3, binary values being base64 encoded. Files whose name ends with ".gz" are gzipped.
+ * <p>
+ * Items are streamed one at a time through buffered file channels, so files of any size are read and written
+ * in constant memory. Readers and writers are not thread-safe.
+ */
+public final class DynamoDbJsonLines {
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String ITEM = "Item";
+
+	private DynamoDbJsonLines() {
+	}
+
+	/**
+	 * @param file file to create, or to overwrite
+	 * @return writer of the file, to be closed
+	 * @throws IOException if the file can not be opened
+	 */
+	public static Writer newWriter(Path file) throws IOException {
+		OutputStream out = Channels.newOutputStream(FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+		try {
+			if (isGzipped(file)) {
+				out = new GZIPOutputStream(out, BUFFER_SIZE);
+			}
+			return new Writer(new BufferedOutputStream(out, BUFFER_SIZE));
+		} catch (IOException e) {
+			out.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param file file to read
+	 * @return reader of the file, to be closed
+	 * @throws IOException if the file can not be opened
+	 */
+	public static Reader newReader(Path file) throws IOException {
+		return newReader(Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)), isGzipped(file));
+	}
+
+	/**
+	 * @param in stream to read, e.g. of a classpath resource; closed with the reader
+	 * @param gzipped true if the stream is gzipped
+	 * @return reader of the stream, to be closed
+	 * @throws IOException if the gzip header can not be read
+	 */
+	public static Reader newReader(InputStream in, boolean gzipped) throws IOException {
+		try {
+			if (gzipped) {
+				in = new GZIPInputStream(in, BUFFER_SIZE);
+			}
+			return new Reader(new BufferedInputStream(in, BUFFER_SIZE));
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	private static boolean isGzipped(Path file) {
+		return isGzipped(file.getFileName().toString());
+	}
+
+	/**
+	 * @param name file or resource name
+	 * @return true if the name is the one of a gzipped file
+	 */
+	public static boolean isGzipped(String name) {
+		return name.endsWith(".gz");
+	}
+
+	/**
+	 * Writes items, one per line
+	 */
+	public static class Writer implements Closeable {
+		private final JsonGenerator generator;
+		private long count = 0;
+
+		Writer(OutputStream out) throws IOException {
+			this.generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+			this.generator.setRootValueSeparator(null);
+		}
+
+		public void write(Map<String, AttributeValue> item) throws IOException {
+			generator.writeStartObject();
+			generator.writeFieldName(ITEM);
+			writeMap(item);
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+			count++;
+		}
+
+		/**
+		 * @return number of items written
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		@Override
+		public void close() throws IOException {
+			generator.close();
+		}
+
+		private void writeMap(Map<String, AttributeValue> values) throws IOException {
+			generator.writeStartObject();
+			for (Map.Entry<String, AttributeValue> entry : values.entrySet()) {
+				generator.writeFieldName(entry.getKey());
+				writeValue(entry.getValue());
+			}
+			generator.writeEndObject();
+		}
+
+		private void writeValue(AttributeValue value) throws IOException {
+			generator.writeStartObject();
+			if (value.getS() != null) {
+				generator.writeStringField("S", value.getS());
+			} else if (value.getN() != null) {
+				generator.writeStringField("N", value.getN());
+			} else if (value.getB() != null) {
+				generator.writeFieldName("B");
+				generator.writeBinary(toBytes(value.getB()));
+			} else if (value.getBOOL() != null) {
+				generator.writeBooleanField("BOOL", value.getBOOL());
+			} else if (value.getNULL() != null) {
+				generator.writeBooleanField("NULL", value.getNULL());
+			} else if (value.getSS() != null) {
+				writeStrings("SS", value.getSS());
+			} else if (value.getNS() != null) {
+				writeStrings("NS", value.getNS());
+			} else if (value.getBS() != null) {
+				generator.writeArrayFieldStart("BS");
+				for (ByteBuffer binary : value.getBS()) {
+					generator.writeBinary(toBytes(binary));
+				}
+				generator.writeEndArray();
+			} else if (value.getL() != null) {
+				generator.writeArrayFieldStart("L");
+				for (AttributeValue element : value.getL()) {
+					writeValue(element);
+				}
+				generator.writeEndArray();
+			} else if (value.getM() != null) {
+				generator.writeFieldName("M");
+				writeMap(value.getM());
+			} else {
+				throw new IOException("Attribute value without type: " + value);
+			}
+			generator.writeEndObject();
+		}
+
+		private void writeStrings(String type, List<String> strings) throws IOException {
+			generator.writeArrayFieldStart(type);
+			for (String string : strings) {
+				generator.writeString(string);
+			}
+			generator.writeEndArray();
+		}
+
+		private static byte[] toBytes(ByteBuffer buffer) {
+			ByteBuffer view = buffer.duplicate();
+			byte[] bytes = new byte[view.remaining()];
+			view.get(bytes);
+			return bytes;
+		}
+	}
+
+	/**
+	 * Reads items, one at a time
+	 */
+	public static class Reader implements Closeable {
+		private final JsonParser parser;
+
+		Reader(InputStream in) throws IOException {
+			this.parser = JSON_FACTORY.createParser(in);
+		}
+
+		/**
+		 * @return next item of the file, null at the end of the file
+		 * @throws IOException if the file can not be read or is not in DynamoDB JSON
+		 */
+		public Map<String, AttributeValue> read() throws IOException {
+			JsonToken token = parser.nextToken();
+			if (token == null) {
+				return null;
+			}
+			expect(token == JsonToken.START_OBJECT && parser.nextToken() == JsonToken.FIELD_NAME
+					&& ITEM.equals(parser.getCurrentName()) && parser.nextToken() == JsonToken.START_OBJECT,
+					"{\"Item\":{...}}");
+			Map<String, AttributeValue> item = readMap();
+			expect(parser.nextToken() == JsonToken.END_OBJECT, "end of the item");
+			return item;
+		}
+
+		@Override
+		public void close() throws IOException {
+			parser.close();
+		}
+
+		private Map<String, AttributeValue> readMap() throws IOException {
+			Map<String, AttributeValue> values = new LinkedHashMap<>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				expect(parser.nextToken() == JsonToken.START_OBJECT, "attribute value of '" + name + "'");
+				values.put(name, readValue());
+			}
+			return values;
+		}
+
+		private AttributeValue readValue() throws IOException {
+			AttributeValue value = new AttributeValue();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String type = parser.getCurrentName();
+				parser.nextToken();
+				switch (type) {
+				case "S":
+					value.setS(parser.getText());
+					break;
+				case "N":
+					value.setN(parser.getText());
+					break;
+				case "B":
+					value.setB(ByteBuffer.wrap(parser.getBinaryValue()));
+					break;
+				case "BOOL":
+					value.setBOOL(parser.getBooleanValue());
+					break;
+				case "NULL":
+					value.setNULL(parser.getBooleanValue());
+					break;
+				case "SS":
+					value.setSS(readStrings());
+					break;
+				case "NS":
+					value.setNS(readStrings());
+					break;
+				case "BS":
+					expect(parser.getCurrentToken() == JsonToken.START_ARRAY, "array");
+					List<ByteBuffer> binaries = new ArrayList<>();
+					while (parser.nextToken() == JsonToken.VALUE_STRING) {
+						binaries.add(ByteBuffer.wrap(parser.getBinaryValue()));
+					}
+					value.setBS(binaries);
+					break;
+				case "L":
+					expect(parser.getCurrentToken() == JsonToken.START_ARRAY, "array");
+					List<AttributeValue> elements = new ArrayList<>();
+					while (parser.nextToken() == JsonToken.START_OBJECT) {
+						elements.add(readValue());
+					}
+					value.setL(elements);
+					break;
+				case "M":
+					expect(parser.getCurrentToken() == JsonToken.START_OBJECT, "map value");
+					value.setM(readMap());
+					break;
+				default:
+					throw new IOException("Unknown attribute type '" + type + "' at " + parser.getCurrentLocation());
+				}
+			}
+			return value;
+		}
+
+		private List<String> readStrings() throws IOException {
+			expect(parser.getCurrentToken() == JsonToken.START_ARRAY, "array");
+			List<String> strings = new ArrayList<>();
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				expect(parser.getCurrentToken() != null && parser.getCurrentToken().isScalarValue(), "string");
+				strings.add(parser.getText());
+			}
+			return strings;
+		}
+
+		private void expect(boolean condition, String expected) throws IOException {
+			if (!condition) {
+				throw new IOException("Expected " + expected + " at " + parser.getCurrentLocation());
+			}
+		}
+	}
+}
@@ -0,0 +1,262 @@
+package com.github.dynamobee.migration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.CreateGlobalSecondaryIndexAction;
+import com.amazonaws.services.dynamodbv2.model.DeleteGlobalSecondaryIndexAction;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexUpdate;
+import com.amazonaws.services.dynamodbv2.model.IndexStatus;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+import com.amazonaws.services.dynamodbv2.model.UpdateGlobalSecondaryIndexAction;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+import com.github.dynamobee.exception.DynamobeeException;
+
+
+/**
+ * Helper for changesets creating, updating or deleting global secondary indexes.
+ * Can be injected as a @{@link com.github.dynamobee.changeset.ChangeSet} method parameter.
+ * <p>
+ * Every operation returns once DynamoDB has finished it, i.e. once a new index has been backfilled and is ACTIVE,
+ * so the changeset is recorded as applied only when its index can be queried. The table is polled at an adaptive
+ * rate: quickly after every change of the index status or backfilling flag, then less and less often up to
+ * {@link #withMaxPollInterval(long)} while a long backfill makes no visible progress.
+ * <p>
+ * Operations are idempotent, so a changeset interrupted while waiting resumes the wait when run again.
+ * A backfill can take hours: to keep it from blocking the application startup, run the migration in the background
+ * with {@link com.github.dynamobee.Dynamobee#setAsync(boolean)}.
+ */
+public class IndexManager {
+	private static final Logger logger = LoggerFactory.getLogger(IndexManager.class);
+	private static final long DEFAULT_MIN_POLL_INTERVAL = 1000L;
+	private static final long DEFAULT_MAX_POLL_INTERVAL = 60000L;
+
+	private final AmazonDynamoDB client;
+	private long minPollInterval = DEFAULT_MIN_POLL_INTERVAL;
+	private long maxPollInterval = DEFAULT_MAX_POLL_INTERVAL;
+	private long timeout = 0;
+
+	public IndexManager(AmazonDynamoDB client) {
+		this.client = client;
+	}
+
+	/**
+	 * @param minPollInterval delay before the first status check and after every status change, in milliseconds
+	 * @return IndexManager object for fluent interface
+	 */
+	public IndexManager withMinPollInterval(long minPollInterval) {
+		this.minPollInterval = minPollInterval;
+		return this;
+	}
+
+	/**
+	 * @param maxPollInterval longest delay between two status checks, in milliseconds
+	 * @return IndexManager object for fluent interface
+	 */
+	public IndexManager withMaxPollInterval(long maxPollInterval) {
+		this.maxPollInterval = maxPollInterval;
+		return this;
+	}
+
+	/**
+	 * @param timeout time after which an operation gives up waiting, in milliseconds; 0 waits forever
+	 * @return IndexManager object for fluent interface
+	 */
+	public IndexManager withTimeout(long timeout) {
+		this.timeout = timeout;
+		return this;
+	}
+
+	/**
+	 * Creates a global secondary index, unless the table already has it, and waits for it to be ACTIVE
+	 *
+	 * @param tableName table to index
+	 * @param index index to create; its provisioned throughput must be null on on-demand tables
+	 * @param attributeDefinitions definitions of the key attributes of the index
+	 * @throws DynamobeeException if the index did not become ACTIVE
+	 */
+	public void createIndex(String tableName, GlobalSecondaryIndex index, List<AttributeDefinition> attributeDefinitions)
+			throws DynamobeeException {
+		long deadline = deadline();
+		// DynamoDB accepts one index creation at a time, once the previous table update has completed
+		TableDescription table = waitForTable(tableName, deadline);
+		if (findIndex(table, index.getIndexName()) == null) {
+			logger.info("Creating index " + index.getIndexName() + " of " + tableName);
+			client.updateTable(new UpdateTableRequest()
+					.withTableName(tableName)
+					.withAttributeDefinitions(attributeDefinitions)
+					.withGlobalSecondaryIndexUpdates(new GlobalSecondaryIndexUpdate()
+							.withCreate(new CreateGlobalSecondaryIndexAction()
+									.withIndexName(index.getIndexName())
+									.withKeySchema(index.getKeySchema())
+									.withProjection(index.getProjection())
+									.withProvisionedThroughput(index.getProvisionedThroughput()))));
+		}
+		waitForIndex(tableName, index.getIndexName(), true, deadline);
+	}
+
+	/**
+	 * Changes the provisioned throughput of a global secondary index and waits for it to be ACTIVE again
+	 *
+	 * @param tableName indexed table
+	 * @param indexName index to update
+	 * @param provisionedThroughput new throughput of the index
+	 * @throws DynamobeeException if the index does not exist, or did not become ACTIVE
+	 */
+	public void updateIndex(String tableName, String indexName, ProvisionedThroughput provisionedThroughput)
+			throws DynamobeeException {
+		long deadline = deadline();
+		waitForIndex(tableName, indexName, true, deadline);
+		logger.info("Updating index " + indexName + " of " + tableName);
+		client.updateTable(new UpdateTableRequest()
+				.withTableName(tableName)
+				.withGlobalSecondaryIndexUpdates(new GlobalSecondaryIndexUpdate()
+						.withUpdate(new UpdateGlobalSecondaryIndexAction()
+								.withIndexName(indexName)
+								.withProvisionedThroughput(provisionedThroughput))));
+		waitForIndex(tableName, indexName, true, deadline);
+	}
+
+	/**
+	 * Deletes a global secondary index, if the table has it, and waits for it to be gone
+	 *
+	 * @param tableName indexed table
+	 * @param indexName index to delete
+	 * @throws DynamobeeException if the index was not deleted in time
+	 */
+	public void deleteIndex(String tableName, String indexName) throws DynamobeeException {
+		long deadline = deadline();
+		TableDescription table = waitForTable(tableName, deadline);
+		GlobalSecondaryIndexDescription index = findIndex(table, indexName);
+		if (index != null && !IndexStatus.DELETING.toString().equals(index.getIndexStatus())) {
+			waitForIndex(tableName, indexName, true, deadline);
+			logger.info("Deleting index " + indexName + " of " + tableName);
+			client.updateTable(new UpdateTableRequest()
+					.withTableName(tableName)
+					.withGlobalSecondaryIndexUpdates(new GlobalSecondaryIndexUpdate()
+							.withDelete(new DeleteGlobalSecondaryIndexAction().withIndexName(indexName))));
+		}
+		waitForIndex(tableName, indexName, false, deadline);
+	}
+
+	/**
+	 * Waits for a global secondary index to be ACTIVE, e.g. one created outside of Dynamobee
+	 *
+	 * @param tableName indexed table
+	 * @param indexName index to wait for
+	 * @throws DynamobeeException if the index does not exist, or did not become ACTIVE
+	 */
+	public void waitForIndex(String tableName, String indexName) throws DynamobeeException {
+		waitForIndex(tableName, indexName, true, deadline());
+	}
+
+	/**
+	 * @param active true to wait for the index to be ACTIVE, false to wait for it to be deleted
+	 */
+	private void waitForIndex(String tableName, String indexName, boolean active, long deadline)
+			throws DynamobeeException {
+		Poller poller = new Poller(deadline, "index " + indexName + " of " + tableName);
+		while (true) {
+			GlobalSecondaryIndexDescription index = findIndex(describe(tableName), indexName);
+			if (index == null) {
+				if (active) {
+					throw new DynamobeeException("Index " + indexName + " of " + tableName + " does not exist");
+				}
+				logger.info("Index " + indexName + " of " + tableName + " deleted");
+				return;
+			}
+			if (active && IndexStatus.ACTIVE.toString().equals(index.getIndexStatus())) {
+				if (poller.hasWaited()) {
+					logger.info("Index " + indexName + " of " + tableName + " is ACTIVE");
+				}
+				return;
+			}
+			poller.await(index.getIndexStatus() + (Boolean.TRUE.equals(index.getBackfilling()) ? ", backfilling" : ""));
+		}
+	}
+
+	/**
+	 * Waits for the table to be ACTIVE, i.e. for the previous table update to be completed
+	 */
+	private TableDescription waitForTable(String tableName, long deadline) throws DynamobeeException {
+		Poller poller = new Poller(deadline, "table " + tableName);
+		while (true) {
+			TableDescription table = describe(tableName);
+			if (TableStatus.ACTIVE.toString().equals(table.getTableStatus())) {
+				return table;
+			}
+			poller.await(table.getTableStatus());
+		}
+	}
+
+	private TableDescription describe(String tableName) {
+		return client.describeTable(tableName).getTable();
+	}
+
+	private static GlobalSecondaryIndexDescription findIndex(TableDescription table, String indexName) {
+		if (table.getGlobalSecondaryIndexes() != null) {
+			for (GlobalSecondaryIndexDescription index : table.getGlobalSecondaryIndexes()) {
+				if (indexName.equals(index.getIndexName())) {
+					return index;
+				}
+			}
+		}
+		return null;
+	}
+
+	private long deadline() {
+		return timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Sleeps between two checks of a status: the delay doubles while the status stays the same,
+	 * and starts over when it changes
+	 */
+	private class Poller {
+		private final long deadline;
+		private final String subject;
+		private String lastState;
+		private long interval = minPollInterval;
+		private boolean waited = false;
+
+		Poller(long deadline, String subject) {
+			this.deadline = deadline;
+			this.subject = subject;
+		}
+
+		void await(String state) throws DynamobeeException {
+			if (!state.equals(lastState)) {
+				logger.info("Waiting for " + subject + ": " + state);
+				lastState = state;
+				interval = minPollInterval;
+			} else {
+				interval = Math.min(interval * 2, maxPollInterval);
+			}
+
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				throw new DynamobeeException("Timed out waiting for " + subject + ", still " + state);
+			}
+			try {
+				TimeUnit.MILLISECONDS.sleep(Math.min(interval, remaining));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DynamobeeException("Interrupted while waiting for " + subject, e);
+			}
+			waited = true;
+		}
+
+		boolean hasWaited() {
+			return waited;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package com.github.dynamobee.migration;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.github.dynamobee.exception.DynamobeeException;
+
+
+/**
+ * Helper for "snapshot a table to files, transform them, reload them" changesets, with {@link TableImporter}.
+ * Can be injected as a @{@link com.github.dynamobee.changeset.ChangeSet} method parameter.
+ * <p>
+ * The table is read with a parallel scan of {@link #withTotalSegments(int)} segments, one thread per segment,
+ * each segment being streamed page after page into its own gzipped {@link DynamoDbJsonLines} file,
+ * so the memory used does not depend on the size of the table.
+ */
+public class TableExporter {
+	private static final Logger logger = LoggerFactory.getLogger(TableExporter.class);
+	private static final int DEFAULT_TOTAL_SEGMENTS = 4;
+
+	private final AmazonDynamoDB client;
+	private int totalSegments = DEFAULT_TOTAL_SEGMENTS;
+	private double readCapacityShare = 0;
+
+	public TableExporter(AmazonDynamoDB client) {
+		this.client = client;
+	}
+
+	/**
+	 * @param totalSegments number of segments of the parallel scan, scanned concurrently, one file each
+	 * @return TableExporter object for fluent interface
+	 */
+	public TableExporter withTotalSegments(int totalSegments) {
+		if (totalSegments < 1) {
+			throw new IllegalArgumentException("totalSegments must be at least 1");
+		}
+		this.totalSegments = totalSegments;
+		return this;
+	}
+
+	/**
+	 * @param readCapacityShare share of the table's provisioned RCU the scan may consume, e.g. 0.3;
+	 * 0 disables read throttling
+	 * @return TableExporter object for fluent interface
+	 */
+	public TableExporter withReadCapacityShare(double readCapacityShare) {
+		this.readCapacityShare = readCapacityShare;
+		return this;
+	}
+
+	/**
+	 * Writes every item of a table into the files <code>&lt;tableName&gt;-&lt;segment&gt;.json.gz</code>
+	 * of a directory, replacing the files of a previous export: the segment files of the table which this export
+	 * does not write, e.g. of an export with more segments, are deleted
+	 *
+	 * @param tableName table to export
+	 * @param directory directory of the files, created if missing
+	 * @return files written, one per segment
+	 * @throws DynamobeeException if the export of a segment failed
+	 */
+	public List<Path> export(final String tableName, Path directory) throws DynamobeeException {
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new DynamobeeException("Can not create export directory " + directory, e);
+		}
+		final CapacityThrottle readThrottle = readCapacityShare > 0
+				? CapacityThrottle.forTableReads(client, tableName, readCapacityShare) : null;
+
+		final List<Path> files = new ArrayList<>();
+		List<Callable<Long>> tasks = new ArrayList<>();
+		for (int segment = 0; segment < totalSegments; segment++) {
+			final int current = segment;
+			final Path file = directory.resolve(segmentFileName(tableName, segment));
+			files.add(file);
+			tasks.add(new Callable<Long>() {
+				@Override
+				public Long call() throws DynamobeeException {
+					return exportSegment(tableName, current, file, readThrottle);
+				}
+			});
+		}
+
+		deleteStaleSegmentFiles(tableName, directory, files);
+
+		long exported = ConcurrentTasks.run("dynamobee-table-exporter", totalSegments, tasks, "exporting " + tableName);
+		logger.info("Exported " + exported + " items of " + tableName + " to " + directory);
+		return files;
+	}
+
+	/**
+	 * Deletes the segment files of the table left by a previous export, which an import would load with this one
+	 */
+	private static void deleteStaleSegmentFiles(String tableName, Path directory, List<Path> files)
+			throws DynamobeeException {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				if (isSegmentFile(tableName, file) && !files.contains(file)) {
+					logger.info("Deleting " + file + " left by a previous export of " + tableName);
+					Files.delete(file);
+				}
+			}
+		} catch (IOException e) {
+			throw new DynamobeeException("Can not delete the previous export of " + tableName + " in " + directory, e);
+		}
+	}
+
+	static String segmentFileName(String tableName, int segment) {
+		return String.format("%s-%04d.json.gz", tableName, segment);
+	}
+
+	/**
+	 * @return true if the file is named like a segment file of the table, <code>&lt;tableName&gt;-NNNN.json</code>
+	 * or <code>&lt;tableName&gt;-NNNN.json.gz</code>
+	 */
+	static boolean isSegmentFile(String tableName, Path file) {
+		Path name = file.getFileName();
+		return name != null
+				&& Pattern.matches(Pattern.quote(tableName) + "-\\d{4,}\\.json(\\.gz)?", name.toString());
+	}
+
+	private long exportSegment(String tableName, int segment, Path file, CapacityThrottle readThrottle)
+			throws DynamobeeException {
+		try (DynamoDbJsonLines.Writer writer = DynamoDbJsonLines.newWriter(file)) {
+			Map<String, AttributeValue> lastEvaluatedKey = null;
+			do {
+				ScanResult page = TableMigrator.scanPage(client, new ScanRequest()
+						.withTableName(tableName)
+						.withSegment(segment)
+						.withTotalSegments(totalSegments)
+						.withExclusiveStartKey(lastEvaluatedKey), readThrottle);
+				for (Map<String, AttributeValue> item : page.getItems()) {
+					writer.write(item);
+				}
+				lastEvaluatedKey = page.getLastEvaluatedKey();
+			} while (lastEvaluatedKey != null && !lastEvaluatedKey.isEmpty());
+			return writer.getCount();
+		} catch (IOException e) {
+			throw new DynamobeeException("Can not write segment " + segment + " of " + tableName + " to " + file, e);
+		}
+	}
+}
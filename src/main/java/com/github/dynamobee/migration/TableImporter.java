@@ -0,0 +1,250 @@
+package com.github.dynamobee.migration;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.github.dynamobee.exception.DynamobeeException;
+
+
+/**
+ * Loads {@link DynamoDbJsonLines} files, e.g. written by {@link TableExporter}, into a table.
+ * Can be injected as a @{@link com.github.dynamobee.changeset.ChangeSet} method parameter.
+ * <p>
+ * Up to {@link #withThreads(int)} files are read at the same time, each one streamed item after item into a
+ * {@link BatchWriter}, so the memory used does not depend on the size of the files. Items are put, so an
+ * interrupted import can be run again from the start.
+ */
+public class TableImporter {
+	private static final Logger logger = LoggerFactory.getLogger(TableImporter.class);
+	private static final int DEFAULT_THREADS = 4;
+	private static final int CHUNK_SIZE = 4 * BatchWriter.MAX_BATCH_SIZE;
+
+	private final AmazonDynamoDB client;
+	private int threads = DEFAULT_THREADS;
+	private double writeCapacityShare = 0;
+
+	public TableImporter(AmazonDynamoDB client) {
+		this.client = client;
+	}
+
+	/**
+	 * @param threads number of files imported concurrently
+	 * @return TableImporter object for fluent interface
+	 */
+	public TableImporter withThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1");
+		}
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * @param writeCapacityShare share of the table's provisioned WCU the writes may consume, e.g. 0.3;
+	 * 0 disables write throttling
+	 * @return TableImporter object for fluent interface
+	 */
+	public TableImporter withWriteCapacityShare(double writeCapacityShare) {
+		this.writeCapacityShare = writeCapacityShare;
+		return this;
+	}
+
+	/**
+	 * Imports the segment files of the table in a directory, <code>&lt;tableName&gt;-NNNN.json</code> and
+	 * <code>&lt;tableName&gt;-NNNN.json.gz</code>, as written by {@link TableExporter#export(String, Path)}
+	 *
+	 * @param tableName table to write to, and whose files to import
+	 * @param directory directory of the files
+	 * @return number of items written
+	 * @throws DynamobeeException if the directory or a file can not be read, or the writes failed
+	 */
+	public long importDirectory(String tableName, Path directory) throws DynamobeeException {
+		return importDirectory(tableName, directory, tableName);
+	}
+
+	/**
+	 * Imports the segment files of another table in a directory, e.g. to reload an export into a new table
+	 *
+	 * @param tableName table to write to
+	 * @param directory directory of the files
+	 * @param exportedTableName table whose files to import, named <code>&lt;exportedTableName&gt;-NNNN.json</code>
+	 * or <code>&lt;exportedTableName&gt;-NNNN.json.gz</code>
+	 * @return number of items written
+	 * @throws DynamobeeException if the directory or a file can not be read, or the writes failed
+	 */
+	public long importDirectory(String tableName, Path directory, String exportedTableName)
+			throws DynamobeeException {
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path file : stream) {
+				if (TableExporter.isSegmentFile(exportedTableName, file)) {
+					files.add(file);
+				}
+			}
+		} catch (IOException e) {
+			throw new DynamobeeException("Can not list import directory " + directory, e);
+		}
+		Collections.sort(files);
+		return importFiles(tableName, files);
+	}
+
+	/**
+	 * @param tableName table to write to
+	 * @param files files to import
+	 * @return number of items written
+	 * @throws DynamobeeException if a file can not be read, or the writes failed
+	 */
+	public long importFiles(String tableName, List<Path> files) throws DynamobeeException {
+		return importFiles(tableName, files, item -> item);
+	}
+
+	/**
+	 * @param tableName table to write to
+	 * @param files files to import
+	 * @param transform function returning the item to write, or null to skip the item
+	 * @return number of items written
+	 * @throws DynamobeeException if a file can not be read, or the writes failed
+	 */
+	public long importFiles(final String tableName, List<Path> files,
+			final Function<Map<String, AttributeValue>, Map<String, AttributeValue>> transform)
+			throws DynamobeeException {
+		final CapacityThrottle writeThrottle = writeCapacityShare > 0
+				? CapacityThrottle.forTableWrites(client, tableName, writeCapacityShare) : null;
+
+		List<Callable<Long>> tasks = new ArrayList<>();
+		for (final Path file : files) {
+			tasks.add(new Callable<Long>() {
+				@Override
+				public Long call() throws DynamobeeException {
+					return importFile(tableName, file, transform, writeThrottle);
+				}
+			});
+		}
+
+		long written = ConcurrentTasks.run("dynamobee-table-importer", threads, tasks, "importing " + tableName);
+		logger.info("Imported " + written + " items into " + tableName + " from " + files.size() + " files");
+		return written;
+	}
+
+	/**
+	 * Imports the items of one stream, e.g. of a classpath resource: the items are read on the calling thread
+	 * and written by up to {@link #withThreads(int)} threads, a few batches being buffered at most
+	 *
+	 * @param tableName table to write to
+	 * @param reader reader of the items, not closed
+	 * @return number of items written
+	 * @throws DynamobeeException if the stream can not be read, or the writes failed
+	 */
+	public long importItems(final String tableName, DynamoDbJsonLines.Reader reader) throws DynamobeeException {
+		final CapacityThrottle writeThrottle = writeCapacityShare > 0
+				? CapacityThrottle.forTableWrites(client, tableName, writeCapacityShare) : null;
+		String action = "importing " + tableName;
+
+		final Semaphore pendingChunks = new Semaphore(2 * threads);
+		ExecutorService pool = ConcurrentTasks.newPool("dynamobee-table-importer", threads);
+		List<Future<Long>> futures = new ArrayList<>();
+		long written = 0;
+		try {
+			List<Map<String, AttributeValue>> chunk = new ArrayList<>(CHUNK_SIZE);
+			Map<String, AttributeValue> item;
+			while ((item = reader.read()) != null) {
+				chunk.add(item);
+				if (chunk.size() == CHUNK_SIZE) {
+					written += collectDone(futures);
+					futures.add(submitChunk(pool, pendingChunks, tableName, chunk, writeThrottle));
+					chunk = new ArrayList<>(CHUNK_SIZE);
+				}
+			}
+			if (!chunk.isEmpty()) {
+				futures.add(submitChunk(pool, pendingChunks, tableName, chunk, writeThrottle));
+			}
+			for (Future<Long> future : futures) {
+				written += future.get();
+			}
+		} catch (IOException e) {
+			throw new DynamobeeException("Can not read the items to import into " + tableName, e);
+		} catch (ExecutionException e) {
+			throw ConcurrentTasks.failure(e, action);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DynamobeeException("Interrupted while " + action, e);
+		} finally {
+			pool.shutdownNow();
+		}
+		logger.info("Imported " + written + " items into " + tableName);
+		return written;
+	}
+
+	private Future<Long> submitChunk(ExecutorService pool, final Semaphore pendingChunks, final String tableName,
+			final List<Map<String, AttributeValue>> chunk, final CapacityThrottle writeThrottle)
+			throws InterruptedException {
+		pendingChunks.acquire();
+		return pool.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws DynamobeeException {
+				try {
+					BatchWriter writer = new BatchWriter(client, tableName, writeThrottle);
+					for (Map<String, AttributeValue> item : chunk) {
+						writer.put(item);
+					}
+					writer.flush();
+					return writer.getWrittenCount();
+				} finally {
+					pendingChunks.release();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Removes the completed chunks, failing as soon as one of them has failed
+	 */
+	private static long collectDone(List<Future<Long>> futures) throws ExecutionException, InterruptedException {
+		long written = 0;
+		for (Iterator<Future<Long>> iterator = futures.iterator(); iterator.hasNext(); ) {
+			Future<Long> future = iterator.next();
+			if (future.isDone()) {
+				written += future.get();
+				iterator.remove();
+			}
+		}
+		return written;
+	}
+
+	private long importFile(String tableName, Path file,
+			Function<Map<String, AttributeValue>, Map<String, AttributeValue>> transform,
+			CapacityThrottle writeThrottle) throws DynamobeeException {
+		BatchWriter writer = new BatchWriter(client, tableName, writeThrottle);
+		try (DynamoDbJsonLines.Reader reader = DynamoDbJsonLines.newReader(file)) {
+			Map<String, AttributeValue> item;
+			while ((item = reader.read()) != null) {
+				Map<String, AttributeValue> transformed = transform.apply(item);
+				if (transformed != null) {
+					writer.put(transformed);
+				}
+			}
+		} catch (IOException e) {
+			throw new DynamobeeException("Can not read " + file + " into " + tableName, e);
+		}
+		writer.flush();
+		return writer.getWrittenCount();
+	}
+}
@@ -0,0 +1,340 @@
+package com.github.dynamobee.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.document.ItemUtils;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.github.dynamobee.changeset.ChangeSetCheckpoint;
+import com.github.dynamobee.dao.WorkUnit;
+import com.github.dynamobee.exception.DynamobeeException;
+
+
+/**
+ * Helper for "scan a table, transform each item, write it back" changesets.
+ * Can be injected as a @{@link com.github.dynamobee.changeset.ChangeSet} method parameter.
+ * <p>
+ * The table is read with a parallel scan of {@link #withTotalSegments(int)} segments, one thread per segment,
+ * and the transformed items are written with {@link BatchWriter}. Reads and writes can be limited to a share
+ * of the tables' provisioned capacity, see {@link CapacityThrottle}, so that backfills run next to live traffic.
+ * <p>
+ * Given a {@link ChangeSetCheckpoint}, the migrator persists the LastEvaluatedKey of every segment after each
+ * page, and a restarted run resumes every segment from there instead of rescanning the whole table.
+ * <p>
+ * Given a {@link DistributedWork}, the segments are shared with the processes waiting for the changelog lock.
+ */
+public class TableMigrator {
+	private static final Logger logger = LoggerFactory.getLogger(TableMigrator.class);
+	private static final int DEFAULT_TOTAL_SEGMENTS = 4;
+	private static final String SEGMENT_DONE = "DONE";
+
+	private final AmazonDynamoDB client;
+	private int totalSegments = DEFAULT_TOTAL_SEGMENTS;
+	private double readCapacityShare = 0;
+	private double writeCapacityShare = 0;
+	private ChangeSetCheckpoint checkpoint;
+	private DistributedWork distributedWork;
+
+	public TableMigrator(AmazonDynamoDB client) {
+		this.client = client;
+	}
+
+	/**
+	 * @param totalSegments number of segments of the parallel scan, scanned concurrently
+	 * @return TableMigrator object for fluent interface
+	 */
+	public TableMigrator withTotalSegments(int totalSegments) {
+		if (totalSegments < 1) {
+			throw new IllegalArgumentException("totalSegments must be at least 1");
+		}
+		this.totalSegments = totalSegments;
+		return this;
+	}
+
+	/**
+	 * @param readCapacityShare share of the source table's provisioned RCU the scan may consume, e.g. 0.3;
+	 * 0 disables read throttling
+	 * @return TableMigrator object for fluent interface
+	 */
+	public TableMigrator withReadCapacityShare(double readCapacityShare) {
+		this.readCapacityShare = readCapacityShare;
+		return this;
+	}
+
+	/**
+	 * @param writeCapacityShare share of the target table's provisioned WCU the writes may consume, e.g. 0.3;
+	 * 0 disables write throttling
+	 * @return TableMigrator object for fluent interface
+	 */
+	public TableMigrator withWriteCapacityShare(double writeCapacityShare) {
+		this.writeCapacityShare = writeCapacityShare;
+		return this;
+	}
+
+	/**
+	 * @param checkpoint checkpoint of the running changeset, used to resume an interrupted migration
+	 * @return TableMigrator object for fluent interface
+	 */
+	public TableMigrator withCheckpoint(ChangeSetCheckpoint checkpoint) {
+		this.checkpoint = checkpoint;
+		return this;
+	}
+
+	/**
+	 * Shares the migration with the other processes running the changeset, see {@link DistributedWork}.
+	 * Every process scans the segments it claims with up to {@link #withTotalSegments(int)} threads;
+	 * the checkpoint is not used, the progress of every segment being saved with its work unit.
+	 *
+	 * @param distributedWork work of the running changeset
+	 * @return TableMigrator object for fluent interface
+	 */
+	public TableMigrator withDistributedWork(DistributedWork distributedWork) {
+		this.distributedWork = distributedWork;
+		return this;
+	}
+
+	/**
+	 * Transforms every item of a table in place
+	 *
+	 * @param tableName table to migrate
+	 * @param transform function returning the item to write, or null to leave the item unchanged
+	 * @return number of items written
+	 * @throws DynamobeeException if the migration of a segment failed
+	 */
+	public long migrate(String tableName, Function<Map<String, AttributeValue>, Map<String, AttributeValue>> transform)
+			throws DynamobeeException {
+		return migrate(tableName, tableName, transform);
+	}
+
+	/**
+	 * Writes the transformation of every item of a table into another table
+	 *
+	 * @param sourceTableName table to scan
+	 * @param targetTableName table to write to
+	 * @param transform function returning the item to write, or null to skip the item
+	 * @return number of items written
+	 * @throws DynamobeeException if the migration of a segment failed
+	 */
+	public long migrate(final String sourceTableName, final String targetTableName,
+			final Function<Map<String, AttributeValue>, Map<String, AttributeValue>> transform) throws DynamobeeException {
+		final CapacityThrottle readThrottle = readCapacityShare > 0
+				? CapacityThrottle.forTableReads(client, sourceTableName, readCapacityShare) : null;
+		final CapacityThrottle writeThrottle = writeCapacityShare > 0
+				? CapacityThrottle.forTableWrites(client, targetTableName, writeCapacityShare) : null;
+
+		if (distributedWork != null) {
+			return migrateDistributed(sourceTableName, targetTableName, transform, readThrottle, writeThrottle);
+		}
+
+		final String checkpointPrefix = "migrate:" + sourceTableName + "->" + targetTableName + ":";
+		final int segmentCount = resolveTotalSegments(checkpointPrefix);
+
+		List<Callable<Long>> tasks = new ArrayList<>();
+		for (int segment = 0; segment < segmentCount; segment++) {
+			final int current = segment;
+			final SegmentProgress progress = checkpoint != null
+					? new CheckpointProgress(checkpointPrefix + "segment-" + current) : null;
+			tasks.add(new Callable<Long>() {
+				@Override
+				public Long call() throws DynamobeeException {
+					return migrateSegment(sourceTableName, targetTableName, transform, current, segmentCount,
+							progress, readThrottle, writeThrottle);
+				}
+			});
+		}
+		return runConcurrently(sourceTableName, tasks);
+	}
+
+	/**
+	 * Every process migrates the segments it manages to claim; the coordinator returns once all of them are done
+	 */
+	private long migrateDistributed(final String sourceTableName, final String targetTableName,
+			final Function<Map<String, AttributeValue>, Map<String, AttributeValue>> transform,
+			final CapacityThrottle readThrottle, final CapacityThrottle writeThrottle) throws DynamobeeException {
+		final int segmentCount = distributedWork.prepare(totalSegments);
+
+		List<Callable<Long>> tasks = new ArrayList<>();
+		for (int thread = 0; thread < Math.min(totalSegments, segmentCount); thread++) {
+			tasks.add(new Callable<Long>() {
+				@Override
+				public Long call() throws DynamobeeException {
+					long written = 0;
+					WorkUnit unit;
+					while ((unit = distributedWork.claim()) != null) {
+						written += migrateSegment(sourceTableName, targetTableName, transform, unit.getIndex(),
+								segmentCount, new WorkUnitProgress(unit), readThrottle, writeThrottle);
+					}
+					return written;
+				}
+			});
+		}
+
+		long written = 0;
+		do {
+			written += runConcurrently(sourceTableName, tasks);
+		} while (distributedWork.isCoordinator() && !distributedWork.awaitCompletion());
+		return written;
+	}
+
+	private long runConcurrently(String sourceTableName, List<Callable<Long>> tasks) throws DynamobeeException {
+		return ConcurrentTasks.run("dynamobee-table-migrator", tasks.size(), tasks, "migrating " + sourceTableName);
+	}
+
+	/**
+	 * A resumed migration keeps the segment count of the run which stored the checkpoint
+	 */
+	private int resolveTotalSegments(String checkpointPrefix) throws DynamobeeException {
+		if (checkpoint == null) {
+			return totalSegments;
+		}
+		Object stored = checkpoint.get(checkpointPrefix + "totalSegments");
+		if (stored instanceof Number) {
+			return ((Number) stored).intValue();
+		}
+		checkpoint.put(checkpointPrefix + "totalSegments", totalSegments);
+		return totalSegments;
+	}
+
+	private long migrateSegment(String sourceTableName, String targetTableName,
+			Function<Map<String, AttributeValue>, Map<String, AttributeValue>> transform, int segment,
+			int segmentCount, SegmentProgress progress, CapacityThrottle readThrottle, CapacityThrottle writeThrottle)
+			throws DynamobeeException {
+		Map<String, AttributeValue> lastEvaluatedKey = null;
+		if (progress != null) {
+			if (progress.isDone()) {
+				return 0;
+			}
+			lastEvaluatedKey = progress.getStartKey();
+		}
+
+		BatchWriter writer = new BatchWriter(client, targetTableName, writeThrottle);
+		do {
+			ScanResult page = scanPage(client, new ScanRequest()
+					.withTableName(sourceTableName)
+					.withSegment(segment)
+					.withTotalSegments(segmentCount)
+					.withExclusiveStartKey(lastEvaluatedKey), readThrottle);
+
+			for (Map<String, AttributeValue> item : page.getItems()) {
+				Map<String, AttributeValue> transformed = transform.apply(item);
+				if (transformed != null) {
+					writer.put(transformed);
+				}
+			}
+			lastEvaluatedKey = page.getLastEvaluatedKey();
+
+			if (progress != null) {
+				// everything read so far must be written before the progress is recorded
+				writer.flush();
+				boolean done = lastEvaluatedKey == null || lastEvaluatedKey.isEmpty();
+				if (!progress.save(done ? null : lastEvaluatedKey)) {
+					logger.warn("Segment " + segment + " of " + sourceTableName + " has been taken over by another process");
+					return writer.getWrittenCount();
+				}
+			}
+		} while (lastEvaluatedKey != null && !lastEvaluatedKey.isEmpty());
+
+		writer.flush();
+		return writer.getWrittenCount();
+	}
+
+	static ScanResult scanPage(AmazonDynamoDB client, ScanRequest request, CapacityThrottle readThrottle)
+			throws DynamobeeException {
+		if (readThrottle == null) {
+			return client.scan(request);
+		}
+		request.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+		while (true) {
+			try {
+				readThrottle.acquire();
+				ScanResult page = client.scan(request);
+				readThrottle.consumed(page.getConsumedCapacity());
+				return page;
+			} catch (ProvisionedThroughputExceededException e) {
+				readThrottle.throttled();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DynamobeeException("Interrupted while scanning " + request.getTableName(), e);
+			}
+		}
+	}
+
+	/**
+	 * Where a segment starts and how far it got
+	 */
+	private interface SegmentProgress {
+		boolean isDone() throws DynamobeeException;
+
+		Map<String, AttributeValue> getStartKey() throws DynamobeeException;
+
+		/**
+		 * @param lastEvaluatedKey key up to which the segment has been written, null once the segment is done
+		 * @return false if the segment must not be continued by this process
+		 */
+		boolean save(Map<String, AttributeValue> lastEvaluatedKey) throws DynamobeeException;
+	}
+
+	private class CheckpointProgress implements SegmentProgress {
+		private final String key;
+
+		CheckpointProgress(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public boolean isDone() throws DynamobeeException {
+			return SEGMENT_DONE.equals(checkpoint.get(key));
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Map<String, AttributeValue> getStartKey() throws DynamobeeException {
+			Object stored = checkpoint.get(key);
+			return stored instanceof Map ? ItemUtils.fromSimpleMap((Map<String, Object>) stored) : null;
+		}
+
+		@Override
+		public boolean save(Map<String, AttributeValue> lastEvaluatedKey) throws DynamobeeException {
+			checkpoint.put(key, lastEvaluatedKey == null ? SEGMENT_DONE : ItemUtils.toSimpleMapValue(lastEvaluatedKey));
+			return true;
+		}
+	}
+
+	private class WorkUnitProgress implements SegmentProgress {
+		private final WorkUnit unit;
+
+		WorkUnitProgress(WorkUnit unit) {
+			this.unit = unit;
+		}
+
+		@Override
+		public boolean isDone() {
+			return false;
+		}
+
+		@Override
+		public Map<String, AttributeValue> getStartKey() {
+			return unit.getProgress() != null ? ItemUtils.fromSimpleMap(unit.getProgress()) : null;
+		}
+
+		@Override
+		public boolean save(Map<String, AttributeValue> lastEvaluatedKey) throws DynamobeeException {
+			if (lastEvaluatedKey == null) {
+				return distributedWork.complete(unit.getIndex());
+			}
+			Map<String, Object> progress = ItemUtils.toSimpleMapValue(lastEvaluatedKey);
+			return distributedWork.saveProgress(unit.getIndex(), progress);
+		}
+	}
+}
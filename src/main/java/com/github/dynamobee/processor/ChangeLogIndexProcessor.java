@@ -0,0 +1,163 @@
+package com.github.dynamobee.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.utils.ChangeLogIndex;
+
+
+/**
+ * Annotation processor writing the {@link ChangeLogIndex} of the compiled @{@link ChangeLog} classes,
+ * so that {@link com.github.dynamobee.utils.ChangeService} does not need to scan the classpath at runtime.
+ * It is registered through META-INF/services and runs automatically when dynamobee is on the compile classpath.
+ */
+@SupportedAnnotationTypes("com.github.dynamobee.changeset.ChangeLog")
+public class ChangeLogIndexProcessor extends AbstractProcessor {
+	private static final String PROFILE_ANNOTATION = "org.springframework.context.annotation.Profile";
+
+	private final Map<String, String> records = new LinkedHashMap<>();
+	private boolean previousIndexLoaded = false;
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (!previousIndexLoaded) {
+			loadPreviousIndex();
+			previousIndexLoaded = true;
+		}
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(ChangeLog.class)) {
+			if (element instanceof TypeElement) {
+				indexChangeLog((TypeElement) element);
+			}
+		}
+
+		if (roundEnv.processingOver()) {
+			writeIndex();
+		}
+		return false;
+	}
+
+	private void indexChangeLog(TypeElement type) {
+		String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+		records.put(className, record(ChangeLogIndex.RECORD_CHANGELOG, className,
+				type.getAnnotation(ChangeLog.class).order(), profiles(type)));
+	}
+
+	/**
+	 * Keeps the entries of classes which are not recompiled in an incremental build
+	 */
+	private void loadPreviousIndex() {
+		try {
+			FileObject previous = processingEnv.getFiler()
+					.getResource(StandardLocation.CLASS_OUTPUT, "", ChangeLogIndex.INDEX_LOCATION);
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(previous.openInputStream(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith(ChangeLogIndex.COMMENT_PREFIX)) {
+						continue;
+					}
+					String[] fields = line.split(ChangeLogIndex.FIELD_SEPARATOR, -1);
+					if (ChangeLogIndex.RECORD_CHANGELOG.equals(fields[0]) && fields.length > 1
+							&& !records.containsKey(fields[1]) && isStillChangeLog(fields[1])) {
+						records.put(fields[1], line);
+					}
+				}
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// no previous index
+		}
+	}
+
+	private boolean isStillChangeLog(String className) {
+		TypeElement type = processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+		return type != null && type.getAnnotation(ChangeLog.class) != null;
+	}
+
+	/**
+	 * Writes the index even without any changelog, so the index of a previous build does not list removed ones
+	 */
+	private void writeIndex() {
+		try {
+			FileObject index = processingEnv.getFiler()
+					.createResource(StandardLocation.CLASS_OUTPUT, "", ChangeLogIndex.INDEX_LOCATION);
+			try (Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+				writer.write(ChangeLogIndex.COMMENT_PREFIX + " Generated by " + getClass().getName() + "\n");
+				for (String line : records.values()) {
+					writer.write(line);
+					writer.write("\n");
+				}
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Unable to write " + ChangeLogIndex.INDEX_LOCATION + ": " + e.getMessage());
+		}
+	}
+
+	private String profiles(Element element) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (!PROFILE_ANNOTATION.equals(annotation.getAnnotationType().toString())) {
+				continue;
+			}
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value
+					: annotation.getElementValues().entrySet()) {
+				if ("value".contentEquals(value.getKey().getSimpleName())) {
+					return joinProfiles(value.getValue().getValue());
+				}
+			}
+		}
+		return "";
+	}
+
+	private String joinProfiles(Object value) {
+		List<?> values = value instanceof List ? (List<?>) value : Collections.singletonList(value);
+		StringBuilder profiles = new StringBuilder();
+		for (Object profile : values) {
+			if (profiles.length() > 0) {
+				profiles.append(ChangeLogIndex.PROFILE_SEPARATOR);
+			}
+			profiles.append(profile instanceof AnnotationValue ? ((AnnotationValue) profile).getValue() : profile);
+		}
+		return profiles.toString();
+	}
+
+	private String record(String... fields) {
+		StringBuilder record = new StringBuilder();
+		for (String field : fields) {
+			if (record.length() > 0) {
+				record.append(ChangeLogIndex.FIELD_SEPARATOR);
+			}
+			record.append(field);
+		}
+		return record.toString();
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.github.dynamobee.utils;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.exception.DynamobeeConfigurationException;
+
+
+/**
+ * Changelogs resolved by previous executions, so that the Dynamobee instances of a JVM scan the classpath and
+ * sort the changelogs and changesets only once per scan package, class loader and set of active profiles.
+ * <p>
+ * The resolved changelogs reference their classes, which reference their class loader: they are softly held,
+ * so that they do not keep the weak class loader key alive. Once the classes of a discarded class loader are
+ * only reachable from the cache, the garbage collector can drop them, then the entry of their class loader.
+ * Changelogs are classes, so they can only change with a new class loader; {@link #clear()} forces a new scan
+ * anyway, and releases the classes right away.
+ */
+public class ChangeLogCache {
+	private static final ChangeLogCache SHARED = new ChangeLogCache();
+
+	private final Map<ClassLoader, SoftReference<Map<List<Object>, ResolvedChangeLogs>>> resolvedByClassLoader =
+			new WeakHashMap<>();
+
+	/**
+	 * @return cache shared by the Dynamobee instances of the JVM
+	 */
+	public static ChangeLogCache shared() {
+		return SHARED;
+	}
+
+	/**
+	 * @param service service whose changelogs to resolve
+	 * @return changelogs resolved by the service, or by a previous service of the same package, class loader
+	 * and active profiles
+	 * @throws DynamobeeChangeSetException if the changesets are invalid; such a result is not cached
+	 * @throws DynamobeeConfigurationException if the changelog groups are invalid; such a result is not cached
+	 */
+	public ResolvedChangeLogs get(ChangeService service)
+			throws DynamobeeChangeSetException, DynamobeeConfigurationException {
+		Map<List<Object>, ResolvedChangeLogs> resolved;
+		synchronized (resolvedByClassLoader) {
+			SoftReference<Map<List<Object>, ResolvedChangeLogs>> reference =
+					resolvedByClassLoader.get(service.getClassLoader());
+			resolved = reference != null ? reference.get() : null;
+			if (resolved == null) {
+				resolved = new ConcurrentHashMap<>();
+				resolvedByClassLoader.put(service.getClassLoader(), new SoftReference<>(resolved));
+			}
+		}
+
+		List<String> profiles = new ArrayList<>(service.getActiveProfiles());
+		Collections.sort(profiles);
+		List<Object> key = new ArrayList<>();
+		key.add(service.getChangeLogsBasePackage());
+		key.add(profiles);
+
+		ResolvedChangeLogs changeLogs = resolved.get(key);
+		if (changeLogs == null) {
+			// concurrent first executions may both scan, they resolve the same changelogs
+			changeLogs = ResolvedChangeLogs.resolve(service);
+			ResolvedChangeLogs previous = resolved.putIfAbsent(key, changeLogs);
+			if (previous != null) {
+				changeLogs = previous;
+			}
+		}
+		return changeLogs;
+	}
+
+	/**
+	 * Drops every resolved changelog, e.g. before discarding the class loader of the changelogs
+	 */
+	public void clear() {
+		synchronized (resolvedByClassLoader) {
+			resolvedByClassLoader.clear();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.github.dynamobee.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.exception.DynamobeeConfigurationException;
+
+
+/**
+ * Dependency graph of changelog groups (see {@link ChangeLog#group()} and {@link ChangeLog#dependsOn()})
+ */
+public class ChangeLogGraph {
+	private final List<Class<?>> changeLogs;
+	private final Map<String, List<Class<?>>> changeLogsByGroup = new LinkedHashMap<>();
+	private final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+	private final List<String> executionOrder;
+
+	/**
+	 * @param changeLogs changelog classes, sorted by {@link ChangeLogComparator}
+	 * @throws DynamobeeConfigurationException if a dependency is unknown or cyclic
+	 */
+	public ChangeLogGraph(List<Class<?>> changeLogs) throws DynamobeeConfigurationException {
+		this.changeLogs = Collections.unmodifiableList(new ArrayList<>(changeLogs));
+		for (Class<?> changeLog : changeLogs) {
+			ChangeLog annotation = changeLog.getAnnotation(ChangeLog.class);
+			String group = annotation.group();
+			if (!changeLogsByGroup.containsKey(group)) {
+				changeLogsByGroup.put(group, new ArrayList<Class<?>>());
+				dependencies.put(group, new LinkedHashSet<String>());
+			}
+			changeLogsByGroup.get(group).add(changeLog);
+			Collections.addAll(dependencies.get(group), annotation.dependsOn());
+		}
+
+		for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+			for (String dependency : entry.getValue()) {
+				if (!changeLogsByGroup.containsKey(dependency)) {
+					throw new DynamobeeConfigurationException(String.format(
+							"Changelog group '%s' depends on unknown group '%s'", entry.getKey(), dependency));
+				}
+			}
+		}
+		this.executionOrder = sortGroups();
+	}
+
+	/**
+	 * Topological sort of the groups, keeping the changelog order wherever dependencies allow it
+	 */
+	private List<String> sortGroups() throws DynamobeeConfigurationException {
+		List<String> sorted = new ArrayList<>();
+		Set<String> remaining = new LinkedHashSet<>(changeLogsByGroup.keySet());
+		while (!remaining.isEmpty()) {
+			String next = null;
+			for (String group : remaining) {
+				if (sorted.containsAll(dependencies.get(group))) {
+					next = group;
+					break;
+				}
+			}
+			if (next == null) {
+				throw new DynamobeeConfigurationException("Cyclic dependency between changelog groups " + remaining);
+			}
+			sorted.add(next);
+			remaining.remove(next);
+		}
+		return sorted;
+	}
+
+	/**
+	 * @return groups in an order where every group comes after its dependencies
+	 */
+	public List<String> getGroupsInExecutionOrder() {
+		return Collections.unmodifiableList(executionOrder);
+	}
+
+	/**
+	 * Order of a sequential run: the changelog order, except that a changelog waits until every changelog of the
+	 * groups its group depends on has run. Without dependencies, it is the changelog order itself, however the
+	 * changelogs of the groups are interleaved.
+	 *
+	 * @return every changelog, each one after the changelogs of the groups it depends on
+	 */
+	public List<Class<?>> getChangeLogsInExecutionOrder() {
+		Map<String, Integer> pending = new LinkedHashMap<>();
+		for (Map.Entry<String, List<Class<?>>> entry : changeLogsByGroup.entrySet()) {
+			pending.put(entry.getKey(), entry.getValue().size());
+		}
+		List<Class<?>> ordered = new ArrayList<>();
+		List<Class<?>> remaining = new ArrayList<>(changeLogs);
+		while (!remaining.isEmpty()) {
+			// the groups are acyclic, so some changelog is always ready
+			for (int i = 0; i < remaining.size(); i++) {
+				Class<?> changeLog = remaining.get(i);
+				String group = changeLog.getAnnotation(ChangeLog.class).group();
+				if (isReady(group, pending)) {
+					ordered.add(changeLog);
+					remaining.remove(i);
+					pending.put(group, pending.get(group) - 1);
+					break;
+				}
+			}
+		}
+		return ordered;
+	}
+
+	private boolean isReady(String group, Map<String, Integer> pending) {
+		for (String dependency : dependencies.get(group)) {
+			if (pending.get(dependency) > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public List<Class<?>> getChangeLogs(String group) {
+		return Collections.unmodifiableList(changeLogsByGroup.get(group));
+	}
+
+	public Set<String> getDependencies(String group) {
+		return Collections.unmodifiableSet(dependencies.get(group));
+	}
+}
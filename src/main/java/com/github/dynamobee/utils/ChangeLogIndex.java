@@ -0,0 +1,180 @@
+package com.github.dynamobee.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Build-time index of @{@link com.github.dynamobee.changeset.ChangeLog} classes, written by
+ * {@link com.github.dynamobee.processor.ChangeLogIndexProcessor} to {@value #INDEX_LOCATION}.
+ * The changesets are still read from the changelog classes once loaded.
+ * <p>
+ * Every line of the index is a tab separated record {@code changelog <class> <order> <profiles>},
+ * where profiles are comma separated. Lines starting with '#' are comments; records of other kinds,
+ * e.g. the changeset records written by earlier versions, are ignored.
+ */
+public class ChangeLogIndex {
+	public static final String INDEX_LOCATION = "META-INF/dynamobee/changelogs.idx";
+
+	public static final String RECORD_CHANGELOG = "changelog";
+	public static final String FIELD_SEPARATOR = "\t";
+	public static final String PROFILE_SEPARATOR = ",";
+	public static final String COMMENT_PREFIX = "#";
+
+	private final Map<String, IndexedChangeLog> changeLogs;
+	private final Set<String> roots;
+
+	private ChangeLogIndex(Map<String, IndexedChangeLog> changeLogs, Set<String> roots) {
+		this.changeLogs = changeLogs;
+		this.roots = roots;
+	}
+
+	/**
+	 * Loads and merges every index found on the classpath
+	 *
+	 * @param classLoader class loader used to look up the index resources
+	 * @return the merged index, or null if there is no index on the classpath
+	 * @throws IOException if an index can not be read
+	 */
+	public static ChangeLogIndex load(ClassLoader classLoader) throws IOException {
+		Enumeration<URL> resources = classLoader.getResources(INDEX_LOCATION);
+		if (!resources.hasMoreElements()) {
+			return null;
+		}
+
+		Map<String, IndexedChangeLog> changeLogs = new LinkedHashMap<>();
+		Set<String> roots = new HashSet<>();
+		while (resources.hasMoreElements()) {
+			URL resource = resources.nextElement();
+			roots.add(rootOf(resource, INDEX_LOCATION));
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					parseRecord(line, changeLogs);
+				}
+			}
+		}
+		return new ChangeLogIndex(changeLogs, roots);
+	}
+
+	/**
+	 * Finds the classpath roots, i.e. jars or class directories, which hold the given package or one of its
+	 * indexed changelogs but no index, e.g. jars compiled with -proc:none or without the processor on the
+	 * annotation processor path. Their changelogs are missing from the index.
+	 *
+	 * @param classLoader class loader used to look up the package
+	 * @param basePackage package where changelogs are kept
+	 * @return roots of the package without an index, empty if the index covers the whole package, or null if
+	 * the package resolves to no root, e.g. it is only kept in jars built without directory entries, so whether
+	 * the index covers it can not be told
+	 * @throws IOException if the classpath can not be read
+	 */
+	public List<String> findUnindexedRoots(ClassLoader classLoader, String basePackage) throws IOException {
+		String path = basePackage.replace('.', '/');
+		Set<String> packageRoots = new LinkedHashSet<>();
+		Enumeration<URL> resources = classLoader.getResources(path);
+		while (resources.hasMoreElements()) {
+			packageRoots.add(rootOf(resources.nextElement(), path));
+		}
+		if (packageRoots.isEmpty()) {
+			return null;
+		}
+		for (IndexedChangeLog changeLog : getChangeLogs(basePackage)) {
+			String classPath = changeLog.getClassName().replace('.', '/') + ".class";
+			URL resource = classLoader.getResource(classPath);
+			if (resource != null) {
+				packageRoots.add(rootOf(resource, classPath));
+			}
+		}
+
+		List<String> unindexed = new ArrayList<>();
+		for (String root : packageRoots) {
+			if (!roots.contains(root)) {
+				unindexed.add(root);
+			}
+		}
+		return unindexed;
+	}
+
+	private static String rootOf(URL resource, String path) {
+		String url = resource.toString();
+		while (url.endsWith("/")) {
+			url = url.substring(0, url.length() - 1);
+		}
+		return url.endsWith(path) ? url.substring(0, url.length() - path.length()) : url;
+	}
+
+	private static void parseRecord(String line, Map<String, IndexedChangeLog> changeLogs) {
+		if (line.trim().isEmpty() || line.startsWith(COMMENT_PREFIX)) {
+			return;
+		}
+		String[] fields = line.split(FIELD_SEPARATOR, -1);
+
+		if (RECORD_CHANGELOG.equals(fields[0]) && fields.length >= 4) {
+			changeLogs.put(fields[1], new IndexedChangeLog(fields[1], fields[2], parseProfiles(fields[3])));
+		}
+	}
+
+	private static List<String> parseProfiles(String field) {
+		if (field.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return Arrays.asList(field.split(PROFILE_SEPARATOR));
+	}
+
+	/**
+	 * @param basePackage package where changelogs are kept, sub-packages included
+	 * @return indexed changelogs kept in the given package
+	 */
+	public List<IndexedChangeLog> getChangeLogs(String basePackage) {
+		List<IndexedChangeLog> result = new ArrayList<>();
+		for (IndexedChangeLog changeLog : changeLogs.values()) {
+			if (changeLog.getClassName().startsWith(basePackage + ".")) {
+				result.add(changeLog);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Changelog class entry of the index
+	 */
+	public static class IndexedChangeLog {
+		private final String className;
+		private final String order;
+		private final List<String> profiles;
+
+		IndexedChangeLog(String className, String order, List<String> profiles) {
+			this.className = className;
+			this.order = order;
+			this.profiles = profiles;
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		public String getOrder() {
+			return order;
+		}
+
+		public List<String> getProfiles() {
+			return profiles;
+		}
+	}
+
+}
@@ -2,41 +2,65 @@ package com.github.dynamobee.utils;
 
 import static java.util.Arrays.asList;
 
+import java.io.IOException;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.reflections.Reflections;
+import org.reflections.util.ClasspathHelper;
+import org.reflections.util.ConfigurationBuilder;
+import org.reflections.util.FilterBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
 
 import com.github.dynamobee.changeset.ChangeEntry;
 import com.github.dynamobee.changeset.ChangeLog;
 import com.github.dynamobee.changeset.ChangeSet;
+import com.github.dynamobee.dao.DynamobeeDao;
 import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.exception.DynamobeeConfigurationException;
 
 
 /**
  * Utilities to deal with reflections and annotations
  */
 public class ChangeService {
+	private static final Logger logger = LoggerFactory.getLogger(ChangeService.class);
 	private static final String DEFAULT_PROFILE = "default";
 
 	private final String changeLogsBasePackage;
 	private final List<String> activeProfiles;
+	private final ChangeLogCache cache;
 
 	public ChangeService(String changeLogsBasePackage) {
 		this(changeLogsBasePackage, null);
 	}
 
 	public ChangeService(String changeLogsBasePackage, Environment environment) {
+		this(changeLogsBasePackage, environment, null);
+	}
+
+	/**
+	 * @param changeLogsBasePackage package to scan for changelogs
+	 * @param environment Spring environment giving the active profiles, or null
+	 * @param cache cache of previously resolved changelogs, or null to scan on every call
+	 */
+	public ChangeService(String changeLogsBasePackage, Environment environment, ChangeLogCache cache) {
 		this.changeLogsBasePackage = changeLogsBasePackage;
+		this.cache = cache;
 
 		if (environment != null && environment.getActiveProfiles() != null && environment.getActiveProfiles().length > 0) {
 			this.activeProfiles = asList(environment.getActiveProfiles());
@@ -45,9 +69,41 @@ public class ChangeService {
 		}
 	}
 
+	public String getChangeLogsBasePackage() {
+		return changeLogsBasePackage;
+	}
+
+	public List<String> getActiveProfiles() {
+		return Collections.unmodifiableList(activeProfiles);
+	}
+
+	/**
+	 * Resolves the changelogs and their changesets at once, from the cache if this service has one
+	 *
+	 * @return resolved changelogs
+	 * @throws DynamobeeChangeSetException if the changesets are invalid
+	 * @throws DynamobeeConfigurationException if the changelog groups are unknown or cyclic
+	 */
+	public ResolvedChangeLogs resolve() throws DynamobeeChangeSetException, DynamobeeConfigurationException {
+		return cache != null ? cache.get(this) : ResolvedChangeLogs.resolve(this);
+	}
+
 	public List<Class<?>> fetchChangeLogs() {
-		Reflections reflections = new Reflections(changeLogsBasePackage);
-		Set<Class<?>> changeLogs = reflections.getTypesAnnotatedWith(ChangeLog.class); // TODO remove dependency, do own method
+		if (cache != null) {
+			try {
+				return new ArrayList<>(cache.get(this).getChangeLogs());
+			} catch (DynamobeeChangeSetException | DynamobeeConfigurationException e) {
+				// invalid changesets and groups are reported by resolve, keep listing the changelogs
+			}
+		}
+		return scanChangeLogs();
+	}
+
+	List<Class<?>> scanChangeLogs() {
+		Set<Class<?>> changeLogs = fetchIndexedChangeLogs();
+		if (changeLogs.isEmpty()) {
+			changeLogs = scanClasspath();
+		}
 		List<Class<?>> filteredChangeLogs = (List<Class<?>>) filterByActiveProfiles(changeLogs);
 
 		Collections.sort(filteredChangeLogs, new ChangeLogComparator());
@@ -55,7 +111,81 @@ public class ChangeService {
 		return filteredChangeLogs;
 	}
 
+	/**
+	 * Reads changelog classes from the build-time {@link ChangeLogIndex}, if the classpath contains one
+	 * and every jar or directory holding the scanned package has an index
+	 *
+	 * @return indexed changelog classes, empty if the classpath must be scanned instead
+	 */
+	private Set<Class<?>> fetchIndexedChangeLogs() {
+		Set<Class<?>> changeLogs = new LinkedHashSet<>();
+		ClassLoader classLoader = getClassLoader();
+		try {
+			ChangeLogIndex index = ChangeLogIndex.load(classLoader);
+			if (index == null) {
+				return changeLogs;
+			}
+			List<String> unindexedRoots = index.findUnindexedRoots(classLoader, changeLogsBasePackage);
+			if (unindexedRoots == null) {
+				logger.info("No jar or directory of the classpath has an entry for " + changeLogsBasePackage
+						+ ", the changelog index can not be checked: scanning the classpath instead.");
+				return changeLogs;
+			}
+			if (!unindexedRoots.isEmpty()) {
+				logger.warn("The changelog index does not cover " + unindexedRoots + ", which hold classes of "
+						+ changeLogsBasePackage + ": scanning the classpath instead. Build them with the dynamobee"
+						+ " annotation processor to use the index.");
+				return changeLogs;
+			}
+			for (ChangeLogIndex.IndexedChangeLog indexed : index.getChangeLogs(changeLogsBasePackage)) {
+				Class<?> type = Class.forName(indexed.getClassName(), false, classLoader);
+				if (type.isAnnotationPresent(ChangeLog.class)) {
+					changeLogs.add(type);
+				}
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			// stale or unreadable index, scan the classpath instead
+			changeLogs.clear();
+		}
+		return changeLogs;
+	}
+
+	/**
+	 * Scans the jars and directories holding the changelog package. When none does, e.g. the package is only
+	 * kept in jars built without directory entries, every root of the class loader is scanned for its classes.
+	 */
+	private Set<Class<?>> scanClasspath() {
+		ClassLoader classLoader = getClassLoader();
+		if (!ClasspathHelper.forPackage(changeLogsBasePackage, classLoader).isEmpty()) {
+			return new Reflections(changeLogsBasePackage).getTypesAnnotatedWith(ChangeLog.class);
+		}
+		Reflections reflections = new Reflections(new ConfigurationBuilder()
+				.setUrls(ClasspathHelper.forClassLoader(classLoader))
+				.addClassLoader(classLoader)
+				.filterInputsBy(new FilterBuilder().includePackage(changeLogsBasePackage)));
+		return reflections.getTypesAnnotatedWith(ChangeLog.class);
+	}
+
+	ClassLoader getClassLoader() {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		return classLoader != null ? classLoader : ChangeService.class.getClassLoader();
+	}
+
 	public List<Method> fetchChangeSets(final Class<?> type) throws DynamobeeChangeSetException {
+		if (cache != null) {
+			try {
+				List<Method> changeSets = cache.get(this).getChangeSets(type);
+				if (changeSets != null) {
+					return new ArrayList<>(changeSets);
+				}
+			} catch (DynamobeeConfigurationException e) {
+				// invalid groups are reported by resolve, the changesets of a class do not depend on them
+			}
+		}
+		return scanChangeSets(type);
+	}
+
+	List<Method> scanChangeSets(final Class<?> type) throws DynamobeeChangeSetException {
 		final List<Method> changeSets = filterChangeSetAnnotation(asList(type.getDeclaredMethods()));
 		final List<Method> filteredChangeSets = (List<Method>) filterByActiveProfiles(changeSets);
 
@@ -73,6 +203,58 @@ public class ChangeService {
 		}
 	}
 
+	public boolean isDistributedChangeSet(Method changesetMethod) {
+		if (changesetMethod.isAnnotationPresent(ChangeSet.class)) {
+			ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
+			return annotation.distributed();
+		} else {
+			return false;
+		}
+	}
+
+	public boolean isTransactionalChangeSet(Method changesetMethod) {
+		if (changesetMethod.isAnnotationPresent(ChangeSet.class)) {
+			ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
+			return annotation.transactional();
+		} else {
+			return false;
+		}
+	}
+
+	public boolean isResourceChangeSet(Method changesetMethod) {
+		if (changesetMethod.isAnnotationPresent(ChangeSet.class)) {
+			ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
+			return !annotation.resource().isEmpty();
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Computes the fingerprint of the full ordered set of changesets
+	 *
+	 * @param changeIds ids of all changesets, in execution order
+	 * @return SHA-256 of the ids, hex encoded
+	 */
+	public String computeFingerprint(List<String> changeIds) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		for (String changeId : changeIds) {
+			digest.update(changeId.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+		}
+
+		StringBuilder fingerprint = new StringBuilder();
+		for (byte b : digest.digest()) {
+			fingerprint.append(String.format("%02x", b));
+		}
+		return fingerprint.toString();
+	}
+
 	public ChangeEntry createChangeEntry(Method changesetMethod) {
 		if (changesetMethod.isAnnotationPresent(ChangeSet.class)) {
 			ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
@@ -123,10 +305,22 @@ public class ChangeService {
 		final List<Method> changesetMethods = new ArrayList<>();
 		for (final Method method : allMethods) {
 			if (method.isAnnotationPresent(ChangeSet.class)) {
-				String id = method.getAnnotation(ChangeSet.class).id();
+				ChangeSet annotation = method.getAnnotation(ChangeSet.class);
+				String id = annotation.id();
 				if (changeSetIds.contains(id)) {
 					throw new DynamobeeChangeSetException(String.format("Duplicated changeset id found: '%s'", id));
 				}
+				if (DynamobeeDao.isReservedChangeId(id)) {
+					throw new DynamobeeChangeSetException(
+							String.format("Changeset id '%s' is reserved for the items of Dynamobee", id));
+				}
+				if (!annotation.resource().isEmpty() && annotation.table().isEmpty()) {
+					throw new DynamobeeChangeSetException(String.format("Changeset '%s' has a resource but no table", id));
+				}
+				if (!annotation.resource().isEmpty() && (annotation.distributed() || annotation.transactional())) {
+					throw new DynamobeeChangeSetException(
+							String.format("Changeset '%s' with a resource can not be distributed or transactional", id));
+				}
 				changeSetIds.add(id);
 				changesetMethods.add(method);
 			}
@@ -0,0 +1,60 @@
+package com.github.dynamobee.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import com.github.dynamobee.changeset.ChangeSetContext;
+import com.github.dynamobee.changeset.ChangeSetParameterResolver;
+import com.github.dynamobee.exception.DynamobeeException;
+
+
+/**
+ * Changeset method bound once to a method handle and to the resolvers of its parameters
+ */
+public class ChangeSetInvoker {
+	private final Method method;
+	private final MethodHandle handle;
+	private final ChangeSetParameterResolver[] resolvers;
+
+	/**
+	 * @throws IllegalAccessException if the method is not accessible, as {@link Method#invoke} would
+	 */
+	ChangeSetInvoker(Method method, ChangeSetParameterResolver[] resolvers) throws IllegalAccessException {
+		this.method = method;
+		this.resolvers = resolvers;
+		MethodHandle unreflected = MethodHandles.lookup().unreflect(method);
+		if (Modifier.isStatic(method.getModifiers())) {
+			unreflected = MethodHandles.dropArguments(unreflected, 0, Object.class);
+		}
+		this.handle = unreflected
+				.asType(unreflected.type().generic())
+				.asSpreader(Object[].class, resolvers.length);
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * @param changeLogInstance instance of the changelog class
+	 * @param context changeset being executed
+	 * @return value returned by the changeset method
+	 * @throws InvocationTargetException if the changeset method threw an exception
+	 * @throws DynamobeeException if a parameter could not be resolved
+	 */
+	public Object invoke(Object changeLogInstance, ChangeSetContext context)
+			throws InvocationTargetException, DynamobeeException {
+		Object[] arguments = new Object[resolvers.length];
+		for (int i = 0; i < resolvers.length; i++) {
+			arguments[i] = resolvers[i].resolve(context);
+		}
+		try {
+			return (Object) handle.invokeExact(changeLogInstance, arguments);
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+}
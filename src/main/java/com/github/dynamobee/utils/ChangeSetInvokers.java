@@ -0,0 +1,55 @@
+package com.github.dynamobee.utils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.dynamobee.changeset.ChangeSetParameterResolver;
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+
+
+/**
+ * Registry of the injectable changeset parameter types, and cache of the changeset invokers built from it.
+ * The parameters of a changeset method are resolved once, the first time the method is executed.
+ */
+public class ChangeSetInvokers {
+	private final Map<Class<?>, ChangeSetParameterResolver> resolvers = new ConcurrentHashMap<>();
+	private final Map<Method, ChangeSetInvoker> invokers = new ConcurrentHashMap<>();
+
+	/**
+	 * @param type parameter type, matched exactly
+	 * @param resolver provider of the parameter value
+	 */
+	public void register(Class<?> type, ChangeSetParameterResolver resolver) {
+		resolvers.put(type, resolver);
+		invokers.clear();
+	}
+
+	/**
+	 * @param changeSetMethod changeset method
+	 * @return the invoker of the method
+	 * @throws IllegalAccessException if the method is not accessible, which fails the migration
+	 * @throws DynamobeeChangeSetException if a parameter type has no registered resolver
+	 */
+	public ChangeSetInvoker get(Method changeSetMethod) throws IllegalAccessException, DynamobeeChangeSetException {
+		ChangeSetInvoker invoker = invokers.get(changeSetMethod);
+		if (invoker == null) {
+			invoker = create(changeSetMethod);
+			invokers.put(changeSetMethod, invoker);
+		}
+		return invoker;
+	}
+
+	private ChangeSetInvoker create(Method changeSetMethod) throws IllegalAccessException, DynamobeeChangeSetException {
+		Class<?>[] parameterTypes = changeSetMethod.getParameterTypes();
+		ChangeSetParameterResolver[] parameterResolvers = new ChangeSetParameterResolver[parameterTypes.length];
+		for (int i = 0; i < parameterTypes.length; i++) {
+			parameterResolvers[i] = resolvers.get(parameterTypes[i]);
+			if (parameterResolvers[i] == null) {
+				throw new DynamobeeChangeSetException("ChangeSet method " + changeSetMethod.getName() +
+						" has wrong arguments list. Please see docs for more info!");
+			}
+		}
+		return new ChangeSetInvoker(changeSetMethod, parameterResolvers);
+	}
+}
@@ -0,0 +1,104 @@
+package com.github.dynamobee.utils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.exception.DynamobeeConfigurationException;
+
+
+/**
+ * Changelogs and changesets found by a {@link ChangeService}, sorted and filtered by the active profiles.
+ * Immutable, so one instance can be shared by every execution through the {@link ChangeLogCache}.
+ */
+public final class ResolvedChangeLogs {
+	private final List<Class<?>> changeLogs;
+	private final ChangeLogGraph graph;
+	private final Map<Class<?>, List<Method>> changeSets;
+	private final List<String> changeIds;
+	private final String fingerprint;
+	private final boolean runAlwaysChangeSets;
+	private final boolean distributedChangeSets;
+
+	private ResolvedChangeLogs(List<Class<?>> changeLogs, ChangeLogGraph graph, Map<Class<?>, List<Method>> changeSets,
+			List<String> changeIds, String fingerprint, boolean runAlwaysChangeSets, boolean distributedChangeSets) {
+		this.changeLogs = changeLogs;
+		this.graph = graph;
+		this.changeSets = changeSets;
+		this.changeIds = changeIds;
+		this.fingerprint = fingerprint;
+		this.runAlwaysChangeSets = runAlwaysChangeSets;
+		this.distributedChangeSets = distributedChangeSets;
+	}
+
+	static ResolvedChangeLogs resolve(ChangeService service)
+			throws DynamobeeChangeSetException, DynamobeeConfigurationException {
+		List<Class<?>> changeLogs = service.scanChangeLogs();
+		// invalid groups are reported before the process lock is taken
+		ChangeLogGraph graph = new ChangeLogGraph(changeLogs);
+		Map<Class<?>, List<Method>> changeSets = new LinkedHashMap<>();
+		List<String> changeIds = new ArrayList<>();
+		boolean runAlwaysChangeSets = false;
+		boolean distributedChangeSets = false;
+		for (Class<?> changeLog : changeLogs) {
+			List<Method> methods = service.scanChangeSets(changeLog);
+			changeSets.put(changeLog, Collections.unmodifiableList(methods));
+			for (Method method : methods) {
+				changeIds.add(service.createChangeEntry(method).getChangeId());
+				runAlwaysChangeSets |= service.isRunAlwaysChangeSet(method);
+				distributedChangeSets |= service.isDistributedChangeSet(method);
+			}
+		}
+		return new ResolvedChangeLogs(Collections.unmodifiableList(changeLogs), graph, Collections.unmodifiableMap(changeSets),
+				Collections.unmodifiableList(changeIds), service.computeFingerprint(changeIds), runAlwaysChangeSets,
+				distributedChangeSets);
+	}
+
+	/**
+	 * @return changelog classes, sorted by {@link ChangeLogComparator}
+	 */
+	public List<Class<?>> getChangeLogs() {
+		return changeLogs;
+	}
+
+	/**
+	 * @return dependency graph of the changelog groups, validated when resolving
+	 */
+	public ChangeLogGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @param changeLog one of the resolved changelogs
+	 * @return its changeset methods, sorted by {@link ChangeSetComparator}, or null for another class
+	 */
+	public List<Method> getChangeSets(Class<?> changeLog) {
+		return changeSets.get(changeLog);
+	}
+
+	/**
+	 * @return ids of all the changesets, changelog after changelog
+	 */
+	public List<String> getChangeIds() {
+		return changeIds;
+	}
+
+	/**
+	 * @return fingerprint of {@link #getChangeIds()}, see {@link ChangeService#computeFingerprint(List)}
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public boolean hasRunAlwaysChangeSets() {
+		return runAlwaysChangeSets;
+	}
+
+	public boolean hasDistributedChangeSets() {
+		return distributedChangeSets;
+	}
+}